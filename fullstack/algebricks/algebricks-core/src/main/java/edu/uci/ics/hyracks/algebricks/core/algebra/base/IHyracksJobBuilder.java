@@ -49,6 +49,19 @@ public interface IHyracksJobBuilder {
     public void contributeConnectorWithTargetConstraint(ILogicalOperator exchgOp, IConnectorDescriptor conn,
             TargetConstraint numberOfTargetPartitions);
 
+    /**
+     * for exchanges that run operators of their own in front of their connector: the input of the exchange is
+     * connected one-to-one to input 0 of entryOpDesc, and the connector of the exchange leaves output 0 of exitOpDesc
+     */
+    public void contributeExchangeOperators(ILogicalOperator exchgOp, IOperatorDescriptor entryOpDesc,
+            IOperatorDescriptor exitOpDesc);
+
+    /**
+     * connects two operators contributed by an exchange; dest runs with as many partitions as src
+     */
+    public void contributeExchangeEdge(IConnectorDescriptor conn, IOperatorDescriptor src, int srcOutputIndex,
+            IOperatorDescriptor dest, int destInputIndex);
+
     public JobSpecification getJobSpec();
 
     /**
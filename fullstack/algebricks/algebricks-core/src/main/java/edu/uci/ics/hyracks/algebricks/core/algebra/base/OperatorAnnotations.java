@@ -9,4 +9,6 @@ public interface OperatorAnnotations {
     // Integer
     public static final String MAX_NUMBER_FRAMES = "MAX_NUMBER_FRAMES"; // -->
     // Integer
+    public static final String ASYNC_BOUNDARY = "ASYNC_BOUNDARY"; // -->
+    // Integer, the number of frames queued between the operator and its consumer
 }
@@ -38,6 +38,7 @@ public enum PhysicalOperatorTag {
     STREAM_PROJECT,
     STRING_STREAM_SCRIPT,
     SUBPLAN,
+    TOP_K_SORT,
     UNION_ALL,
     UNNEST,
     WRITE_RESULT,
@@ -14,6 +14,8 @@
  */
 package edu.uci.ics.hyracks.algebricks.core.algebra.operators.physical;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -37,6 +39,7 @@ import edu.uci.ics.hyracks.algebricks.core.algebra.properties.IPartitioningRequi
 import edu.uci.ics.hyracks.algebricks.core.algebra.properties.IPhysicalPropertiesVector;
 import edu.uci.ics.hyracks.algebricks.core.algebra.properties.LocalOrderProperty;
 import edu.uci.ics.hyracks.algebricks.core.algebra.properties.OrderColumn;
+import edu.uci.ics.hyracks.algebricks.core.algebra.properties.OrderedPartitionedProperty;
 import edu.uci.ics.hyracks.algebricks.core.algebra.properties.PhysicalRequirements;
 import edu.uci.ics.hyracks.algebricks.core.algebra.properties.StructuralPropertiesVector;
 
@@ -44,8 +47,19 @@ public abstract class AbstractStableSortPOperator extends AbstractPhysicalOperat
 
     protected OrderColumn[] sortColumns;
     protected List<ILocalStructuralProperty> orderProps;
+    protected final boolean rangePartitioned;
 
     public AbstractStableSortPOperator() {
+        this(false);
+    }
+
+    /**
+     * @param rangePartitioned
+     *            whether a sort in partitioned mode has its input range partitioned on the sort keys and sorts every
+     *            range in parallel, rather than having it merged into a single partition
+     */
+    public AbstractStableSortPOperator(boolean rangePartitioned) {
+        this.rangePartitioned = rangePartitioned;
     }
 
     public OrderColumn[] getSortColumns() {
@@ -71,6 +85,13 @@ public abstract class AbstractStableSortPOperator extends AbstractPhysicalOperat
             if (orderProps == null) {
                 computeLocalProperties(op);
             }
+            if (rangePartitioned) {
+                IPartitioningProperty pp = new OrderedPartitionedProperty(new ArrayList<OrderColumn>(
+                        Arrays.asList(sortColumns)), null);
+                StructuralPropertiesVector[] r = new StructuralPropertiesVector[] { new StructuralPropertiesVector(pp,
+                        null) };
+                return new PhysicalRequirements(r, IPartitioningRequirementsCoordinator.NO_COORDINATION);
+            }
             StructuralPropertiesVector[] r = new StructuralPropertiesVector[] { new StructuralPropertiesVector(
                     IPartitioningProperty.UNPARTITIONED, orderProps) };
             return new PhysicalRequirements(r, IPartitioningRequirementsCoordinator.NO_COORDINATION);
@@ -21,11 +21,15 @@ import java.util.List;
 import edu.uci.ics.hyracks.algebricks.common.exceptions.AlgebricksException;
 import edu.uci.ics.hyracks.algebricks.common.exceptions.NotImplementedException;
 import edu.uci.ics.hyracks.algebricks.common.utils.Pair;
+import edu.uci.ics.hyracks.algebricks.core.algebra.base.IHyracksJobBuilder;
 import edu.uci.ics.hyracks.algebricks.core.algebra.base.IHyracksJobBuilder.TargetConstraint;
 import edu.uci.ics.hyracks.algebricks.core.algebra.base.ILogicalOperator;
 import edu.uci.ics.hyracks.algebricks.core.algebra.base.IOptimizationContext;
+import edu.uci.ics.hyracks.algebricks.core.algebra.base.LogicalVariable;
 import edu.uci.ics.hyracks.algebricks.core.algebra.base.PhysicalOperatorTag;
+import edu.uci.ics.hyracks.algebricks.core.algebra.expressions.IVariableTypeEnvironment;
 import edu.uci.ics.hyracks.algebricks.core.algebra.operators.logical.IOperatorSchema;
+import edu.uci.ics.hyracks.algebricks.core.algebra.operators.logical.OrderOperator.IOrder.OrderKind;
 import edu.uci.ics.hyracks.algebricks.core.algebra.properties.ILocalStructuralProperty;
 import edu.uci.ics.hyracks.algebricks.core.algebra.properties.INodeDomain;
 import edu.uci.ics.hyracks.algebricks.core.algebra.properties.IPartitioningProperty;
@@ -35,17 +39,37 @@ import edu.uci.ics.hyracks.algebricks.core.algebra.properties.OrderedPartitioned
 import edu.uci.ics.hyracks.algebricks.core.algebra.properties.PhysicalRequirements;
 import edu.uci.ics.hyracks.algebricks.core.algebra.properties.StructuralPropertiesVector;
 import edu.uci.ics.hyracks.algebricks.core.jobgen.impl.JobGenContext;
+import edu.uci.ics.hyracks.algebricks.core.jobgen.impl.JobGenHelper;
+import edu.uci.ics.hyracks.algebricks.data.IBinaryComparatorFactoryProvider;
 import edu.uci.ics.hyracks.api.dataflow.IConnectorDescriptor;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 import edu.uci.ics.hyracks.api.job.IConnectorDescriptorRegistry;
+import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.dataflow.std.connectors.MToNReplicatingConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.connectors.OneToOneConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.connectors.RangePartitioningConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.misc.MaterializingOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.misc.SplitOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.sort.RangeSampleOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.sort.RangeSplitOperatorDescriptor;
 
+/**
+ * Range partitions its input on the partitioning fields. The ranges are picked while the job runs: the input is
+ * split into a materialized copy and a sample of sampleSize keys per partition, every partition picks the same
+ * splits from all samples, and only then is the materialized copy sent through the range partitioning connector.
+ */
 public class RangePartitionPOperator extends AbstractExchangePOperator {
 
     private ArrayList<OrderColumn> partitioningFields;
     private INodeDomain domain;
+    private int sampleSize;
 
-    public RangePartitionPOperator(ArrayList<OrderColumn> partitioningFields, INodeDomain domain) {
+    public RangePartitionPOperator(ArrayList<OrderColumn> partitioningFields, INodeDomain domain, int sampleSize) {
         this.partitioningFields = partitioningFields;
         this.domain = domain;
+        this.sampleSize = sampleSize;
     }
 
     @Override
@@ -65,14 +89,59 @@ public class RangePartitionPOperator extends AbstractExchangePOperator {
         return emptyUnaryRequirements();
     }
 
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void contributeRuntimeOperator(IHyracksJobBuilder builder, JobGenContext context, ILogicalOperator op,
+            IOperatorSchema opSchema, IOperatorSchema[] inputSchemas, IOperatorSchema outerPlanSchema)
+            throws AlgebricksException {
+        JobSpecification spec = builder.getJobSpec();
+        RecordDescriptor recDescriptor = JobGenHelper.mkRecordDescriptor(context.getTypeEnvironment(op), opSchema,
+                context);
+        int n = partitioningFields.size();
+        int[] keyFields = new int[n];
+        IBinaryComparatorFactory[] comps = new IBinaryComparatorFactory[n];
+        ISerializerDeserializer[] sampleFields = new ISerializerDeserializer[n];
+        IBinaryComparatorFactoryProvider bcfp = context.getBinaryComparatorFactoryProvider();
+        IVariableTypeEnvironment env = context.getTypeEnvironment(op);
+        int i = 0;
+        for (OrderColumn oc : partitioningFields) {
+            LogicalVariable var = oc.getColumn();
+            keyFields[i] = opSchema.findVariable(var);
+            comps[i] = bcfp.getBinaryComparatorFactory(env.getVarType(var), oc.getOrder() == OrderKind.ASC);
+            sampleFields[i] = recDescriptor.getFields()[keyFields[i]];
+            i++;
+        }
+
+        SplitOperatorDescriptor split = new SplitOperatorDescriptor(spec, recDescriptor, 2);
+        MaterializingOperatorDescriptor materializer = new MaterializingOperatorDescriptor(spec, recDescriptor);
+        RangeSampleOperatorDescriptor sampler = new RangeSampleOperatorDescriptor(spec, keyFields, sampleSize,
+                new RecordDescriptor(sampleFields));
+        RangeSplitOperatorDescriptor rangeSplitter = new RangeSplitOperatorDescriptor(spec, comps, recDescriptor);
+        builder.contributeExchangeEdge(new OneToOneConnectorDescriptor(spec), split, 0, materializer, 0);
+        builder.contributeExchangeEdge(new OneToOneConnectorDescriptor(spec), split, 1, sampler, 0);
+        builder.contributeExchangeEdge(new MToNReplicatingConnectorDescriptor(spec), sampler, 0, rangeSplitter, 0);
+        builder.contributeExchangeEdge(new OneToOneConnectorDescriptor(spec), materializer, 0, rangeSplitter, 1);
+        builder.contributeExchangeOperators(op, split, rangeSplitter);
+
+        IConnectorDescriptor conn = new RangePartitioningConnectorDescriptor(spec, keyFields, comps, rangeSplitter);
+        builder.contributeConnectorWithTargetConstraint(op, conn, null);
+        ILogicalOperator src = op.getInputs().get(0).getValue();
+        builder.contributeGraphEdge(src, 0, op, 0);
+    }
+
     @Override
     public Pair<IConnectorDescriptor, TargetConstraint> createConnectorDescriptor(IConnectorDescriptorRegistry spec,
             ILogicalOperator op, IOperatorSchema opSchema, JobGenContext context) throws AlgebricksException {
-        throw new NotImplementedException();
+        throw new NotImplementedException("Range partitioning is generated by contributeRuntimeOperator.");
     }
-    
+
     public List<OrderColumn> getPartitioningFields() {
         return partitioningFields;
     }
 
+    @Override
+    public String toString() {
+        return getOperatorTag().toString() + " " + partitioningFields;
+    }
+
 }
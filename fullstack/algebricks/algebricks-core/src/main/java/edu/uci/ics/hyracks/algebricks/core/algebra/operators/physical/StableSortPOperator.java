@@ -21,6 +21,7 @@ import edu.uci.ics.hyracks.algebricks.core.algebra.base.LogicalVariable;
 import edu.uci.ics.hyracks.algebricks.core.algebra.base.PhysicalOperatorTag;
 import edu.uci.ics.hyracks.algebricks.core.algebra.expressions.IVariableTypeEnvironment;
 import edu.uci.ics.hyracks.algebricks.core.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.hyracks.algebricks.core.algebra.operators.logical.AbstractLogicalOperator.ExecutionMode;
 import edu.uci.ics.hyracks.algebricks.core.algebra.operators.logical.IOperatorSchema;
 import edu.uci.ics.hyracks.algebricks.core.algebra.operators.logical.OrderOperator;
 import edu.uci.ics.hyracks.algebricks.core.algebra.operators.logical.OrderOperator.IOrder.OrderKind;
@@ -44,7 +45,11 @@ public class StableSortPOperator extends AbstractStableSortPOperator {
     private int maxNumberOfFrames;
 
     public StableSortPOperator(int maxNumberOfFrames) {
-        super();
+        this(maxNumberOfFrames, false);
+    }
+
+    public StableSortPOperator(int maxNumberOfFrames, boolean rangePartitioned) {
+        super(rangePartitioned);
         this.maxNumberOfFrames = maxNumberOfFrames;
     }
 
@@ -89,6 +94,11 @@ public class StableSortPOperator extends AbstractStableSortPOperator {
         ExternalSortOperatorDescriptor sortOpDesc = new ExternalSortOperatorDescriptor(spec, maxNumberOfFrames,
                 sortFields, nkcf, comps, recDescriptor);
         contributeOpDesc(builder, (AbstractLogicalOperator) op, sortOpDesc);
+        if (rangePartitioned && ((AbstractLogicalOperator) op).getExecutionMode() == ExecutionMode.PARTITIONED
+                && context.getClusterLocations() != null) {
+            // sort every range on its own partition instead of inheriting the single partition of the merge above
+            builder.contributeAlgebricksPartitionConstraint(sortOpDesc, context.getClusterLocations());
+        }
         ILogicalOperator src = op.getInputs().get(0).getValue();
         builder.contributeGraphEdge(src, 0, op, 0);
     }
@@ -26,6 +26,7 @@ import edu.uci.ics.hyracks.algebricks.common.exceptions.AlgebricksException;
 import edu.uci.ics.hyracks.algebricks.common.utils.Pair;
 import edu.uci.ics.hyracks.algebricks.core.algebra.base.IHyracksJobBuilder;
 import edu.uci.ics.hyracks.algebricks.core.algebra.base.ILogicalOperator;
+import edu.uci.ics.hyracks.algebricks.core.algebra.base.OperatorAnnotations;
 import edu.uci.ics.hyracks.algebricks.runtime.base.IPushRuntimeFactory;
 import edu.uci.ics.hyracks.algebricks.runtime.operators.meta.AlgebricksMetaOperatorDescriptor;
 import edu.uci.ics.hyracks.api.dataflow.ConnectorDescriptorId;
@@ -34,6 +35,7 @@ import edu.uci.ics.hyracks.api.dataflow.IOperatorDescriptor;
 import edu.uci.ics.hyracks.api.dataflow.OperatorDescriptorId;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.dataflow.std.connectors.OneToOneConnectorDescriptor;
 
 public class JobBuilder implements IHyracksJobBuilder {
 
@@ -43,6 +45,8 @@ public class JobBuilder implements IHyracksJobBuilder {
     private Map<ILogicalOperator, ArrayList<ILogicalOperator>> outEdges = new HashMap<ILogicalOperator, ArrayList<ILogicalOperator>>();
     private Map<ILogicalOperator, ArrayList<ILogicalOperator>> inEdges = new HashMap<ILogicalOperator, ArrayList<ILogicalOperator>>();
     private Map<ILogicalOperator, Pair<IConnectorDescriptor, TargetConstraint>> connectors = new HashMap<ILogicalOperator, Pair<IConnectorDescriptor, TargetConstraint>>();
+    private Map<ILogicalOperator, Pair<IOperatorDescriptor, IOperatorDescriptor>> exchangeOps = new HashMap<ILogicalOperator, Pair<IOperatorDescriptor, IOperatorDescriptor>>();
+    private List<IConnectorDescriptor> exchangeEdges = new ArrayList<IConnectorDescriptor>();
 
     private Map<ILogicalOperator, Pair<IPushRuntimeFactory, RecordDescriptor>> microOps = new HashMap<ILogicalOperator, Pair<IPushRuntimeFactory, RecordDescriptor>>();
     private Map<IPushRuntimeFactory, ILogicalOperator> revMicroOpMap = new HashMap<IPushRuntimeFactory, ILogicalOperator>();
@@ -86,6 +90,19 @@ public class JobBuilder implements IHyracksJobBuilder {
         connectors.put(exchgOp, new Pair<IConnectorDescriptor, TargetConstraint>(conn, numberOfTargetPartitions));
     }
 
+    @Override
+    public void contributeExchangeOperators(ILogicalOperator exchgOp, IOperatorDescriptor entryOpDesc,
+            IOperatorDescriptor exitOpDesc) {
+        exchangeOps.put(exchgOp, new Pair<IOperatorDescriptor, IOperatorDescriptor>(entryOpDesc, exitOpDesc));
+    }
+
+    @Override
+    public void contributeExchangeEdge(IConnectorDescriptor conn, IOperatorDescriptor src, int srcOutputIndex,
+            IOperatorDescriptor dest, int destInputIndex) {
+        jobSpec.connect(conn, src, srcOutputIndex, dest, destInputIndex);
+        exchangeEdges.add(conn);
+    }
+
     @Override
     public void contributeGraphEdge(ILogicalOperator src, int srcOutputIndex, ILogicalOperator dest, int destInputIndex) {
         ArrayList<ILogicalOperator> outputs = outEdges.get(src);
@@ -200,6 +217,9 @@ public class JobBuilder implements IHyracksJobBuilder {
 
     private Map<IConnectorDescriptor, TargetConstraint> setupConnectors() throws AlgebricksException {
         Map<IConnectorDescriptor, TargetConstraint> tgtConstraints = new HashMap<IConnectorDescriptor, TargetConstraint>();
+        for (IConnectorDescriptor conn : exchangeEdges) {
+            tgtConstraints.put(conn, TargetConstraint.SAME_COUNT);
+        }
         for (ILogicalOperator exchg : connectors.keySet()) {
             ILogicalOperator inOp = inEdges.get(exchg).get(0);
             ILogicalOperator outOp = outEdges.get(exchg).get(0);
@@ -209,6 +229,14 @@ public class JobBuilder implements IHyracksJobBuilder {
             IConnectorDescriptor conn = connPair.first;
             int producerPort = outEdges.get(inOp).indexOf(exchg);
             int consumerPort = inEdges.get(outOp).indexOf(exchg);
+            Pair<IOperatorDescriptor, IOperatorDescriptor> entryAndExit = exchangeOps.get(exchg);
+            if (entryAndExit != null) {
+                IConnectorDescriptor entryConn = new OneToOneConnectorDescriptor(jobSpec);
+                jobSpec.connect(entryConn, inOpDesc, producerPort, entryAndExit.first, 0);
+                tgtConstraints.put(entryConn, TargetConstraint.SAME_COUNT);
+                inOpDesc = entryAndExit.second;
+                producerPort = 0;
+            }
             jobSpec.connect(conn, inOpDesc, producerPort, outOpDesc, consumerPort);
             if (connPair.second != null) {
                 tgtConstraints.put(conn, connPair.second);
@@ -262,8 +290,16 @@ public class JobBuilder implements IHyracksJobBuilder {
         ArrayList<ILogicalOperator> inOps = inEdges.get(firstLogicalOp);
         int inArity = (inOps == null) ? 0 : inOps.size();
         // boolean isLeafOp = inEdges.get(firstLogicalOp) == null;
-        return new AlgebricksMetaOperatorDescriptor(jobSpec, inArity, outArity, runtimeFactories,
-                internalRecordDescriptors);
+        AlgebricksMetaOperatorDescriptor amod = new AlgebricksMetaOperatorDescriptor(jobSpec, inArity, outArity,
+                runtimeFactories, internalRecordDescriptors);
+        for (i = 0; i < n; i++) {
+            Object nQueueFrames = revMicroOpMap.get(runtimeFactories[i]).getAnnotations()
+                    .get(OperatorAnnotations.ASYNC_BOUNDARY);
+            if (nQueueFrames != null) {
+                amod.setAsyncBoundary(i, (Integer) nQueueFrames);
+            }
+        }
+        return amod;
     }
 
     private void addMicroOpToMetaRuntimeOp(ILogicalOperator aop) {
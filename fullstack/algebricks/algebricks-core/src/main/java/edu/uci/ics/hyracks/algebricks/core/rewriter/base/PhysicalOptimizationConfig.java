@@ -11,6 +11,8 @@ public class PhysicalOptimizationConfig {
     private static final String DEFAULT_HASH_GROUP_TABLE_SIZE = "DEFAULT_HASH_GROUP_TABLE_SIZE";
     private static final String DEFAULT_EXTERNAL_GROUP_TABLE_SIZE = "DEFAULT_EXTERNAL_GROUP_TABLE_SIZE";
     private static final String DEFAULT_IN_MEM_HASH_JOIN_TABLE_SIZE = "DEFAULT_IN_MEM_HASH_JOIN_TABLE_SIZE";
+    private static final String SORT_PARALLEL = "SORT_PARALLEL";
+    private static final String SORT_SAMPLES = "SORT_SAMPLES";
 
     private Properties properties = new Properties();
 
@@ -76,6 +78,29 @@ public class PhysicalOptimizationConfig {
         setInt(DEFAULT_IN_MEM_HASH_JOIN_TABLE_SIZE, tableSize);
     }
 
+    /**
+     * When set, a global sort is range partitioned on its keys and every partition sorts its own range, instead of
+     * merging all data into one partition before sorting.
+     */
+    public boolean getSortParallel() {
+        return getBoolean(SORT_PARALLEL, false);
+    }
+
+    public void setSortParallel(boolean sortParallel) {
+        setBoolean(SORT_PARALLEL, sortParallel);
+    }
+
+    /**
+     * The number of keys every partition samples to pick the ranges of a parallel sort.
+     */
+    public int getSortSamples() {
+        return getInt(SORT_SAMPLES, 100);
+    }
+
+    public void setSortSamples(int sortSamples) {
+        setInt(SORT_SAMPLES, sortSamples);
+    }
+
     private void setInt(String property, int value) {
         properties.setProperty(property, Integer.toString(value));
     }
@@ -88,4 +113,16 @@ public class PhysicalOptimizationConfig {
             return Integer.parseInt(value);
     }
 
+    private void setBoolean(String property, boolean value) {
+        properties.setProperty(property, Boolean.toString(value));
+    }
+
+    private boolean getBoolean(String property, boolean defaultValue) {
+        String value = properties.getProperty(property);
+        if (value == null)
+            return defaultValue;
+        else
+            return Boolean.parseBoolean(value);
+    }
+
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.algebricks.rewriter.rules;
+
+import java.util.LinkedList;
+
+import org.apache.commons.lang3.mutable.Mutable;
+
+import edu.uci.ics.hyracks.algebricks.common.exceptions.AlgebricksException;
+import edu.uci.ics.hyracks.algebricks.core.algebra.base.ILogicalOperator;
+import edu.uci.ics.hyracks.algebricks.core.algebra.base.IOptimizationContext;
+import edu.uci.ics.hyracks.algebricks.core.algebra.base.LogicalOperatorTag;
+import edu.uci.ics.hyracks.algebricks.core.algebra.base.LogicalVariable;
+import edu.uci.ics.hyracks.algebricks.core.algebra.base.PhysicalOperatorTag;
+import edu.uci.ics.hyracks.algebricks.core.algebra.operators.logical.AbstractLogicalOperator;
+import edu.uci.ics.hyracks.algebricks.core.algebra.operators.logical.LimitOperator;
+import edu.uci.ics.hyracks.algebricks.core.algebra.operators.logical.visitors.VariableUtilities;
+import edu.uci.ics.hyracks.algebricks.core.algebra.operators.physical.TopKSortPOperator;
+import edu.uci.ics.hyracks.algebricks.core.rewriter.base.IAlgebraicRewriteRule;
+
+/**
+ * Replaces the external sort under a LIMIT by a top-k sort that only keeps the first maxObjects + offset tuples.
+ * Running after {@link PushLimitDownRule}, this turns ORDER BY + LIMIT into a local top-k in every partition,
+ * followed by the sort-merge exchange and the global LIMIT, which together act as the merging top-k.
+ */
+public class IntroduceTopKSortRule implements IAlgebraicRewriteRule {
+
+    @Override
+    public boolean rewritePre(Mutable<ILogicalOperator> opRef, IOptimizationContext context) {
+        return false;
+    }
+
+    @Override
+    public boolean rewritePost(Mutable<ILogicalOperator> opRef, IOptimizationContext context)
+            throws AlgebricksException {
+        AbstractLogicalOperator op = (AbstractLogicalOperator) opRef.getValue();
+        if (op.getOperatorTag() != LogicalOperatorTag.LIMIT) {
+            return false;
+        }
+        LimitOperator opLim = (LimitOperator) op;
+        AbstractLogicalOperator op2 = (AbstractLogicalOperator) opLim.getInputs().get(0).getValue();
+        // PushLimitDownRule puts the local limit right on the sort, but a one-to-one exchange keeps the order too
+        if (op2.getOperatorTag() == LogicalOperatorTag.EXCHANGE && op2.getPhysicalOperator() != null
+                && op2.getPhysicalOperator().getOperatorTag() == PhysicalOperatorTag.ONE_TO_ONE_EXCHANGE) {
+            op2 = (AbstractLogicalOperator) op2.getInputs().get(0).getValue();
+        }
+        if (op2.getOperatorTag() != LogicalOperatorTag.ORDER || op2.getPhysicalOperator() == null
+                || op2.getPhysicalOperator().getOperatorTag() != PhysicalOperatorTag.STABLE_SORT) {
+            return false;
+        }
+        // the number of tuples to keep must be known before the first tuple is sorted
+        LinkedList<LogicalVariable> usedVars = new LinkedList<LogicalVariable>();
+        VariableUtilities.getUsedVariables(opLim, usedVars);
+        if (!usedVars.isEmpty()) {
+            return false;
+        }
+        int framesLimit = Math.max(3, context.getPhysicalOptimizationConfig().getMaxFramesExternalSort());
+        op2.setPhysicalOperator(new TopKSortPOperator(framesLimit, opLim.getMaxObjects().getValue(), opLim
+                .getOffset().getValue()));
+        op2.computeDeliveredPhysicalProperties(context);
+        return true;
+    }
+}
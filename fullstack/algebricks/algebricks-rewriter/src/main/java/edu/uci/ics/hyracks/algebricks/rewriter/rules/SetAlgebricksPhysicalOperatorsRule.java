@@ -192,7 +192,7 @@ public class SetAlgebricksPhysicalOperatorsRule implements IAlgebraicRewriteRule
                     }
                     if (topLevelOp) {
                         op.setPhysicalOperator(new StableSortPOperator(physicalOptimizationConfig
-                                .getMaxFramesExternalSort()));
+                                .getMaxFramesExternalSort(), physicalOptimizationConfig.getSortParallel()));
                     } else {
                         op.setPhysicalOperator(new InMemoryStableSortPOperator());
                     }
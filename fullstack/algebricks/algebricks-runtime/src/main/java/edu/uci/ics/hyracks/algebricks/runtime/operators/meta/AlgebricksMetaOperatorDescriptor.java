@@ -40,6 +40,9 @@ public class AlgebricksMetaOperatorDescriptor extends AbstractSingleActivityOper
     // array of factories for building the local runtime pipeline
     private final AlgebricksPipeline pipeline;
 
+    // frames queued behind each runtime of the pipeline, 0 if it pushes its frames synchronously
+    private int[] asyncQueueFrames;
+
     public AlgebricksMetaOperatorDescriptor(IOperatorDescriptorRegistry spec, int inputArity, int outputArity,
             IPushRuntimeFactory[] runtimeFactories, RecordDescriptor[] internalRecordDescriptors) {
         super(spec, inputArity, outputArity);
@@ -53,10 +56,34 @@ public class AlgebricksMetaOperatorDescriptor extends AbstractSingleActivityOper
         return pipeline;
     }
 
+    /**
+     * Makes the runtime at the given position of the pipeline push its output frames to its consumer through a queue
+     * of nQueueFrames frames served by a separate thread, so that both sides of the boundary can run in parallel.
+     * The consumer of the last runtime is the output of this operator. Passing 0 frames removes the boundary.
+     */
+    public void setAsyncBoundary(int position, int nQueueFrames) {
+        int nRuntimes = pipeline.getRuntimeFactories().length;
+        if (position < 0 || position >= nRuntimes || nQueueFrames < 0) {
+            throw new IllegalArgumentException("Invalid asynchronous boundary " + position + " with " + nQueueFrames
+                    + " frames in a pipeline of " + nRuntimes + " runtimes");
+        }
+        if (asyncQueueFrames == null) {
+            asyncQueueFrames = new int[nRuntimes];
+        }
+        asyncQueueFrames[position] = nQueueFrames;
+    }
+
+    public int[] getAsyncQueueFrames() {
+        return asyncQueueFrames;
+    }
+
     @Override
     public JSONObject toJSON() throws JSONException {
         JSONObject json = super.toJSON();
         json.put("micro-operators", pipeline.getRuntimeFactories());
+        if (asyncQueueFrames != null) {
+            json.put("async-queue-frames", asyncQueueFrames);
+        }
         return json;
     }
 
@@ -64,8 +91,12 @@ public class AlgebricksMetaOperatorDescriptor extends AbstractSingleActivityOper
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("Asterix { \n");
-        for (IPushRuntimeFactory f : pipeline.getRuntimeFactories()) {
-            sb.append("  " + f.toString() + ";\n");
+        IPushRuntimeFactory[] factories = pipeline.getRuntimeFactories();
+        for (int i = 0; i < factories.length; ++i) {
+            sb.append("  " + factories[i].toString() + ";\n");
+            if (asyncQueueFrames != null && asyncQueueFrames[i] > 0) {
+                sb.append("  async-boundary " + asyncQueueFrames[i] + ";\n");
+            }
         }
         sb.append("}");
         // sb.append(super.getInputArity());
@@ -95,7 +126,7 @@ public class AlgebricksMetaOperatorDescriptor extends AbstractSingleActivityOper
                         : null;
 
                 PipelineAssembler pa = new PipelineAssembler(pipeline, inputArity, outputArity, null,
-                        pipelineOutputRecordDescriptor);
+                        pipelineOutputRecordDescriptor, asyncQueueFrames);
                 try {
                     startOfPipeline = pa.assemblePipeline(writer, ctx);
                 } catch (AlgebricksException e) {
@@ -121,7 +152,7 @@ public class AlgebricksMetaOperatorDescriptor extends AbstractSingleActivityOper
                     RecordDescriptor pipelineInputRecordDescriptor = recordDescProvider.getInputRecordDescriptor(
                             AlgebricksMetaOperatorDescriptor.this.getActivityId(), 0);
                     PipelineAssembler pa = new PipelineAssembler(pipeline, inputArity, outputArity,
-                            pipelineInputRecordDescriptor, pipelineOutputRecordDescriptor);
+                            pipelineInputRecordDescriptor, pipelineOutputRecordDescriptor, asyncQueueFrames);
                     try {
                         startOfPipeline = pa.assemblePipeline(writer, ctx);
                     } catch (AlgebricksException ae) {
@@ -20,6 +20,7 @@ import edu.uci.ics.hyracks.algebricks.runtime.base.IPushRuntime;
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
 import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.AsyncFrameWriter;
 
 public class PipelineAssembler {
 
@@ -30,10 +31,25 @@ public class PipelineAssembler {
     private final int inputArity;
     private final int outputArity;
     private final AlgebricksPipeline pipeline;
+    // number of frames queued behind each runtime, 0 if it pushes its frames synchronously
+    private final int[] asyncQueueFrames;
 
     public PipelineAssembler(AlgebricksPipeline pipeline, int inputArity, int outputArity,
             RecordDescriptor pipelineInputRecordDescriptor, RecordDescriptor pipelineOutputRecordDescriptor) {
+        this(pipeline, inputArity, outputArity, pipelineInputRecordDescriptor, pipelineOutputRecordDescriptor, null);
+    }
+
+    /**
+     * @param asyncQueueFrames
+     *            - if not null, the runtime at position i hands its output to the next runtime (or to the writer of
+     *            the pipeline) through an {@link AsyncFrameWriter} of asyncQueueFrames[i] frames, unless that number
+     *            is 0.
+     */
+    public PipelineAssembler(AlgebricksPipeline pipeline, int inputArity, int outputArity,
+            RecordDescriptor pipelineInputRecordDescriptor, RecordDescriptor pipelineOutputRecordDescriptor,
+            int[] asyncQueueFrames) {
         this.pipeline = pipeline;
+        this.asyncQueueFrames = asyncQueueFrames;
         this.pipelineInputRecordDescriptor = pipelineInputRecordDescriptor;
         this.pipelineOutputRecordDescriptor = pipelineOutputRecordDescriptor;
         this.inputArity = inputArity;
@@ -45,6 +61,9 @@ public class PipelineAssembler {
         IFrameWriter start = writer;// this.writer;
         for (int i = pipeline.getRuntimeFactories().length - 1; i >= 0; i--) {
             IPushRuntime newRuntime = pipeline.getRuntimeFactories()[i].createPushRuntime(ctx);
+            if (asyncQueueFrames != null && asyncQueueFrames[i] > 0 && (start != writer || outputArity == 1)) {
+                start = new AsyncFrameWriter(ctx, start, asyncQueueFrames[i]);
+            }
             if (i == pipeline.getRuntimeFactories().length - 1) {
                 if (outputArity == 1) {
                     newRuntime.setFrameWriter(0, start, pipelineOutputRecordDescriptor);
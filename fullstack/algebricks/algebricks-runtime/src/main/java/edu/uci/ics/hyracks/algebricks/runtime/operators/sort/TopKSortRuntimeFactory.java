@@ -0,0 +1,161 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.algebricks.runtime.operators.sort;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.algebricks.common.exceptions.AlgebricksException;
+import edu.uci.ics.hyracks.algebricks.common.exceptions.NotImplementedException;
+import edu.uci.ics.hyracks.algebricks.data.IBinaryIntegerInspector;
+import edu.uci.ics.hyracks.algebricks.data.IBinaryIntegerInspectorFactory;
+import edu.uci.ics.hyracks.algebricks.runtime.base.IScalarEvaluator;
+import edu.uci.ics.hyracks.algebricks.runtime.base.IScalarEvaluatorFactory;
+import edu.uci.ics.hyracks.algebricks.runtime.operators.base.AbstractOneInputOneOutputPushRuntime;
+import edu.uci.ics.hyracks.algebricks.runtime.operators.base.AbstractOneInputOneOutputRuntimeFactory;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.data.std.api.IPointable;
+import edu.uci.ics.hyracks.data.std.primitive.VoidPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.FrameTupleReference;
+import edu.uci.ics.hyracks.dataflow.std.sort.TopKSorter;
+
+/**
+ * Sorts its input but only keeps the first maxObjects + offset tuples. Like the stream limit, the two expressions
+ * are evaluated on the first input tuple; the offset itself is not applied here but by the limit that follows.
+ */
+public class TopKSortRuntimeFactory extends AbstractOneInputOneOutputRuntimeFactory {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int framesLimit;
+    private final int[] sortFields;
+    private final INormalizedKeyComputerFactory firstKeyNormalizerFactory;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final IScalarEvaluatorFactory maxObjectsEvalFactory;
+    private final IScalarEvaluatorFactory offsetEvalFactory;
+    private final IBinaryIntegerInspectorFactory binaryIntegerInspectorFactory;
+
+    public TopKSortRuntimeFactory(int framesLimit, int[] sortFields,
+            INormalizedKeyComputerFactory firstKeyNormalizerFactory, IBinaryComparatorFactory[] comparatorFactories,
+            IScalarEvaluatorFactory maxObjectsEvalFactory, IScalarEvaluatorFactory offsetEvalFactory,
+            IBinaryIntegerInspectorFactory binaryIntegerInspectorFactory, int[] projectionList) {
+        super(projectionList);
+        // Obs: the projection list is currently ignored.
+        if (projectionList != null) {
+            throw new NotImplementedException("Cannot push projection into TopKSortRuntime.");
+        }
+        this.framesLimit = framesLimit;
+        this.sortFields = sortFields;
+        this.firstKeyNormalizerFactory = firstKeyNormalizerFactory;
+        this.comparatorFactories = comparatorFactories;
+        this.maxObjectsEvalFactory = maxObjectsEvalFactory;
+        this.offsetEvalFactory = offsetEvalFactory;
+        this.binaryIntegerInspectorFactory = binaryIntegerInspectorFactory;
+    }
+
+    @Override
+    public String toString() {
+        String s = "top-k-sort " + maxObjectsEvalFactory.toString();
+        if (offsetEvalFactory != null) {
+            return s + ", " + offsetEvalFactory.toString();
+        } else {
+            return s;
+        }
+    }
+
+    @Override
+    public AbstractOneInputOneOutputPushRuntime createOneOutputPushRuntime(final IHyracksTaskContext ctx)
+            throws AlgebricksException {
+        final IBinaryIntegerInspector bii = binaryIntegerInspectorFactory.createBinaryIntegerInspector(ctx);
+        return new AbstractOneInputOneOutputPushRuntime() {
+            private final IPointable p = VoidPointable.FACTORY.createPointable();
+            private final FrameTupleReference tRef = new FrameTupleReference();
+            private FrameTupleAccessor tAccess;
+            private IScalarEvaluator evalMaxObjects;
+            private IScalarEvaluator evalOffset;
+            private TopKSorter topKSorter;
+            private boolean firstTuple;
+
+            @Override
+            public void open() throws HyracksDataException {
+                if (topKSorter == null) {
+                    tAccess = new FrameTupleAccessor(ctx.getFrameSize(), inputRecordDesc);
+                    topKSorter = new TopKSorter(ctx, sortFields, firstKeyNormalizerFactory, comparatorFactories,
+                            outputRecordDesc, framesLimit);
+                    try {
+                        evalMaxObjects = maxObjectsEvalFactory.createScalarEvaluator(ctx);
+                        if (offsetEvalFactory != null) {
+                            evalOffset = offsetEvalFactory.createScalarEvaluator(ctx);
+                        }
+                    } catch (AlgebricksException ae) {
+                        throw new HyracksDataException(ae);
+                    }
+                }
+                topKSorter.reset(0);
+                firstTuple = true;
+                writer.open();
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                if (firstTuple) {
+                    tAccess.reset(buffer);
+                    if (tAccess.getTupleCount() == 0) {
+                        return;
+                    }
+                    firstTuple = false;
+                    long k = evaluateInteger(evalMaxObjects);
+                    if (evalOffset != null) {
+                        k += evaluateInteger(evalOffset);
+                    }
+                    topKSorter.reset((int) Math.min(k, Integer.MAX_VALUE));
+                }
+                topKSorter.insertFrame(buffer);
+            }
+
+            @Override
+            public void fail() throws HyracksDataException {
+                // the sorter stays for the next open(), but its frames do not
+                if (topKSorter != null) {
+                    topKSorter.close();
+                }
+                writer.fail();
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                try {
+                    topKSorter.flush(writer);
+                } finally {
+                    topKSorter.close();
+                    writer.close();
+                }
+            }
+
+            private int evaluateInteger(IScalarEvaluator eval) throws HyracksDataException {
+                tRef.reset(tAccess, 0);
+                try {
+                    eval.evaluate(tRef, p);
+                } catch (AlgebricksException ae) {
+                    throw new HyracksDataException(ae);
+                }
+                return bii.getIntegerValue(p.getByteArray(), p.getStartOffset(), p.getLength());
+            }
+        };
+    }
+}
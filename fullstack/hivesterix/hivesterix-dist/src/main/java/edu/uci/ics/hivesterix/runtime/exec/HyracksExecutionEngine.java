@@ -185,6 +185,7 @@ public class HyracksExecutionEngine implements IExecutionEngine {
         physicalOptimizationConfig.setMaxFramesExternalGroupBy(frameLimitExtGby);
         int frameLimitExtSort = (int) (memSizeExternalSort / frameSize);
         physicalOptimizationConfig.setMaxFramesExternalSort(frameLimitExtSort);
+        physicalOptimizationConfig.setSortParallel(conf.getBoolean("hive.algebricks.sort.parallel", false));
         builder.setPhysicalOptimizationConfig(physicalOptimizationConfig);
     }
 
@@ -50,6 +50,12 @@ public class JobSpecificationActivityClusterGraphGeneratorFactory implements IAc
 
         final ActivityClusterGraph acg = acgb.inferActivityClusters(jobId, jag);
         acg.setFrameSize(spec.getFrameSize());
+        PlanUtils.visit(spec, new IOperatorDescriptorVisitor() {
+            @Override
+            public void visit(IOperatorDescriptor op) {
+                acg.setRequiredMemoryFrames(op.getOperatorId(), op.getRequiredMemoryFrames());
+            }
+        });
         acg.setMaxReattempts(spec.getMaxReattempts());
         acg.setJobletEventListenerFactory(spec.getJobletEventListenerFactory());
         acg.setGlobalJobDataFactory(spec.getGlobalJobDataFactory());
@@ -76,6 +76,14 @@ public interface IOperatorDescriptor extends Serializable {
      */
     public void contributeSchedulingConstraints(IConstraintAcceptor constraintAcceptor, ICCApplicationContext appCtx);
 
+    /**
+     * Returns the number of frames of memory one partition of this operator needs on top of its input and output
+     * frames. The cluster controller reserves this much memory on a node before it starts a partition there.
+     * 
+     * @return Number of frames, 0 if the operator works in constant memory.
+     */
+    public int getRequiredMemoryFrames();
+
     /**
      * Gets the display name.
      */
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.api.dataflow.connectors;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import edu.uci.ics.hyracks.api.dataflow.ConnectorDescriptorId;
+import edu.uci.ics.hyracks.api.dataflow.IConnectorDescriptor;
+
+/**
+ * Materializes the output of the connectors at stage boundaries on the sending side, so that a failed task cluster
+ * can be restarted from the materialized partitions instead of re-running everything upstream of it. All other
+ * connectors are pipelined.
+ * A stage boundary is either one of the connectors given to the constructor or, if none are given, every connector
+ * that does not connect each producer to exactly one consumer, i.e. that repartitions, merges or broadcasts data.
+ * The producers and the consumers of a materialized connector are scheduled as separate task clusters, which requires
+ * the job to use the connector policies for scheduling.
+ */
+public class FaultTolerantConnectorPolicyAssignmentPolicy implements IConnectorPolicyAssignmentPolicy {
+    private static final long serialVersionUID = 1L;
+
+    private final Set<ConnectorDescriptorId> boundaries;
+
+    private final boolean blocking;
+
+    private final IConnectorPolicy pipeliningPolicy = new PipeliningConnectorPolicy();
+
+    /**
+     * Materializes every connector that is not a one-to-one connection.
+     */
+    public FaultTolerantConnectorPolicyAssignmentPolicy() {
+        this(null, false);
+    }
+
+    /**
+     * @param boundaries
+     *            - Connectors to materialize. If null, every connector that is not a one-to-one connection
+     *            is materialized.
+     * @param blocking
+     *            - Start the consumers of a materialized connector only after all its producers finished, rather
+     *            than letting them read the partitions while they are written.
+     */
+    public FaultTolerantConnectorPolicyAssignmentPolicy(Set<ConnectorDescriptorId> boundaries, boolean blocking) {
+        this.boundaries = boundaries == null ? null : new HashSet<ConnectorDescriptorId>(boundaries);
+        this.blocking = blocking;
+    }
+
+    @Override
+    public IConnectorPolicy getConnectorPolicyAssignment(IConnectorDescriptor c, int nProducers, int nConsumers,
+            int[] fanouts) {
+        if (!isStageBoundary(c, nProducers, nConsumers, fanouts)) {
+            return pipeliningPolicy;
+        }
+        return blocking ? new SendSideMaterializedBlockingConnectorPolicy()
+                : new SendSideMaterializedPipeliningConnectorPolicy();
+    }
+
+    private boolean isStageBoundary(IConnectorDescriptor c, int nProducers, int nConsumers, int[] fanouts) {
+        if (boundaries != null) {
+            return boundaries.contains(c.getConnectorId());
+        }
+        if (nProducers != nConsumers) {
+            return true;
+        }
+        for (int fanout : fanouts) {
+            if (fanout != 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
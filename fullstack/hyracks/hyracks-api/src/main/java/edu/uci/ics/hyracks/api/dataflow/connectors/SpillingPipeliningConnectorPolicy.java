@@ -0,0 +1,68 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.api.dataflow.connectors;
+
+/**
+ * Pipelines data like {@link PipeliningConnectorPolicy}, but keeps a slow consumer from stalling the producer. When a
+ * frame for a consumer could not be handed over within the spill threshold, the frames for that consumer are written
+ * to a local file and forwarded from there as the consumer catches up, so that the producer goes on feeding the other
+ * consumers.
+ */
+public final class SpillingPipeliningConnectorPolicy implements IConnectorPolicy {
+    private static final long serialVersionUID = 1L;
+
+    public static final long DEFAULT_SPILL_THRESHOLD = 100;
+
+    private final long spillThreshold;
+
+    public SpillingPipeliningConnectorPolicy() {
+        this(DEFAULT_SPILL_THRESHOLD);
+    }
+
+    /**
+     * @param spillThreshold
+     *            - Time in milliseconds the producer waits for a blocked consumer before it spills
+     */
+    public SpillingPipeliningConnectorPolicy(long spillThreshold) {
+        if (spillThreshold < 0) {
+            throw new IllegalArgumentException("Negative spill threshold: " + spillThreshold);
+        }
+        this.spillThreshold = spillThreshold;
+    }
+
+    public long getSpillThreshold() {
+        return spillThreshold;
+    }
+
+    @Override
+    public boolean requiresProducerConsumerCoscheduling() {
+        return true;
+    }
+
+    @Override
+    public boolean consumerWaitsForProducerToFinish() {
+        return false;
+    }
+
+    @Override
+    public boolean materializeOnSendSide() {
+        return false;
+    }
+
+    @Override
+    public boolean materializeOnReceiveSide() {
+        return false;
+    }
+}
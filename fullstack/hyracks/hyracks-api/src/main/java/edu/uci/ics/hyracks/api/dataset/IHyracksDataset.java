@@ -19,4 +19,11 @@ import edu.uci.ics.hyracks.api.job.JobId;
 
 public interface IHyracksDataset {
     public IHyracksDatasetReader createReader(JobId jobId, ResultSetId resultSetId) throws HyracksDataException;
+
+    /**
+     * Creates a reader that fetches all result partitions concurrently, keeping up to nReadBuffers frames in flight
+     * per partition. If ordered is false, frames are returned in arrival order regardless of their partition.
+     */
+    public IHyracksDatasetReader createReader(JobId jobId, ResultSetId resultSetId, int nReadBuffers, boolean ordered)
+            throws HyracksDataException;
 }
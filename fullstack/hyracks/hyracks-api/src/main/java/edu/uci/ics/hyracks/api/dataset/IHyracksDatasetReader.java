@@ -23,4 +23,9 @@ public interface IHyracksDatasetReader {
     public Status getResultStatus();
 
     public int read(ByteBuffer buffer) throws HyracksDataException;
+
+    /**
+     * Stops fetching the result and releases the resources of the reader, which must not be read afterwards.
+     */
+    public void close();
 }
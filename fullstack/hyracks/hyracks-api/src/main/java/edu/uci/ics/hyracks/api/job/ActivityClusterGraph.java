@@ -25,6 +25,7 @@ import org.json.JSONObject;
 
 import edu.uci.ics.hyracks.api.dataflow.ActivityId;
 import edu.uci.ics.hyracks.api.dataflow.ConnectorDescriptorId;
+import edu.uci.ics.hyracks.api.dataflow.OperatorDescriptorId;
 import edu.uci.ics.hyracks.api.dataflow.connectors.IConnectorPolicyAssignmentPolicy;
 
 public class ActivityClusterGraph implements Serializable {
@@ -38,6 +39,8 @@ public class ActivityClusterGraph implements Serializable {
 
     private final Map<ConnectorDescriptorId, ActivityCluster> connectorMap;
 
+    private final Map<OperatorDescriptorId, Integer> requiredMemoryFramesMap;
+
     private int frameSize;
 
     private int maxReattempts;
@@ -55,6 +58,7 @@ public class ActivityClusterGraph implements Serializable {
         activityClusterMap = new HashMap<ActivityClusterId, ActivityCluster>();
         activityMap = new HashMap<ActivityId, ActivityCluster>();
         connectorMap = new HashMap<ConnectorDescriptorId, ActivityCluster>();
+        requiredMemoryFramesMap = new HashMap<OperatorDescriptorId, Integer>();
         frameSize = 32768;
     }
 
@@ -95,6 +99,19 @@ public class ActivityClusterGraph implements Serializable {
         return frameSize;
     }
 
+    public void setRequiredMemoryFrames(OperatorDescriptorId odId, int nFrames) {
+        requiredMemoryFramesMap.put(odId, nFrames);
+    }
+
+    /**
+     * Returns the number of frames of memory a partition of the given operator needs besides its input and output
+     * frames, as declared by the operator.
+     */
+    public int getRequiredMemoryFrames(OperatorDescriptorId odId) {
+        Integer nFrames = requiredMemoryFramesMap.get(odId);
+        return nFrames == null ? 0 : nFrames;
+    }
+
     public void setMaxReattempts(int maxReattempts) {
         this.maxReattempts = maxReattempts;
     }
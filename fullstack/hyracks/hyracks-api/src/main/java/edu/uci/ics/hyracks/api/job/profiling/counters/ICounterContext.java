@@ -20,6 +20,21 @@ package edu.uci.ics.hyracks.api.job.profiling.counters;
  * @author vinayakb
  */
 public interface ICounterContext {
+    /**
+     * Name of the task counter that holds the number of bytes the task spilled to run files.
+     */
+    public static final String SPILL_BYTES_COUNTER = "hyracks.spill-bytes";
+
+    /**
+     * Name of the task counter that holds the number of existing pages the task pinned in the buffer cache.
+     */
+    public static final String BUFFER_CACHE_PINS_COUNTER = "hyracks.buffer-cache-pins";
+
+    /**
+     * Name of the task counter that holds the number of the pinned pages that had to be read from disk.
+     */
+    public static final String BUFFER_CACHE_READS_COUNTER = "hyracks.buffer-cache-reads";
+
     /**
      * Get a counter with the specified name.
      * 
@@ -53,4 +53,11 @@ public class HyracksDataset implements IHyracksDataset {
         }
         return reader;
     }
+
+    @Override
+    public IHyracksDatasetReader createReader(JobId jobId, ResultSetId resultSetId, int nReadBuffers, boolean ordered)
+            throws HyracksDataException {
+        return new PrefetchingHyracksDatasetReader(datasetDirectoryServiceConnection, netManager, datasetClientCtx,
+                jobId, resultSetId, nReadBuffers, ordered);
+    }
 }
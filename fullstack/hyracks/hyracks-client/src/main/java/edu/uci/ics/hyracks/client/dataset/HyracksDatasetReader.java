@@ -104,8 +104,8 @@ public class HyracksDatasetReader implements IHyracksDatasetReader {
                             getSocketAddress(knownRecords[lastReadPartition]), jobId, lastReadPartition,
                             NUM_READ_BUFFERS);
                     lastMonitor = getMonitor(lastReadPartition);
-                    resultChannel.open(datasetClientCtx);
                     resultChannel.registerMonitor(lastMonitor);
+                    resultChannel.open(datasetClientCtx);
                 } catch (HyracksException e) {
                     throw new HyracksDataException(e);
                 } catch (UnknownHostException e) {
@@ -147,8 +147,8 @@ public class HyracksDatasetReader implements IHyracksDatasetReader {
                                 getSocketAddress(knownRecords[lastReadPartition]), jobId, lastReadPartition,
                                 NUM_READ_BUFFERS);
                         lastMonitor = getMonitor(lastReadPartition);
-                        resultChannel.open(datasetClientCtx);
                         resultChannel.registerMonitor(lastMonitor);
+                        resultChannel.open(datasetClientCtx);
                     } catch (HyracksException e) {
                         throw new HyracksDataException(e);
                     } catch (UnknownHostException e) {
@@ -170,6 +170,11 @@ public class HyracksDatasetReader implements IHyracksDatasetReader {
         return readSize;
     }
 
+    @Override
+    public void close() {
+        // nothing is fetched outside of read()
+    }
+
     private boolean nullExists(DatasetDirectoryRecord[] locations) {
         if (locations == null) {
             return true;
@@ -0,0 +1,434 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.client.dataset;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.uci.ics.hyracks.api.channels.IInputChannel;
+import edu.uci.ics.hyracks.api.channels.IInputChannelMonitor;
+import edu.uci.ics.hyracks.api.comm.NetworkAddress;
+import edu.uci.ics.hyracks.api.dataset.DatasetDirectoryRecord;
+import edu.uci.ics.hyracks.api.dataset.DatasetDirectoryRecord.Status;
+import edu.uci.ics.hyracks.api.dataset.IHyracksDatasetDirectoryServiceConnection;
+import edu.uci.ics.hyracks.api.dataset.IHyracksDatasetReader;
+import edu.uci.ics.hyracks.api.dataset.ResultSetId;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.exceptions.HyracksException;
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.client.net.ClientNetworkManager;
+import edu.uci.ics.hyracks.comm.channels.DatasetNetworkInputChannel;
+
+/**
+ * A result reader that opens a channel to every result partition as soon as the dataset directory reveals it and
+ * keeps up to nReadBuffers frames in flight on each of them, so that several partitions are transferred at once.
+ * The partitions are discovered by a background thread that long-polls the directory service.
+ * The directory only reveals a partition of an ordered result after the previous one has been read to its end, and a
+ * long poll cannot be told about an end of stream that arrives while it is blocked. So, unless the directory has
+ * already shown that the result is unordered (by revealing several partitions at once or out of order), every poll
+ * after the first waits for the end of stream of an open partition and reports it; the next channel is thus opened
+ * while the last frames of the previous partition are still being consumed. This holds whatever the reader mode is.
+ * In ordered mode the frames are returned partition by partition.
+ * In unordered mode the frames of all open partitions are returned in the order in which they arrive. This must only
+ * be used for results whose order does not matter.
+ * {@link #close()} stops the discovery thread; a reader that is abandoned before the end of the result must be closed.
+ */
+public class PrefetchingHyracksDatasetReader implements IHyracksDatasetReader {
+    private static final Logger LOGGER = Logger.getLogger(PrefetchingHyracksDatasetReader.class.getName());
+
+    private final IHyracksDatasetDirectoryServiceConnection datasetDirectoryServiceConnection;
+
+    private final ClientNetworkManager netManager;
+
+    private final DatasetClientContext datasetClientCtx;
+
+    private final JobId jobId;
+
+    private final ResultSetId resultSetId;
+
+    private final int nReadBuffers;
+
+    private final boolean ordered;
+
+    /*
+     * All the fields below are guarded by this reader's monitor.
+     */
+    private PartitionChannel[] partitions;
+
+    private int nOpenPartitions;
+
+    private int nextPartition;
+
+    private Exception failure;
+
+    private Thread discoveryThread;
+
+    private boolean closed;
+
+    public PrefetchingHyracksDatasetReader(IHyracksDatasetDirectoryServiceConnection datasetDirectoryServiceConnection,
+            ClientNetworkManager netManager, DatasetClientContext datasetClientCtx, JobId jobId,
+            ResultSetId resultSetId, int nReadBuffers, boolean ordered) {
+        if (nReadBuffers < 1) {
+            throw new IllegalArgumentException("At least one read buffer per partition is needed");
+        }
+        this.datasetDirectoryServiceConnection = datasetDirectoryServiceConnection;
+        this.netManager = netManager;
+        this.datasetClientCtx = datasetClientCtx;
+        this.jobId = jobId;
+        this.resultSetId = resultSetId;
+        this.nReadBuffers = nReadBuffers;
+        this.ordered = ordered;
+    }
+
+    @Override
+    public Status getResultStatus() {
+        Status status = null;
+        try {
+            status = datasetDirectoryServiceConnection.getDatasetResultStatus(jobId, resultSetId);
+        } catch (Exception e) {
+            if (LOGGER.isLoggable(Level.WARNING)) {
+                LOGGER.log(Level.WARNING, "Could not get the status of result set " + resultSetId + " of job " + jobId,
+                        e);
+            }
+        }
+        return status;
+    }
+
+    @Override
+    public int read(ByteBuffer buffer) throws HyracksDataException {
+        PartitionChannel partition;
+        ByteBuffer readBuffer;
+        synchronized (this) {
+            if (closed) {
+                throw new HyracksDataException("The reader of result set " + resultSetId + " of job " + jobId
+                        + " is closed");
+            }
+            if (discoveryThread == null) {
+                discoveryThread = new Thread(new PartitionDiscoverer(), "Result prefetcher for " + jobId + ":"
+                        + resultSetId);
+                discoveryThread.setDaemon(true);
+                discoveryThread.start();
+            }
+            while (true) {
+                if (failure != null) {
+                    throw new HyracksDataException(failure);
+                }
+                if (closed) {
+                    throw new HyracksDataException("The reader of result set " + resultSetId + " of job " + jobId
+                            + " was closed while reading");
+                }
+                partition = nextReadablePartition();
+                if (partition != null) {
+                    readBuffer = partition.channel.getNextBuffer();
+                    --partition.nAvailableFrames;
+                    break;
+                }
+                if (partitions != null && nOpenPartitions == partitions.length && allPartitionsDrained()) {
+                    return 0;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new HyracksDataException(e);
+                }
+            }
+        }
+        buffer.put(readBuffer);
+        buffer.flip();
+        // recycled outside the reader's monitor, because the network threads take the channel's lock before it
+        if (!isClosed()) {
+            partition.channel.recycleBuffer(readBuffer);
+        }
+        return buffer.limit();
+    }
+
+    /**
+     * Stops the discovery of further partitions and the fetching of frames. Frames that have arrived are dropped and
+     * their buffers are not handed back to the channels, so the senders get no more credits. Reads fail afterwards.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (partitions != null) {
+                for (PartitionChannel pc : partitions) {
+                    if (pc != null) {
+                        for (; pc.nAvailableFrames > 0; --pc.nAvailableFrames) {
+                            pc.channel.getNextBuffer();
+                        }
+                    }
+                }
+            }
+            thread = discoveryThread;
+            notifyAll();
+        }
+        if (thread != null) {
+            // also ends a poll of the directory that is blocked
+            thread.interrupt();
+        }
+    }
+
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns a partition that has a frame ready to be read, or null if the reader has to wait. Partitions that have
+     * been read to their end are skipped over.
+     */
+    private PartitionChannel nextReadablePartition() throws HyracksDataException {
+        if (partitions == null) {
+            return null;
+        }
+        if (ordered) {
+            while (nextPartition < partitions.length && partitions[nextPartition] != null) {
+                PartitionChannel pc = partitions[nextPartition];
+                checkFailure(pc);
+                if (pc.nAvailableFrames > 0) {
+                    return pc;
+                }
+                if (!pc.eos) {
+                    return null;
+                }
+                ++nextPartition;
+            }
+            return null;
+        }
+        // round-robin over the open partitions so that no sender is starved of credits
+        for (int i = 0; i < partitions.length; ++i) {
+            int p = (nextPartition + i) % partitions.length;
+            PartitionChannel pc = partitions[p];
+            if (pc != null) {
+                checkFailure(pc);
+                if (pc.nAvailableFrames > 0) {
+                    nextPartition = (p + 1) % partitions.length;
+                    return pc;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean allPartitionsDrained() {
+        for (PartitionChannel pc : partitions) {
+            if (!pc.eos || pc.nAvailableFrames > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void checkFailure(PartitionChannel pc) throws HyracksDataException {
+        if (pc.failed) {
+            throw new HyracksDataException("Reading result partition " + pc.partition + " of job " + jobId
+                    + " failed");
+        }
+    }
+
+    private synchronized void setFailure(Exception e) {
+        failure = e;
+        notifyAll();
+    }
+
+    private SocketAddress getSocketAddress(DatasetDirectoryRecord addr) throws Exception {
+        NetworkAddress netAddr = addr.getNetworkAddress();
+        return new InetSocketAddress(InetAddress.getByAddress(netAddr.getIpAddress()), netAddr.getPort());
+    }
+
+    /**
+     * Polls the directory service until the locations of all partitions are known and opens a channel to each of
+     * them as soon as it shows up.
+     */
+    private class PartitionDiscoverer implements Runnable {
+        private DatasetDirectoryRecord[] knownRecords;
+
+        /**
+         * Set once the directory has revealed partitions in a way it never does for an ordered result.
+         */
+        private boolean unorderedResult;
+
+        @Override
+        public void run() {
+            try {
+                while (!isClosed() && (knownRecords == null || nOpen() < knownRecords.length)) {
+                    if (knownRecords != null && !unorderedResult && !reportFinishedPartitions()) {
+                        return;
+                    }
+                    DatasetDirectoryRecord[] records;
+                    try {
+                        records = datasetDirectoryServiceConnection.getDatasetResultLocations(jobId, resultSetId,
+                                knownRecords);
+                    } catch (HyracksException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        // Like the sequential reader, retry on anything but a Hyracks error.
+                        continue;
+                    }
+                    if (records == null) {
+                        continue;
+                    }
+                    knownRecords = records;
+                    synchronized (PrefetchingHyracksDatasetReader.this) {
+                        if (partitions == null) {
+                            partitions = new PartitionChannel[records.length];
+                        }
+                    }
+                    int nRevealed = 0;
+                    for (int i = 0; i < records.length; ++i) {
+                        if (records[i] != null && partitions[i] == null) {
+                            if (i > 0 && records[i - 1] == null) {
+                                unorderedResult = true;
+                            }
+                            open(i, records[i]);
+                            ++nRevealed;
+                        }
+                    }
+                    if (nRevealed > 1) {
+                        unorderedResult = true;
+                    }
+                }
+            } catch (Exception e) {
+                if (isClosed()) {
+                    // the interrupt of close() or an error caused by it
+                    return;
+                }
+                if (LOGGER.isLoggable(Level.WARNING)) {
+                    LOGGER.log(Level.WARNING, "Discovery of the result partitions of job " + jobId + " failed", e);
+                }
+                setFailure(e);
+            }
+        }
+
+        private int nOpen() {
+            synchronized (PrefetchingHyracksDatasetReader.this) {
+                return nOpenPartitions;
+            }
+        }
+
+        /**
+         * Marks the record of every open partition whose end of stream has arrived, which lets the directory reveal
+         * the next partition of an ordered result. Waits until there is a partition that was not reported before, or
+         * until no open partition is still running. Returns false if the reader failed or was closed meanwhile.
+         */
+        private boolean reportFinishedPartitions() throws InterruptedException {
+            synchronized (PrefetchingHyracksDatasetReader.this) {
+                while (failure == null && !closed) {
+                    boolean running = false;
+                    boolean newlyReported = false;
+                    for (int i = 0; i < partitions.length; ++i) {
+                        PartitionChannel pc = partitions[i];
+                        if (pc == null) {
+                            continue;
+                        }
+                        if (pc.failed) {
+                            return false;
+                        }
+                        if (!pc.eos) {
+                            running = true;
+                            continue;
+                        }
+                        // the directory may hand back fresh records, so the mark is set again before every poll
+                        knownRecords[i].readEOS();
+                        if (!pc.eosReported) {
+                            pc.eosReported = true;
+                            newlyReported = true;
+                        }
+                    }
+                    if (newlyReported || !running) {
+                        return true;
+                    }
+                    PrefetchingHyracksDatasetReader.this.wait();
+                }
+                return false;
+            }
+        }
+
+        private void open(int partition, DatasetDirectoryRecord record) throws Exception {
+            DatasetNetworkInputChannel channel = new DatasetNetworkInputChannel(netManager, getSocketAddress(record),
+                    jobId, partition, nReadBuffers);
+            PartitionChannel pc = new PartitionChannel(partition, channel);
+            // the monitor has to be in place before the first frame can arrive
+            channel.registerMonitor(pc);
+            channel.open(datasetClientCtx);
+            synchronized (PrefetchingHyracksDatasetReader.this) {
+                if (closed) {
+                    // the channel stops once the frames it was given are filled
+                    return;
+                }
+                partitions[partition] = pc;
+                ++nOpenPartitions;
+                PrefetchingHyracksDatasetReader.this.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * The state of one result partition. It is updated by the network threads under the reader's monitor, so that
+     * a single wait in {@link PrefetchingHyracksDatasetReader#read(ByteBuffer)} covers all partitions.
+     */
+    private class PartitionChannel implements IInputChannelMonitor {
+        private final int partition;
+
+        private final DatasetNetworkInputChannel channel;
+
+        private int nAvailableFrames;
+
+        private boolean eos;
+
+        private boolean failed;
+
+        /**
+         * Whether the discoverer has told the directory about the end of stream. Only used by the discoverer.
+         */
+        private boolean eosReported;
+
+        PartitionChannel(int partition, DatasetNetworkInputChannel channel) {
+            this.partition = partition;
+            this.channel = channel;
+        }
+
+        @Override
+        public void notifyFailure(IInputChannel channel) {
+            synchronized (PrefetchingHyracksDatasetReader.this) {
+                failed = true;
+                PrefetchingHyracksDatasetReader.this.notifyAll();
+            }
+        }
+
+        @Override
+        public void notifyDataAvailability(IInputChannel channel, int nFrames) {
+            synchronized (PrefetchingHyracksDatasetReader.this) {
+                nAvailableFrames += nFrames;
+                PrefetchingHyracksDatasetReader.this.notifyAll();
+            }
+        }
+
+        @Override
+        public void notifyEndOfStream(IInputChannel channel) {
+            synchronized (PrefetchingHyracksDatasetReader.this) {
+                eos = true;
+                PrefetchingHyracksDatasetReader.this.notifyAll();
+            }
+        }
+    }
+}
@@ -121,7 +121,9 @@ public class DatasetNetworkInputChannel implements IInputChannel {
     private class ReadFullBufferAcceptor implements ICloseableBufferAcceptor {
         @Override
         public void accept(ByteBuffer buffer) {
-            fullQueue.add(buffer);
+            synchronized (DatasetNetworkInputChannel.this) {
+                fullQueue.add(buffer);
+            }
             monitor.notifyDataAvailability(DatasetNetworkInputChannel.this, 1);
         }
 
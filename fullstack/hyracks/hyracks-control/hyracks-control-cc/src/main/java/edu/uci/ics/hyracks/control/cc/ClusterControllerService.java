@@ -47,6 +47,7 @@ import edu.uci.ics.hyracks.api.topology.TopologyDefinitionParser;
 import edu.uci.ics.hyracks.control.cc.application.CCApplicationContext;
 import edu.uci.ics.hyracks.control.cc.dataset.DatasetDirectoryService;
 import edu.uci.ics.hyracks.control.cc.job.JobRun;
+import edu.uci.ics.hyracks.control.cc.scheduler.TaskAdmissionController;
 import edu.uci.ics.hyracks.control.cc.web.WebServer;
 import edu.uci.ics.hyracks.control.cc.work.ApplicationMessageWork;
 import edu.uci.ics.hyracks.control.cc.work.GetDatasetDirectoryServiceInfoWork;
@@ -66,6 +67,7 @@ import edu.uci.ics.hyracks.control.cc.work.RemoveDeadNodesWork;
 import edu.uci.ics.hyracks.control.cc.work.ReportProfilesWork;
 import edu.uci.ics.hyracks.control.cc.work.ReportResultPartitionFailureWork;
 import edu.uci.ics.hyracks.control.cc.work.ReportResultPartitionWriteCompletionWork;
+import edu.uci.ics.hyracks.control.cc.work.SpeculateStragglersWork;
 import edu.uci.ics.hyracks.control.cc.work.TaskCompleteWork;
 import edu.uci.ics.hyracks.control.cc.work.TaskFailureWork;
 import edu.uci.ics.hyracks.control.cc.work.UnregisterNodeWork;
@@ -124,6 +126,8 @@ public class ClusterControllerService extends AbstractRemoteService {
 
     private final IDatasetDirectoryService datasetDirectoryService;
 
+    private final TaskAdmissionController taskAdmissionController;
+
     private long jobCounter;
 
     public ClusterControllerService(final CCConfig ccConfig) throws Exception {
@@ -149,7 +153,7 @@ public class ClusterControllerService extends AbstractRemoteService {
                 return size() > ccConfig.jobHistorySize;
             }
         };
-        workQueue = new WorkQueue();
+        workQueue = new WorkQueue(!ccConfig.serialWorkQueue);
         this.timer = new Timer(true);
         final ClusterTopology topology = computeClusterTopology(ccConfig);
         ccContext = new ICCContext() {
@@ -171,6 +175,7 @@ public class ClusterControllerService extends AbstractRemoteService {
         };
         sweeper = new DeadNodeSweeper();
         datasetDirectoryService = new DatasetDirectoryService(ccConfig.jobHistorySize);
+        taskAdmissionController = new TaskAdmissionController(this);
         jobCounter = 0;
     }
 
@@ -198,6 +203,9 @@ public class ClusterControllerService extends AbstractRemoteService {
         info = new ClusterControllerInfo(ccConfig.clientNetIpAddress, ccConfig.clientNetPort,
                 webServer.getListeningPort());
         timer.schedule(sweeper, 0, ccConfig.heartbeatPeriod);
+        if (ccConfig.speculationPeriod > 0) {
+            timer.schedule(new StragglerSweeper(), ccConfig.speculationPeriod, ccConfig.speculationPeriod);
+        }
         jobLog.open();
         startApplication();
         LOGGER.log(Level.INFO, "Started ClusterControllerService");
@@ -259,6 +267,10 @@ public class ClusterControllerService extends AbstractRemoteService {
         return executor;
     }
 
+    public TaskAdmissionController getTaskAdmissionController() {
+        return taskAdmissionController;
+    }
+
     public Map<String, NodeControllerState> getNodeMap() {
         return nodeRegistry;
     }
@@ -298,6 +310,13 @@ public class ClusterControllerService extends AbstractRemoteService {
         }
     }
 
+    private class StragglerSweeper extends TimerTask {
+        @Override
+        public void run() {
+            workQueue.schedule(new SpeculateStragglersWork(ClusterControllerService.this));
+        }
+    }
+
     public IDatasetDirectoryService getDatasetDirectoryService() {
         return datasetDirectoryService;
     }
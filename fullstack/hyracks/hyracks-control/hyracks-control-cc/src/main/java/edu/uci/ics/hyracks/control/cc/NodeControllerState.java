@@ -14,6 +14,7 @@
  */
 package edu.uci.ics.hyracks.control.cc;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +32,7 @@ import edu.uci.ics.hyracks.control.common.controllers.NodeRegistration;
 import edu.uci.ics.hyracks.control.common.heartbeat.HeartbeatData;
 import edu.uci.ics.hyracks.control.common.heartbeat.HeartbeatSchema;
 import edu.uci.ics.hyracks.control.common.heartbeat.HeartbeatSchema.GarbageCollectorInfo;
+import edu.uci.ics.hyracks.control.common.job.profiling.om.RuntimeStatistics;
 
 public class NodeControllerState {
     private static final int RRD_SIZE = 720;
@@ -109,6 +111,10 @@ public class NodeControllerState {
 
     private final long[] netSignalingBytesWritten;
 
+    private final long[] netWriteCalls;
+
+    private final long[] netPayloadChunksWritten;
+
     private final long[] datasetNetPayloadBytesRead;
 
     private final long[] datasetNetPayloadBytesWritten;
@@ -125,6 +131,16 @@ public class NodeControllerState {
 
     private final long[] ipcMessageBytesReceived;
 
+    private final int taskSlots;
+
+    private final long taskMemory;
+
+    private int usedTaskSlots;
+
+    private long usedTaskMemory;
+
+    private final RuntimeStatistics runtimeStatistics;
+
     private int rrdPtr;
 
     private int lastHeartbeatDuration;
@@ -134,12 +150,16 @@ public class NodeControllerState {
         ncConfig = reg.getNCConfig();
         dataPort = reg.getDataPort();
         datasetPort = reg.getDatasetPort();
-        activeJobIds = new HashSet<JobId>();
+        // job works of different jobs add to it concurrently
+        activeJobIds = Collections.synchronizedSet(new HashSet<JobId>());
+        runtimeStatistics = new RuntimeStatistics();
 
         osName = reg.getOSName();
         arch = reg.getArch();
         osVersion = reg.getOSVersion();
         nProcessors = reg.getNProcessors();
+        taskSlots = reg.getTaskSlots();
+        taskMemory = reg.getTaskMemory();
         vmName = reg.getVmName();
         vmVersion = reg.getVmVersion();
         vmVendor = reg.getVmVendor();
@@ -175,6 +195,8 @@ public class NodeControllerState {
         netPayloadBytesWritten = new long[RRD_SIZE];
         netSignalingBytesRead = new long[RRD_SIZE];
         netSignalingBytesWritten = new long[RRD_SIZE];
+        netWriteCalls = new long[RRD_SIZE];
+        netPayloadChunksWritten = new long[RRD_SIZE];
         datasetNetPayloadBytesRead = new long[RRD_SIZE];
         datasetNetPayloadBytesWritten = new long[RRD_SIZE];
         datasetNetSignalingBytesRead = new long[RRD_SIZE];
@@ -211,6 +233,8 @@ public class NodeControllerState {
         netPayloadBytesWritten[rrdPtr] = hbData.netPayloadBytesWritten;
         netSignalingBytesRead[rrdPtr] = hbData.netSignalingBytesRead;
         netSignalingBytesWritten[rrdPtr] = hbData.netSignalingBytesWritten;
+        netWriteCalls[rrdPtr] = hbData.netWriteCalls;
+        netPayloadChunksWritten[rrdPtr] = hbData.netPayloadChunksWritten;
         datasetNetPayloadBytesRead[rrdPtr] = hbData.datasetNetPayloadBytesRead;
         datasetNetPayloadBytesWritten[rrdPtr] = hbData.datasetNetPayloadBytesWritten;
         datasetNetSignalingBytesRead[rrdPtr] = hbData.datasetNetSignalingBytesRead;
@@ -250,11 +274,58 @@ public class NodeControllerState {
         return datasetPort;
     }
 
+    /**
+     * Tells whether tasks that need the given number of slots and bytes of memory fit into what is left of this
+     * node's capacity. A node that runs no tasks admits anything, so that work larger than the node still runs, alone.
+     */
+    public boolean canAdmit(int slots, long memory) {
+        if (usedTaskSlots == 0) {
+            return true;
+        }
+        return usedTaskSlots + slots <= taskSlots && usedTaskMemory + memory <= taskMemory;
+    }
+
+    public void reserve(int slots, long memory) {
+        usedTaskSlots += slots;
+        usedTaskMemory += memory;
+    }
+
+    public void release(int slots, long memory) {
+        usedTaskSlots -= slots;
+        usedTaskMemory -= memory;
+    }
+
+    public int getUsedTaskSlots() {
+        return usedTaskSlots;
+    }
+
+    public long getUsedTaskMemory() {
+        return usedTaskMemory;
+    }
+
+    /**
+     * Adds the statistics of a task that completed on this node. Tasks of different jobs complete concurrently.
+     */
+    public synchronized void addRuntimeStatistics(RuntimeStatistics stats) {
+        runtimeStatistics.merge(stats);
+    }
+
+    /**
+     * Returns a copy of the statistics of all tasks that completed on this node since it registered.
+     */
+    public synchronized RuntimeStatistics getRuntimeStatistics() {
+        RuntimeStatistics copy = new RuntimeStatistics();
+        copy.merge(runtimeStatistics);
+        return copy;
+    }
+
     public JSONObject toSummaryJSON() throws JSONException {
         JSONObject o = new JSONObject();
         o.put("node-id", ncConfig.nodeId);
         o.put("heap-used", heapUsedSize[(rrdPtr + RRD_SIZE - 1) % RRD_SIZE]);
         o.put("system-load-average", systemLoadAverage[(rrdPtr + RRD_SIZE - 1) % RRD_SIZE]);
+        o.put("used-task-slots", usedTaskSlots);
+        o.put("used-task-memory", usedTaskMemory);
 
         return o;
     }
@@ -267,6 +338,10 @@ public class NodeControllerState {
         o.put("arch", arch);
         o.put("os-version", osVersion);
         o.put("num-processors", nProcessors);
+        o.put("task-slots", taskSlots);
+        o.put("task-memory", taskMemory);
+        o.put("used-task-slots", usedTaskSlots);
+        o.put("used-task-memory", usedTaskMemory);
         o.put("vm-name", vmName);
         o.put("vm-version", vmVersion);
         o.put("vm-vendor", vmVendor);
@@ -294,6 +369,8 @@ public class NodeControllerState {
         o.put("net-payload-bytes-written", netPayloadBytesWritten);
         o.put("net-signaling-bytes-read", netSignalingBytesRead);
         o.put("net-signaling-bytes-written", netSignalingBytesWritten);
+        o.put("net-write-calls", netWriteCalls);
+        o.put("net-payload-chunks-written", netPayloadChunksWritten);
         o.put("dataset-net-payload-bytes-read", datasetNetPayloadBytesRead);
         o.put("dataset-net-payload-bytes-written", datasetNetPayloadBytesWritten);
         o.put("dataset-net-signaling-bytes-read", datasetNetSignalingBytesRead);
@@ -302,6 +379,7 @@ public class NodeControllerState {
         o.put("ipc-message-bytes-sent", ipcMessageBytesSent);
         o.put("ipc-messages-received", ipcMessagesReceived);
         o.put("ipc-message-bytes-received", ipcMessageBytesReceived);
+        o.put("runtime-statistics", getRuntimeStatistics().toJSON());
 
         return o;
     }
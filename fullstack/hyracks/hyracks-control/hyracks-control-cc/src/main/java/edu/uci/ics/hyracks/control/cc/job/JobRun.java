@@ -14,6 +14,7 @@
  */
 package edu.uci.ics.hyracks.control.cc.job;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -27,6 +28,7 @@ import org.json.JSONObject;
 
 import edu.uci.ics.hyracks.api.dataflow.ActivityId;
 import edu.uci.ics.hyracks.api.dataflow.ConnectorDescriptorId;
+import edu.uci.ics.hyracks.api.dataflow.OperatorDescriptorId;
 import edu.uci.ics.hyracks.api.dataflow.TaskId;
 import edu.uci.ics.hyracks.api.dataflow.connectors.IConnectorPolicy;
 import edu.uci.ics.hyracks.api.exceptions.HyracksException;
@@ -43,6 +45,7 @@ import edu.uci.ics.hyracks.control.cc.partitions.PartitionMatchMaker;
 import edu.uci.ics.hyracks.control.cc.scheduler.ActivityPartitionDetails;
 import edu.uci.ics.hyracks.control.cc.scheduler.JobScheduler;
 import edu.uci.ics.hyracks.control.common.job.profiling.om.JobProfile;
+import edu.uci.ics.hyracks.control.common.job.profiling.om.RuntimeStatistics;
 
 public class JobRun implements IJobStatusConditionVariable {
     private final JobId jobId;
@@ -67,6 +70,8 @@ public class JobRun implements IJobStatusConditionVariable {
 
     private final Map<ConnectorDescriptorId, IConnectorPolicy> connectorPolicyMap;
 
+    private final Map<OperatorDescriptorId, RuntimeStatistics> operatorStatistics;
+
     private long createTime;
 
     private long startTime;
@@ -94,6 +99,7 @@ public class JobRun implements IJobStatusConditionVariable {
         cleanupPendingNodeIds = new HashSet<String>();
         profile = new JobProfile(jobId);
         connectorPolicyMap = new HashMap<ConnectorDescriptorId, IConnectorPolicy>();
+        operatorStatistics = new HashMap<OperatorDescriptorId, RuntimeStatistics>();
     }
 
     public JobId getJobId() {
@@ -197,6 +203,35 @@ public class JobRun implements IJobStatusConditionVariable {
         return connectorPolicyMap;
     }
 
+    /**
+     * Adds the statistics of a completed task to the totals of the operators whose activities it ran.
+     */
+    public void addRuntimeStatistics(Map<ActivityId, RuntimeStatistics> taskStatistics) {
+        for (Map.Entry<ActivityId, RuntimeStatistics> e : taskStatistics.entrySet()) {
+            OperatorDescriptorId odId = e.getKey().getOperatorDescriptorId();
+            RuntimeStatistics stats = operatorStatistics.get(odId);
+            if (stats == null) {
+                stats = new RuntimeStatistics();
+                operatorStatistics.put(odId, stats);
+            }
+            stats.merge(e.getValue());
+        }
+    }
+
+    public Map<OperatorDescriptorId, RuntimeStatistics> getOperatorStatistics() {
+        return operatorStatistics;
+    }
+
+    public JSONArray getOperatorStatisticsJSON() throws JSONException {
+        JSONArray statsArray = new JSONArray();
+        for (Map.Entry<OperatorDescriptorId, RuntimeStatistics> e : operatorStatistics.entrySet()) {
+            JSONObject statsObj = e.getValue().toJSON();
+            statsObj.put("operator-id", e.getKey().toString());
+            statsArray.put(statsObj);
+        }
+        return statsArray;
+    }
+
     public JSONObject toJSON() throws JSONException {
         JSONObject result = new JSONObject();
 
@@ -317,7 +352,9 @@ public class JobRun implements IJobStatusConditionVariable {
                             attempt.put("end-time", tca.getEndTime());
 
                             JSONArray taskAttempts = new JSONArray();
-                            for (TaskAttempt ta : tca.getTaskAttempts().values()) {
+                            List<TaskAttempt> tas = new ArrayList<TaskAttempt>(tca.getTaskAttempts().values());
+                            tas.addAll(tca.getSecondaryTaskAttempts().values());
+                            for (TaskAttempt ta : tas) {
                                 JSONObject taskAttempt = new JSONObject();
                                 taskAttempt.put("task-id", ta.getTaskAttemptId().getTaskId());
                                 taskAttempt.put("task-attempt-id", ta.getTaskAttemptId());
@@ -348,6 +385,7 @@ public class JobRun implements IJobStatusConditionVariable {
         }
         result.put("activity-clusters", aClusters);
 
+        result.put("runtime-statistics", getOperatorStatisticsJSON());
         result.put("profile", profile.toJSON());
 
         return result;
@@ -14,11 +14,19 @@
  */
 package edu.uci.ics.hyracks.control.cc.job;
 
+import java.util.HashMap;
 import java.util.Map;
 
+import edu.uci.ics.hyracks.api.dataflow.TaskAttemptId;
 import edu.uci.ics.hyracks.api.dataflow.TaskId;
 
 public class TaskClusterAttempt {
+    /**
+     * Added to the number of a task cluster attempt to number the second attempts of its tasks, so that the
+     * notifications of the nodes can tell them apart from the first ones.
+     */
+    public static final int SECONDARY_ATTEMPT_OFFSET = 1 << 20;
+
     public enum TaskClusterStatus {
         RUNNING,
         COMPLETED,
@@ -32,6 +40,8 @@ public class TaskClusterAttempt {
 
     private Map<TaskId, TaskAttempt> taskAttempts;
 
+    private final Map<TaskId, TaskAttempt> secondaryTaskAttempts;
+
     private TaskClusterStatus status;
 
     private int pendingTaskCounter;
@@ -43,6 +53,7 @@ public class TaskClusterAttempt {
     public TaskClusterAttempt(TaskCluster taskCluster, int attempt) {
         this.taskCluster = taskCluster;
         this.attempt = attempt;
+        secondaryTaskAttempts = new HashMap<TaskId, TaskAttempt>();
         startTime = -1;
         endTime = -1;
     }
@@ -59,6 +70,36 @@ public class TaskClusterAttempt {
         return taskAttempts;
     }
 
+    /**
+     * Returns the attempts of tasks that run besides the one in {@link #getTaskAttempts()}. A speculative copy of a
+     * straggling task is added here, and swapped with the original attempt if it finishes first.
+     */
+    public Map<TaskId, TaskAttempt> getSecondaryTaskAttempts() {
+        return secondaryTaskAttempts;
+    }
+
+    /**
+     * Finds the attempt with the given id among the first and secondary attempts of the tasks.
+     */
+    public TaskAttempt findTaskAttempt(TaskAttemptId taId) {
+        TaskAttempt ta = taskAttempts.get(taId.getTaskId());
+        if (ta != null && ta.getTaskAttemptId().equals(taId)) {
+            return ta;
+        }
+        ta = secondaryTaskAttempts.get(taId.getTaskId());
+        if (ta != null && ta.getTaskAttemptId().equals(taId)) {
+            return ta;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of the task cluster attempt a task attempt belongs to.
+     */
+    public static int getTaskClusterAttempt(TaskAttemptId taId) {
+        return taId.getAttempt() % SECONDARY_ATTEMPT_OFFSET;
+    }
+
     public int getAttempt() {
         return attempt;
     }
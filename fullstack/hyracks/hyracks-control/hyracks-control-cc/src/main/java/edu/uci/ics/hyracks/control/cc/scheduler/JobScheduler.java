@@ -16,6 +16,7 @@ package edu.uci.ics.hyracks.control.cc.scheduler;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -31,6 +32,9 @@ import edu.uci.ics.hyracks.api.constraints.expressions.LValueConstraintExpressio
 import edu.uci.ics.hyracks.api.constraints.expressions.PartitionLocationExpression;
 import edu.uci.ics.hyracks.api.dataflow.ActivityId;
 import edu.uci.ics.hyracks.api.dataflow.ConnectorDescriptorId;
+import edu.uci.ics.hyracks.api.dataflow.IActivity;
+import edu.uci.ics.hyracks.api.dataflow.IConnectorDescriptor;
+import edu.uci.ics.hyracks.api.dataflow.OperatorDescriptorId;
 import edu.uci.ics.hyracks.api.dataflow.TaskAttemptId;
 import edu.uci.ics.hyracks.api.dataflow.TaskId;
 import edu.uci.ics.hyracks.api.dataflow.connectors.IConnectorPolicy;
@@ -40,6 +44,7 @@ import edu.uci.ics.hyracks.api.job.ActivityClusterGraph;
 import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.api.job.JobStatus;
 import edu.uci.ics.hyracks.api.partitions.PartitionId;
+import edu.uci.ics.hyracks.api.rewriter.runtime.SuperActivity;
 import edu.uci.ics.hyracks.api.util.JavaSerializationUtils;
 import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
 import edu.uci.ics.hyracks.control.cc.NodeControllerState;
@@ -51,12 +56,18 @@ import edu.uci.ics.hyracks.control.cc.job.TaskCluster;
 import edu.uci.ics.hyracks.control.cc.job.TaskClusterAttempt;
 import edu.uci.ics.hyracks.control.cc.partitions.PartitionMatchMaker;
 import edu.uci.ics.hyracks.control.cc.work.JobCleanupWork;
+import edu.uci.ics.hyracks.control.common.controllers.CCConfig;
 import edu.uci.ics.hyracks.control.common.job.PartitionState;
 import edu.uci.ics.hyracks.control.common.job.TaskAttemptDescriptor;
 
 public class JobScheduler {
     private static final Logger LOGGER = Logger.getLogger(JobScheduler.class.getName());
 
+    /**
+     * Percentage of the tasks of an activity that have to be finished before the others are judged by their time.
+     */
+    private static final int SPECULATION_QUORUM_PERCENT = 75;
+
     private final ClusterControllerService ccs;
 
     private final JobRun jobRun;
@@ -67,12 +78,15 @@ public class JobScheduler {
 
     private final Set<TaskCluster> inProgressTaskClusters;
 
+    private final Map<TaskAttemptId, Reservation> reservations;
+
     public JobScheduler(ClusterControllerService ccs, JobRun jobRun, Collection<Constraint> constraints) {
         this.ccs = ccs;
         this.jobRun = jobRun;
         solver = new PartitionConstraintSolver();
         partitionProducingTaskClusterMap = new HashMap<PartitionId, TaskCluster>();
         inProgressTaskClusters = new HashSet<TaskCluster>();
+        reservations = new HashMap<TaskAttemptId, Reservation>();
         solver.addConstraints(constraints);
     }
 
@@ -88,6 +102,17 @@ public class JobScheduler {
         startRunnableActivityClusters();
     }
 
+    /**
+     * Retries to start the runnable task clusters of a job that was kept waiting for node capacity.
+     */
+    public void resumeJob() {
+        try {
+            startRunnableActivityClusters();
+        } catch (Exception e) {
+            abortJob(e);
+        }
+    }
+
     private void findRunnableTaskClusterRoots(Set<TaskCluster> frontier, Collection<ActivityCluster> roots)
             throws HyracksException {
         for (ActivityCluster root : roots) {
@@ -182,7 +207,10 @@ public class JobScheduler {
             LOGGER.fine("Ranked TCs: " + queue);
         }
 
+        // a job that already runs tasks is never held back, as those may depend on the task clusters started here
+        boolean force = !inProgressTaskClusters.isEmpty();
         Map<String, List<TaskAttemptDescriptor>> taskAttemptMap = new HashMap<String, List<TaskAttemptDescriptor>>();
+        List<TaskCluster> startedTaskClusters = new ArrayList<TaskCluster>();
         for (RankedRunnableTaskCluster rrtc : queue) {
             TaskCluster tc = rrtc.getTaskCluster();
             if (LOGGER.isLoggable(Level.FINE)) {
@@ -194,15 +222,81 @@ public class JobScheduler {
                 }
             }
             assignTaskLocations(tc, taskAttemptMap);
+            startedTaskClusters.add(tc);
         }
 
         if (taskAttemptMap.isEmpty()) {
             return;
         }
 
+        if (!reserveCapacity(taskAttemptMap, force)) {
+            // the job is queued and resumed once other tasks release their capacity
+            for (TaskCluster tc : startedTaskClusters) {
+                List<TaskClusterAttempt> tcAttempts = tc.getAttempts();
+                tcAttempts.remove(tcAttempts.size() - 1);
+                inProgressTaskClusters.remove(tc);
+            }
+            return;
+        }
+
         startTasks(taskAttemptMap);
     }
 
+    /**
+     * Asks the admission controller for one task slot and the memory of every task about to start. The memory of a
+     * task is the memory its operators declare plus a frame for each of its inputs and outputs.
+     */
+    private boolean reserveCapacity(Map<String, List<TaskAttemptDescriptor>> taskAttemptMap, boolean force) {
+        ActivityClusterGraph acg = jobRun.getActivityClusterGraph();
+        Map<TaskAttemptId, Reservation> taskReservations = new HashMap<TaskAttemptId, Reservation>();
+        Map<String, Reservation> demand = new HashMap<String, Reservation>();
+        for (Map.Entry<String, List<TaskAttemptDescriptor>> e : taskAttemptMap.entrySet()) {
+            String nodeId = e.getKey();
+            Reservation nodeDemand = new Reservation(nodeId, 0, 0);
+            for (TaskAttemptDescriptor tad : e.getValue()) {
+                Reservation r = createReservation(acg, nodeId, tad);
+                taskReservations.put(tad.getTaskAttemptId(), r);
+                nodeDemand.add(r);
+            }
+            demand.put(nodeId, nodeDemand);
+        }
+        if (!ccs.getTaskAdmissionController().admit(jobRun.getJobId(), demand.values(), force)) {
+            return false;
+        }
+        reservations.putAll(taskReservations);
+        return true;
+    }
+
+    private static Reservation createReservation(ActivityClusterGraph acg, String nodeId, TaskAttemptDescriptor tad) {
+        int nFrames = getRequiredMemoryFrames(acg, tad.getTaskAttemptId().getTaskId().getActivityId());
+        nFrames += tad.getInputPartitionCounts() == null ? 0 : tad.getInputPartitionCounts().length;
+        nFrames += tad.getOutputPartitionCounts() == null ? 0 : tad.getOutputPartitionCounts().length;
+        return new Reservation(nodeId, 1, (long) nFrames * acg.getFrameSize());
+    }
+
+    private static int getRequiredMemoryFrames(ActivityClusterGraph acg, ActivityId aid) {
+        IActivity activity = acg.getActivityMap().get(aid).getActivityMap().get(aid);
+        if (!(activity instanceof SuperActivity)) {
+            return acg.getRequiredMemoryFrames(aid.getOperatorDescriptorId());
+        }
+        Set<OperatorDescriptorId> odIds = new HashSet<OperatorDescriptorId>();
+        for (ActivityId innerAid : ((SuperActivity) activity).getActivityMap().keySet()) {
+            odIds.add(innerAid.getOperatorDescriptorId());
+        }
+        int nFrames = 0;
+        for (OperatorDescriptorId odId : odIds) {
+            nFrames += acg.getRequiredMemoryFrames(odId);
+        }
+        return nFrames;
+    }
+
+    private void releaseCapacity(TaskAttemptId taId) {
+        Reservation r = reservations.remove(taId);
+        if (r != null) {
+            ccs.getTaskAdmissionController().release(r);
+        }
+    }
+
     /*
      * Runnability rank has the following semantics
      * Runnability(Runnable TaskCluster depending on completed TaskClusters) = {RUNNABLE, 0}
@@ -465,10 +559,13 @@ public class JobScheduler {
         LOGGER.fine("Aborting task cluster: " + tcAttempt.getAttempt());
         Set<TaskAttemptId> abortTaskIds = new HashSet<TaskAttemptId>();
         Map<String, List<TaskAttemptId>> abortTaskAttemptMap = new HashMap<String, List<TaskAttemptId>>();
-        for (TaskAttempt ta : tcAttempt.getTaskAttempts().values()) {
+        List<TaskAttempt> taskAttempts = new ArrayList<TaskAttempt>(tcAttempt.getTaskAttempts().values());
+        taskAttempts.addAll(tcAttempt.getSecondaryTaskAttempts().values());
+        for (TaskAttempt ta : taskAttempts) {
             TaskAttemptId taId = ta.getTaskAttemptId();
             TaskAttempt.TaskStatus status = ta.getStatus();
             abortTaskIds.add(taId);
+            releaseCapacity(taId);
             LOGGER.fine("Checking " + taId + ": " + ta.getStatus());
             if (status == TaskAttempt.TaskStatus.RUNNING || status == TaskAttempt.TaskStatus.COMPLETED) {
                 ta.setStatus(TaskAttempt.TaskStatus.ABORTED, null);
@@ -563,15 +660,75 @@ public class JobScheduler {
         return doomed;
     }
 
+    /**
+     * Returns the other attempt of the task of the given attempt, if a second one was started.
+     */
+    private static TaskAttempt findTwin(TaskAttempt ta) {
+        TaskClusterAttempt tca = ta.getTaskClusterAttempt();
+        TaskId tid = ta.getTask().getTaskId();
+        TaskAttempt primary = tca.getTaskAttempts().get(tid);
+        return primary == ta ? tca.getSecondaryTaskAttempts().get(tid) : primary;
+    }
+
+    /**
+     * Makes the given attempt the one the rest of the scheduler sees for its task, e.g. to find where it ran.
+     */
+    private static void makePrimary(TaskAttempt ta) {
+        TaskClusterAttempt tca = ta.getTaskClusterAttempt();
+        TaskId tid = ta.getTask().getTaskId();
+        TaskAttempt primary = tca.getTaskAttempts().get(tid);
+        if (primary != ta) {
+            tca.getTaskAttempts().put(tid, ta);
+            tca.getSecondaryTaskAttempts().put(tid, primary);
+        }
+    }
+
+    /**
+     * Stops a single attempt of a task whose other attempt goes on, and forgets the partitions it registered or
+     * requested.
+     */
+    private void abortTaskAttempt(TaskAttempt ta, TaskAttempt.TaskStatus status, String details) {
+        TaskAttemptId taId = ta.getTaskAttemptId();
+        ta.setStatus(status, details);
+        ta.setEndTime(System.currentTimeMillis());
+        releaseCapacity(taId);
+        if (status == TaskAttempt.TaskStatus.ABORTED) {
+            NodeControllerState node = ccs.getNodeMap().get(ta.getNodeId());
+            if (node != null) {
+                try {
+                    node.getNodeController().abortTasks(jobRun.getJobId(), Collections.singletonList(taId));
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        TaskCluster tc = ta.getTask().getTaskCluster();
+        Set<TaskAttemptId> taIds = Collections.singleton(taId);
+        PartitionMatchMaker pmm = jobRun.getPartitionMatchMaker();
+        pmm.removeUncommittedPartitions(tc.getProducedPartitions(), taIds);
+        pmm.removePartitionRequests(tc.getRequiredPartitions(), taIds);
+    }
+
     public void notifyTaskComplete(TaskAttempt ta) throws HyracksException {
         TaskAttemptId taId = ta.getTaskAttemptId();
         TaskCluster tc = ta.getTask().getTaskCluster();
         TaskClusterAttempt lastAttempt = findLastTaskClusterAttempt(tc);
-        if (lastAttempt != null && taId.getAttempt() == lastAttempt.getAttempt()) {
+        if (lastAttempt != null && TaskClusterAttempt.getTaskClusterAttempt(taId) == lastAttempt.getAttempt()) {
             TaskAttempt.TaskStatus taStatus = ta.getStatus();
             if (taStatus == TaskAttempt.TaskStatus.RUNNING) {
                 ta.setStatus(TaskAttempt.TaskStatus.COMPLETED, null);
                 ta.setEndTime(System.currentTimeMillis());
+                releaseCapacity(taId);
+                TaskAttempt twin = findTwin(ta);
+                if (twin != null) {
+                    if (twin.getStatus() == TaskAttempt.TaskStatus.RUNNING) {
+                        if (LOGGER.isLoggable(Level.INFO)) {
+                            LOGGER.info(taId + " finished before " + twin.getTaskAttemptId() + ", aborting the latter");
+                        }
+                        abortTaskAttempt(twin, TaskAttempt.TaskStatus.ABORTED, null);
+                    }
+                    makePrimary(ta);
+                }
                 if (lastAttempt.decrementPendingTasksCounter() == 0) {
                     lastAttempt.setStatus(TaskClusterAttempt.TaskClusterStatus.COMPLETED);
                     lastAttempt.setEndTime(System.currentTimeMillis());
@@ -602,7 +759,19 @@ public class JobScheduler {
             TaskAttemptId taId = ta.getTaskAttemptId();
             TaskCluster tc = ta.getTask().getTaskCluster();
             TaskClusterAttempt lastAttempt = findLastTaskClusterAttempt(tc);
-            if (lastAttempt != null && taId.getAttempt() == lastAttempt.getAttempt()) {
+            if (ta.getStatus() != TaskAttempt.TaskStatus.RUNNING) {
+                // e.g. the attempt of a task that lost against another attempt of the same task
+                LOGGER.fine("Ignoring failure of TaskAttempt " + taId + " in state " + ta.getStatus());
+                return;
+            }
+            if (lastAttempt != null && TaskClusterAttempt.getTaskClusterAttempt(taId) == lastAttempt.getAttempt()) {
+                TaskAttempt twin = findTwin(ta);
+                if (twin != null && twin.getStatus() == TaskAttempt.TaskStatus.RUNNING) {
+                    // the other attempt of the task can still finish it
+                    abortTaskAttempt(ta, TaskAttempt.TaskStatus.FAILED, details);
+                    makePrimary(twin);
+                    return;
+                }
                 LOGGER.fine("Marking TaskAttempt " + ta.getTaskAttemptId() + " as failed");
                 ta.setStatus(TaskAttempt.TaskStatus.FAILED, details);
                 abortTaskCluster(lastAttempt);
@@ -625,6 +794,10 @@ public class JobScheduler {
 
     /**
      * Indicates that the provided set of nodes have left the cluster.
+     * Running task clusters with a task on a failed node are failed. A completed task cluster with a task on a failed
+     * node is only re-run if its output is still needed, i.e. if a task cluster that consumes one of its partitions or
+     * depends on it has not completed. Task clusters whose inputs are still available, such as the partitions of
+     * send-side materialized connectors on the remaining nodes, are restarted without re-running their producers.
      * 
      * @param deadNodes
      *            - Set of failed nodes
@@ -632,34 +805,261 @@ public class JobScheduler {
     public void notifyNodeFailures(Set<String> deadNodes) {
         try {
             jobRun.getPartitionMatchMaker().notifyNodeFailures(deadNodes);
+            // dead nodes cannot clean up their joblets, and waiting for them would keep the job from finishing
+            jobRun.getParticipatingNodeIds().removeAll(deadNodes);
             for (ActivityCluster ac : jobRun.getActivityClusterGraph().getActivityClusterMap().values()) {
-                TaskCluster[] taskClusters = getActivityClusterPlan(ac).getTaskClusters();
-                if (taskClusters != null) {
-                    for (TaskCluster tc : taskClusters) {
-                        TaskClusterAttempt lastTaskClusterAttempt = findLastTaskClusterAttempt(tc);
-                        if (lastTaskClusterAttempt != null
-                                && (lastTaskClusterAttempt.getStatus() == TaskClusterAttempt.TaskClusterStatus.COMPLETED || lastTaskClusterAttempt
-                                        .getStatus() == TaskClusterAttempt.TaskClusterStatus.RUNNING)) {
-                            boolean abort = false;
-                            for (TaskAttempt ta : lastTaskClusterAttempt.getTaskAttempts().values()) {
-                                assert (ta.getStatus() == TaskAttempt.TaskStatus.COMPLETED || ta.getStatus() == TaskAttempt.TaskStatus.RUNNING);
+                ActivityClusterPlan acp = getActivityClusterPlan(ac);
+                if (acp == null || acp.getTaskClusters() == null) {
+                    continue;
+                }
+                for (TaskCluster tc : acp.getTaskClusters()) {
+                    TaskClusterAttempt lastTaskClusterAttempt = findLastTaskClusterAttempt(tc);
+                    if (lastTaskClusterAttempt == null || !runsOnNodes(lastTaskClusterAttempt, deadNodes)) {
+                        continue;
+                    }
+                    switch (lastTaskClusterAttempt.getStatus()) {
+                        case RUNNING:
+                            List<TaskAttempt> taskAttempts = new ArrayList<TaskAttempt>(lastTaskClusterAttempt
+                                    .getTaskAttempts().values());
+                            taskAttempts.addAll(lastTaskClusterAttempt.getSecondaryTaskAttempts().values());
+                            for (TaskAttempt ta : taskAttempts) {
                                 if (deadNodes.contains(ta.getNodeId())) {
                                     ta.setStatus(TaskAttempt.TaskStatus.FAILED, "Node " + ta.getNodeId() + " failed");
                                     ta.setEndTime(System.currentTimeMillis());
-                                    abort = true;
                                 }
                             }
-                            if (abort) {
+                            abortTaskCluster(lastTaskClusterAttempt);
+                            lastTaskClusterAttempt.setStatus(TaskClusterAttempt.TaskClusterStatus.FAILED);
+                            lastTaskClusterAttempt.setEndTime(System.currentTimeMillis());
+                            break;
+
+                        case COMPLETED:
+                            if (isOutputNeeded(tc)) {
+                                if (LOGGER.isLoggable(Level.INFO)) {
+                                    LOGGER.info("Re-running " + tc + " as its output was lost with " + deadNodes);
+                                }
                                 abortTaskCluster(lastTaskClusterAttempt);
+                                lastTaskClusterAttempt.setStatus(TaskClusterAttempt.TaskClusterStatus.ABORTED);
                             }
-                        }
+                            break;
+
+                        default:
+                            break;
                     }
-                    abortDoomedTaskClusters();
                 }
             }
+            abortDoomedTaskClusters();
             startRunnableActivityClusters();
         } catch (Exception e) {
             abortJob(e);
         }
     }
-}
\ No newline at end of file
+
+    private static boolean runsOnNodes(TaskClusterAttempt tca, Set<String> nodeIds) {
+        for (TaskAttempt ta : tca.getTaskAttempts().values()) {
+            if (nodeIds.contains(ta.getNodeId())) {
+                return true;
+            }
+        }
+        for (TaskAttempt ta : tca.getSecondaryTaskAttempts().values()) {
+            if (ta.getStatus() == TaskAttempt.TaskStatus.RUNNING && nodeIds.contains(ta.getNodeId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether a task cluster anywhere in the activity cluster graph that has not completed still consumes a
+     * partition the given task cluster produced, or depends on state it left on its nodes. Activity clusters that
+     * depend on the one of the given task cluster but have not been planned yet cannot be linked to its task clusters,
+     * so they are assumed to need its output.
+     */
+    private boolean isOutputNeeded(TaskCluster tc) {
+        for (TaskCluster dependent : tc.getDependentTaskClusters()) {
+            if (!isCompleted(dependent)) {
+                return true;
+            }
+        }
+        ActivityCluster producerAC = tc.getActivityCluster();
+        Set<PartitionId> produced = tc.getProducedPartitions();
+        for (ActivityCluster ac : jobRun.getActivityClusterGraph().getActivityClusterMap().values()) {
+            ActivityClusterPlan acp = getActivityClusterPlan(ac);
+            if (acp == null || acp.getTaskClusters() == null) {
+                if (ac.getDependencies().contains(producerAC)) {
+                    return true;
+                }
+                continue;
+            }
+            if (produced.isEmpty()) {
+                continue;
+            }
+            for (TaskCluster consumer : acp.getTaskClusters()) {
+                if (consumer != tc && !isCompleted(consumer)) {
+                    for (PartitionId pid : consumer.getRequiredPartitions()) {
+                        if (produced.contains(pid)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCompleted(TaskCluster tc) {
+        TaskClusterAttempt tca = findLastTaskClusterAttempt(tc);
+        return tca != null && tca.getStatus() == TaskClusterAttempt.TaskClusterStatus.COMPLETED;
+    }
+
+    /**
+     * Starts a second attempt, on another node, of every running task that takes much longer than the finished tasks
+     * of its activity. Whichever attempt finishes first completes the task and the other one is aborted. Only tasks
+     * that read committed, materialized partitions and whose consumers wait for their complete, materialized output
+     * are run twice: the second attempt can read the same input again, and no consumer sees the output of the attempt
+     * that loses.
+     */
+    public void speculateStragglers() {
+        try {
+            CCConfig config = ccs.getConfig();
+            long now = System.currentTimeMillis();
+            List<TaskAttempt> stragglers = new ArrayList<TaskAttempt>();
+            for (TaskCluster tc : inProgressTaskClusters) {
+                TaskClusterAttempt tca = findLastTaskClusterAttempt(tc);
+                if (tca == null || tca.getStatus() != TaskClusterAttempt.TaskClusterStatus.RUNNING) {
+                    continue;
+                }
+                for (TaskAttempt ta : tca.getTaskAttempts().values()) {
+                    if (ta.getStatus() != TaskAttempt.TaskStatus.RUNNING
+                            || tca.getSecondaryTaskAttempts().containsKey(ta.getTask().getTaskId())) {
+                        continue;
+                    }
+                    long elapsed = now - ta.getStartTime();
+                    if (elapsed < config.speculationPeriod) {
+                        continue;
+                    }
+                    long median = getMedianPeerDuration(ta.getTask());
+                    if (median >= 0 && elapsed * 100 > median * config.speculationSlowdown
+                            && isSpeculatable(ta.getTask())) {
+                        stragglers.add(ta);
+                    }
+                }
+            }
+            for (TaskAttempt ta : stragglers) {
+                startSecondaryAttempt(ta);
+            }
+        } catch (Exception e) {
+            abortJob(e);
+        }
+    }
+
+    /**
+     * Returns the median time the finished tasks of the activity of the given task took, or -1 if too few of them
+     * have finished to tell.
+     */
+    private static long getMedianPeerDuration(Task task) {
+        Task[] peers = task.getActivityPlan().getTasks();
+        List<Long> durations = new ArrayList<Long>();
+        for (Task peer : peers) {
+            TaskClusterAttempt tca = findLastTaskClusterAttempt(peer.getTaskCluster());
+            TaskAttempt ta = tca == null ? null : tca.getTaskAttempts().get(peer.getTaskId());
+            if (ta != null && ta.getStatus() == TaskAttempt.TaskStatus.COMPLETED) {
+                durations.add(ta.getEndTime() - ta.getStartTime());
+            }
+        }
+        if (durations.isEmpty() || durations.size() * 100 < peers.length * SPECULATION_QUORUM_PERCENT) {
+            return -1;
+        }
+        Collections.sort(durations);
+        return durations.get(durations.size() / 2);
+    }
+
+    private boolean isSpeculatable(Task task) {
+        if (!task.getDependencies().isEmpty() || !task.getDependents().isEmpty()) {
+            // state is shared with tasks of other activities on the same node
+            return false;
+        }
+        ActivityId aid = task.getTaskId().getActivityId();
+        ActivityCluster ac = task.getTaskCluster().getActivityCluster();
+        List<IConnectorDescriptor> inputs = ac.getActivityInputMap().get(aid);
+        List<IConnectorDescriptor> outputs = ac.getActivityOutputMap().get(aid);
+        if (inputs == null || inputs.isEmpty() || outputs == null || outputs.isEmpty()) {
+            // sources and sinks may read or write data outside of the job
+            return false;
+        }
+        Map<ConnectorDescriptorId, IConnectorPolicy> connectorPolicyMap = jobRun.getConnectorPolicyMap();
+        for (IConnectorDescriptor conn : inputs) {
+            IConnectorPolicy cPolicy = connectorPolicyMap.get(conn.getConnectorId());
+            if (cPolicy == null || !cPolicy.materializeOnSendSide()) {
+                return false;
+            }
+        }
+        for (IConnectorDescriptor conn : outputs) {
+            IConnectorPolicy cPolicy = connectorPolicyMap.get(conn.getConnectorId());
+            if (cPolicy == null || !cPolicy.materializeOnSendSide() || !cPolicy.consumerWaitsForProducerToFinish()) {
+                return false;
+            }
+        }
+        PartitionMatchMaker pmm = jobRun.getPartitionMatchMaker();
+        for (PartitionId pid : task.getTaskCluster().getRequiredPartitions()) {
+            if (pmm.getMaximumAvailableState(pid) != PartitionState.COMMITTED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void startSecondaryAttempt(TaskAttempt ta) throws HyracksException {
+        Task task = ta.getTask();
+        TaskId tid = task.getTaskId();
+        TaskClusterAttempt tca = ta.getTaskClusterAttempt();
+        TaskAttemptId taId = new TaskAttemptId(tid, tca.getAttempt() + TaskClusterAttempt.SECONDARY_ATTEMPT_OFFSET);
+        ActivityPartitionDetails apd = task.getActivityPlan().getActivityPartitionDetails();
+        TaskAttemptDescriptor tad = new TaskAttemptDescriptor(taId, apd.getPartitionCount(),
+                apd.getInputPartitionCounts(), apd.getOutputPartitionCounts());
+        for (String nodeId : findSecondaryLocations(ta)) {
+            Reservation r = createReservation(jobRun.getActivityClusterGraph(), nodeId, tad);
+            if (!ccs.getTaskAdmissionController().tryAdmit(r)) {
+                continue;
+            }
+            reservations.put(taId, r);
+            TaskAttempt secondary = new TaskAttempt(tca, taId, task);
+            secondary.setNodeId(nodeId);
+            secondary.setStatus(TaskAttempt.TaskStatus.RUNNING, null);
+            secondary.setStartTime(System.currentTimeMillis());
+            tca.getSecondaryTaskAttempts().put(tid, secondary);
+            if (LOGGER.isLoggable(Level.INFO)) {
+                LOGGER.info("Starting " + taId + " at " + nodeId + " as " + ta.getTaskAttemptId() + " at "
+                        + ta.getNodeId() + " straggles");
+            }
+            Map<String, List<TaskAttemptDescriptor>> taskAttemptMap = new HashMap<String, List<TaskAttemptDescriptor>>();
+            taskAttemptMap.put(nodeId, Collections.singletonList(tad));
+            startTasks(taskAttemptMap);
+            return;
+        }
+    }
+
+    /**
+     * Returns the live nodes, other than the one it runs on, that the task of the given attempt may run on, in random
+     * order.
+     */
+    private List<String> findSecondaryLocations(TaskAttempt ta) {
+        TaskId tid = ta.getTask().getTaskId();
+        Object location = solver.getValue(new PartitionLocationExpression(tid.getActivityId()
+                .getOperatorDescriptorId(), tid.getPartition()));
+        Set<String> liveNodes = ccs.getNodeMap().keySet();
+        List<String> nodeIds = new ArrayList<String>();
+        if (location == null) {
+            nodeIds.addAll(liveNodes);
+        } else if (location instanceof String[]) {
+            for (String choice : (String[]) location) {
+                if (liveNodes.contains(choice)) {
+                    nodeIds.add(choice);
+                }
+            }
+        }
+        nodeIds.remove(ta.getNodeId());
+        Collections.shuffle(nodeIds);
+        return nodeIds;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.control.cc.scheduler;
+
+/**
+ * Task slots and bytes of memory held, or asked for, at one node.
+ */
+public class Reservation {
+    private final String nodeId;
+
+    private int slots;
+
+    private long memory;
+
+    public Reservation(String nodeId, int slots, long memory) {
+        this.nodeId = nodeId;
+        this.slots = slots;
+        this.memory = memory;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public long getMemory() {
+        return memory;
+    }
+
+    public void add(Reservation r) {
+        slots += r.slots;
+        memory += r.memory;
+    }
+
+    @Override
+    public String toString() {
+        return nodeId + "[slots: " + slots + ", memory: " + memory + "]";
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.control.cc.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
+import edu.uci.ics.hyracks.control.cc.NodeControllerState;
+import edu.uci.ics.hyracks.control.cc.job.JobRun;
+import edu.uci.ics.hyracks.control.common.work.AbstractWork;
+
+/**
+ * Decides whether the task clusters a job is about to start fit into the task slots and memory the nodes advertise.
+ * Jobs that do not fit wait in a FIFO queue and are resumed, in order, when tasks release their reservations. A job
+ * that waits keeps the jobs behind it from being admitted, so that a large job is not starved by a stream of small
+ * ones.
+ * Jobs call it from their own work threads, so all state is guarded by this object's monitor. The reservations of a
+ * node are only changed through this class.
+ */
+public class TaskAdmissionController {
+    private static final Logger LOGGER = Logger.getLogger(TaskAdmissionController.class.getName());
+
+    private final ClusterControllerService ccs;
+
+    private final Set<JobId> waitingJobs;
+
+    private boolean resumeScheduled;
+
+    public TaskAdmissionController(ClusterControllerService ccs) {
+        this.ccs = ccs;
+        waitingJobs = new LinkedHashSet<JobId>();
+    }
+
+    /**
+     * Reserves the given demand for the job if every node can take its share and no job queued before it is still
+     * waiting, or if force is set. Otherwise the job is queued and false is returned.
+     *
+     * @param jobId
+     *            - Job that wants to start tasks
+     * @param demand
+     *            - Slots and memory needed, at most one entry per node
+     * @param force
+     *            - Reserve even if the nodes are full. Used for jobs that already run tasks, which may not be able
+     *            to finish until their next task clusters start.
+     */
+    public synchronized boolean admit(JobId jobId, Collection<Reservation> demand, boolean force) {
+        if (!force) {
+            if (!waitingJobs.isEmpty() && !waitingJobs.iterator().next().equals(jobId)) {
+                waitingJobs.add(jobId);
+                return false;
+            }
+            for (Reservation r : demand) {
+                NodeControllerState node = ccs.getNodeMap().get(r.getNodeId());
+                if (node != null && !node.canAdmit(r.getSlots(), r.getMemory())) {
+                    if (waitingJobs.add(jobId) && LOGGER.isLoggable(Level.INFO)) {
+                        LOGGER.info("Job " + jobId + " waits for " + r);
+                    }
+                    return false;
+                }
+            }
+        }
+        for (Reservation r : demand) {
+            NodeControllerState node = ccs.getNodeMap().get(r.getNodeId());
+            if (node != null) {
+                node.reserve(r.getSlots(), r.getMemory());
+            }
+        }
+        waitingJobs.remove(jobId);
+        return true;
+    }
+
+    /**
+     * Reserves capacity for optional work, such as a second attempt of a straggling task, if the node has room for it
+     * and no job is waiting. Never queues the job.
+     */
+    public synchronized boolean tryAdmit(Reservation r) {
+        NodeControllerState node = ccs.getNodeMap().get(r.getNodeId());
+        if (node == null || !waitingJobs.isEmpty() || !node.canAdmit(r.getSlots(), r.getMemory())) {
+            return false;
+        }
+        node.reserve(r.getSlots(), r.getMemory());
+        return true;
+    }
+
+    /**
+     * Returns a reservation made by {@link #admit(JobId, Collection, boolean)} or {@link #tryAdmit(Reservation)} and lets
+     * the waiting jobs retry.
+     */
+    public synchronized void release(Reservation r) {
+        NodeControllerState node = ccs.getNodeMap().get(r.getNodeId());
+        if (node != null) {
+            node.release(r.getSlots(), r.getMemory());
+        }
+        if (!waitingJobs.isEmpty() && !resumeScheduled) {
+            resumeScheduled = true;
+            ccs.getWorkQueue().schedule(new ResumeWaitingJobsWork());
+        }
+    }
+
+    /**
+     * Forgets a job that will not start any more tasks.
+     */
+    public synchronized void jobFinished(JobId jobId) {
+        waitingJobs.remove(jobId);
+    }
+
+    private class ResumeWaitingJobsWork extends AbstractWork {
+        @Override
+        public void run() {
+            List<JobId> jobIds;
+            synchronized (TaskAdmissionController.this) {
+                resumeScheduled = false;
+                jobIds = new ArrayList<JobId>(waitingJobs);
+            }
+            for (JobId jobId : jobIds) {
+                JobRun run = ccs.getActiveRunMap().get(jobId);
+                if (run == null || run.getPendingStatus() != null) {
+                    jobFinished(jobId);
+                    continue;
+                }
+                run.getScheduler().resumeJob();
+                synchronized (TaskAdmissionController.this) {
+                    if (waitingJobs.contains(jobId)) {
+                        // everyone behind it has to keep waiting as well
+                        break;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Level logLevel() {
+            return Level.FINE;
+        }
+    }
+}
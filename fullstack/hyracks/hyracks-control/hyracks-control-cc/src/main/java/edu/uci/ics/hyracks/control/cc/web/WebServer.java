@@ -65,6 +65,8 @@ public class WebServer {
         RoutingHandler rh = new RoutingHandler();
         rh.addHandler("jobs", new JSONOutputRequestHandler(new JobsRESTAPIFunction(ccs)));
         rh.addHandler("nodes", new JSONOutputRequestHandler(new NodesRESTAPIFunction(ccs)));
+        rh.addHandler("workqueue", new JSONOutputRequestHandler(new WorkQueueRESTAPIFunction(ccs)));
+        rh.addHandler("metrics", new JSONOutputRequestHandler(new MetricsRESTAPIFunction(ccs)));
         handler.setHandler(rh);
         addHandler(handler);
 
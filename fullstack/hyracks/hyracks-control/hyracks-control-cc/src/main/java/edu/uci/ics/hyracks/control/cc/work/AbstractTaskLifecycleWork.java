@@ -30,8 +30,9 @@ import edu.uci.ics.hyracks.control.cc.job.TaskAttempt;
 import edu.uci.ics.hyracks.control.cc.job.TaskCluster;
 import edu.uci.ics.hyracks.control.cc.job.TaskClusterAttempt;
 import edu.uci.ics.hyracks.control.common.work.AbstractWork;
+import edu.uci.ics.hyracks.control.common.work.IJobScopedWork;
 
-public abstract class AbstractTaskLifecycleWork extends AbstractWork {
+public abstract class AbstractTaskLifecycleWork extends AbstractWork implements IJobScopedWork {
     protected final ClusterControllerService ccs;
     protected final JobId jobId;
     protected final TaskAttemptId taId;
@@ -44,6 +45,11 @@ public abstract class AbstractTaskLifecycleWork extends AbstractWork {
         this.nodeId = nodeId;
     }
 
+    @Override
+    public JobId getJobId() {
+        return jobId;
+    }
+
     @Override
     public final void run() {
         JobRun run = ccs.getActiveRunMap().get(jobId);
@@ -59,9 +65,10 @@ public abstract class AbstractTaskLifecycleWork extends AbstractWork {
                     Task ts = taskStates[tid.getPartition()];
                     TaskCluster tc = ts.getTaskCluster();
                     List<TaskClusterAttempt> taskClusterAttempts = tc.getAttempts();
-                    if (taskClusterAttempts != null && taskClusterAttempts.size() > taId.getAttempt()) {
-                        TaskClusterAttempt tca = taskClusterAttempts.get(taId.getAttempt());
-                        TaskAttempt ta = tca.getTaskAttempts().get(tid);
+                    int attempt = TaskClusterAttempt.getTaskClusterAttempt(taId);
+                    if (taskClusterAttempts != null && taskClusterAttempts.size() > attempt) {
+                        TaskClusterAttempt tca = taskClusterAttempts.get(attempt);
+                        TaskAttempt ta = tca.findTaskAttempt(taId);
                         if (ta != null) {
                             performEvent(ta);
                         }
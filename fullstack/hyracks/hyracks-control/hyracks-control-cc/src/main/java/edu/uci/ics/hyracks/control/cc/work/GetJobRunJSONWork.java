@@ -19,9 +19,10 @@ import org.json.JSONObject;
 import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
 import edu.uci.ics.hyracks.control.cc.job.JobRun;
+import edu.uci.ics.hyracks.control.common.work.IJobScopedWork;
 import edu.uci.ics.hyracks.control.common.work.SynchronizableWork;
 
-public class GetJobRunJSONWork extends SynchronizableWork {
+public class GetJobRunJSONWork extends SynchronizableWork implements IJobScopedWork {
     private final ClusterControllerService ccs;
     private final JobId jobId;
     private JSONObject json;
@@ -31,6 +32,11 @@ public class GetJobRunJSONWork extends SynchronizableWork {
         this.jobId = jobId;
     }
 
+    @Override
+    public JobId getJobId() {
+        return jobId;
+    }
+
     @Override
     protected void doRun() throws Exception {
         JobRun run = ccs.getActiveRunMap().get(jobId);
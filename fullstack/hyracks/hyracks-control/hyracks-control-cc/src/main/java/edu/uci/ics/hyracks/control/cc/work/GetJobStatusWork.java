@@ -18,10 +18,11 @@ import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.api.job.JobStatus;
 import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
 import edu.uci.ics.hyracks.control.cc.job.JobRun;
+import edu.uci.ics.hyracks.control.common.work.IJobScopedWork;
 import edu.uci.ics.hyracks.control.common.work.IResultCallback;
 import edu.uci.ics.hyracks.control.common.work.SynchronizableWork;
 
-public class GetJobStatusWork extends SynchronizableWork {
+public class GetJobStatusWork extends SynchronizableWork implements IJobScopedWork {
     private final ClusterControllerService ccs;
     private final JobId jobId;
     private final IResultCallback<JobStatus> callback;
@@ -32,6 +33,11 @@ public class GetJobStatusWork extends SynchronizableWork {
         this.callback = callback;
     }
 
+    @Override
+    public JobId getJobId() {
+        return jobId;
+    }
+
     @Override
     protected void doRun() throws Exception {
         try {
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.control.cc.work;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
+import edu.uci.ics.hyracks.control.cc.NodeControllerState;
+import edu.uci.ics.hyracks.control.cc.job.JobRun;
+import edu.uci.ics.hyracks.control.common.work.SynchronizableWork;
+
+/**
+ * Collects the runtime statistics of every node and of every running job. Runs as a cluster-wide work so that it does
+ * not see the statistics of a job while one of its tasks is being accounted for.
+ */
+public class GetMetricsJSONWork extends SynchronizableWork {
+    private final ClusterControllerService ccs;
+
+    private JSONObject metrics;
+
+    public GetMetricsJSONWork(ClusterControllerService ccs) {
+        this.ccs = ccs;
+    }
+
+    @Override
+    protected void doRun() throws Exception {
+        metrics = new JSONObject();
+        JSONArray nodes = new JSONArray();
+        for (NodeControllerState ncs : ccs.getNodeMap().values()) {
+            JSONObject node = new JSONObject();
+            node.put("node-id", ncs.getNCConfig().nodeId);
+            node.put("active-jobs", ncs.getActiveJobIds().size());
+            node.put("used-task-slots", ncs.getUsedTaskSlots());
+            node.put("used-task-memory", ncs.getUsedTaskMemory());
+            node.put("runtime-statistics", ncs.getRuntimeStatistics().toJSON());
+            nodes.put(node);
+        }
+        metrics.put("nodes", nodes);
+        JSONArray jobs = new JSONArray();
+        for (JobRun run : ccs.getActiveRunMap().values()) {
+            JSONObject job = new JSONObject();
+            job.put("job-id", run.getJobId().toString());
+            job.put("status", run.getStatus());
+            job.put("runtime-statistics", run.getOperatorStatisticsJSON());
+            jobs.put(job);
+        }
+        metrics.put("jobs", jobs);
+        metrics.put("work-queue", ccs.getWorkQueue().toJSON());
+    }
+
+    public JSONObject getMetrics() {
+        return metrics;
+    }
+}
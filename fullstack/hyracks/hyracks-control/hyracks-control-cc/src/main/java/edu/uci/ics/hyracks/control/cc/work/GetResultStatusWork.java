@@ -19,10 +19,11 @@ import edu.uci.ics.hyracks.api.dataset.ResultSetId;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
+import edu.uci.ics.hyracks.control.common.work.IJobScopedWork;
 import edu.uci.ics.hyracks.control.common.work.IResultCallback;
 import edu.uci.ics.hyracks.control.common.work.SynchronizableWork;
 
-public class GetResultStatusWork extends SynchronizableWork {
+public class GetResultStatusWork extends SynchronizableWork implements IJobScopedWork {
     private final ClusterControllerService ccs;
 
     private final JobId jobId;
@@ -39,6 +40,11 @@ public class GetResultStatusWork extends SynchronizableWork {
         this.callback = callback;
     }
 
+    @Override
+    public JobId getJobId() {
+        return jobId;
+    }
+
     @Override
     public void doRun() {
         try {
@@ -59,6 +59,7 @@ public class JobCleanupWork extends AbstractWork {
         Set<String> targetNodes = run.getParticipatingNodeIds();
         run.getCleanupPendingNodeIds().addAll(targetNodes);
         run.setPendingStatus(status, exception);
+        ccs.getTaskAdmissionController().jobFinished(jobId);
         if (targetNodes != null && !targetNodes.isEmpty()) {
             for (String n : targetNodes) {
                 NodeControllerState ncs = ccs.getNodeMap().get(n);
@@ -18,6 +18,7 @@ import java.util.List;
 
 import org.apache.commons.lang3.tuple.Pair;
 
+import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.api.partitions.PartitionId;
 import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
 import edu.uci.ics.hyracks.control.cc.job.JobRun;
@@ -26,8 +27,9 @@ import edu.uci.ics.hyracks.control.cc.partitions.PartitionUtils;
 import edu.uci.ics.hyracks.control.common.job.PartitionDescriptor;
 import edu.uci.ics.hyracks.control.common.job.PartitionRequest;
 import edu.uci.ics.hyracks.control.common.work.AbstractWork;
+import edu.uci.ics.hyracks.control.common.work.IJobScopedWork;
 
-public class RegisterPartitionAvailibilityWork extends AbstractWork {
+public class RegisterPartitionAvailibilityWork extends AbstractWork implements IJobScopedWork {
     private final ClusterControllerService ccs;
     private final PartitionDescriptor partitionDescriptor;
 
@@ -36,6 +38,11 @@ public class RegisterPartitionAvailibilityWork extends AbstractWork {
         this.partitionDescriptor = partitionDescriptor;
     }
 
+    @Override
+    public JobId getJobId() {
+        return partitionDescriptor.getPartitionId().getJobId();
+    }
+
     @Override
     public void run() {
         final PartitionId pid = partitionDescriptor.getPartitionId();
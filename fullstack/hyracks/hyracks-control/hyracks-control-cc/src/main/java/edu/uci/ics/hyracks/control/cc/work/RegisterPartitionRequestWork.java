@@ -16,6 +16,7 @@ package edu.uci.ics.hyracks.control.cc.work;
 
 import org.apache.commons.lang3.tuple.Pair;
 
+import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.api.partitions.PartitionId;
 import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
 import edu.uci.ics.hyracks.control.cc.job.JobRun;
@@ -24,8 +25,9 @@ import edu.uci.ics.hyracks.control.cc.partitions.PartitionUtils;
 import edu.uci.ics.hyracks.control.common.job.PartitionDescriptor;
 import edu.uci.ics.hyracks.control.common.job.PartitionRequest;
 import edu.uci.ics.hyracks.control.common.work.AbstractWork;
+import edu.uci.ics.hyracks.control.common.work.IJobScopedWork;
 
-public class RegisterPartitionRequestWork extends AbstractWork {
+public class RegisterPartitionRequestWork extends AbstractWork implements IJobScopedWork {
     private final ClusterControllerService ccs;
     private final PartitionRequest partitionRequest;
 
@@ -34,6 +36,11 @@ public class RegisterPartitionRequestWork extends AbstractWork {
         this.partitionRequest = partitionRequest;
     }
 
+    @Override
+    public JobId getJobId() {
+        return partitionRequest.getPartitionId().getJobId();
+    }
+
     @Override
     public void run() {
         PartitionId pid = partitionRequest.getPartitionId();
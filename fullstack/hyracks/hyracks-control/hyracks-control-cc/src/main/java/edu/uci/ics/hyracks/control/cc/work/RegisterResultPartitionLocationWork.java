@@ -19,8 +19,9 @@ import edu.uci.ics.hyracks.api.dataset.ResultSetId;
 import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
 import edu.uci.ics.hyracks.control.common.work.AbstractWork;
+import edu.uci.ics.hyracks.control.common.work.IJobScopedWork;
 
-public class RegisterResultPartitionLocationWork extends AbstractWork {
+public class RegisterResultPartitionLocationWork extends AbstractWork implements IJobScopedWork {
     private final ClusterControllerService ccs;
 
     private final JobId jobId;
@@ -46,6 +47,11 @@ public class RegisterResultPartitionLocationWork extends AbstractWork {
         this.networkAddress = networkAddress;
     }
 
+    @Override
+    public JobId getJobId() {
+        return jobId;
+    }
+
     @Override
     public void run() {
         ccs.getDatasetDirectoryService().registerResultPartitionLocation(jobId, rsId, orderedResult, partition,
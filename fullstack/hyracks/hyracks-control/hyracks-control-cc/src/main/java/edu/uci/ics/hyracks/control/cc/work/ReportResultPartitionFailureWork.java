@@ -18,8 +18,9 @@ import edu.uci.ics.hyracks.api.dataset.ResultSetId;
 import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
 import edu.uci.ics.hyracks.control.common.work.AbstractWork;
+import edu.uci.ics.hyracks.control.common.work.IJobScopedWork;
 
-public class ReportResultPartitionFailureWork extends AbstractWork {
+public class ReportResultPartitionFailureWork extends AbstractWork implements IJobScopedWork {
     private final ClusterControllerService ccs;
 
     private final JobId jobId;
@@ -35,6 +36,11 @@ public class ReportResultPartitionFailureWork extends AbstractWork {
         this.partition = partition;
     }
 
+    @Override
+    public JobId getJobId() {
+        return jobId;
+    }
+
     @Override
     public void run() {
         ccs.getDatasetDirectoryService().reportResultPartitionFailure(jobId, rsId, partition);
@@ -18,8 +18,9 @@ import edu.uci.ics.hyracks.api.dataset.ResultSetId;
 import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
 import edu.uci.ics.hyracks.control.common.work.AbstractWork;
+import edu.uci.ics.hyracks.control.common.work.IJobScopedWork;
 
-public class ReportResultPartitionWriteCompletionWork extends AbstractWork {
+public class ReportResultPartitionWriteCompletionWork extends AbstractWork implements IJobScopedWork {
     private final ClusterControllerService ccs;
 
     private final JobId jobId;
@@ -36,6 +37,11 @@ public class ReportResultPartitionWriteCompletionWork extends AbstractWork {
         this.partition = partition;
     }
 
+    @Override
+    public JobId getJobId() {
+        return jobId;
+    }
+
     @Override
     public void run() {
         ccs.getDatasetDirectoryService().reportResultPartitionWriteCompletion(jobId, rsId, partition);
@@ -20,10 +20,12 @@ import edu.uci.ics.hyracks.api.dataflow.TaskAttemptId;
 import edu.uci.ics.hyracks.api.exceptions.HyracksException;
 import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
+import edu.uci.ics.hyracks.control.cc.NodeControllerState;
 import edu.uci.ics.hyracks.control.cc.job.JobRun;
 import edu.uci.ics.hyracks.control.cc.job.TaskAttempt;
 import edu.uci.ics.hyracks.control.common.job.profiling.om.JobProfile;
 import edu.uci.ics.hyracks.control.common.job.profiling.om.JobletProfile;
+import edu.uci.ics.hyracks.control.common.job.profiling.om.RuntimeStatistics;
 import edu.uci.ics.hyracks.control.common.job.profiling.om.TaskProfile;
 
 public class TaskCompleteWork extends AbstractTaskLifecycleWork {
@@ -48,6 +50,13 @@ public class TaskCompleteWork extends AbstractTaskLifecycleWork {
                     jobletProfiles.put(nodeId, jobletProfile);
                 }
                 jobletProfile.getTaskProfiles().put(taId, statistics);
+                run.addRuntimeStatistics(statistics.getRuntimeStatistics());
+                NodeControllerState node = ccs.getNodeMap().get(nodeId);
+                if (node != null) {
+                    for (RuntimeStatistics stats : statistics.getRuntimeStatistics().values()) {
+                        node.addRuntimeStatistics(stats);
+                    }
+                }
             }
             run.getScheduler().notifyTaskComplete(ta);
         } catch (HyracksException e) {
@@ -17,10 +17,11 @@ package edu.uci.ics.hyracks.control.cc.work;
 import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
 import edu.uci.ics.hyracks.control.cc.job.IJobStatusConditionVariable;
+import edu.uci.ics.hyracks.control.common.work.IJobScopedWork;
 import edu.uci.ics.hyracks.control.common.work.IResultCallback;
 import edu.uci.ics.hyracks.control.common.work.SynchronizableWork;
 
-public class WaitForJobCompletionWork extends SynchronizableWork {
+public class WaitForJobCompletionWork extends SynchronizableWork implements IJobScopedWork {
     private final ClusterControllerService ccs;
     private final JobId jobId;
     private final IResultCallback<Object> callback;
@@ -31,6 +32,11 @@ public class WaitForJobCompletionWork extends SynchronizableWork {
         this.callback = callback;
     }
 
+    @Override
+    public JobId getJobId() {
+        return jobId;
+    }
+
     @Override
     protected void doRun() throws Exception {
         final IJobStatusConditionVariable cRunningVar = ccs.getActiveRunMap().get(jobId);
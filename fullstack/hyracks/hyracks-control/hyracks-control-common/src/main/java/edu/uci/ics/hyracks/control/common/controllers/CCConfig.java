@@ -58,6 +58,15 @@ public class CCConfig {
     @Option(name = "-cluster-topology", required = false, usage = "Sets the XML file that defines the cluster topology. (default: null)")
     public File clusterTopologyDefinition = null;
 
+    @Option(name = "-serial-work-queue", required = false, usage = "Runs all work of the Cluster Controller on a single thread instead of running the work of different jobs concurrently. (default: false)")
+    public boolean serialWorkQueue = false;
+
+    @Option(name = "-speculation-period", required = false, usage = "Sets the time duration between two checks for straggling tasks in milliseconds. Tasks that ran for less than this are never run twice. 0 to disable. (default: 0)")
+    public int speculationPeriod = 0;
+
+    @Option(name = "-speculation-slowdown", required = false, usage = "Sets how long a task has to run, in percent of the median time of the finished tasks of the same activity, before a second attempt of it is started on another node. (default: 150)")
+    public int speculationSlowdown = 150;
+
     @Option(name = "-app-cc-main-class", required = false, usage = "Application CC Main Class")
     public String appCCMainClass = null;
 
@@ -92,6 +101,13 @@ public class CCConfig {
             cList.add("-cluster-topology");
             cList.add(clusterTopologyDefinition.getAbsolutePath());
         }
+        if (serialWorkQueue) {
+            cList.add("-serial-work-queue");
+        }
+        cList.add("-speculation-period");
+        cList.add(String.valueOf(speculationPeriod));
+        cList.add("-speculation-slowdown");
+        cList.add(String.valueOf(speculationSlowdown));
         if (appCCMainClass != null) {
             cList.add("-app-cc-main-class");
             cList.add(appCCMainClass);
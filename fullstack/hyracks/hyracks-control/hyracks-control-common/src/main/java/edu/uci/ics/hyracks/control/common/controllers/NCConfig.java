@@ -57,6 +57,12 @@ public class NCConfig implements Serializable {
     @Option(name = "-result-manager-memory", usage = "Memory usable for result caching at this Node Controller in bytes (default: -1 auto)")
     public int resultManagerMemory = -1;
 
+    @Option(name = "-task-slots", usage = "Number of tasks the Cluster Controller runs at this Node Controller at the same time (default: -1 twice the number of processors)")
+    public int taskSlots = -1;
+
+    @Option(name = "-task-memory", usage = "Memory available to the tasks of this Node Controller in bytes (default: -1 half the maximum heap size)")
+    public long taskMemory = -1;
+
     @Option(name = "-app-nc-main-class", usage = "Application NC Main Class")
     public String appNCMainClass;
 
@@ -86,6 +92,10 @@ public class NCConfig implements Serializable {
         cList.add(String.valueOf(resultHistorySize));
         cList.add("-result-manager-memory");
         cList.add(String.valueOf(resultManagerMemory));
+        cList.add("-task-slots");
+        cList.add(String.valueOf(taskSlots));
+        cList.add("-task-memory");
+        cList.add(String.valueOf(taskMemory));
 
         if (appNCMainClass != null) {
             cList.add("-app-nc-main-class");
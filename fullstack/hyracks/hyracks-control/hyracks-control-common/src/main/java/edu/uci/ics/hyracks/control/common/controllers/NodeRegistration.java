@@ -61,10 +61,15 @@ public final class NodeRegistration implements Serializable {
 
     private final HeartbeatSchema hbSchema;
 
+    private final int taskSlots;
+
+    private final long taskMemory;
+
     public NodeRegistration(InetSocketAddress ncAddress, String nodeId, NCConfig ncConfig, NetworkAddress dataPort,
             NetworkAddress datasetPort, String osName, String arch, String osVersion, int nProcessors, String vmName,
             String vmVersion, String vmVendor, String classpath, String libraryPath, String bootClasspath,
-            List<String> inputArguments, Map<String, String> systemProperties, HeartbeatSchema hbSchema) {
+            List<String> inputArguments, Map<String, String> systemProperties, HeartbeatSchema hbSchema,
+            int taskSlots, long taskMemory) {
         this.ncAddress = ncAddress;
         this.nodeId = nodeId;
         this.ncConfig = ncConfig;
@@ -83,6 +88,8 @@ public final class NodeRegistration implements Serializable {
         this.inputArguments = inputArguments;
         this.systemProperties = systemProperties;
         this.hbSchema = hbSchema;
+        this.taskSlots = taskSlots;
+        this.taskMemory = taskMemory;
     }
 
     public InetSocketAddress getNodeControllerAddress() {
@@ -125,6 +132,20 @@ public final class NodeRegistration implements Serializable {
         return hbSchema;
     }
 
+    /**
+     * Returns the number of tasks the node is willing to run at the same time.
+     */
+    public int getTaskSlots() {
+        return taskSlots;
+    }
+
+    /**
+     * Returns the number of bytes of memory the node offers to the tasks it runs.
+     */
+    public long getTaskMemory() {
+        return taskMemory;
+    }
+
     public String getVmName() {
         return vmName;
     }
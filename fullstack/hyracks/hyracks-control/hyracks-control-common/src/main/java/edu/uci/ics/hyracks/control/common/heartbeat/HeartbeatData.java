@@ -37,6 +37,8 @@ public class HeartbeatData implements Serializable {
     public long netPayloadBytesWritten;
     public long netSignalingBytesRead;
     public long netSignalingBytesWritten;
+    public long netWriteCalls;
+    public long netPayloadChunksWritten;
     public long datasetNetPayloadBytesRead;
     public long datasetNetPayloadBytesWritten;
     public long datasetNetSignalingBytesRead;
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.control.common.job.profiling.om;
+
+import java.io.Serializable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Counters the runtime keeps for every activity of a task, whether or not the job is profiled. Statistics of several
+ * tasks, operators or nodes are combined with {@link #merge(RuntimeStatistics)}.
+ * Input and output counters describe the frames that cross the connectors of the activity. CPU time, spilled bytes
+ * and elapsed time are measured per task; for a task that runs a pipeline of activities they are charged to the
+ * activity the task was started for. So are the buffer cache pins of the index operators in the task, and the
+ * number of them that missed the cache.
+ * Not thread-safe.
+ */
+public class RuntimeStatistics implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private long tasks;
+
+    private long framesIn;
+
+    private long tuplesIn;
+
+    private long bytesIn;
+
+    private long inputWaitNanos;
+
+    private long framesOut;
+
+    private long tuplesOut;
+
+    private long bytesOut;
+
+    private long spillBytes;
+
+    private long cpuNanos;
+
+    private long elapsedNanos;
+
+    private long bufferCachePins;
+
+    private long bufferCacheReads;
+
+    public void addInput(long frames, long tuples, long bytes, long waitNanos) {
+        framesIn += frames;
+        tuplesIn += tuples;
+        bytesIn += bytes;
+        inputWaitNanos += waitNanos;
+    }
+
+    public void addOutput(long frames, long tuples, long bytes) {
+        framesOut += frames;
+        tuplesOut += tuples;
+        bytesOut += bytes;
+    }
+
+    public void addTask(long cpuNanos, long elapsedNanos, long spillBytes) {
+        ++tasks;
+        this.cpuNanos += cpuNanos;
+        this.elapsedNanos += elapsedNanos;
+        this.spillBytes += spillBytes;
+    }
+
+    public void addBufferCacheAccesses(long pins, long reads) {
+        bufferCachePins += pins;
+        bufferCacheReads += reads;
+    }
+
+    public void merge(RuntimeStatistics other) {
+        tasks += other.tasks;
+        framesIn += other.framesIn;
+        tuplesIn += other.tuplesIn;
+        bytesIn += other.bytesIn;
+        inputWaitNanos += other.inputWaitNanos;
+        framesOut += other.framesOut;
+        tuplesOut += other.tuplesOut;
+        bytesOut += other.bytesOut;
+        spillBytes += other.spillBytes;
+        cpuNanos += other.cpuNanos;
+        elapsedNanos += other.elapsedNanos;
+        bufferCachePins += other.bufferCachePins;
+        bufferCacheReads += other.bufferCacheReads;
+    }
+
+    public long getTasks() {
+        return tasks;
+    }
+
+    public long getFramesIn() {
+        return framesIn;
+    }
+
+    public long getTuplesIn() {
+        return tuplesIn;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getInputWaitNanos() {
+        return inputWaitNanos;
+    }
+
+    public long getFramesOut() {
+        return framesOut;
+    }
+
+    public long getTuplesOut() {
+        return tuplesOut;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getSpillBytes() {
+        return spillBytes;
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getBufferCachePins() {
+        return bufferCachePins;
+    }
+
+    public long getBufferCacheReads() {
+        return bufferCacheReads;
+    }
+
+    /**
+     * Returns the fraction of the buffer cache pins that found the page in memory, or 1 if there were none.
+     */
+    public double getBufferCacheHitRatio() {
+        return bufferCachePins == 0 ? 1.0 : (double) (bufferCachePins - bufferCacheReads) / bufferCachePins;
+    }
+
+    public JSONObject toJSON() throws JSONException {
+        JSONObject o = new JSONObject();
+        o.put("tasks", tasks);
+        o.put("frames-in", framesIn);
+        o.put("tuples-in", tuplesIn);
+        o.put("bytes-in", bytesIn);
+        o.put("input-wait-ms", inputWaitNanos / 1000000);
+        o.put("frames-out", framesOut);
+        o.put("tuples-out", tuplesOut);
+        o.put("bytes-out", bytesOut);
+        o.put("spill-bytes", spillBytes);
+        o.put("cpu-ms", cpuNanos / 1000000);
+        o.put("elapsed-ms", elapsedNanos / 1000000);
+        o.put("buffer-cache-pins", bufferCachePins);
+        o.put("buffer-cache-reads", bufferCacheReads);
+        o.put("buffer-cache-hit-ratio", getBufferCacheHitRatio());
+        return o;
+    }
+}
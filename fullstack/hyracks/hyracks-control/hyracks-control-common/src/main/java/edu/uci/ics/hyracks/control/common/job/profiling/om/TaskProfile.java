@@ -21,6 +21,7 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import edu.uci.ics.hyracks.api.dataflow.ActivityId;
 import edu.uci.ics.hyracks.api.dataflow.TaskAttemptId;
 import edu.uci.ics.hyracks.api.partitions.PartitionId;
 import edu.uci.ics.hyracks.control.common.job.profiling.counters.MultiResolutionEventProfiler;
@@ -32,9 +33,12 @@ public class TaskProfile extends AbstractProfile {
 
     private final Map<PartitionId, PartitionProfile> partitionSendProfile;
 
+    private final Map<ActivityId, RuntimeStatistics> runtimeStatistics;
+
     public TaskProfile(TaskAttemptId taskAttemptId, Map<PartitionId, PartitionProfile> partitionSendProfile) {
         this.taskAttemptId = taskAttemptId;
         this.partitionSendProfile = new HashMap<PartitionId, PartitionProfile>(partitionSendProfile);
+        runtimeStatistics = new HashMap<ActivityId, RuntimeStatistics>();
     }
 
     public TaskAttemptId getTaskId() {
@@ -45,6 +49,14 @@ public class TaskProfile extends AbstractProfile {
         return partitionSendProfile;
     }
 
+    /**
+     * Returns the statistics of the activities the task ran. A task runs more than one activity when the activities
+     * of an operator pipeline were fused into one task.
+     */
+    public Map<ActivityId, RuntimeStatistics> getRuntimeStatistics() {
+        return runtimeStatistics;
+    }
+
     @Override
     public JSONObject toJSON() throws JSONException {
         JSONObject json = new JSONObject();
@@ -80,6 +92,13 @@ public class TaskProfile extends AbstractProfile {
             }
             json.put("partition-send-profile", pspArray);
         }
+        JSONArray statsArray = new JSONArray();
+        for (Map.Entry<ActivityId, RuntimeStatistics> e : runtimeStatistics.entrySet()) {
+            JSONObject statsObj = e.getValue().toJSON();
+            statsObj.put("activity-id", e.getKey().toString());
+            statsArray.put(statsObj);
+        }
+        json.put("runtime-statistics", statsArray);
         populateCounters(json);
 
         return json;
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.control.common.work;
+
+import edu.uci.ics.hyracks.api.job.JobId;
+
+/**
+ * Implemented by works that only touch the state of a single job, and shared state that is safe for concurrent use.
+ * A partitioned {@link WorkQueue} runs the works of different jobs at the same time, while the works of one job still
+ * run one after the other in the order in which they were scheduled.
+ */
+public interface IJobScopedWork {
+    /**
+     * Returns the job whose state this work touches.
+     */
+    public JobId getJobId();
+}
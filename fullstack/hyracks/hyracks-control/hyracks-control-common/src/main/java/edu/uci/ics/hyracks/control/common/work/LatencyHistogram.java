@@ -0,0 +1,101 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.control.common.work;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Counts latencies in buckets of powers of two microseconds. Bucket i holds the latencies of less than 2^i
+ * microseconds that did not fit into bucket i - 1, the last bucket everything longer. Safe for concurrent use.
+ */
+public class LatencyHistogram {
+    private static final int N_BUCKETS = 32;
+
+    private final AtomicLongArray buckets;
+
+    private final AtomicLong count;
+
+    private final AtomicLong totalNanos;
+
+    private final AtomicLong maxNanos;
+
+    public LatencyHistogram() {
+        buckets = new AtomicLongArray(N_BUCKETS);
+        count = new AtomicLong();
+        totalNanos = new AtomicLong();
+        maxNanos = new AtomicLong();
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        buckets.incrementAndGet(Math.min(bucket, N_BUCKETS - 1));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the number of latencies recorded in each bucket.
+     */
+    public long[] getBuckets() {
+        long[] result = new long[N_BUCKETS];
+        for (int i = 0; i < N_BUCKETS; ++i) {
+            result[i] = buckets.get(i);
+        }
+        return result;
+    }
+
+    public JSONObject toJSON() throws JSONException {
+        JSONObject o = new JSONObject();
+        long n = count.get();
+        o.put("count", n);
+        o.put("mean-micros", n == 0 ? 0 : totalNanos.get() / n / 1000);
+        o.put("max-micros", maxNanos.get() / 1000);
+        JSONArray counts = new JSONArray();
+        long[] b = getBuckets();
+        int last = b.length - 1;
+        while (last > 0 && b[last] == 0) {
+            --last;
+        }
+        for (int i = 0; i <= last; ++i) {
+            JSONObject bucket = new JSONObject();
+            bucket.put("below-micros", 1L << i);
+            bucket.put("count", b[i]);
+            counts.put(bucket);
+        }
+        o.put("buckets", counts);
+        return o;
+    }
+}
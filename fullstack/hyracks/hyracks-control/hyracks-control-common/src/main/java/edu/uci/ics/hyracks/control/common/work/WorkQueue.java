@@ -14,30 +14,62 @@
  */
 package edu.uci.ics.hyracks.control.common.work;
 
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import edu.uci.ics.hyracks.api.exceptions.HyracksException;
+import edu.uci.ics.hyracks.api.job.JobId;
 
+/**
+ * Runs works one after the other on a single thread. A partitioned queue still dispatches works in the order in which
+ * they were scheduled, but hands {@link IJobScopedWork}s to a serial executor of their job, so that works of different
+ * jobs run concurrently on a thread pool. Any other work waits until the works dispatched before it have finished and
+ * runs alone, so it sees and may change all state just as in a serial queue.
+ */
 public class WorkQueue {
     private static final Logger LOGGER = Logger.getLogger(WorkQueue.class.getName());
 
-    private final LinkedBlockingQueue<AbstractWork> queue;
+    private final LinkedBlockingQueue<QueuedWork> queue;
     private final WorkerThread thread;
     private final Semaphore stopSemaphore;
     private boolean stopped;
     private final AtomicInteger enqueueCount;
     private final AtomicInteger dequeueCount;
 
+    private final boolean partitioned;
+    private final Map<JobId, JobExecutor> jobExecutors;
+    private ExecutorService executor;
+    private int nRunningJobWorks;
+
+    private final LatencyHistogram jobWorkLatency;
+    private final LatencyHistogram clusterWorkLatency;
+
     public WorkQueue() {
-        queue = new LinkedBlockingQueue<AbstractWork>();
+        this(false);
+    }
+
+    public WorkQueue(boolean partitioned) {
+        this.partitioned = partitioned;
+        queue = new LinkedBlockingQueue<QueuedWork>();
         thread = new WorkerThread();
         stopSemaphore = new Semaphore(1);
         enqueueCount = new AtomicInteger();
         dequeueCount = new AtomicInteger();
+        jobExecutors = new HashMap<JobId, JobExecutor>();
+        jobWorkLatency = new LatencyHistogram();
+        clusterWorkLatency = new LatencyHistogram();
     }
 
     public void start() throws HyracksException {
@@ -49,6 +81,18 @@ public class WorkQueue {
         } catch (InterruptedException e) {
             throw new HyracksException(e);
         }
+        if (partitioned) {
+            executor = Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "JobWorker-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
         thread.start();
     }
 
@@ -66,6 +110,9 @@ public class WorkQueue {
         } catch (InterruptedException e) {
             throw new HyracksException(e);
         }
+        if (executor != null) {
+            executor.shutdown();
+        }
     }
 
     public void schedule(AbstractWork event) {
@@ -76,7 +123,7 @@ public class WorkQueue {
         if (LOGGER.isLoggable(Level.FINER)) {
             LOGGER.finer("Scheduling: " + event);
         }
-        queue.offer(event);
+        queue.offer(new QueuedWork(event));
     }
 
     public void scheduleAndSync(SynchronizableWork sRunnable) throws Exception {
@@ -84,6 +131,120 @@ public class WorkQueue {
         sRunnable.sync();
     }
 
+    /**
+     * Returns the time job-scoped works spent between being scheduled and starting to run.
+     */
+    public LatencyHistogram getJobWorkLatency() {
+        return jobWorkLatency;
+    }
+
+    /**
+     * Returns the time all other works spent between being scheduled and starting to run.
+     */
+    public LatencyHistogram getClusterWorkLatency() {
+        return clusterWorkLatency;
+    }
+
+    public JSONObject toJSON() throws JSONException {
+        JSONObject o = new JSONObject();
+        o.put("partitioned", partitioned);
+        o.put("enqueued", enqueueCount.get());
+        o.put("dequeued", dequeueCount.get());
+        o.put("job-work-latency", jobWorkLatency.toJSON());
+        o.put("cluster-work-latency", clusterWorkLatency.toJSON());
+        return o;
+    }
+
+    private static void execute(AbstractWork r) {
+        try {
+            if (LOGGER.isLoggable(r.logLevel())) {
+                LOGGER.log(r.logLevel(), "Executing: " + r);
+            }
+            r.run();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void dispatch(QueuedWork qw) {
+        JobId jobId = partitioned && qw.work instanceof IJobScopedWork ? ((IJobScopedWork) qw.work).getJobId() : null;
+        if (jobId == null) {
+            synchronized (this) {
+                while (nRunningJobWorks > 0) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // keep waiting, like the worker thread does for the next work
+                    }
+                }
+            }
+            clusterWorkLatency.record(System.nanoTime() - qw.enqueueTime);
+            execute(qw.work);
+            return;
+        }
+        synchronized (this) {
+            ++nRunningJobWorks;
+            JobExecutor je = jobExecutors.get(jobId);
+            if (je == null) {
+                je = new JobExecutor(jobId);
+                jobExecutors.put(jobId, je);
+                je.works.add(qw);
+                executor.execute(je);
+            } else {
+                je.works.add(qw);
+            }
+        }
+    }
+
+    private static class QueuedWork {
+        private final AbstractWork work;
+
+        private final long enqueueTime;
+
+        QueuedWork(AbstractWork work) {
+            this.work = work;
+            enqueueTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * Runs the works of one job in order. It exists while the job has works waiting or running.
+     */
+    private class JobExecutor implements Runnable {
+        private final JobId jobId;
+
+        private final ArrayDeque<QueuedWork> works;
+
+        JobExecutor(JobId jobId) {
+            this.jobId = jobId;
+            works = new ArrayDeque<QueuedWork>();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                QueuedWork qw;
+                synchronized (WorkQueue.this) {
+                    qw = works.poll();
+                    if (qw == null) {
+                        jobExecutors.remove(jobId);
+                        return;
+                    }
+                }
+                try {
+                    jobWorkLatency.record(System.nanoTime() - qw.enqueueTime);
+                    execute(qw.work);
+                } finally {
+                    synchronized (WorkQueue.this) {
+                        if (--nRunningJobWorks == 0) {
+                            WorkQueue.this.notifyAll();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private class WorkerThread extends Thread {
         WorkerThread() {
             setDaemon(true);
@@ -92,7 +253,7 @@ public class WorkQueue {
         @Override
         public void run() {
             try {
-                AbstractWork r;
+                QueuedWork qw;
                 while (true) {
                     synchronized (WorkQueue.this) {
                         if (stopped) {
@@ -100,7 +261,7 @@ public class WorkQueue {
                         }
                     }
                     try {
-                        r = queue.take();
+                        qw = queue.take();
                     } catch (InterruptedException e) {
                         continue;
                     }
@@ -108,18 +269,11 @@ public class WorkQueue {
                     if (LOGGER.isLoggable(Level.FINEST)) {
                         LOGGER.finest("Dequeue: " + dequeueCount + "/" + enqueueCount);
                     }
-                    try {
-                        if (LOGGER.isLoggable(r.logLevel())) {
-                            LOGGER.log(r.logLevel(), "Executing: " + r);
-                        }
-                        r.run();
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
+                    dispatch(qw);
                 }
             } finally {
                 stopSemaphore.release();
             }
         }
     }
-}
\ No newline at end of file
+}
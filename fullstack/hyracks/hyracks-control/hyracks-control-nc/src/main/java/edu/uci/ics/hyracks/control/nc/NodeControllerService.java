@@ -232,12 +232,14 @@ public class NodeControllerService extends AbstractRemoteService {
             gcInfos[i] = new HeartbeatSchema.GarbageCollectorInfo(gcMXBeans.get(i).getName());
         }
         HeartbeatSchema hbSchema = new HeartbeatSchema(gcInfos);
+        int taskSlots = ncConfig.taskSlots > 0 ? ncConfig.taskSlots : 2 * osMXBean.getAvailableProcessors();
+        long taskMemory = ncConfig.taskMemory > 0 ? ncConfig.taskMemory : Runtime.getRuntime().maxMemory() / 2;
         ccs.registerNode(new NodeRegistration(ipc.getSocketAddress(), id, ncConfig, netManager.getNetworkAddress(),
                 datasetNetworkManager.getNetworkAddress(), osMXBean.getName(), osMXBean.getArch(), osMXBean
                         .getVersion(), osMXBean.getAvailableProcessors(), runtimeMXBean.getVmName(), runtimeMXBean
                         .getVmVersion(), runtimeMXBean.getVmVendor(), runtimeMXBean.getClassPath(), runtimeMXBean
                         .getLibraryPath(), runtimeMXBean.getBootClassPath(), runtimeMXBean.getInputArguments(),
-                runtimeMXBean.getSystemProperties(), hbSchema));
+                runtimeMXBean.getSystemProperties(), hbSchema, taskSlots, taskMemory));
 
         synchronized (this) {
             while (registrationPending) {
@@ -392,6 +394,8 @@ public class NodeControllerService extends AbstractRemoteService {
             hbData.netPayloadBytesWritten = netPC.getPayloadBytesWritten();
             hbData.netSignalingBytesRead = netPC.getSignalingBytesRead();
             hbData.netSignalingBytesWritten = netPC.getSignalingBytesWritten();
+            hbData.netWriteCalls = netPC.getWriteCalls();
+            hbData.netPayloadChunksWritten = netPC.getPayloadChunksWritten();
 
             MuxDemuxPerformanceCounters datasetNetPC = datasetNetworkManager.getPerformanceCounters();
             hbData.datasetNetPayloadBytesRead = datasetNetPC.getPayloadBytesRead();
@@ -17,20 +17,26 @@ package edu.uci.ics.hyracks.control.nc;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import edu.uci.ics.hyracks.api.comm.IFrameReader;
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
 import edu.uci.ics.hyracks.api.comm.IPartitionCollector;
 import edu.uci.ics.hyracks.api.context.IHyracksJobletContext;
 import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.ActivityId;
 import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
 import edu.uci.ics.hyracks.api.dataflow.TaskAttemptId;
 import edu.uci.ics.hyracks.api.dataflow.state.IStateObject;
@@ -48,14 +54,18 @@ import edu.uci.ics.hyracks.api.resources.IDeallocatable;
 import edu.uci.ics.hyracks.control.common.job.PartitionState;
 import edu.uci.ics.hyracks.control.common.job.profiling.counters.Counter;
 import edu.uci.ics.hyracks.control.common.job.profiling.om.PartitionProfile;
+import edu.uci.ics.hyracks.control.common.job.profiling.om.RuntimeStatistics;
 import edu.uci.ics.hyracks.control.common.job.profiling.om.TaskProfile;
 import edu.uci.ics.hyracks.control.nc.io.IOManager;
 import edu.uci.ics.hyracks.control.nc.io.WorkspaceFileFactory;
+import edu.uci.ics.hyracks.control.nc.profiling.StatisticsFrameWriter;
 import edu.uci.ics.hyracks.control.nc.resources.DefaultDeallocatableRegistry;
 import edu.uci.ics.hyracks.control.nc.work.NotifyTaskCompleteWork;
 import edu.uci.ics.hyracks.control.nc.work.NotifyTaskFailureWork;
 
 public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
     private final Joblet joblet;
 
     private final TaskAttemptId taskAttemptId;
@@ -76,8 +86,18 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
 
     private final Set<Thread> pendingThreads;
 
+    private final List<StatisticsFrameWriter> statisticsWriters;
+
+    private final AtomicLong cpuNanos;
+
+    private volatile long startNanos;
+
+    private volatile long endNanos;
+
     private IPartitionCollector[] collectors;
 
+    private ActivityId[] inputActivityIds;
+
     private IOperatorNodePushable operator;
 
     private volatile boolean failed;
@@ -101,17 +121,37 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
         opEnv = joblet.getEnvironment();
         partitionSendProfile = new Hashtable<PartitionId, PartitionProfile>();
         pendingThreads = new LinkedHashSet<Thread>();
+        statisticsWriters = new ArrayList<StatisticsFrameWriter>();
+        cpuNanos = new AtomicLong();
         failed = false;
         errorBaos = new ByteArrayOutputStream();
         errorWriter = new PrintWriter(errorBaos, true);
         this.ncs = ncs;
     }
 
-    public void setTaskRuntime(IPartitionCollector[] collectors, IOperatorNodePushable operator) {
+    /**
+     * @param inputActivityIds
+     *            - Activity that consumes the frames of each collector. Differs from the task's activity when the
+     *            task runs a pipeline of fused activities.
+     */
+    public void setTaskRuntime(IPartitionCollector[] collectors, ActivityId[] inputActivityIds,
+            IOperatorNodePushable operator) {
         this.collectors = collectors;
+        this.inputActivityIds = inputActivityIds;
         this.operator = operator;
     }
 
+    /**
+     * Wraps a writer on an input or output of one of the task's activities so that the frames passing through it are
+     * reported in the task profile.
+     */
+    public synchronized StatisticsFrameWriter createStatisticsWriter(ActivityId activityId, boolean input,
+            IFrameWriter writer) {
+        StatisticsFrameWriter sfw = new StatisticsFrameWriter(activityId, input, writer);
+        statisticsWriters.add(sfw);
+        return sfw;
+    }
+
     @Override
     public ByteBuffer allocateFrame() {
         return joblet.allocateFrame();
@@ -157,7 +197,7 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
     }
 
     @Override
-    public ICounter getCounter(String name, boolean create) {
+    public synchronized ICounter getCounter(String name, boolean create) {
         Counter counter = counterMap.get(name);
         if (counter == null && create) {
             counter = new Counter(name);
@@ -184,6 +224,48 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
         for (Counter c : counterMap.values()) {
             dumpMap.put(c.getName(), c.get());
         }
+        Map<ActivityId, RuntimeStatistics> statsMap = tProfile.getRuntimeStatistics();
+        for (StatisticsFrameWriter sfw : statisticsWriters) {
+            sfw.dumpStatistics(getRuntimeStatistics(statsMap, sfw.getActivityId()));
+        }
+        RuntimeStatistics taskStats = getRuntimeStatistics(statsMap, taskAttemptId.getTaskId().getActivityId());
+        taskStats.addTask(cpuNanos.get(), getElapsedNanos(), getCounterValue(SPILL_BYTES_COUNTER));
+        taskStats.addBufferCacheAccesses(getCounterValue(BUFFER_CACHE_PINS_COUNTER),
+                getCounterValue(BUFFER_CACHE_READS_COUNTER));
+    }
+
+    /**
+     * Returns the time the task has run so far, or its total run time once it has finished.
+     */
+    private long getElapsedNanos() {
+        long start = startNanos;
+        if (start == 0) {
+            return 0;
+        }
+        long end = endNanos;
+        return (end == 0 ? System.nanoTime() : end) - start;
+    }
+
+    private long getCounterValue(String name) {
+        Counter counter = counterMap.get(name);
+        return counter == null ? 0 : counter.get();
+    }
+
+    private static RuntimeStatistics getRuntimeStatistics(Map<ActivityId, RuntimeStatistics> statsMap,
+            ActivityId activityId) {
+        RuntimeStatistics stats = statsMap.get(activityId);
+        if (stats == null) {
+            stats = new RuntimeStatistics();
+            statsMap.put(activityId, stats);
+        }
+        return stats;
+    }
+
+    private static long getCurrentThreadCpuTime() {
+        if (!THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() || !THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+            return 0;
+        }
+        return THREAD_MX_BEAN.getCurrentThreadCpuTime();
     }
 
     public void setPartitionSendProfile(PartitionProfile profile) {
@@ -227,6 +309,8 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
         Thread ct = Thread.currentThread();
         String threadName = ct.getName();
         addPendingThread(ct);
+        startNanos = System.nanoTime();
+        long startCpuNanos = getCurrentThreadCpuTime();
         try {
             ct.setName(displayName + ":" + taskAttemptId + ":" + 0);
             operator.initialize();
@@ -235,7 +319,8 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
                     final Semaphore sem = new Semaphore(collectors.length - 1);
                     for (int i = 1; i < collectors.length; ++i) {
                         final IPartitionCollector collector = collectors[i];
-                        final IFrameWriter writer = operator.getInputFrameWriter(i);
+                        final StatisticsFrameWriter writer = createStatisticsWriter(inputActivityIds[i], true,
+                                operator.getInputFrameWriter(i));
                         sem.acquire();
                         final int cIdx = i;
                         executor.execute(new Runnable() {
@@ -247,6 +332,7 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
                                 addPendingThread(thread);
                                 String oldName = thread.getName();
                                 thread.setName(displayName + ":" + taskAttemptId + ":" + cIdx);
+                                long threadStartCpuNanos = getCurrentThreadCpuTime();
                                 try {
                                     pushFrames(collector, writer);
                                 } catch (HyracksDataException e) {
@@ -257,6 +343,7 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
                                         errorWriter.println();
                                     }
                                 } finally {
+                                    cpuNanos.addAndGet(getCurrentThreadCpuTime() - threadStartCpuNanos);
                                     thread.setName(oldName);
                                     sem.release();
                                     removePendingThread(thread);
@@ -265,7 +352,8 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
                         });
                     }
                     try {
-                        pushFrames(collectors[0], operator.getInputFrameWriter(0));
+                        pushFrames(collectors[0],
+                                createStatisticsWriter(inputActivityIds[0], true, operator.getInputFrameWriter(0)));
                     } finally {
                         sem.acquire(collectors.length - 1);
                     }
@@ -273,6 +361,8 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
             } finally {
                 operator.deinitialize();
             }
+            cpuNanos.addAndGet(getCurrentThreadCpuTime() - startCpuNanos);
+            endNanos = System.nanoTime();
             NodeControllerService ncs = joblet.getNodeController();
             ncs.getWorkQueue().schedule(new NotifyTaskCompleteWork(ncs, this));
         } catch (Exception e) {
@@ -296,7 +386,7 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
         }
     }
 
-    private void pushFrames(IPartitionCollector collector, IFrameWriter writer) throws HyracksDataException {
+    private void pushFrames(IPartitionCollector collector, StatisticsFrameWriter writer) throws HyracksDataException {
         if (aborted) {
             return;
         }
@@ -311,13 +401,17 @@ public class Task implements IHyracksTaskContext, ICounterContext, Runnable {
                     writer.open();
                     try {
                         ByteBuffer buffer = allocateFrame();
+                        long waitStart = System.nanoTime();
                         while (reader.nextFrame(buffer)) {
+                            long waitEnd = System.nanoTime();
+                            writer.addWaitNanos(waitEnd - waitStart);
                             if (aborted) {
                                 return;
                             }
                             buffer.flip();
                             writer.nextFrame(buffer);
                             buffer.compact();
+                            waitStart = System.nanoTime();
                         }
                     } catch (Exception e) {
                         writer.fail();
@@ -56,24 +56,27 @@ public class DatasetPartitionReader implements IDatasetPartitionReader {
             }
         }
 
-        if (offset >= resultState.getSize() && resultState.getEOS()) {
-            return readSize;
-        }
+        // the writer evicts pages under the same lock, so the page list and the persistent size stay in step
+        synchronized (resultState) {
+            if (offset >= resultState.getSize() && resultState.getEOS()) {
+                return readSize;
+            }
 
-        if (offset < resultState.getPersistentSize()) {
-            readSize = resultState.getIOManager().syncRead(fileHandle, offset, buffer);
-        }
+            if (offset < resultState.getPersistentSize()) {
+                readSize = resultState.getIOManager().syncRead(fileHandle, offset, buffer);
+            }
 
-        if (readSize < buffer.capacity()) {
-            long localPageOffset = offset - resultState.getPersistentSize();
-            int localPageIndex = (int) (localPageOffset / datasetMemoryManager.getPageSize());
-            int pageOffset = (int) (localPageOffset % datasetMemoryManager.getPageSize());
-            Page page = resultState.getPage(localPageIndex);
-            if (page == null) {
-            	return readSize;
+            if (readSize < buffer.capacity()) {
+                long localPageOffset = offset + readSize - resultState.getPersistentSize();
+                int localPageIndex = (int) (localPageOffset / datasetMemoryManager.getPageSize());
+                int pageOffset = (int) (localPageOffset % datasetMemoryManager.getPageSize());
+                Page page = resultState.getPage(localPageIndex);
+                if (page == null) {
+                    return readSize;
+                }
+                readSize += buffer.remaining();
+                buffer.put(page.getBuffer().array(), pageOffset, buffer.remaining());
             }
-            readSize += buffer.remaining();
-            buffer.put(page.getBuffer().array(), pageOffset, buffer.remaining());
         }
 
         datasetMemoryManager.pageReferenced(resultState.getResultSetPartitionId());
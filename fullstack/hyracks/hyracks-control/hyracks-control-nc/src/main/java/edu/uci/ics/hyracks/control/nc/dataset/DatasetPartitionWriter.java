@@ -129,20 +129,23 @@ public class DatasetPartitionWriter implements IDatasetPartitionWriter {
 
     @Override
     public Page returnPage() throws HyracksDataException {
-        Page page = resultState.removePage(0);
+        // readers must not see the page gone before its bytes count as persistent
+        synchronized (resultState) {
+            Page page = resultState.removePage(0);
 
-        IIOManager ioManager = resultState.getIOManager();
+            IIOManager ioManager = resultState.getIOManager();
 
-        // If we do not have any pages to be given back close the write channel since we don't write any more, return null.
-        if (page == null) {
-            ioManager.close(fileHandle);
-            return null;
-        }
+            // If we do not have any pages to be given back close the write channel since we don't write any more, return null.
+            if (page == null) {
+                ioManager.close(fileHandle);
+                return null;
+            }
 
-        page.getBuffer().flip();
+            page.getBuffer().flip();
 
-        long delta = ioManager.syncWrite(fileHandle, resultState.getPersistentSize(), page.getBuffer());
-        resultState.incrementPersistentSize(delta);
-        return page;
+            long delta = ioManager.syncWrite(fileHandle, resultState.getPersistentSize(), page.getBuffer());
+            resultState.incrementPersistentSize(delta);
+            return page;
+        }
     }
 }
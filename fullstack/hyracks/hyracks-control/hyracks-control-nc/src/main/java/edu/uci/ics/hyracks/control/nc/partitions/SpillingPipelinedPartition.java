@@ -0,0 +1,317 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.control.nc.partitions;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.TaskAttemptId;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.io.IFileHandle;
+import edu.uci.ics.hyracks.api.io.IIOManager;
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounterContext;
+import edu.uci.ics.hyracks.api.partitions.IPartition;
+import edu.uci.ics.hyracks.api.partitions.PartitionId;
+import edu.uci.ics.hyracks.control.common.job.PartitionState;
+
+/**
+ * A pipelined partition that does not block its producer for long when the consumer falls behind. The producer hands
+ * each frame to a thread that forwards it to the consumer. If that thread has not taken the previous frame within the
+ * spill threshold, the frame and all frames after it are appended to a spill file instead, which the thread forwards,
+ * in order, before it takes frames from the producer directly again. The producer writes the spill file outside the
+ * monitor and only then publishes the new end of the file, so the forwarder never waits for that I/O.
+ */
+public class SpillingPipelinedPartition implements IFrameWriter, IPartition {
+    private static final Logger LOGGER = Logger.getLogger(SpillingPipelinedPartition.class.getName());
+
+    private final IHyracksTaskContext ctx;
+
+    private final Executor executor;
+
+    private final PartitionManager manager;
+
+    private final PartitionId pid;
+
+    private final TaskAttemptId taId;
+
+    private final long spillThreshold;
+
+    private ByteBuffer handOff;
+
+    private boolean handOffFull;
+
+    private FileReference fRef;
+
+    private IFileHandle handle;
+
+    private long readOffset;
+
+    private long writeOffset;
+
+    private boolean spilling;
+
+    private boolean spillWriting;
+
+    private boolean eos;
+
+    private boolean failed;
+
+    private boolean forwarderDone;
+
+    public SpillingPipelinedPartition(IHyracksTaskContext ctx, PartitionManager manager, PartitionId pid,
+            TaskAttemptId taId, Executor executor, long spillThreshold) {
+        this.ctx = ctx;
+        this.executor = executor;
+        this.manager = manager;
+        this.pid = pid;
+        this.taId = taId;
+        this.spillThreshold = spillThreshold;
+    }
+
+    @Override
+    public IHyracksTaskContext getTaskContext() {
+        return ctx;
+    }
+
+    @Override
+    public boolean isReusable() {
+        return false;
+    }
+
+    @Override
+    public void deallocate() {
+        deleteSpillFile();
+    }
+
+    @Override
+    public void writeTo(final IFrameWriter writer) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    forward(writer);
+                } catch (HyracksDataException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+    }
+
+    private void forward(IFrameWriter writer) throws HyracksDataException {
+        ByteBuffer frame = ctx.allocateFrame();
+        boolean fail = false;
+        writer.open();
+        try {
+            while (true) {
+                IFileHandle fh = null;
+                long offset = 0;
+                synchronized (this) {
+                    awaitFrame();
+                    if (failed) {
+                        fail = true;
+                        break;
+                    }
+                    if (handOffFull) {
+                        ByteBuffer full = handOff;
+                        handOff = frame;
+                        frame = full;
+                        handOffFull = false;
+                        notifyAll();
+                    } else if (readOffset < writeOffset) {
+                        fh = handle;
+                        offset = readOffset;
+                        readOffset += frame.capacity();
+                    } else {
+                        break;
+                    }
+                }
+                if (fh != null) {
+                    frame.clear();
+                    long readLen = ctx.getIOManager().syncRead(fh, offset, frame);
+                    if (readLen < frame.capacity()) {
+                        throw new HyracksDataException("Premature end of file");
+                    }
+                    frame.flip();
+                }
+                writer.nextFrame(frame);
+            }
+        } catch (HyracksDataException e) {
+            fail = true;
+            throw e;
+        } finally {
+            synchronized (this) {
+                forwarderDone = true;
+                notifyAll();
+            }
+            try {
+                if (fail) {
+                    writer.fail();
+                }
+                writer.close();
+            } finally {
+                deleteSpillFile();
+            }
+        }
+    }
+
+    private void awaitFrame() throws HyracksDataException {
+        while (true) {
+            if (spilling && !spillWriting && readOffset >= writeOffset) {
+                // caught up with the producer, take its frames directly again
+                spilling = false;
+                readOffset = 0;
+                writeOffset = 0;
+            }
+            if (handOffFull || readOffset < writeOffset || eos || failed) {
+                return;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                throw new HyracksDataException(e);
+            }
+        }
+    }
+
+    @Override
+    public void open() throws HyracksDataException {
+        handOff = ctx.allocateFrame();
+        handOffFull = false;
+        readOffset = 0;
+        writeOffset = 0;
+        spilling = false;
+        spillWriting = false;
+        eos = false;
+        failed = false;
+        forwarderDone = false;
+        manager.registerPartition(pid, taId, this, PartitionState.STARTED);
+    }
+
+    @Override
+    public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        IFileHandle fh;
+        long offset;
+        synchronized (this) {
+            if (!spilling) {
+                long deadline = System.currentTimeMillis() + spillThreshold;
+                while (handOffFull && !forwarderDone) {
+                    long timeout = deadline - System.currentTimeMillis();
+                    if (timeout <= 0) {
+                        break;
+                    }
+                    try {
+                        wait(timeout);
+                    } catch (InterruptedException e) {
+                        throw new HyracksDataException(e);
+                    }
+                }
+                ensureForwarding();
+                if (!handOffFull) {
+                    ByteBuffer copy = buffer.duplicate();
+                    copy.clear();
+                    handOff.clear();
+                    handOff.put(copy);
+                    handOff.flip();
+                    handOffFull = true;
+                    notifyAll();
+                    return;
+                }
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine("Consumer of " + pid + " blocked for " + spillThreshold + " ms, spilling");
+                }
+                spilling = true;
+            }
+            ensureForwarding();
+            if (handle == null) {
+                fRef = manager.getFileFactory().createUnmanagedWorkspaceFile(pid.toString());
+                handle = ctx.getIOManager().open(fRef, IIOManager.FileReadWriteMode.READ_WRITE,
+                        IIOManager.FileSyncMode.METADATA_ASYNC_DATA_ASYNC);
+            }
+            // the forwarder neither switches back nor deletes the file until this write is published
+            fh = handle;
+            offset = writeOffset;
+            spillWriting = true;
+        }
+        int written = 0;
+        try {
+            ByteBuffer copy = buffer.duplicate();
+            copy.clear();
+            written = ctx.getIOManager().syncWrite(fh, offset, copy);
+        } finally {
+            synchronized (this) {
+                writeOffset += written;
+                spillWriting = false;
+                notifyAll();
+            }
+        }
+        ctx.getCounterContext().getCounter(ICounterContext.SPILL_BYTES_COUNTER, true).update(written);
+    }
+
+    private void ensureForwarding() throws HyracksDataException {
+        if (forwarderDone) {
+            throw new HyracksDataException("Connection has been aborted");
+        }
+    }
+
+    private synchronized void deleteSpillFile() {
+        boolean interrupted = false;
+        while (spillWriting) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (handle != null) {
+            try {
+                ctx.getIOManager().close(handle);
+            } catch (HyracksDataException e) {
+                LOGGER.log(Level.WARNING, "Failed to close spill file of " + pid, e);
+            }
+            handle = null;
+        }
+        if (fRef != null) {
+            fRef.delete();
+            fRef = null;
+        }
+    }
+
+    @Override
+    public synchronized void fail() throws HyracksDataException {
+        failed = true;
+        notifyAll();
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        boolean commit;
+        synchronized (this) {
+            eos = true;
+            commit = !failed;
+            notifyAll();
+        }
+        if (commit) {
+            manager.updatePartitionState(pid, taId, this, PartitionState.COMMITTED);
+        }
+    }
+}
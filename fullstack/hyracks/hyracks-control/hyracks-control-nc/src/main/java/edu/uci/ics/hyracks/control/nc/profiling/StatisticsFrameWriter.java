@@ -0,0 +1,101 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.control.nc.profiling;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.comm.FrameHelper;
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.dataflow.ActivityId;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.control.common.job.profiling.om.RuntimeStatistics;
+
+/**
+ * Counts the frames, tuples and tuple bytes passed to a writer on one input or output of an activity. Each instance is
+ * only written by the thread that pushes frames through it, and read once the task has finished.
+ */
+public class StatisticsFrameWriter implements IFrameWriter {
+    private final ActivityId activityId;
+
+    private final boolean input;
+
+    private final IFrameWriter writer;
+
+    private long frames;
+
+    private long tuples;
+
+    private long bytes;
+
+    private long waitNanos;
+
+    public StatisticsFrameWriter(ActivityId activityId, boolean input, IFrameWriter writer) {
+        this.activityId = activityId;
+        this.input = input;
+        this.writer = writer;
+    }
+
+    @Override
+    public void open() throws HyracksDataException {
+        writer.open();
+    }
+
+    @Override
+    public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        ++frames;
+        int tupleCountOffset = FrameHelper.getTupleCountOffset(buffer.capacity());
+        if (tupleCountOffset > 0) {
+            int tupleCount = buffer.getInt(tupleCountOffset);
+            // frames that do not hold tuples in the standard layout are only counted as frames
+            if (tupleCount > 0 && tupleCount <= tupleCountOffset / 4) {
+                int dataEnd = buffer.getInt(tupleCountOffset - 4 * tupleCount);
+                if (dataEnd >= 0 && dataEnd <= tupleCountOffset) {
+                    tuples += tupleCount;
+                    bytes += dataEnd;
+                }
+            }
+        }
+        writer.nextFrame(buffer);
+    }
+
+    @Override
+    public void fail() throws HyracksDataException {
+        writer.fail();
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        writer.close();
+    }
+
+    /**
+     * Adds time the task spent waiting for the next input frame of this writer.
+     */
+    public void addWaitNanos(long nanos) {
+        waitNanos += nanos;
+    }
+
+    public ActivityId getActivityId() {
+        return activityId;
+    }
+
+    public void dumpStatistics(RuntimeStatistics stats) {
+        if (input) {
+            stats.addInput(frames, tuples, bytes, waitNanos);
+        } else {
+            stats.addOutput(frames, tuples, bytes);
+        }
+    }
+}
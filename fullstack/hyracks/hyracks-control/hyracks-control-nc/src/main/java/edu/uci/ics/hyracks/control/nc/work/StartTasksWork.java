@@ -21,6 +21,8 @@ import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.apache.commons.lang3.tuple.Pair;
+
 import edu.uci.ics.hyracks.api.application.INCApplicationContext;
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
 import edu.uci.ics.hyracks.api.comm.IPartitionCollector;
@@ -34,6 +36,7 @@ import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
 import edu.uci.ics.hyracks.api.dataflow.TaskAttemptId;
 import edu.uci.ics.hyracks.api.dataflow.TaskId;
 import edu.uci.ics.hyracks.api.dataflow.connectors.IConnectorPolicy;
+import edu.uci.ics.hyracks.api.dataflow.connectors.SpillingPipeliningConnectorPolicy;
 import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
@@ -42,6 +45,7 @@ import edu.uci.ics.hyracks.api.job.ActivityClusterGraph;
 import edu.uci.ics.hyracks.api.job.JobFlag;
 import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.api.partitions.PartitionId;
+import edu.uci.ics.hyracks.api.rewriter.runtime.SuperActivity;
 import edu.uci.ics.hyracks.api.util.JavaSerializationUtils;
 import edu.uci.ics.hyracks.control.common.job.TaskAttemptDescriptor;
 import edu.uci.ics.hyracks.control.common.work.AbstractWork;
@@ -53,6 +57,7 @@ import edu.uci.ics.hyracks.control.nc.partitions.MaterializedPartitionWriter;
 import edu.uci.ics.hyracks.control.nc.partitions.MaterializingPipelinedPartition;
 import edu.uci.ics.hyracks.control.nc.partitions.PipelinedPartition;
 import edu.uci.ics.hyracks.control.nc.partitions.ReceiveSideMaterializingCollector;
+import edu.uci.ics.hyracks.control.nc.partitions.SpillingPipelinedPartition;
 import edu.uci.ics.hyracks.control.nc.profiling.ProfilingPartitionWriterFactory;
 
 public class StartTasksWork extends AbstractWork {
@@ -119,6 +124,7 @@ public class StartTasksWork extends AbstractWork {
                 IOperatorNodePushable operator = han.createPushRuntime(task, rdp, partition, td.getPartitionCount());
 
                 List<IPartitionCollector> collectors = new ArrayList<IPartitionCollector>();
+                List<ActivityId> inputActivityIds = new ArrayList<ActivityId>();
 
                 List<IConnectorDescriptor> inputs = ac.getActivityInputMap().get(aid);
                 if (inputs != null) {
@@ -132,6 +138,7 @@ public class StartTasksWork extends AbstractWork {
                         IPartitionCollector collector = createPartitionCollector(td, partition, task, i, conn,
                                 recordDesc, cPolicy);
                         collectors.add(collector);
+                        inputActivityIds.add(getInnerActivityId(han, i, true));
                     }
                 }
                 List<IConnectorDescriptor> outputs = ac.getActivityOutputMap().get(aid);
@@ -149,11 +156,13 @@ public class StartTasksWork extends AbstractWork {
                         }
                         IFrameWriter writer = conn.createPartitioner(task, recordDesc, pwFactory, partition,
                                 td.getPartitionCount(), td.getOutputPartitionCounts()[i]);
+                        writer = task.createStatisticsWriter(getInnerActivityId(han, i, false), false, writer);
                         operator.setOutputFrameWriter(i, writer, recordDesc);
                     }
                 }
 
-                task.setTaskRuntime(collectors.toArray(new IPartitionCollector[collectors.size()]), operator);
+                task.setTaskRuntime(collectors.toArray(new IPartitionCollector[collectors.size()]),
+                        inputActivityIds.toArray(new ActivityId[inputActivityIds.size()]), operator);
                 joblet.addTask(task);
 
                 task.start();
@@ -164,6 +173,22 @@ public class StartTasksWork extends AbstractWork {
         }
     }
 
+    /**
+     * Returns the activity that owns the given input or output of a task's activity. For a task that runs a pipeline of
+     * fused activities, this is the activity inside the pipeline the connector is attached to.
+     */
+    private static ActivityId getInnerActivityId(IActivity han, int index, boolean input) {
+        if (han instanceof SuperActivity) {
+            SuperActivity sa = (SuperActivity) han;
+            Pair<ActivityId, Integer> port = input ? sa.getActivityIdInputIndex(index) : sa
+                    .getActivityIdOutputIndex(index);
+            if (port != null) {
+                return port.getLeft();
+            }
+        }
+        return han.getActivityId();
+    }
+
     private Joblet getOrCreateLocalJoblet(JobId jobId, INCApplicationContext appCtx, ActivityClusterGraph acg)
             throws Exception {
         Map<JobId, Joblet> jobletMap = ncs.getJobletMap();
@@ -213,6 +238,16 @@ public class StartTasksWork extends AbstractWork {
                     }
                 };
             }
+        } else if (cPolicy instanceof SpillingPipeliningConnectorPolicy) {
+            final long spillThreshold = ((SpillingPipeliningConnectorPolicy) cPolicy).getSpillThreshold();
+            factory = new IPartitionWriterFactory() {
+                @Override
+                public IFrameWriter createFrameWriter(int receiverIndex) throws HyracksDataException {
+                    return new SpillingPipelinedPartition(ctx, ncs.getPartitionManager(), new PartitionId(jobId,
+                            conn.getConnectorId(), senderIndex, receiverIndex), taId, ncs.getExecutor(),
+                            spillThreshold);
+                }
+            };
         } else {
             factory = new IPartitionWriterFactory() {
                 @Override
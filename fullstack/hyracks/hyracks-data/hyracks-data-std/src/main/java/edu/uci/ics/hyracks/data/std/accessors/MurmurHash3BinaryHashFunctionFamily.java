@@ -21,7 +21,7 @@ public class MurmurHash3BinaryHashFunctionFamily implements IBinaryHashFunctionF
                 int h = seed;
                 int p = offset;
                 int remain = length;
-                while (remain > 4) {
+                while (remain >= 4) {
                     int k = ((int) bytes[p]) | (((int) bytes[p + 1]) << 8) | (((int) bytes[p + 2]) << 16)
                             | (((int) bytes[p + 3]) << 24);
                     k *= C1;
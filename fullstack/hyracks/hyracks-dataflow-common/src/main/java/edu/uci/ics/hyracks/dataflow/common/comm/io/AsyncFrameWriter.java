@@ -0,0 +1,209 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.common.comm.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksCommonContext;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+
+/**
+ * An asynchronous boundary between two frame writers of the same task. Frames passed to {@link #nextFrame(ByteBuffer)}
+ * are copied into one of at most nFrames pooled frames and handed to a thread of their own, which pushes them into
+ * the wrapped writer, so the producer and the consumer of the frames can run on different cores. The producer blocks
+ * once all pooled frames are queued.
+ * open(), fail() and close() are called on the wrapped writer from the producer's thread, close() and fail() only
+ * after the queued frames have been consumed or discarded. A failure of the wrapped writer is rethrown to the producer
+ * by its next call.
+ */
+public class AsyncFrameWriter implements IFrameWriter {
+    private final IHyracksCommonContext ctx;
+
+    private final IFrameWriter writer;
+
+    private final int nFrames;
+
+    private final ArrayDeque<ByteBuffer> freeFrames;
+
+    private final ArrayDeque<ByteBuffer> fullFrames;
+
+    private int nAllocatedFrames;
+
+    private boolean closing;
+
+    private boolean aborting;
+
+    private boolean consumerDone;
+
+    private Throwable failure;
+
+    private Thread consumer;
+
+    public AsyncFrameWriter(IHyracksCommonContext ctx, IFrameWriter writer, int nFrames) {
+        if (nFrames < 1) {
+            throw new IllegalArgumentException("An asynchronous frame writer needs at least one frame");
+        }
+        this.ctx = ctx;
+        this.writer = writer;
+        this.nFrames = nFrames;
+        freeFrames = new ArrayDeque<ByteBuffer>(nFrames);
+        fullFrames = new ArrayDeque<ByteBuffer>(nFrames);
+    }
+
+    @Override
+    public void open() throws HyracksDataException {
+        writer.open();
+        synchronized (this) {
+            closing = false;
+            aborting = false;
+            consumerDone = false;
+            failure = null;
+        }
+        consumer = new Thread(new Consumer(), Thread.currentThread().getName() + ":async");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @Override
+    public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        ByteBuffer frame;
+        synchronized (this) {
+            while (freeFrames.isEmpty() && nAllocatedFrames >= nFrames && failure == null) {
+                waitForConsumer();
+            }
+            checkFailure();
+            frame = freeFrames.poll();
+        }
+        if (frame == null) {
+            frame = ctx.allocateFrame();
+            ++nAllocatedFrames;
+        }
+        FrameUtils.copy(buffer, frame);
+        frame.flip();
+        synchronized (this) {
+            fullFrames.add(frame);
+            notifyAll();
+        }
+    }
+
+    @Override
+    public void fail() throws HyracksDataException {
+        synchronized (this) {
+            aborting = true;
+            freeFrames.addAll(fullFrames);
+            fullFrames.clear();
+            notifyAll();
+        }
+        try {
+            awaitConsumer();
+        } finally {
+            synchronized (this) {
+                // the producer is failing already, there is no need to report the consumer's failure again
+                failure = null;
+            }
+            writer.fail();
+        }
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        Throwable t;
+        try {
+            awaitConsumer();
+        } finally {
+            synchronized (this) {
+                t = failure;
+                failure = null;
+            }
+            writer.close();
+        }
+        if (t != null) {
+            throw wrap(t);
+        }
+    }
+
+    private void awaitConsumer() throws HyracksDataException {
+        synchronized (this) {
+            closing = true;
+            notifyAll();
+            while (!consumerDone) {
+                waitForConsumer();
+            }
+        }
+    }
+
+    private void waitForConsumer() throws HyracksDataException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            // the task is being aborted, so the consumer must not keep pushing frames either
+            aborting = true;
+            notifyAll();
+            consumer.interrupt();
+            throw new HyracksDataException(e);
+        }
+    }
+
+    private void checkFailure() throws HyracksDataException {
+        if (failure != null) {
+            Throwable t = failure;
+            failure = null;
+            throw wrap(t);
+        }
+    }
+
+    private static HyracksDataException wrap(Throwable t) {
+        return t instanceof HyracksDataException ? (HyracksDataException) t : new HyracksDataException(t);
+    }
+
+    private class Consumer implements Runnable {
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    ByteBuffer frame;
+                    synchronized (AsyncFrameWriter.this) {
+                        while (fullFrames.isEmpty() && !closing && !aborting) {
+                            AsyncFrameWriter.this.wait();
+                        }
+                        if (aborting || fullFrames.isEmpty()) {
+                            return;
+                        }
+                        frame = fullFrames.poll();
+                    }
+                    writer.nextFrame(frame);
+                    synchronized (AsyncFrameWriter.this) {
+                        freeFrames.add(frame);
+                        AsyncFrameWriter.this.notifyAll();
+                    }
+                }
+            } catch (Throwable t) {
+                synchronized (AsyncFrameWriter.this) {
+                    failure = t;
+                    freeFrames.addAll(fullFrames);
+                    fullFrames.clear();
+                }
+            } finally {
+                synchronized (AsyncFrameWriter.this) {
+                    consumerDone = true;
+                    AsyncFrameWriter.this.notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.common.comm.util;
+
+import java.util.Arrays;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+
+/**
+ * A fast LZ77 block codec in the style of LZ4, meant for frames. A block is a sequence of (literals, match) pairs.
+ * Each pair starts with a token byte holding the literal length in its high nibble and the match length minus 4 in
+ * its low nibble; a nibble of 15 is continued by bytes that are added to it up to and including the first byte that
+ * is not 255. The literals follow, then the match offset as two little-endian bytes and the rest of the match length.
+ * The last pair only has literals.
+ * An instance keeps a hash table between calls and is not thread-safe.
+ */
+public class LZFrameCodec {
+    private static final int MIN_MATCH = 4;
+
+    private static final int HASH_LOG = 13;
+
+    private static final int MAX_OFFSET = 65535;
+
+    private static final int SKIP_SHIFT = 6;
+
+    private final int[] hashTable;
+
+    private int base;
+
+    public LZFrameCodec() {
+        hashTable = new int[1 << HASH_LOG];
+        base = 1;
+    }
+
+    /**
+     * @return the largest possible size of the compressed form of len bytes
+     */
+    public static int maxCompressedLength(int len) {
+        return len + len / 255 + 16;
+    }
+
+    /**
+     * Compresses len bytes of src into dst, which must have room for {@link #maxCompressedLength(int)} bytes.
+     * 
+     * @return the length of the compressed block
+     */
+    public int compress(byte[] src, int srcOff, int len, byte[] dst, int dstOff) {
+        // table entries below base belong to earlier calls
+        if (base > Integer.MAX_VALUE - len - 1) {
+            Arrays.fill(hashTable, 0);
+            base = 1;
+        }
+        int dp = dstOff;
+        int anchor = 0;
+        int sp = 0;
+        int limit = len - MIN_MATCH;
+        while (sp <= limit) {
+            int seq = readInt(src, srcOff + sp);
+            int h = (seq * -1640531535) >>> (32 - HASH_LOG);
+            int ref = hashTable[h] - base;
+            hashTable[h] = base + sp;
+            if (ref >= 0 && sp - ref <= MAX_OFFSET && readInt(src, srcOff + ref) == seq) {
+                int mLen = MIN_MATCH;
+                while (sp + mLen < len && src[srcOff + ref + mLen] == src[srcOff + sp + mLen]) {
+                    ++mLen;
+                }
+                dp = writeSequence(src, srcOff + anchor, sp - anchor, sp - ref, mLen, dst, dp);
+                sp += mLen;
+                anchor = sp;
+            } else {
+                // move faster through data that does not compress
+                sp += 1 + ((sp - anchor) >>> SKIP_SHIFT);
+            }
+        }
+        dp = writeSequence(src, srcOff + anchor, len - anchor, 0, 0, dst, dp);
+        base += len + 1;
+        return dp - dstOff;
+    }
+
+    /**
+     * Decompresses a block of srcLen bytes into dst, which has room for dstLen bytes.
+     * 
+     * @return the length of the decompressed data
+     * @throws HyracksDataException
+     *             if the block is corrupt or does not fit
+     */
+    public static int decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstLen)
+            throws HyracksDataException {
+        int sp = srcOff;
+        int srcEnd = srcOff + srcLen;
+        int dp = dstOff;
+        int dstEnd = dstOff + dstLen;
+        try {
+            while (true) {
+                int token = src[sp++] & 0xff;
+                int litLen = token >>> 4;
+                if (litLen == 15) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xff;
+                        litLen += b;
+                    } while (b == 255);
+                }
+                if (litLen > dstEnd - dp || litLen > srcEnd - sp) {
+                    throw new HyracksDataException("Corrupt compressed block");
+                }
+                System.arraycopy(src, sp, dst, dp, litLen);
+                sp += litLen;
+                dp += litLen;
+                if (sp >= srcEnd) {
+                    break;
+                }
+                int offset = (src[sp] & 0xff) | ((src[sp + 1] & 0xff) << 8);
+                sp += 2;
+                int mLen = token & 0xf;
+                if (mLen == 15) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xff;
+                        mLen += b;
+                    } while (b == 255);
+                }
+                mLen += MIN_MATCH;
+                if (offset == 0 || offset > dp - dstOff || mLen > dstEnd - dp) {
+                    throw new HyracksDataException("Corrupt compressed block");
+                }
+                int ref = dp - offset;
+                if (offset >= mLen) {
+                    System.arraycopy(dst, ref, dst, dp, mLen);
+                    dp += mLen;
+                } else {
+                    // overlapping match, repeats the last offset bytes
+                    for (int i = 0; i < mLen; ++i) {
+                        dst[dp++] = dst[ref++];
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new HyracksDataException("Corrupt compressed block");
+        }
+        return dp - dstOff;
+    }
+
+    private static int writeSequence(byte[] src, int litOff, int litLen, int offset, int mLen, byte[] dst, int dp) {
+        int tokenPos = dp++;
+        int token;
+        if (litLen >= 15) {
+            token = 15 << 4;
+            dp = writeLength(litLen - 15, dst, dp);
+        } else {
+            token = litLen << 4;
+        }
+        System.arraycopy(src, litOff, dst, dp, litLen);
+        dp += litLen;
+        if (mLen > 0) {
+            dst[dp++] = (byte) offset;
+            dst[dp++] = (byte) (offset >>> 8);
+            int m = mLen - MIN_MATCH;
+            if (m >= 15) {
+                token |= 15;
+                dp = writeLength(m - 15, dst, dp);
+            } else {
+                token |= m;
+            }
+        }
+        dst[tokenPos] = (byte) token;
+        return dp;
+    }
+
+    private static int writeLength(int len, byte[] dst, int dp) {
+        while (len >= 255) {
+            dst[dp++] = (byte) 255;
+            len -= 255;
+        }
+        dst[dp++] = (byte) len;
+        return dp;
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8) | ((b[off + 2] & 0xff) << 16) | ((b[off + 3] & 0xff) << 24);
+    }
+}
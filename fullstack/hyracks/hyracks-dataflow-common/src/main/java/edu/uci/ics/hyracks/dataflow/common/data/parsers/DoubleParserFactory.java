@@ -29,7 +29,9 @@ public class DoubleParserFactory implements IValueParserFactory {
 
     @Override
     public IValueParser createValueParser() {
-        return new IValueParser() {
+        return new IUTF8ValueParser() {
+            private char[] chars;
+
             @Override
             public void parse(char[] buffer, int start, int length, DataOutput out) throws HyracksDataException {
                 String s = String.valueOf(buffer, start, length);
@@ -41,6 +43,18 @@ public class DoubleParserFactory implements IValueParserFactory {
                     throw new HyracksDataException(e);
                 }
             }
+
+            @Override
+            public void parse(byte[] buffer, int start, int length, DataOutput out) throws HyracksDataException {
+                // a number is plain ASCII, so widening every byte is a complete decoding
+                if (chars == null || chars.length < length) {
+                    chars = new char[length];
+                }
+                for (int i = 0; i < length; ++i) {
+                    chars[i] = (char) (buffer[start + i] & 0xff);
+                }
+                parse(chars, 0, length, out);
+            }
         };
     }
 }
\ No newline at end of file
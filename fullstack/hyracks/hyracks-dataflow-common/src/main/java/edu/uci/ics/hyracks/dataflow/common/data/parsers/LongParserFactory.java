@@ -29,7 +29,7 @@ public class LongParserFactory implements IValueParserFactory {
 
     @Override
     public IValueParser createValueParser() {
-        return new IValueParser() {
+        return new IUTF8ValueParser() {
             @Override
             public void parse(char[] buffer, int start, int length, DataOutput out) throws HyracksDataException {
                 int n = 0;
@@ -109,6 +109,37 @@ public class LongParserFactory implements IValueParserFactory {
                     throw new HyracksDataException(e);
                 }
             }
+
+            @Override
+            public void parse(byte[] buffer, int start, int length, DataOutput out) throws HyracksDataException {
+                int i = start;
+                int end = start + length;
+                while (i < end && isWhitespace(buffer[i])) {
+                    ++i;
+                }
+                boolean negative = i < end && buffer[i] == '-';
+                if (negative) {
+                    ++i;
+                }
+                long n = 0;
+                for (; i < end && buffer[i] >= '0' && buffer[i] <= '9'; ++i) {
+                    n = n * 10 + (buffer[i] - '0');
+                }
+                for (; i < end; ++i) {
+                    if (!isWhitespace(buffer[i])) {
+                        throw new HyracksDataException("Encountered " + (char) (buffer[i] & 0xff));
+                    }
+                }
+                try {
+                    out.writeLong(negative ? -n : n);
+                } catch (IOException e) {
+                    throw new HyracksDataException(e);
+                }
+            }
+
+            private boolean isWhitespace(byte b) {
+                return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+            }
         };
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@ package edu.uci.ics.hyracks.dataflow.common.data.parsers;
 
 import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.charset.Charset;
 
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 
@@ -24,12 +25,17 @@ public class UTF8StringParserFactory implements IValueParserFactory {
 
     private static final long serialVersionUID = 1L;
 
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // the serialized length is an unsigned short
+    private static final int MAX_UTF8_LENGTH = 65535;
+
     private UTF8StringParserFactory() {
     }
 
     @Override
     public IValueParser createValueParser() {
-        return new IValueParser() {
+        return new IUTF8ValueParser() {
             private byte[] utf8;
 
             @Override
@@ -45,6 +51,9 @@ public class UTF8StringParserFactory implements IValueParserFactory {
                         utflen += 2;
                     }
                 }
+                if (utflen > MAX_UTF8_LENGTH) {
+                    throw new HyracksDataException("Encoded string too long: " + utflen + " bytes");
+                }
 
                 if (utf8 == null || utf8.length < utflen + 2) {
                     utf8 = new byte[utflen + 2];
@@ -81,6 +90,59 @@ public class UTF8StringParserFactory implements IValueParserFactory {
                     throw new HyracksDataException(e);
                 }
             }
+
+            @Override
+            public void parse(byte[] buffer, int start, int length, DataOutput out) throws HyracksDataException {
+                if (!isModifiedUTF8(buffer, start, length)) {
+                    char[] chars = new String(buffer, start, length, UTF8).toCharArray();
+                    parse(chars, 0, chars.length, out);
+                    return;
+                }
+                if (length > MAX_UTF8_LENGTH) {
+                    throw new HyracksDataException("Encoded string too long: " + length + " bytes");
+                }
+                try {
+                    out.writeShort(length);
+                    out.write(buffer, start, length);
+                } catch (IOException e) {
+                    throw new HyracksDataException(e);
+                }
+            }
+
+            /**
+             * Well-formed UTF-8 is already the serialized form, except that modified UTF-8 encodes the NUL character
+             * in two bytes and supplementary characters as surrogate pairs. Fields containing those, or malformed
+             * sequences, go through the decoding path instead.
+             */
+            private boolean isModifiedUTF8(byte[] buffer, int start, int length) {
+                int end = start + length;
+                int i = start;
+                while (i < end) {
+                    int b = buffer[i] & 0xff;
+                    if (b >= 0x01 && b <= 0x7f) {
+                        ++i;
+                        continue;
+                    }
+                    int continuations;
+                    if (b >= 0xc2 && b <= 0xdf) {
+                        continuations = 1;
+                    } else if (b >= 0xe0 && b <= 0xef) {
+                        continuations = 2;
+                    } else {
+                        return false;
+                    }
+                    if (i + continuations >= end) {
+                        return false;
+                    }
+                    for (int j = 1; j <= continuations; ++j) {
+                        if ((buffer[i + j] & 0xc0) != 0x80) {
+                            return false;
+                        }
+                    }
+                    i += continuations + 1;
+                }
+                return true;
+            }
         };
     }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.common.data.partition;
+
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputerFactory;
+
+/**
+ * Sends a tuple to the partition whose range of the {@link RangeMap} holds its key fields. If the map has one split
+ * less than there are partitions, range r goes to partition r. Otherwise the ranges are spread evenly over the
+ * partitions, so that partition order still follows key order.
+ */
+public class FieldRangePartitionComputerFactory implements ITuplePartitionComputerFactory {
+    private static final long serialVersionUID = 1L;
+    private final int[] rangeFields;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final RangeMap rangeMap;
+
+    public FieldRangePartitionComputerFactory(int[] rangeFields, IBinaryComparatorFactory[] comparatorFactories,
+            RangeMap rangeMap) {
+        if (rangeFields.length != rangeMap.getFieldCount()) {
+            throw new IllegalArgumentException("Expected " + rangeMap.getFieldCount() + " range fields, got "
+                    + rangeFields.length);
+        }
+        this.rangeFields = rangeFields;
+        this.comparatorFactories = comparatorFactories;
+        this.rangeMap = rangeMap;
+    }
+
+    @Override
+    public ITuplePartitionComputer createPartitioner() {
+        final IBinaryComparator[] comparators = new IBinaryComparator[comparatorFactories.length];
+        for (int i = 0; i < comparatorFactories.length; ++i) {
+            comparators[i] = comparatorFactories[i].createBinaryComparator();
+        }
+        return new ITuplePartitionComputer() {
+            @Override
+            public int partition(IFrameTupleAccessor accessor, int tIndex, int nParts) {
+                if (nParts == 1) {
+                    return 0;
+                }
+                int nRanges = rangeMap.getSplitCount() + 1;
+                int range = findRange(accessor, tIndex);
+                return nRanges == nParts ? range : (int) ((long) range * nParts / nRanges);
+            }
+
+            /**
+             * Returns the number of splits that are less than or equal to the key of the tuple.
+             */
+            private int findRange(IFrameTupleAccessor accessor, int tIndex) {
+                int low = 0;
+                int high = rangeMap.getSplitCount();
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (compareToSplit(accessor, tIndex, mid) < 0) {
+                        high = mid;
+                    } else {
+                        low = mid + 1;
+                    }
+                }
+                return low;
+            }
+
+            private int compareToSplit(IFrameTupleAccessor accessor, int tIndex, int split) {
+                byte[] data = accessor.getBuffer().array();
+                int tStart = accessor.getTupleStartOffset(tIndex) + accessor.getFieldSlotsLength();
+                for (int f = 0; f < rangeFields.length; ++f) {
+                    int fStart = accessor.getFieldStartOffset(tIndex, rangeFields[f]);
+                    int fEnd = accessor.getFieldEndOffset(tIndex, rangeFields[f]);
+                    int c = comparators[f].compare(data, tStart + fStart, fEnd - fStart, rangeMap.getByteArray(),
+                            rangeMap.getStartOffset(split, f), rangeMap.getLength(split, f));
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                return 0;
+            }
+        };
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.common.data.partition;
+
+import java.io.Serializable;
+
+/**
+ * The split points of a range partitioning. Split s is a tuple of key fields; range r holds the keys that are at least
+ * split r - 1 and less than split r, so k splits define k + 1 ranges. The fields of all splits are stored one after
+ * the other in a single byte array, with the end offset of every field in the array.
+ */
+public class RangeMap implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int fieldCount;
+    private final byte[] bytes;
+    private final int[] endOffsets;
+
+    public RangeMap(int fieldCount, byte[] bytes, int[] endOffsets) {
+        if (fieldCount <= 0 || endOffsets.length % fieldCount != 0) {
+            throw new IllegalArgumentException("Expected a multiple of " + fieldCount + " field end offsets, got "
+                    + endOffsets.length);
+        }
+        this.fieldCount = fieldCount;
+        this.bytes = bytes;
+        this.endOffsets = endOffsets;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public int getSplitCount() {
+        return endOffsets.length / fieldCount;
+    }
+
+    public byte[] getByteArray() {
+        return bytes;
+    }
+
+    public int getStartOffset(int split, int field) {
+        int index = split * fieldCount + field;
+        return index == 0 ? 0 : endOffsets[index - 1];
+    }
+
+    public int getLength(int split, int field) {
+        int index = split * fieldCount + field;
+        return endOffsets[index] - (index == 0 ? 0 : endOffsets[index - 1]);
+    }
+}
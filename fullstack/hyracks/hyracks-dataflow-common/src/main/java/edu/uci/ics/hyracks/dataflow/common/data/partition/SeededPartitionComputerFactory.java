@@ -0,0 +1,39 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.common.data.partition;
+
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputerFamily;
+
+/**
+ * Fixes the seed of a partition computer family, so one member of the family can be used wherever a plain
+ * partition computer factory is expected.
+ */
+public class SeededPartitionComputerFactory implements ITuplePartitionComputerFactory {
+    private static final long serialVersionUID = 1L;
+    private final ITuplePartitionComputerFamily family;
+    private final int seed;
+
+    public SeededPartitionComputerFactory(ITuplePartitionComputerFamily family, int seed) {
+        this.family = family;
+        this.seed = seed;
+    }
+
+    @Override
+    public ITuplePartitionComputer createPartitioner() {
+        return family.createPartitioner(seed);
+    }
+}
@@ -17,22 +17,39 @@ package edu.uci.ics.hyracks.dataflow.common.io;
 import java.nio.ByteBuffer;
 
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.io.FileReference;
 import edu.uci.ics.hyracks.api.io.IFileHandle;
 import edu.uci.ics.hyracks.api.io.IIOManager;
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounter;
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounterContext;
 
 public class RunFileWriter implements IFrameWriter {
     private final FileReference file;
     private final IIOManager ioManager;
+    private final ICounter spillCounter;
     private boolean failed;
 
     private IFileHandle handle;
     private long size;
 
     public RunFileWriter(FileReference file, IIOManager ioManager) {
+        this(file, ioManager, null);
+    }
+
+    /**
+     * Creates a writer for a run that spills data of the given task, and counts the bytes written in the task's
+     * {@link ICounterContext#SPILL_BYTES_COUNTER} counter.
+     */
+    public RunFileWriter(FileReference file, IHyracksTaskContext ctx) {
+        this(file, ctx.getIOManager(), ctx.getCounterContext().getCounter(ICounterContext.SPILL_BYTES_COUNTER, true));
+    }
+
+    private RunFileWriter(FileReference file, IIOManager ioManager, ICounter spillCounter) {
         this.file = file;
         this.ioManager = ioManager;
+        this.spillCounter = spillCounter;
     }
 
     @Override
@@ -51,7 +68,11 @@ public class RunFileWriter implements IFrameWriter {
 
     @Override
     public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
-        size += ioManager.syncWrite(handle, size, buffer);
+        int written = ioManager.syncWrite(handle, size, buffer);
+        size += written;
+        if (spillCounter != null) {
+            spillCounter.update(written);
+        }
     }
 
     @Override
@@ -107,7 +107,7 @@ public class ShuffleFrameReader implements IFrameReader {
         for (RunFileWriter rfw : runFileWriters) {
             runs.add(rfw.createReader());
         }
-        RunFileWriter rfw = new RunFileWriter(outFile, ctx.getIOManager());
+        RunFileWriter rfw = new RunFileWriter(outFile, ctx);
         ExternalSortRunMerger merger = new ExternalSortRunMerger(ctx, null, runs, new int[] { 0 }, comparators,
                 recordDescriptor, framesLimit, rfw);
         merger.process();
@@ -144,7 +144,7 @@ public class ShuffleFrameReader implements IFrameReader {
             fta.reset(buffer, true);
             try {
                 file = ctx.createManagedWorkspaceFile(ShuffleFrameReader.class.getName() + ".run");
-                rfw = new RunFileWriter(file, ctx.getIOManager());
+                rfw = new RunFileWriter(file, ctx);
             } catch (IOException e) {
                 throw new HyracksDataException(e);
             }
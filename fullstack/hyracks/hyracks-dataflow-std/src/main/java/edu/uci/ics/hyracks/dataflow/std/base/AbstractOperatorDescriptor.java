@@ -76,6 +76,11 @@ public abstract class AbstractOperatorDescriptor implements IOperatorDescriptor
         this.displayName = displayName;
     }
 
+    @Override
+    public int getRequiredMemoryFrames() {
+        return 0;
+    }
+
     @Override
     public void contributeSchedulingConstraints(IConstraintAcceptor constraintAcceptor, ICCApplicationContext appCtx) {
         // do nothing
@@ -89,6 +94,7 @@ public abstract class AbstractOperatorDescriptor implements IOperatorDescriptor
         jop.put("in-arity", getInputArity());
         jop.put("out-arity", getOutputArity());
         jop.put("display-name", displayName);
+        jop.put("required-memory-frames", getRequiredMemoryFrames());
         return jop;
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.collectors;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.comm.IFrameReader;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.std.connectors.CompressingFrameWriter;
+import edu.uci.ics.hyracks.dataflow.std.connectors.FrameDecompressor;
+
+/**
+ * Reads the frames of a sender that wrote them through a {@link CompressingFrameWriter}.
+ */
+public class DecompressingFrameReader implements IFrameReader {
+    private final IFrameReader reader;
+
+    private final ByteBuffer inFrame;
+
+    private final FrameDecompressor decompressor;
+
+    public DecompressingFrameReader(IHyracksTaskContext ctx, IFrameReader reader) {
+        this.reader = reader;
+        inFrame = ctx.allocateFrame();
+        decompressor = new FrameDecompressor(ctx);
+    }
+
+    @Override
+    public void open() throws HyracksDataException {
+        reader.open();
+    }
+
+    @Override
+    public boolean nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        while (!decompressor.decode(buffer)) {
+            if (!reader.nextFrame(inFrame)) {
+                return false;
+            }
+            decompressor.reset(inFrame);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        reader.close();
+    }
+}
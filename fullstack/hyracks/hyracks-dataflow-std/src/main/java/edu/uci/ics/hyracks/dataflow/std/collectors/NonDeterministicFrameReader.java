@@ -18,23 +18,48 @@ import java.nio.ByteBuffer;
 
 import edu.uci.ics.hyracks.api.channels.IInputChannel;
 import edu.uci.ics.hyracks.api.comm.IFrameReader;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.std.connectors.FrameDecompressor;
 
 public class NonDeterministicFrameReader implements IFrameReader {
     private final NonDeterministicChannelReader channelReader;
 
+    private final FrameDecompressor[] decompressors;
+
+    private int currentSender;
+
+    private ByteBuffer currentFrame;
+
     public NonDeterministicFrameReader(NonDeterministicChannelReader channelReader) {
         this.channelReader = channelReader;
+        decompressors = null;
+    }
+
+    /**
+     * Creates a reader for senders that compress their frames.
+     */
+    public NonDeterministicFrameReader(IHyracksTaskContext ctx, NonDeterministicChannelReader channelReader) {
+        this.channelReader = channelReader;
+        decompressors = new FrameDecompressor[channelReader.getSenderPartitionCount()];
+        for (int i = 0; i < decompressors.length; ++i) {
+            decompressors[i] = new FrameDecompressor(ctx);
+        }
     }
 
     @Override
     public void open() throws HyracksDataException {
         channelReader.open();
+        currentSender = -1;
+        currentFrame = null;
     }
 
     @Override
     public boolean nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        if (decompressors != null) {
+            return nextDecompressedFrame(buffer);
+        }
         int index = channelReader.findNextSender();
         if (index >= 0) {
             IInputChannel[] channels = channelReader.getChannels();
@@ -46,6 +71,27 @@ public class NonDeterministicFrameReader implements IFrameReader {
         return false;
     }
 
+    private boolean nextDecompressedFrame(ByteBuffer buffer) throws HyracksDataException {
+        IInputChannel[] channels = channelReader.getChannels();
+        while (true) {
+            if (currentSender >= 0) {
+                if (decompressors[currentSender].decode(buffer)) {
+                    return true;
+                }
+                channels[currentSender].recycleBuffer(currentFrame);
+                currentSender = -1;
+                currentFrame = null;
+            }
+            int index = channelReader.findNextSender();
+            if (index < 0) {
+                return false;
+            }
+            currentSender = index;
+            currentFrame = channels[index].getNextBuffer();
+            decompressors[index].reset(currentFrame);
+        }
+    }
+
     @Override
     public synchronized void close() throws HyracksDataException {
         channelReader.close();
@@ -33,11 +33,22 @@ public class SortMergeFrameReader implements IFrameReader {
     private final IBinaryComparator[] comparators;
     private final RecordDescriptor recordDescriptor;
     private final IPartitionBatchManager pbm;
+    private final boolean decompress;
 
     private RunMergingFrameReader merger;
 
     public SortMergeFrameReader(IHyracksTaskContext ctx, int maxConcurrentMerges, int nSenders, int[] sortFields,
             IBinaryComparator[] comparators, RecordDescriptor recordDescriptor, IPartitionBatchManager pbm) {
+        this(ctx, maxConcurrentMerges, nSenders, sortFields, comparators, recordDescriptor, pbm, false);
+    }
+
+    /**
+     * @param decompress
+     *            whether the senders compress their frames
+     */
+    public SortMergeFrameReader(IHyracksTaskContext ctx, int maxConcurrentMerges, int nSenders, int[] sortFields,
+            IBinaryComparator[] comparators, RecordDescriptor recordDescriptor, IPartitionBatchManager pbm,
+            boolean decompress) {
         this.ctx = ctx;
         this.maxConcurrentMerges = maxConcurrentMerges;
         this.nSenders = nSenders;
@@ -45,6 +56,7 @@ public class SortMergeFrameReader implements IFrameReader {
         this.comparators = comparators;
         this.recordDescriptor = recordDescriptor;
         this.pbm = pbm;
+        this.decompress = decompress;
     }
 
     @Override
@@ -56,6 +68,11 @@ public class SortMergeFrameReader implements IFrameReader {
             }
             List<IFrameReader> batch = new ArrayList<IFrameReader>();
             pbm.getNextBatch(batch, nSenders);
+            if (decompress) {
+                for (int i = 0; i < batch.size(); ++i) {
+                    batch.set(i, new DecompressingFrameReader(ctx, batch.get(i)));
+                }
+            }
             merger = new RunMergingFrameReader(ctx, batch.toArray(new IFrameReader[nSenders]), inFrames, sortFields,
                     comparators, recordDescriptor);
         } else {
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.connectors;
+
+import java.nio.ByteBuffer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.comm.IPartitionWriterFactory;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.LZFrameCodec;
+
+/**
+ * Compresses the frames sent to one consumer partition. The compressed frames are written back to back as blocks
+ * into frames of the regular size, so fewer, fully packed frames are sent; a {@link FrameDecompressor} restores the
+ * original frames on the receiving side. A block starts with an int holding its length shifted left by one, with
+ * the lowest bit set if the block is compressed. Block headers never span frames, and the rest of a frame after a
+ * zero header, or after fewer bytes than a header, is padding.
+ * When a sample of frames does not shrink enough, frames are sent uncompressed for a while.
+ */
+public class CompressingFrameWriter implements IFrameWriter {
+    private static final Logger LOGGER = Logger.getLogger(CompressingFrameWriter.class.getName());
+
+    static final int HEADER_SIZE = 4;
+
+    private static final int SAMPLE_FRAMES = 32;
+
+    private static final double MAX_SAMPLE_RATIO = 0.9;
+
+    private static final int BACKOFF_FRAMES = 1024;
+
+    private final IFrameWriter writer;
+
+    private final int frameSize;
+
+    private final LZFrameCodec codec;
+
+    private final ByteBuffer outFrame;
+
+    private final byte[] compressed;
+
+    private byte[] copy;
+
+    private int sampleFrames;
+
+    private long sampleRawBytes;
+
+    private long sampleCompressedBytes;
+
+    private int backoffFrames;
+
+    public CompressingFrameWriter(IHyracksTaskContext ctx, IFrameWriter writer) {
+        this.writer = writer;
+        frameSize = ctx.getFrameSize();
+        codec = new LZFrameCodec();
+        outFrame = ctx.allocateFrame();
+        compressed = new byte[LZFrameCodec.maxCompressedLength(frameSize)];
+    }
+
+    /**
+     * Wraps a partition writer factory so that all of its writers compress their frames.
+     */
+    public static IPartitionWriterFactory wrap(final IHyracksTaskContext ctx, final IPartitionWriterFactory pwFactory) {
+        return new IPartitionWriterFactory() {
+            @Override
+            public IFrameWriter createFrameWriter(int receiverIndex) throws HyracksDataException {
+                return new CompressingFrameWriter(ctx, pwFactory.createFrameWriter(receiverIndex));
+            }
+        };
+    }
+
+    @Override
+    public void open() throws HyracksDataException {
+        writer.open();
+        outFrame.clear();
+        sampleFrames = 0;
+        sampleRawBytes = 0;
+        sampleCompressedBytes = 0;
+        backoffFrames = 0;
+    }
+
+    @Override
+    public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        byte[] src;
+        int srcOff;
+        if (buffer.hasArray()) {
+            src = buffer.array();
+            srcOff = buffer.arrayOffset();
+        } else {
+            if (copy == null) {
+                copy = new byte[frameSize];
+            }
+            buffer.position(0);
+            buffer.limit(frameSize);
+            buffer.get(copy);
+            src = copy;
+            srcOff = 0;
+        }
+        if (backoffFrames > 0) {
+            --backoffFrames;
+            writeBlock(src, srcOff, frameSize, false);
+            return;
+        }
+        int len = codec.compress(src, srcOff, frameSize, compressed, 0);
+        sampleRawBytes += frameSize;
+        sampleCompressedBytes += Math.min(len, frameSize);
+        if (++sampleFrames == SAMPLE_FRAMES) {
+            if (sampleCompressedBytes > sampleRawBytes * MAX_SAMPLE_RATIO) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.fine("Compression ratio " + ((double) sampleCompressedBytes / sampleRawBytes)
+                            + " is too poor, sending the next " + BACKOFF_FRAMES + " frames uncompressed");
+                }
+                backoffFrames = BACKOFF_FRAMES;
+            }
+            sampleFrames = 0;
+            sampleRawBytes = 0;
+            sampleCompressedBytes = 0;
+        }
+        if (len < frameSize) {
+            writeBlock(compressed, 0, len, true);
+        } else {
+            writeBlock(src, srcOff, frameSize, false);
+        }
+    }
+
+    private void writeBlock(byte[] b, int off, int len, boolean isCompressed) throws HyracksDataException {
+        if (outFrame.remaining() < HEADER_SIZE) {
+            flushOutFrame();
+        }
+        outFrame.putInt((len << 1) | (isCompressed ? 1 : 0));
+        while (len > 0) {
+            if (!outFrame.hasRemaining()) {
+                flushOutFrame();
+            }
+            int n = Math.min(len, outFrame.remaining());
+            outFrame.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void flushOutFrame() throws HyracksDataException {
+        if (outFrame.remaining() >= HEADER_SIZE) {
+            outFrame.putInt(0);
+        }
+        FrameUtils.flushFrame(outFrame, writer);
+        outFrame.clear();
+    }
+
+    @Override
+    public void fail() throws HyracksDataException {
+        writer.fail();
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        if (outFrame.position() > 0) {
+            flushOutFrame();
+        }
+        writer.close();
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.connectors;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.LZFrameCodec;
+
+/**
+ * Restores the frames of one sender from the frames written by a {@link CompressingFrameWriter}. Blocks may span
+ * the received frames, so the decompressor keeps the part of a block seen so far between frames.
+ */
+public class FrameDecompressor {
+    private final int frameSize;
+
+    private final byte[] block;
+
+    private ByteBuffer src;
+
+    private int blockLength;
+
+    private boolean blockCompressed;
+
+    private int blockFilled;
+
+    public FrameDecompressor(IHyracksTaskContext ctx) {
+        frameSize = ctx.getFrameSize();
+        block = new byte[LZFrameCodec.maxCompressedLength(frameSize)];
+        blockLength = -1;
+    }
+
+    /**
+     * Starts decoding the next received frame. The frame must not be reused before {@link #decode(ByteBuffer)}
+     * returns false.
+     */
+    public void reset(ByteBuffer frame) {
+        src = frame;
+        src.position(0);
+        src.limit(src.capacity());
+    }
+
+    /**
+     * Decodes the next frame.
+     * 
+     * @return true if a frame was written to out, false if the received frame is used up
+     */
+    public boolean decode(ByteBuffer out) throws HyracksDataException {
+        if (src == null) {
+            return false;
+        }
+        if (blockLength < 0) {
+            if (src.remaining() < CompressingFrameWriter.HEADER_SIZE) {
+                src = null;
+                return false;
+            }
+            int header = src.getInt();
+            if (header == 0) {
+                src = null;
+                return false;
+            }
+            blockLength = header >>> 1;
+            blockCompressed = (header & 1) != 0;
+            blockFilled = 0;
+            if (blockLength > block.length) {
+                throw new HyracksDataException("Corrupt compressed frame stream");
+            }
+        }
+        int n = Math.min(src.remaining(), blockLength - blockFilled);
+        if (blockFilled == 0 && n == blockLength && src.hasArray()) {
+            // the whole block is in the received frame
+            int pos = src.position();
+            src.position(pos + n);
+            emit(src.array(), src.arrayOffset() + pos, out);
+        } else {
+            src.get(block, blockFilled, n);
+            blockFilled += n;
+            if (blockFilled < blockLength) {
+                src = null;
+                return false;
+            }
+            emit(block, 0, out);
+        }
+        blockLength = -1;
+        return true;
+    }
+
+    private void emit(byte[] b, int off, ByteBuffer out) throws HyracksDataException {
+        byte[] dst = out.array();
+        int dstOff = out.arrayOffset();
+        if (blockCompressed) {
+            if (LZFrameCodec.decompress(b, off, blockLength, dst, dstOff, frameSize) != frameSize) {
+                throw new HyracksDataException("Corrupt compressed frame");
+            }
+        } else {
+            if (blockLength != frameSize) {
+                throw new HyracksDataException("Corrupt compressed frame stream");
+            }
+            System.arraycopy(b, off, dst, dstOff, frameSize);
+        }
+        out.position(0);
+        out.limit(out.capacity());
+    }
+}
@@ -32,16 +32,31 @@ import edu.uci.ics.hyracks.dataflow.std.collectors.PartitionCollector;
 public class MToNPartitioningConnectorDescriptor extends AbstractMToNConnectorDescriptor {
     private static final long serialVersionUID = 1L;
     private ITuplePartitionComputerFactory tpcf;
+    private boolean compressFrames;
 
     public MToNPartitioningConnectorDescriptor(IConnectorDescriptorRegistry spec, ITuplePartitionComputerFactory tpcf) {
         super(spec);
         this.tpcf = tpcf;
     }
 
+    /**
+     * Makes the senders compress the frames they send, see {@link CompressingFrameWriter}.
+     */
+    public void setCompressFrames(boolean compressFrames) {
+        this.compressFrames = compressFrames;
+    }
+
+    public boolean getCompressFrames() {
+        return compressFrames;
+    }
+
     @Override
     public IFrameWriter createPartitioner(IHyracksTaskContext ctx, RecordDescriptor recordDesc,
             IPartitionWriterFactory edwFactory, int index, int nProducerPartitions, int nConsumerPartitions)
             throws HyracksDataException {
+        if (compressFrames) {
+            edwFactory = CompressingFrameWriter.wrap(ctx, edwFactory);
+        }
         final PartitionDataWriter hashWriter = new PartitionDataWriter(ctx, nConsumerPartitions, edwFactory,
                 recordDesc, tpcf.createPartitioner());
         return hashWriter;
@@ -54,7 +69,8 @@ public class MToNPartitioningConnectorDescriptor extends AbstractMToNConnectorDe
         expectedPartitions.set(0, nProducerPartitions);
         NonDeterministicChannelReader channelReader = new NonDeterministicChannelReader(nProducerPartitions,
                 expectedPartitions);
-        NonDeterministicFrameReader frameReader = new NonDeterministicFrameReader(channelReader);
+        NonDeterministicFrameReader frameReader = compressFrames ? new NonDeterministicFrameReader(ctx, channelReader)
+                : new NonDeterministicFrameReader(channelReader);
         return new PartitionCollector(ctx, getConnectorId(), index, expectedPartitions, frameReader, channelReader);
     }
 }
\ No newline at end of file
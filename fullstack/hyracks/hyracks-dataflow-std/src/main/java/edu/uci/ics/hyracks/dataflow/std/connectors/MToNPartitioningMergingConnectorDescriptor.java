@@ -40,6 +40,7 @@ public class MToNPartitioningMergingConnectorDescriptor extends AbstractMToNConn
     private final int[] sortFields;
     private final IBinaryComparatorFactory[] comparatorFactories;
     private final boolean stable;
+    private boolean compressFrames;
 
     public MToNPartitioningMergingConnectorDescriptor(IConnectorDescriptorRegistry spec, ITuplePartitionComputerFactory tpcf,
             int[] sortFields, IBinaryComparatorFactory[] comparatorFactories) {
@@ -55,10 +56,24 @@ public class MToNPartitioningMergingConnectorDescriptor extends AbstractMToNConn
         this.stable = stable;
     }
 
+    /**
+     * Makes the senders compress the frames they send, see {@link CompressingFrameWriter}.
+     */
+    public void setCompressFrames(boolean compressFrames) {
+        this.compressFrames = compressFrames;
+    }
+
+    public boolean getCompressFrames() {
+        return compressFrames;
+    }
+
     @Override
     public IFrameWriter createPartitioner(IHyracksTaskContext ctx, RecordDescriptor recordDesc,
             IPartitionWriterFactory edwFactory, int index, int nProducerPartitions, int nConsumerPartitions)
             throws HyracksDataException {
+        if (compressFrames) {
+            edwFactory = CompressingFrameWriter.wrap(ctx, edwFactory);
+        }
         final PartitionDataWriter hashWriter = new PartitionDataWriter(ctx, nConsumerPartitions, edwFactory,
                 recordDesc, tpcf.createPartitioner());
         return hashWriter;
@@ -73,7 +88,7 @@ public class MToNPartitioningMergingConnectorDescriptor extends AbstractMToNConn
         }
         IPartitionBatchManager pbm = new NonDeterministicPartitionBatchManager(nProducerPartitions);
         IFrameReader sortMergeFrameReader = new SortMergeFrameReader(ctx, nProducerPartitions, nProducerPartitions,
-                sortFields, comparators, recordDesc, pbm);
+                sortFields, comparators, recordDesc, pbm, compressFrames);
         BitSet expectedPartitions = new BitSet();
         expectedPartitions.set(0, nProducerPartitions);
         return new PartitionCollector(ctx, getConnectorId(), index, expectedPartitions, sortMergeFrameReader, pbm);
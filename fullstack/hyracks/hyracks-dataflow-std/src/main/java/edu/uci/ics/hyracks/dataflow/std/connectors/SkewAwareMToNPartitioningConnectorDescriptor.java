@@ -0,0 +1,104 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.connectors;
+
+import java.util.BitSet;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.comm.IPartitionCollector;
+import edu.uci.ics.hyracks.api.comm.IPartitionWriterFactory;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.OperatorDescriptorId;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunction;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.IConnectorDescriptorRegistry;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractMToNConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.collectors.NonDeterministicChannelReader;
+import edu.uci.ics.hyracks.dataflow.std.collectors.NonDeterministicFrameReader;
+import edu.uci.ics.hyracks.dataflow.std.collectors.PartitionCollector;
+import edu.uci.ics.hyracks.dataflow.std.misc.HeavyHitterCollectorOperatorDescriptor;
+
+/**
+ * An M:N hash partitioning connector that treats the heavy-hitter keys of its input specially, so that a
+ * single hot key no longer sends all of its tuples to one consumer.
+ * The heavy hitters are found while the job runs: a
+ * {@link edu.uci.ics.hyracks.dataflow.std.misc.HeavyHitterSamplerOperatorDescriptor} samples the probe input, and
+ * its output is replicated to a {@link HeavyHitterCollectorOperatorDescriptor} in front of each of the two join
+ * inputs. Each input then reaches the join through one instance of this connector, created for the collector that
+ * produces it:
+ * - the build side uses {@link SkewHandling#BROADCAST}: tuples with a hot key are sent to every consumer;
+ * - the probe side uses {@link SkewHandling#SPREAD}: tuples with a hot key are sent round-robin to the consumers.
+ * Every probe tuple with a hot key therefore still meets all matching build tuples, while the probe-side work for
+ * the hot key is divided evenly. Tuples with other keys are partitioned by the regular partition computer, which
+ * must be a field hash partitioner over the same key fields on both sides.
+ * This is only correct for consumers that look at each probe tuple together with its matching build tuples, such
+ * as inner joins and left outer joins that preserve the probe side. A broadcast build tuple reaches every consumer,
+ * so joins that emit build tuples depending on whether they matched (right or full outer joins, semi and anti
+ * joins on the build side) would emit it once per consumer, and operators that need all tuples of a key in one
+ * partition, such as a group-by, see the spread tuples scattered; neither may be fed through this connector.
+ */
+public class SkewAwareMToNPartitioningConnectorDescriptor extends AbstractMToNConnectorDescriptor {
+    private static final long serialVersionUID = 1L;
+
+    public enum SkewHandling {
+        BROADCAST,
+        SPREAD
+    }
+
+    private final ITuplePartitionComputerFactory tpcf;
+    private final int[] keyFields;
+    private final IBinaryHashFunctionFactory[] hashFunctionFactories;
+    private final OperatorDescriptorId collectorId;
+    private final SkewHandling skewHandling;
+
+    public SkewAwareMToNPartitioningConnectorDescriptor(IConnectorDescriptorRegistry spec,
+            ITuplePartitionComputerFactory tpcf, int[] keyFields, IBinaryHashFunctionFactory[] hashFunctionFactories,
+            HeavyHitterCollectorOperatorDescriptor collector, SkewHandling skewHandling) {
+        super(spec);
+        this.tpcf = tpcf;
+        this.keyFields = keyFields;
+        this.hashFunctionFactories = hashFunctionFactories;
+        this.collectorId = collector.getOperatorId();
+        this.skewHandling = skewHandling;
+    }
+
+    @Override
+    public IFrameWriter createPartitioner(IHyracksTaskContext ctx, RecordDescriptor recordDesc,
+            IPartitionWriterFactory edwFactory, int index, int nProducerPartitions, int nConsumerPartitions)
+            throws HyracksDataException {
+        IBinaryHashFunction[] hashFunctions = new IBinaryHashFunction[hashFunctionFactories.length];
+        for (int i = 0; i < hashFunctionFactories.length; ++i) {
+            hashFunctions[i] = hashFunctionFactories[i].createBinaryHashFunction();
+        }
+        int[] heavyHitterHashes = HeavyHitterCollectorOperatorDescriptor.getHeavyHitters(ctx, collectorId, index);
+        return new SkewAwarePartitionDataWriter(ctx, nConsumerPartitions, edwFactory, recordDesc,
+                tpcf.createPartitioner(), keyFields, hashFunctions, heavyHitterHashes,
+                skewHandling == SkewHandling.BROADCAST, index);
+    }
+
+    @Override
+    public IPartitionCollector createPartitionCollector(IHyracksTaskContext ctx, RecordDescriptor recordDesc,
+            int index, int nProducerPartitions, int nConsumerPartitions) throws HyracksDataException {
+        BitSet expectedPartitions = new BitSet(nProducerPartitions);
+        expectedPartitions.set(0, nProducerPartitions);
+        NonDeterministicChannelReader channelReader = new NonDeterministicChannelReader(nProducerPartitions,
+                expectedPartitions);
+        NonDeterministicFrameReader frameReader = new NonDeterministicFrameReader(channelReader);
+        return new PartitionCollector(ctx, getConnectorId(), index, expectedPartitions, frameReader, channelReader);
+    }
+}
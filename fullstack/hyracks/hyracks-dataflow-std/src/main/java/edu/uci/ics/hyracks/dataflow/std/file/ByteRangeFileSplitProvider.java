@@ -0,0 +1,50 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.file;
+
+import edu.uci.ics.hyracks.api.io.FileReference;
+
+/**
+ * Cuts a single line-oriented file into one byte range per node, so that a {@link FileScanOperatorDescriptor} parses
+ * it in parallel. Every node must see the same file at the same path, and the file must not change after the splits
+ * are computed. See {@link LineAlignedRangeInputStream} for how the ranges are aligned to lines.
+ */
+public class ByteRangeFileSplitProvider implements IFileSplitProvider {
+    private static final long serialVersionUID = 1L;
+    private final FileSplit[] splits;
+
+    /**
+     * Reads the length of the file where the job is built, so the client must see the same file at the same path as
+     * the nodes. Otherwise pass the length explicitly.
+     */
+    public ByteRangeFileSplitProvider(String[] nodeNames, FileReference file) {
+        this(nodeNames, file, file.getFile().length());
+    }
+
+    public ByteRangeFileSplitProvider(String[] nodeNames, FileReference file, long fileLength) {
+        splits = new FileSplit[nodeNames.length];
+        long rangeLength = (fileLength + nodeNames.length - 1) / nodeNames.length;
+        for (int i = 0; i < nodeNames.length; ++i) {
+            long start = Math.min(fileLength, i * rangeLength);
+            long length = i == nodeNames.length - 1 ? -1 : Math.min(rangeLength, fileLength - start);
+            splits[i] = new FileSplit(nodeNames[i], file, start, length);
+        }
+    }
+
+    @Override
+    public FileSplit[] getFileSplits() {
+        return splits;
+    }
+}
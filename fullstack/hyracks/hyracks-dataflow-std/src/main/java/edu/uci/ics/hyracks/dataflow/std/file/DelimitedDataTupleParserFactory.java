@@ -17,9 +17,8 @@ package edu.uci.ics.hyracks.dataflow.std.file;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 
 import edu.uci.ics.hyracks.api.comm.IFrameWriter;
@@ -28,17 +27,46 @@ import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
 import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.IUTF8ValueParser;
 import edu.uci.ics.hyracks.dataflow.common.data.parsers.IValueParser;
 import edu.uci.ics.hyracks.dataflow.common.data.parsers.IValueParserFactory;
 
+/**
+ * Parses delimited UTF-8 text. Records and fields are found by scanning the raw bytes, and every field is handed
+ * to its value parser as bytes if the parser is an {@link IUTF8ValueParser}; only fields of other parsers are
+ * decoded into characters. Records end at '\n', '\r' or "\r\n". If a quote character is given, a field that starts
+ * with it extends to the matching closing quote and may contain delimiters, line breaks and doubled quotes, which
+ * stand for a single quote character.
+ */
 public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
     private static final long serialVersionUID = 1L;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int NO_QUOTE = 0x100;
+
     private IValueParserFactory[] valueParserFactories;
     private char fieldDelimiter;
+    private int quote;
 
     public DelimitedDataTupleParserFactory(IValueParserFactory[] fieldParserFactories, char fieldDelimiter) {
+        this(fieldParserFactories, fieldDelimiter, NO_QUOTE);
+    }
+
+    public DelimitedDataTupleParserFactory(IValueParserFactory[] fieldParserFactories, char fieldDelimiter,
+            char quote) {
+        this(fieldParserFactories, fieldDelimiter, (int) quote);
+    }
+
+    private DelimitedDataTupleParserFactory(IValueParserFactory[] fieldParserFactories, char fieldDelimiter,
+            int quote) {
+        if (fieldDelimiter > 0x7f || (quote != NO_QUOTE && quote > 0x7f)) {
+            throw new IllegalArgumentException("The field delimiter and the quote must be ASCII characters");
+        }
+        if (fieldDelimiter == quote || fieldDelimiter == '\n' || fieldDelimiter == '\r') {
+            throw new IllegalArgumentException("Invalid field delimiter " + (int) fieldDelimiter);
+        }
         this.valueParserFactories = fieldParserFactories;
         this.fieldDelimiter = fieldDelimiter;
+        this.quote = quote;
     }
 
     @Override
@@ -48,8 +76,12 @@ public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
             public void parse(InputStream in, IFrameWriter writer) throws HyracksDataException {
                 try {
                     IValueParser[] valueParsers = new IValueParser[valueParserFactories.length];
+                    IUTF8ValueParser[] utf8Parsers = new IUTF8ValueParser[valueParserFactories.length];
                     for (int i = 0; i < valueParserFactories.length; ++i) {
                         valueParsers[i] = valueParserFactories[i].createValueParser();
+                        if (valueParsers[i] instanceof IUTF8ValueParser) {
+                            utf8Parsers[i] = (IUTF8ValueParser) valueParsers[i];
+                        }
                     }
                     ByteBuffer frame = ctx.allocateFrame();
                     FrameTupleAppender appender = new FrameTupleAppender(ctx.getFrameSize());
@@ -57,14 +89,20 @@ public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
                     ArrayTupleBuilder tb = new ArrayTupleBuilder(valueParsers.length);
                     DataOutput dos = tb.getDataOutput();
 
-                    FieldCursor cursor = new FieldCursor(new InputStreamReader(in));
+                    FieldCursor cursor = new FieldCursor(in);
                     while (cursor.nextRecord()) {
                         tb.reset();
                         for (int i = 0; i < valueParsers.length; ++i) {
                             if (!cursor.nextField()) {
                                 break;
                             }
-                            valueParsers[i].parse(cursor.buffer, cursor.fStart, cursor.fEnd - cursor.fStart, dos);
+                            if (utf8Parsers[i] != null) {
+                                utf8Parsers[i].parse(cursor.buffer, cursor.fStart, cursor.fEnd - cursor.fStart, dos);
+                            } else {
+                                char[] chars = new String(cursor.buffer, cursor.fStart, cursor.fEnd - cursor.fStart,
+                                        UTF8).toCharArray();
+                                valueParsers[i].parse(chars, 0, chars.length, dos);
+                            }
                             tb.addFieldEndOffset();
                         }
                         if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
@@ -90,12 +128,12 @@ public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
     }
 
     private class FieldCursor {
-        private static final int INITIAL_BUFFER_SIZE = 4096;
-        private static final int INCREMENT = 4096;
+        private static final int INITIAL_BUFFER_SIZE = 32768;
+        private static final int INCREMENT = 32768;
 
-        private final Reader in;
+        private final InputStream in;
 
-        private char[] buffer;
+        private byte[] buffer;
         private int start;
         private int end;
         private State state;
@@ -103,9 +141,9 @@ public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
         private int fStart;
         private int fEnd;
 
-        public FieldCursor(Reader in) {
+        public FieldCursor(InputStream in) {
             this.in = in;
-            buffer = new char[INITIAL_BUFFER_SIZE];
+            buffer = new byte[INITIAL_BUFFER_SIZE];
             start = 0;
             end = 0;
             state = State.INIT;
@@ -125,6 +163,9 @@ public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
                         }
 
                     case IN_RECORD:
+                        // skip the fields that were not consumed; start is at the beginning of a field
+                        boolean inQuote = false;
+                        boolean quoteAllowed = true;
                         int p = start;
                         while (true) {
                             if (p >= end) {
@@ -136,8 +177,19 @@ public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
                                 }
                                 p -= (s - start);
                             }
-                            char ch = buffer[p];
-                            if (ch == '\n') {
+                            byte ch = buffer[p];
+                            if (inQuote) {
+                                // line breaks inside quotes do not end the record
+                                if (ch == quote) {
+                                    inQuote = false;
+                                    // a doubled quote reopens the field
+                                    quoteAllowed = true;
+                                }
+                            } else if (ch == quote && quoteAllowed) {
+                                inQuote = true;
+                            } else if (ch == fieldDelimiter) {
+                                quoteAllowed = true;
+                            } else if (ch == '\n') {
                                 start = p + 1;
                                 state = State.EOR;
                                 break;
@@ -145,6 +197,9 @@ public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
                                 start = p + 1;
                                 state = State.CR;
                                 break;
+                            } else {
+                                // a quote inside an unquoted field is an ordinary character
+                                quoteAllowed = false;
                             }
                             ++p;
                         }
@@ -158,7 +213,7 @@ public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
                                 return false;
                             }
                         }
-                        char ch = buffer[start];
+                        byte ch = buffer[start];
                         if (ch == '\n') {
                             ++start;
                             state = State.EOR;
@@ -193,6 +248,17 @@ public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
                     return false;
 
                 case IN_RECORD:
+                    if (quote != NO_QUOTE) {
+                        if (start >= end && !readMore()) {
+                            fStart = start;
+                            fEnd = start;
+                            state = State.EOF;
+                            return true;
+                        }
+                        if (buffer[start] == quote) {
+                            return nextQuotedField();
+                        }
+                    }
                     boolean eof;
                     int p = start;
                     while (true) {
@@ -200,12 +266,14 @@ public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
                             int s = start;
                             eof = !readMore();
                             if (eof) {
+                                fStart = start;
+                                fEnd = end;
                                 state = State.EOF;
                                 return true;
                             }
                             p -= (s - start);
                         }
-                        char ch = buffer[p];
+                        byte ch = buffer[p];
                         if (ch == fieldDelimiter) {
                             fStart = start;
                             fEnd = p;
@@ -230,6 +298,70 @@ public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
             throw new IllegalStateException();
         }
 
+        /**
+         * Reads a field starting with a quote. Doubled quotes are collapsed in place, so the field is still a
+         * contiguous range of the buffer.
+         */
+        private boolean nextQuotedField() throws IOException {
+            int p = start + 1;
+            boolean escaped = false;
+            boolean eof = false;
+            while (true) {
+                while (p + 1 >= end && !eof) {
+                    // the quote test below looks one byte ahead, and a read may return a single byte
+                    int s = start;
+                    eof = !readMore();
+                    p -= (s - start);
+                }
+                if (p >= end) {
+                    throw new IOException("Unterminated quoted field");
+                }
+                if (buffer[p] != quote) {
+                    ++p;
+                    continue;
+                }
+                if (p + 1 < end && buffer[p + 1] == quote) {
+                    escaped = true;
+                    p += 2;
+                    continue;
+                }
+                break;
+            }
+            // p is the closing quote
+            fStart = start + 1;
+            fEnd = escaped ? unescape(fStart, p) : p;
+            start = p + 1;
+            if (start >= end) {
+                // the look-ahead above only stops at the end of the buffer at EOF, so the quote ends the last record
+                state = State.EOF;
+                return true;
+            }
+            byte ch = buffer[start];
+            if (ch == fieldDelimiter) {
+                ++start;
+            } else if (ch == '\n') {
+                ++start;
+                state = State.EOR;
+            } else if (ch == '\r') {
+                ++start;
+                state = State.CR;
+            } else {
+                throw new IOException("Unexpected character " + (char) (ch & 0xff) + " after a quoted field");
+            }
+            return true;
+        }
+
+        private int unescape(int from, int to) {
+            int w = from;
+            for (int r = from; r < to; ++r) {
+                buffer[w++] = buffer[r];
+                if (buffer[r] == quote) {
+                    ++r;
+                }
+            }
+            return w;
+        }
+
         private boolean readMore() throws IOException {
             if (start > 0) {
                 System.arraycopy(buffer, start, buffer, 0, end - start);
@@ -249,4 +381,4 @@ public class DelimitedDataTupleParserFactory implements ITupleParserFactory {
             return true;
         }
     }
-}
\ No newline at end of file
+}
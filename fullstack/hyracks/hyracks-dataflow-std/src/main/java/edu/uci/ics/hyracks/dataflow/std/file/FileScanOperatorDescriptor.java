@@ -57,6 +57,9 @@ public class FileScanOperatorDescriptor extends AbstractSingleActivityOperatorDe
                     InputStream in;
                     try {
                         in = new FileInputStream(f);
+                        if (split.isByteRange()) {
+                            in = new LineAlignedRangeInputStream(in, split.getStart(), split.getLength());
+                        }
                     } catch (FileNotFoundException e) {
                         writer.fail();
                         throw new HyracksDataException(e);
@@ -26,14 +26,27 @@ public class FileSplit implements Serializable {
 
     private final FileReference file;
 
+    private final long start;
+
+    private final long length;
+
     public FileSplit(String nodeName, FileReference file) {
-        this.nodeName = nodeName;
-        this.file = file;
+        this(nodeName, file, 0, -1);
     }
 
     public FileSplit(String nodeName, String path) {
+        this(nodeName, new FileReference(new File(path)));
+    }
+
+    /**
+     * A split covering the records of the file that start in the byte range [start, start + length). A negative
+     * length extends the range to the end of the file.
+     */
+    public FileSplit(String nodeName, FileReference file, long start, long length) {
         this.nodeName = nodeName;
-        this.file = new FileReference(new File(path));
+        this.file = file;
+        this.start = start;
+        this.length = length;
     }
 
     public String getNodeName() {
@@ -43,4 +56,19 @@ public class FileSplit implements Serializable {
     public FileReference getLocalFile() {
         return file;
     }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return true if the split covers only part of the file
+     */
+    public boolean isByteRange() {
+        return start > 0 || length >= 0;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.file;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Restricts a stream positioned at the beginning of a file to the lines that start in the byte range
+ * [start, start + length). A line belongs to the range its first byte is in, so the range is extended up to the end
+ * of its last line and the partial line at its beginning is skipped, which is what the range before it reads. Lines
+ * must end with '\n' (possibly preceded by '\r') and must not contain quoted line breaks.
+ */
+public class LineAlignedRangeInputStream extends InputStream {
+    private final InputStream in;
+
+    private final long start;
+
+    private final long end;
+
+    private long pos;
+
+    private boolean aligned;
+
+    private boolean lastWasNewline;
+
+    private boolean done;
+
+    private final byte[] single = new byte[1];
+
+    /**
+     * @param length
+     *            the length of the range, or a negative value for a range that extends to the end of the file
+     */
+    public LineAlignedRangeInputStream(InputStream in, long start, long length) {
+        if (start < 0) {
+            throw new IllegalArgumentException("Negative start offset " + start);
+        }
+        this.in = in;
+        this.start = start;
+        this.end = length < 0 ? Long.MAX_VALUE : start + length;
+        pos = 0;
+        lastWasNewline = true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int n = read(single, 0, 1);
+        return n < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (!aligned) {
+            align();
+        }
+        if (done) {
+            return -1;
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (pos < end) {
+            int n = in.read(b, off, (int) Math.min(len, end - pos));
+            if (n < 0) {
+                done = true;
+                return -1;
+            }
+            pos += n;
+            lastWasNewline = b[off + n - 1] == '\n';
+            return n;
+        }
+        // past the end of the range: finish the line that started inside it
+        if (lastWasNewline) {
+            done = true;
+            return -1;
+        }
+        int n = in.read(b, off, len);
+        if (n < 0) {
+            done = true;
+            return -1;
+        }
+        for (int i = 0; i < n; ++i) {
+            if (b[off + i] == '\n') {
+                done = true;
+                return i + 1;
+            }
+        }
+        pos += n;
+        return n;
+    }
+
+    private void align() throws IOException {
+        aligned = true;
+        if (start > 0) {
+            skipFully(start - 1);
+            pos = start - 1;
+            // the byte before the range tells whether the range starts a line
+            while (true) {
+                int ch = in.read();
+                if (ch < 0) {
+                    done = true;
+                    return;
+                }
+                ++pos;
+                if (ch == '\n') {
+                    break;
+                }
+            }
+        }
+        if (pos >= end) {
+            done = true;
+        }
+    }
+
+    private void skipFully(long n) throws IOException {
+        while (n > 0) {
+            long skipped = in.skip(n);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Range starts at " + start + " beyond the end of the file");
+                }
+                skipped = 1;
+            }
+            n -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
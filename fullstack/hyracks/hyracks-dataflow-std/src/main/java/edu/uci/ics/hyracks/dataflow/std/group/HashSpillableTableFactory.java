@@ -34,8 +34,7 @@ import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTuplePairComparator;
 import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
-import edu.uci.ics.hyracks.dataflow.std.structures.ISerializableTable;
-import edu.uci.ics.hyracks.dataflow.std.structures.SerializableHashTable;
+import edu.uci.ics.hyracks.dataflow.std.structures.OpenAddressingHashTable;
 import edu.uci.ics.hyracks.dataflow.std.structures.TuplePointer;
 
 /**
@@ -126,7 +125,7 @@ public class HashSpillableTableFactory implements ISpillableTableFactory {
 
             private FrameTupleAppender stateAppender = new FrameTupleAppender(ctx.getFrameSize());
 
-            private final ISerializableTable table = new SerializableHashTable(tableSize, ctx);
+            private final OpenAddressingHashTable table = new OpenAddressingHashTable(tableSize, ctx);
             private final TuplePointer storedTuplePointer = new TuplePointer();
             private final List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
 
@@ -144,28 +143,23 @@ public class HashSpillableTableFactory implements ISpillableTableFactory {
                 tPointers = new int[totalTCount * 3];
                 int ptr = 0;
 
-                for (int i = 0; i < tableSize; i++) {
-                    int entry = i;
-                    int offset = 0;
-                    do {
-                        table.getTuplePointer(entry, offset, storedTuplePointer);
-                        if (storedTuplePointer.frameIndex < 0)
-                            break;
-                        tPointers[ptr * 3] = entry;
-                        tPointers[ptr * 3 + 1] = offset;
-                        table.getTuplePointer(entry, offset, storedTuplePointer);
-                        int fIndex = storedTuplePointer.frameIndex;
-                        int tIndex = storedTuplePointer.tupleIndex;
-                        storedKeysAccessor1.reset(frames.get(fIndex));
-                        int tStart = storedKeysAccessor1.getTupleStartOffset(tIndex);
-                        int f0StartRel = storedKeysAccessor1.getFieldStartOffset(tIndex, sfIdx);
-                        int f0EndRel = storedKeysAccessor1.getFieldEndOffset(tIndex, sfIdx);
-                        int f0Start = f0StartRel + tStart + storedKeysAccessor1.getFieldSlotsLength();
-                        tPointers[ptr * 3 + 2] = nkc == null ? 0 : nkc.normalize(storedKeysAccessor1.getBuffer()
-                                .array(), f0Start, f0EndRel - f0StartRel);
-                        ptr++;
-                        offset++;
-                    } while (true);
+                int slotCount = table.getSlotCount();
+                for (int slot = 0; slot < slotCount; slot++) {
+                    table.getTuplePointerAt(slot, storedTuplePointer);
+                    if (storedTuplePointer.frameIndex < 0)
+                        continue;
+                    int fIndex = storedTuplePointer.frameIndex;
+                    int tIndex = storedTuplePointer.tupleIndex;
+                    tPointers[ptr * 3] = fIndex;
+                    tPointers[ptr * 3 + 1] = tIndex;
+                    storedKeysAccessor1.reset(frames.get(fIndex));
+                    int tStart = storedKeysAccessor1.getTupleStartOffset(tIndex);
+                    int f0StartRel = storedKeysAccessor1.getFieldStartOffset(tIndex, sfIdx);
+                    int f0EndRel = storedKeysAccessor1.getFieldEndOffset(tIndex, sfIdx);
+                    int f0Start = f0StartRel + tStart + storedKeysAccessor1.getFieldSlotsLength();
+                    tPointers[ptr * 3 + 2] = nkc == null ? 0 : nkc.normalize(storedKeysAccessor1.getBuffer().array(),
+                            f0Start, f0EndRel - f0StartRel);
+                    ptr++;
                 }
                 /**
                  * Sort using quick sort
@@ -187,11 +181,11 @@ public class HashSpillableTableFactory implements ISpillableTableFactory {
             public boolean insert(FrameTupleAccessor accessor, int tIndex) throws HyracksDataException {
                 if (lastBufIndex < 0)
                     nextAvailableFrame();
-                int entry = tpc.partition(accessor, tIndex, tableSize);
+                int hash = tpc.partition(accessor, tIndex, OpenAddressingHashTable.HASH_RANGE);
                 boolean foundGroup = false;
                 int offset = 0;
                 do {
-                    table.getTuplePointer(entry, offset++, storedTuplePointer);
+                    table.getTuplePointer(hash, offset++, storedTuplePointer);
                     if (storedTuplePointer.frameIndex < 0)
                         break;
                     storedKeysAccessor1.reset(frames.get(storedTuplePointer.frameIndex));
@@ -224,7 +218,7 @@ public class HashSpillableTableFactory implements ISpillableTableFactory {
 
                     storedTuplePointer.frameIndex = lastBufIndex;
                     storedTuplePointer.tupleIndex = stateAppender.getTupleCount() - 1;
-                    table.insert(entry, storedTuplePointer);
+                    table.insert(hash, storedTuplePointer);
                 } else {
 
                     aggregator.aggregate(accessor, tIndex, storedKeysAccessor1, storedTuplePointer.tupleIndex,
@@ -258,46 +252,41 @@ public class HashSpillableTableFactory implements ISpillableTableFactory {
 
                 if (tPointers == null) {
                     // Not sorted
-                    for (int i = 0; i < tableSize; ++i) {
-                        int entry = i;
-                        int offset = 0;
-                        do {
-                            table.getTuplePointer(entry, offset++, storedTuplePointer);
-                            if (storedTuplePointer.frameIndex < 0)
-                                break;
-                            int bIndex = storedTuplePointer.frameIndex;
-                            int tIndex = storedTuplePointer.tupleIndex;
-
-                            storedKeysAccessor1.reset(frames.get(bIndex));
-
-                            outputTupleBuilder.reset();
-                            for (int k = 0; k < storedKeys.length; k++) {
-                                outputTupleBuilder.addField(storedKeysAccessor1, tIndex, storedKeys[k]);
-                            }
+                    int slotCount = table.getSlotCount();
+                    for (int slot = 0; slot < slotCount; ++slot) {
+                        table.getTuplePointerAt(slot, storedTuplePointer);
+                        if (storedTuplePointer.frameIndex < 0)
+                            continue;
+                        int bIndex = storedTuplePointer.frameIndex;
+                        int tIndex = storedTuplePointer.tupleIndex;
 
-                            if (isPartial) {
+                        storedKeysAccessor1.reset(frames.get(bIndex));
 
-                                aggregator.outputPartialResult(outputTupleBuilder, storedKeysAccessor1, tIndex,
-                                        aggregateState);
+                        outputTupleBuilder.reset();
+                        for (int k = 0; k < storedKeys.length; k++) {
+                            outputTupleBuilder.addField(storedKeysAccessor1, tIndex, storedKeys[k]);
+                        }
 
-                            } else {
+                        if (isPartial) {
 
-                                aggregator.outputFinalResult(outputTupleBuilder, storedKeysAccessor1, tIndex,
-                                        aggregateState);
-                            }
+                            aggregator.outputPartialResult(outputTupleBuilder, storedKeysAccessor1, tIndex,
+                                    aggregateState);
 
+                        } else {
+
+                            aggregator.outputFinalResult(outputTupleBuilder, storedKeysAccessor1, tIndex,
+                                    aggregateState);
+                        }
+
+                        if (!outputAppender.appendSkipEmptyField(outputTupleBuilder.getFieldEndOffsets(),
+                                outputTupleBuilder.getByteArray(), 0, outputTupleBuilder.getSize())) {
+                            FrameUtils.flushFrame(outputFrame, writer);
+                            outputAppender.reset(outputFrame, true);
                             if (!outputAppender.appendSkipEmptyField(outputTupleBuilder.getFieldEndOffsets(),
                                     outputTupleBuilder.getByteArray(), 0, outputTupleBuilder.getSize())) {
-                                FrameUtils.flushFrame(outputFrame, writer);
-                                outputAppender.reset(outputFrame, true);
-                                if (!outputAppender.appendSkipEmptyField(outputTupleBuilder.getFieldEndOffsets(),
-                                        outputTupleBuilder.getByteArray(), 0, outputTupleBuilder.getSize())) {
-                                    throw new HyracksDataException(
-                                            "The output item is too large to be fit into a frame.");
-                                }
+                                throw new HyracksDataException("The output item is too large to be fit into a frame.");
                             }
-
-                        } while (true);
+                        }
                     }
                     if (outputAppender.getTupleCount() > 0) {
                         FrameUtils.flushFrame(outputFrame, writer);
@@ -308,11 +297,8 @@ public class HashSpillableTableFactory implements ISpillableTableFactory {
                 }
                 int n = tPointers.length / 3;
                 for (int ptr = 0; ptr < n; ptr++) {
-                    int tableIndex = tPointers[ptr * 3];
-                    int rowIndex = tPointers[ptr * 3 + 1];
-                    table.getTuplePointer(tableIndex, rowIndex, storedTuplePointer);
-                    int frameIndex = storedTuplePointer.frameIndex;
-                    int tupleIndex = storedTuplePointer.tupleIndex;
+                    int frameIndex = tPointers[ptr * 3];
+                    int tupleIndex = tPointers[ptr * 3 + 1];
                     // Get the frame containing the value
                     ByteBuffer buffer = frames.get(frameIndex);
                     storedKeysAccessor1.reset(buffer);
@@ -393,13 +379,10 @@ public class HashSpillableTableFactory implements ISpillableTableFactory {
 
             private void sort(int[] tPointers, int offset, int length) {
                 int m = offset + (length >> 1);
-                int mTable = tPointers[m * 3];
-                int mRow = tPointers[m * 3 + 1];
+                int mFrame = tPointers[m * 3];
+                int mTuple = tPointers[m * 3 + 1];
                 int mNormKey = tPointers[m * 3 + 2];
 
-                table.getTuplePointer(mTable, mRow, storedTuplePointer);
-                int mFrame = storedTuplePointer.frameIndex;
-                int mTuple = storedTuplePointer.tupleIndex;
                 storedKeysAccessor1.reset(frames.get(mFrame));
 
                 int a = offset;
@@ -408,16 +391,13 @@ public class HashSpillableTableFactory implements ISpillableTableFactory {
                 int d = c;
                 while (true) {
                     while (b <= c) {
-                        int bTable = tPointers[b * 3];
-                        int bRow = tPointers[b * 3 + 1];
+                        int bFrame = tPointers[b * 3];
+                        int bTuple = tPointers[b * 3 + 1];
                         int bNormKey = tPointers[b * 3 + 2];
                         int cmp = 0;
                         if (bNormKey != mNormKey) {
                             cmp = ((((long) bNormKey) & 0xffffffffL) < (((long) mNormKey) & 0xffffffffL)) ? -1 : 1;
                         } else {
-                            table.getTuplePointer(bTable, bRow, storedTuplePointer);
-                            int bFrame = storedTuplePointer.frameIndex;
-                            int bTuple = storedTuplePointer.tupleIndex;
                             storedKeysAccessor2.reset(frames.get(bFrame));
                             cmp = ftpcTuple.compare(storedKeysAccessor2, bTuple, storedKeysAccessor1, mTuple);
                         }
@@ -430,16 +410,13 @@ public class HashSpillableTableFactory implements ISpillableTableFactory {
                         ++b;
                     }
                     while (c >= b) {
-                        int cTable = tPointers[c * 3];
-                        int cRow = tPointers[c * 3 + 1];
+                        int cFrame = tPointers[c * 3];
+                        int cTuple = tPointers[c * 3 + 1];
                         int cNormKey = tPointers[c * 3 + 2];
                         int cmp = 0;
                         if (cNormKey != mNormKey) {
                             cmp = ((((long) cNormKey) & 0xffffffffL) < (((long) mNormKey) & 0xffffffffL)) ? -1 : 1;
                         } else {
-                            table.getTuplePointer(cTable, cRow, storedTuplePointer);
-                            int cFrame = storedTuplePointer.frameIndex;
-                            int cTuple = storedTuplePointer.tupleIndex;
                             storedKeysAccessor2.reset(frames.get(cFrame));
                             cmp = ftpcTuple.compare(storedKeysAccessor2, cTuple, storedKeysAccessor1, mTuple);
                         }
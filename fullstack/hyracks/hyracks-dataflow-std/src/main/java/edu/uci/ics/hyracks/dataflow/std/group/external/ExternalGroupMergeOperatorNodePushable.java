@@ -167,7 +167,7 @@ class ExternalGroupMergeOperatorNodePushable extends AbstractUnaryOutputSourceOp
             runNumber = framesLimit - 2;
             newRun = ctx.getJobletContext().createManagedWorkspaceFile(
                     ExternalGroupOperatorDescriptor.class.getSimpleName());
-            writer = new RunFileWriter(newRun, ctx.getIOManager());
+            writer = new RunFileWriter(newRun, ctx);
             writer.open();
         }
         try {
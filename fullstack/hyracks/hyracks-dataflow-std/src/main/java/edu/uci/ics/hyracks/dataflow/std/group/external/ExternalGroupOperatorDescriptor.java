@@ -86,6 +86,11 @@ public class ExternalGroupOperatorDescriptor extends AbstractOperatorDescriptor
      * edu.uci.ics.hyracks.api.dataflow.IOperatorDescriptor#contributeActivities
      * (edu.uci.ics.hyracks.api.dataflow.IActivityGraphBuilder)
      */
+    @Override
+    public int getRequiredMemoryFrames() {
+        return framesLimit;
+    }
+
     @Override
     public void contributeActivities(IActivityGraphBuilder builder) {
         AggregateActivity aggregateAct = new AggregateActivity(new ActivityId(getOperatorId(), AGGREGATE_ACTIVITY_ID));
@@ -35,40 +35,22 @@ import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTuplePairComparator;
 import edu.uci.ics.hyracks.dataflow.std.group.AggregateState;
 import edu.uci.ics.hyracks.dataflow.std.group.IAggregatorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.group.IAggregatorDescriptorFactory;
+import edu.uci.ics.hyracks.dataflow.std.structures.OpenAddressingHashTable;
+import edu.uci.ics.hyracks.dataflow.std.structures.TuplePointer;
 
 class GroupingHashTable {
-    /**
-     * The pointers in the link store 3 int values for each entry in the
-     * hashtable: (bufferIdx, tIndex, accumulatorIdx).
-     * 
-     * @author vinayakb
-     */
-    private static class Link {
-        private static final int INIT_POINTERS_SIZE = 9;
-
-        int[] pointers;
-        int size;
-
-        Link() {
-            pointers = new int[INIT_POINTERS_SIZE];
-            size = 0;
-        }
-
-        void add(int bufferIdx, int tIndex, int accumulatorIdx) {
-            while (size + 3 > pointers.length) {
-                pointers = Arrays.copyOf(pointers, pointers.length * 2);
-            }
-            pointers[size++] = bufferIdx;
-            pointers[size++] = tIndex;
-            pointers[size++] = accumulatorIdx;
-        }
-    }
-
     private static final int INIT_AGG_STATE_SIZE = 8;
     private final IHyracksTaskContext ctx;
 
     private final List<ByteBuffer> buffers;
-    private final Link[] table;
+    /**
+     * Groups are appended to the buffers in the order their aggregate states
+     * are created, so the state of the group stored at (bufferIdx, tIndex) is
+     * bufferStartStates[bufferIdx] + tIndex.
+     */
+    private int[] bufferStartStates;
+    private final OpenAddressingHashTable table;
+    private final TuplePointer storedTuplePointer;
     /**
      * Aggregate states: a list of states for all groups maintained in the main
      * memory.
@@ -97,7 +79,9 @@ class GroupingHashTable {
         this.ctx = ctx;
 
         buffers = new ArrayList<ByteBuffer>();
-        table = new Link[tableSize];
+        bufferStartStates = new int[INIT_AGG_STATE_SIZE];
+        table = new OpenAddressingHashTable(tableSize, ctx);
+        storedTuplePointer = new TuplePointer();
 
         keys = fields;
         storedKeys = new int[fields.length];
@@ -149,25 +133,28 @@ class GroupingHashTable {
         buffers.add(buffer);
         appender.reset(buffer, true);
         ++lastBIndex;
+        if (lastBIndex >= bufferStartStates.length) {
+            bufferStartStates = Arrays.copyOf(bufferStartStates, bufferStartStates.length * 2);
+        }
     }
 
     void insert(FrameTupleAccessor accessor, int tIndex) throws Exception {
-        int entry = tpc.partition(accessor, tIndex, table.length);
-        Link link = table[entry];
-        if (link == null) {
-            link = table[entry] = new Link();
-        }
+        int hash = tpc.partition(accessor, tIndex, OpenAddressingHashTable.HASH_RANGE);
         int saIndex = -1;
-        for (int i = 0; i < link.size; i += 3) {
-            int sbIndex = link.pointers[i];
-            int stIndex = link.pointers[i + 1];
+        int offset = 0;
+        do {
+            table.getTuplePointer(hash, offset++, storedTuplePointer);
+            if (storedTuplePointer.frameIndex < 0)
+                break;
+            int sbIndex = storedTuplePointer.frameIndex;
+            int stIndex = storedTuplePointer.tupleIndex;
             storedKeysAccessor.reset(buffers.get(sbIndex));
             int c = ftpc.compare(accessor, tIndex, storedKeysAccessor, stIndex);
             if (c == 0) {
-                saIndex = link.pointers[i + 2];
+                saIndex = bufferStartStates[sbIndex] + stIndex;
                 break;
             }
-        }
+        } while (true);
         if (saIndex < 0) {
             // Did not find the key. Insert a new entry.
             saIndex = accumulatorSize++;
@@ -198,7 +185,10 @@ class GroupingHashTable {
 
             aggregateStates[saIndex] = newState;
 
-            link.add(lastBIndex, appender.getTupleCount() - 1, saIndex);
+            storedTuplePointer.frameIndex = lastBIndex;
+            storedTuplePointer.tupleIndex = appender.getTupleCount() - 1;
+            bufferStartStates[lastBIndex] = saIndex - storedTuplePointer.tupleIndex;
+            table.insert(hash, storedTuplePointer);
 
         } else {
             aggregator.aggregate(accessor, tIndex, null, 0, aggregateStates[saIndex]);
@@ -209,35 +199,33 @@ class GroupingHashTable {
         ByteBuffer buffer = ctx.allocateFrame();
         appender.reset(buffer, true);
 
-        for (int i = 0; i < table.length; ++i) {
-            Link link = table[i];
-            if (link != null) {
-                for (int j = 0; j < link.size; j += 3) {
-                    int bIndex = link.pointers[j];
-                    int tIndex = link.pointers[j + 1];
-                    int aIndex = link.pointers[j + 2];
-                    ByteBuffer keyBuffer = buffers.get(bIndex);
-                    storedKeysAccessor.reset(keyBuffer);
-
-                    // copy keys
-                    outputTupleBuilder.reset();
-                    for (int k = 0; k < storedKeys.length; k++) {
-                        outputTupleBuilder.addField(storedKeysAccessor, tIndex, storedKeys[k]);
-                    }
-
-                    aggregator.outputFinalResult(outputTupleBuilder, storedKeysAccessor, tIndex,
-                            aggregateStates[aIndex]);
-
-                    if (!appender.appendSkipEmptyField(outputTupleBuilder.getFieldEndOffsets(),
-                            outputTupleBuilder.getByteArray(), 0, outputTupleBuilder.getSize())) {
-                        writer.nextFrame(buffer);
-                        appender.reset(buffer, true);
-                        if (!appender.appendSkipEmptyField(outputTupleBuilder.getFieldEndOffsets(),
-                                outputTupleBuilder.getByteArray(), 0, outputTupleBuilder.getSize())) {
-                            throw new HyracksDataException("Cannot write the aggregation output into a frame.");
-                        }
-                    }
+        int slotCount = table.getSlotCount();
+        for (int slot = 0; slot < slotCount; ++slot) {
+            table.getTuplePointerAt(slot, storedTuplePointer);
+            if (storedTuplePointer.frameIndex < 0) {
+                continue;
+            }
+            int bIndex = storedTuplePointer.frameIndex;
+            int tIndex = storedTuplePointer.tupleIndex;
+            int aIndex = bufferStartStates[bIndex] + tIndex;
+            ByteBuffer keyBuffer = buffers.get(bIndex);
+            storedKeysAccessor.reset(keyBuffer);
+
+            // copy keys
+            outputTupleBuilder.reset();
+            for (int k = 0; k < storedKeys.length; k++) {
+                outputTupleBuilder.addField(storedKeysAccessor, tIndex, storedKeys[k]);
+            }
+
+            aggregator.outputFinalResult(outputTupleBuilder, storedKeysAccessor, tIndex, aggregateStates[aIndex]);
 
+            if (!appender.appendSkipEmptyField(outputTupleBuilder.getFieldEndOffsets(),
+                    outputTupleBuilder.getByteArray(), 0, outputTupleBuilder.getSize())) {
+                writer.nextFrame(buffer);
+                appender.reset(buffer, true);
+                if (!appender.appendSkipEmptyField(outputTupleBuilder.getFieldEndOffsets(),
+                        outputTupleBuilder.getByteArray(), 0, outputTupleBuilder.getSize())) {
+                    throw new HyracksDataException("Cannot write the aggregation output into a frame.");
                 }
             }
         }
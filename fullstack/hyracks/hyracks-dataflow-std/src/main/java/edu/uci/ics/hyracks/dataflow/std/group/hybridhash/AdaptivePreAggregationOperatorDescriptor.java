@@ -0,0 +1,285 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.group.hybridhash;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.IOperatorDescriptorRegistry;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractSingleActivityOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
+import edu.uci.ics.hyracks.dataflow.std.group.AggregateState;
+import edu.uci.ics.hyracks.dataflow.std.group.HashSpillableTableFactory;
+import edu.uci.ics.hyracks.dataflow.std.group.IAggregatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.group.IAggregatorDescriptorFactory;
+import edu.uci.ics.hyracks.dataflow.std.group.ISpillableTable;
+
+/**
+ * Local (pre-exchange) partial aggregation that never spills: whenever its hash table is full, the partial
+ * aggregates are sent downstream and the table is reset. Each time the table is emptied, the operator compares
+ * the number of groups emitted with the number of input tuples consumed since the previous flush; once that
+ * ratio reaches maxReductionRatio, pre-aggregation is not paying for itself and the operator switches to
+ * pass-through, converting every input tuple into a single-tuple partial aggregate without any hashing.
+ * The output always has the partial-result layout expected by the global merger.
+ */
+public class AdaptivePreAggregationOperatorDescriptor extends AbstractSingleActivityOperatorDescriptor {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] keyFields;
+    private final int framesLimit;
+    private final int tableSize;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final ITuplePartitionComputerFactory tpcf;
+    private final IAggregatorDescriptorFactory aggregatorFactory;
+    private final double maxReductionRatio;
+
+    public AdaptivePreAggregationOperatorDescriptor(IOperatorDescriptorRegistry spec, int[] keyFields,
+            int framesLimit, int tableSize, IBinaryComparatorFactory[] comparatorFactories,
+            ITuplePartitionComputerFactory tpcf, IAggregatorDescriptorFactory aggregatorFactory,
+            RecordDescriptor recordDescriptor, double maxReductionRatio) {
+        super(spec, 1, 1);
+        if (framesLimit <= 1) {
+            throw new IllegalStateException("frame limit should at least be 2, but it is " + framesLimit + "!");
+        }
+        this.keyFields = keyFields;
+        this.framesLimit = framesLimit;
+        this.tableSize = tableSize;
+        this.comparatorFactories = comparatorFactories;
+        this.tpcf = tpcf;
+        this.aggregatorFactory = aggregatorFactory;
+        this.maxReductionRatio = maxReductionRatio;
+        recordDescriptors[0] = recordDescriptor;
+    }
+
+    @Override
+    public int getRequiredMemoryFrames() {
+        return framesLimit;
+    }
+
+    @Override
+    public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+            final IRecordDescriptorProvider recordDescProvider, int partition, int nPartitions)
+            throws HyracksDataException {
+        final RecordDescriptor inRecordDescriptor = recordDescProvider.getInputRecordDescriptor(getActivityId(), 0);
+        final RecordDescriptor outRecordDescriptor = recordDescriptors[0];
+        final int[] keyFieldsInPartialResults = new int[keyFields.length];
+        for (int i = 0; i < keyFields.length; ++i) {
+            keyFieldsInPartialResults[i] = i;
+        }
+
+        return new AbstractUnaryInputUnaryOutputOperatorNodePushable() {
+            private final FrameTupleAccessor accessor = new FrameTupleAccessor(ctx.getFrameSize(),
+                    inRecordDescriptor);
+            private final CountingFrameWriter countingWriter = new CountingFrameWriter(ctx, outRecordDescriptor);
+            private ISpillableTable table;
+            private long tuplesSinceFlush;
+            private boolean passThrough;
+
+            private IAggregatorDescriptor passThroughAggregator;
+            private AggregateState passThroughState;
+            private ArrayTupleBuilder stateTupleBuilder;
+            private ArrayTupleBuilder outputTupleBuilder;
+            private FrameTupleAppender stateAppender;
+            private FrameTupleAccessor stateAccessor;
+            private ByteBuffer outFrame;
+            private FrameTupleAppender outAppender;
+
+            @Override
+            public void open() throws HyracksDataException {
+                writer.open();
+                countingWriter.setWriter(writer);
+                table = new HashSpillableTableFactory(tpcf, tableSize).buildSpillableTable(ctx, keyFields,
+                        comparatorFactories, null, aggregatorFactory, inRecordDescriptor, outRecordDescriptor,
+                        framesLimit - 1);
+                table.reset();
+                tuplesSinceFlush = 0;
+                passThrough = false;
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                accessor.reset(buffer);
+                int tupleCount = accessor.getTupleCount();
+                for (int i = 0; i < tupleCount; i++) {
+                    if (passThrough) {
+                        passTuple(i);
+                        continue;
+                    }
+                    if (!table.insert(accessor, i)) {
+                        flushTable();
+                        if (passThrough) {
+                            passTuple(i);
+                            continue;
+                        }
+                        if (!table.insert(accessor, i)) {
+                            throw new HyracksDataException(
+                                    "Failed to insert a new buffer into the aggregate operator!");
+                        }
+                    }
+                    tuplesSinceFlush++;
+                }
+            }
+
+            private void flushTable() throws HyracksDataException {
+                countingWriter.resetTupleCount();
+                table.flushFrames(countingWriter, true);
+                double ratio = tuplesSinceFlush == 0 ? 1.0 : (double) countingWriter.getTupleCount()
+                        / tuplesSinceFlush;
+                tuplesSinceFlush = 0;
+                if (ratio >= maxReductionRatio) {
+                    table.close();
+                    table = null;
+                    startPassThrough();
+                } else {
+                    table.reset();
+                }
+            }
+
+            private void startPassThrough() throws HyracksDataException {
+                passThrough = true;
+                passThroughAggregator = aggregatorFactory.createAggregator(ctx, inRecordDescriptor,
+                        outRecordDescriptor, keyFields, keyFieldsInPartialResults);
+                passThroughState = passThroughAggregator.createAggregateStates();
+                int stateFieldCount = outRecordDescriptor.getFields().length;
+                stateTupleBuilder = new ArrayTupleBuilder(keyFields.length < stateFieldCount ? stateFieldCount
+                        : stateFieldCount + 1);
+                outputTupleBuilder = new ArrayTupleBuilder(stateFieldCount);
+                stateAppender = new FrameTupleAppender(ctx.getFrameSize());
+                stateAppender.reset(ctx.allocateFrame(), true);
+                stateAccessor = new FrameTupleAccessor(ctx.getFrameSize(), outRecordDescriptor);
+                outFrame = ctx.allocateFrame();
+                outAppender = new FrameTupleAppender(ctx.getFrameSize());
+                outAppender.reset(outFrame, true);
+            }
+
+            private void passTuple(int tIndex) throws HyracksDataException {
+                stateTupleBuilder.reset();
+                for (int k = 0; k < keyFields.length; k++) {
+                    stateTupleBuilder.addField(accessor, tIndex, keyFields[k]);
+                }
+                passThroughAggregator.init(stateTupleBuilder, accessor, tIndex, passThroughState);
+                if (!stateAppender.appendSkipEmptyField(stateTupleBuilder.getFieldEndOffsets(),
+                        stateTupleBuilder.getByteArray(), 0, stateTupleBuilder.getSize())) {
+                    stateAppender.reset(stateAppender.getBuffer(), true);
+                    if (!stateAppender.appendSkipEmptyField(stateTupleBuilder.getFieldEndOffsets(),
+                            stateTupleBuilder.getByteArray(), 0, stateTupleBuilder.getSize())) {
+                        throw new HyracksDataException("Cannot init aggregate state in a frame.");
+                    }
+                }
+                stateAccessor.reset(stateAppender.getBuffer());
+                int stateIndex = stateAppender.getTupleCount() - 1;
+
+                outputTupleBuilder.reset();
+                for (int k = 0; k < keyFields.length; k++) {
+                    outputTupleBuilder.addField(stateAccessor, stateIndex, keyFieldsInPartialResults[k]);
+                }
+                passThroughAggregator.outputPartialResult(outputTupleBuilder, stateAccessor, stateIndex,
+                        passThroughState);
+                if (!outAppender.appendSkipEmptyField(outputTupleBuilder.getFieldEndOffsets(),
+                        outputTupleBuilder.getByteArray(), 0, outputTupleBuilder.getSize())) {
+                    FrameUtils.flushFrame(outFrame, writer);
+                    outAppender.reset(outFrame, true);
+                    if (!outAppender.appendSkipEmptyField(outputTupleBuilder.getFieldEndOffsets(),
+                            outputTupleBuilder.getByteArray(), 0, outputTupleBuilder.getSize())) {
+                        throw new HyracksDataException("The output item is too large to be fit into a frame.");
+                    }
+                }
+            }
+
+            @Override
+            public void fail() throws HyracksDataException {
+                writer.fail();
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                try {
+                    if (table != null) {
+                        table.flushFrames(writer, true);
+                        table.close();
+                        table = null;
+                    }
+                    if (passThrough) {
+                        if (outAppender.getTupleCount() > 0) {
+                            FrameUtils.flushFrame(outFrame, writer);
+                        }
+                        passThroughAggregator.close();
+                        passThroughState.close();
+                    }
+                } finally {
+                    writer.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Forwards frames while counting the tuples that pass through.
+     */
+    private static class CountingFrameWriter implements IFrameWriter {
+        private final FrameTupleAccessor accessor;
+        private IFrameWriter writer;
+        private long tupleCount;
+
+        CountingFrameWriter(IHyracksTaskContext ctx, RecordDescriptor recordDescriptor) {
+            accessor = new FrameTupleAccessor(ctx.getFrameSize(), recordDescriptor);
+        }
+
+        void setWriter(IFrameWriter writer) {
+            this.writer = writer;
+        }
+
+        void resetTupleCount() {
+            tupleCount = 0;
+        }
+
+        long getTupleCount() {
+            return tupleCount;
+        }
+
+        @Override
+        public void open() throws HyracksDataException {
+            writer.open();
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            accessor.reset(buffer);
+            tupleCount += accessor.getTupleCount();
+            writer.nextFrame(buffer);
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+            writer.fail();
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+            writer.close();
+        }
+    }
+}
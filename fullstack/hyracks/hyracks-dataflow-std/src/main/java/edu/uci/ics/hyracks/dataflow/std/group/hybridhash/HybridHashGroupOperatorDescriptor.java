@@ -0,0 +1,97 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.group.hybridhash;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFamily;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.IOperatorDescriptorRegistry;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractSingleActivityOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.group.IAggregatorDescriptorFactory;
+
+/**
+ * Hash-based group-by that spills hash partitions instead of sorted runs.
+ * Input tuples are hash-partitioned into numPartitions partitions, and each partition is aggregated in an in-memory
+ * hash table of its own. Whenever the tables together run out of frames, the largest partition is spilled: its
+ * partial aggregates are written to a run file and its table is released, so the remaining partitions stay
+ * resident. Later tuples of a spilled partition are pre-aggregated in a one-frame table and appended to its run.
+ * After the input is exhausted, the resident partitions emit their final results directly, and every partition run
+ * is aggregated recursively with the merger, using a different member of the hash function family at each level,
+ * until a partition fits in memory. An input that fits in memory is never written to disk.
+ * Unlike {@link edu.uci.ics.hyracks.dataflow.std.group.external.ExternalGroupOperatorDescriptor}, neither the
+ * in-memory tables nor the runs are ever sorted, so high-cardinality group-bys stay hash-based; the output is
+ * unordered.
+ */
+public class HybridHashGroupOperatorDescriptor extends AbstractSingleActivityOperatorDescriptor {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] keyFields;
+    private final int framesLimit;
+    private final int numPartitions;
+    private final int tableSize;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final IBinaryHashFunctionFamily[] hashFunctionFamilies;
+    private final IAggregatorDescriptorFactory aggregatorFactory;
+    private final IAggregatorDescriptorFactory mergerFactory;
+
+    public HybridHashGroupOperatorDescriptor(IOperatorDescriptorRegistry spec, int[] keyFields, int framesLimit,
+            int numPartitions, int tableSize, IBinaryComparatorFactory[] comparatorFactories,
+            IBinaryHashFunctionFamily[] hashFunctionFamilies, IAggregatorDescriptorFactory aggregatorFactory,
+            IAggregatorDescriptorFactory mergerFactory, RecordDescriptor recordDescriptor) {
+        super(spec, 1, 1);
+        if (numPartitions <= 0) {
+            throw new IllegalStateException("number of partitions should be positive, but it is " + numPartitions
+                    + "!");
+        }
+        if (framesLimit < numPartitions + 5) {
+            /**
+             * One output frame per spilled partition, one frame for the
+             * table of spilled tuples, one frame for flushing a table, one
+             * frame for reading back a spilled partition, and at least two
+             * frames for the tables of resident partitions, one of which
+             * only holds the tuples that trigger the next spill.
+             */
+            throw new IllegalStateException("frame limit should be at least " + (numPartitions + 5)
+                    + ", but it is " + framesLimit + "!");
+        }
+        this.keyFields = keyFields;
+        this.framesLimit = framesLimit;
+        this.numPartitions = numPartitions;
+        this.tableSize = tableSize;
+        this.comparatorFactories = comparatorFactories;
+        this.hashFunctionFamilies = hashFunctionFamilies;
+        this.aggregatorFactory = aggregatorFactory;
+        this.mergerFactory = mergerFactory;
+        recordDescriptors[0] = recordDescriptor;
+    }
+
+    @Override
+    public int getRequiredMemoryFrames() {
+        return framesLimit;
+    }
+
+    @Override
+    public IOperatorNodePushable createPushRuntime(IHyracksTaskContext ctx,
+            IRecordDescriptorProvider recordDescProvider, int partition, int nPartitions)
+            throws HyracksDataException {
+        return new HybridHashGroupOperatorNodePushable(ctx, keyFields, framesLimit, numPartitions, tableSize,
+                comparatorFactories, hashFunctionFamilies, aggregatorFactory, mergerFactory,
+                recordDescProvider.getInputRecordDescriptor(getActivityId(), 0), recordDescriptors[0]);
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.group.hybridhash;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFamily;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.FieldHashPartitionComputerFamily;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.SeededPartitionComputerFactory;
+import edu.uci.ics.hyracks.dataflow.common.io.RunFileReader;
+import edu.uci.ics.hyracks.dataflow.common.io.RunFileWriter;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
+import edu.uci.ics.hyracks.dataflow.std.group.HashSpillableTableFactory;
+import edu.uci.ics.hyracks.dataflow.std.group.IAggregatorDescriptorFactory;
+import edu.uci.ics.hyracks.dataflow.std.group.ISpillableTable;
+
+class HybridHashGroupOperatorNodePushable extends AbstractUnaryInputUnaryOutputOperatorNodePushable {
+    /**
+     * Every level partitions by a fresh hash function, so a partition that
+     * still does not fit after this many levels indicates a broken hash
+     * function family rather than a large input.
+     */
+    private static final int MAX_RECURSION_LEVEL = 16;
+
+    private final IHyracksTaskContext ctx;
+    private final int[] keyFields;
+    private final int[] storedKeys;
+    private final int numPartitions;
+    private final int tableSize;
+    private final int tableFramesLimit;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final IAggregatorDescriptorFactory aggregatorFactory;
+    private final IAggregatorDescriptorFactory mergerFactory;
+    private final RecordDescriptor inRecordDescriptor;
+    private final RecordDescriptor outRecordDescriptor;
+    private final FieldHashPartitionComputerFamily rawKeyPartitionerFamily;
+    private final FieldHashPartitionComputerFamily storedKeyPartitionerFamily;
+
+    private GroupingLevel rootLevel;
+
+    HybridHashGroupOperatorNodePushable(IHyracksTaskContext ctx, int[] keyFields, int framesLimit, int numPartitions,
+            int tableSize, IBinaryComparatorFactory[] comparatorFactories,
+            IBinaryHashFunctionFamily[] hashFunctionFamilies, IAggregatorDescriptorFactory aggregatorFactory,
+            IAggregatorDescriptorFactory mergerFactory, RecordDescriptor inRecordDescriptor,
+            RecordDescriptor outRecordDescriptor) {
+        this.ctx = ctx;
+        this.keyFields = keyFields;
+        this.storedKeys = new int[keyFields.length];
+        for (int i = 0; i < keyFields.length; ++i) {
+            storedKeys[i] = i;
+        }
+        this.numPartitions = numPartitions;
+        this.tableSize = tableSize;
+        this.tableFramesLimit = framesLimit - numPartitions - 4;
+        this.comparatorFactories = comparatorFactories;
+        this.aggregatorFactory = aggregatorFactory;
+        this.mergerFactory = mergerFactory;
+        this.inRecordDescriptor = inRecordDescriptor;
+        this.outRecordDescriptor = outRecordDescriptor;
+        this.rawKeyPartitionerFamily = new FieldHashPartitionComputerFamily(keyFields, hashFunctionFamilies);
+        this.storedKeyPartitionerFamily = new FieldHashPartitionComputerFamily(storedKeys, hashFunctionFamilies);
+    }
+
+    @Override
+    public void open() throws HyracksDataException {
+        writer.open();
+        rootLevel = new GroupingLevel(0);
+    }
+
+    @Override
+    public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        rootLevel.insertFrame(buffer);
+    }
+
+    @Override
+    public void fail() throws HyracksDataException {
+        writer.fail();
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        try {
+            rootLevel.finish();
+        } catch (HyracksDataException e) {
+            writer.fail();
+            throw e;
+        } finally {
+            rootLevel = null;
+            writer.close();
+        }
+    }
+
+    /**
+     * One aggregation pass. Level 0 consumes the raw input with the
+     * aggregator; deeper levels consume spilled partial results with the
+     * merger. Level i uses seed 2i of the hash function family to assign
+     * groups to partitions and seed 2i+1 inside its hash tables, so neither
+     * correlates with the partitioning that produced its input.
+     * Every partition is aggregated in a hash table of its own while it is
+     * resident. When the tables together exceed the frame limit, the largest
+     * resident partition is spilled: its partial aggregates are written to
+     * its run and its table is closed. The input of spilled partitions is
+     * pre-aggregated in a one-frame staging table that is flushed to the
+     * runs whenever it fills up. Resident partitions never touch the disk;
+     * their results are emitted when the level finishes, after which every
+     * spilled partition is aggregated by the next level.
+     */
+    private class GroupingLevel {
+        private final int level;
+        private final IAggregatorDescriptorFactory levelAggregatorFactory;
+        private final int[] levelKeys;
+        private final RecordDescriptor levelRecordDescriptor;
+        private final HashSpillableTableFactory tableFactory;
+        private final ITuplePartitionComputer partitioner;
+        private final ISpillableTable[] tables;
+        private final boolean[] spilled;
+        private final FrameTupleAccessor accessor;
+        private int tableFrames;
+        private ISpillableTable stagingTable;
+        private PartitionedRunWriter spillWriter;
+
+        GroupingLevel(int level) throws HyracksDataException {
+            if (level > MAX_RECURSION_LEVEL) {
+                throw new HyracksDataException("Hybrid hash group-by did not converge after " + MAX_RECURSION_LEVEL
+                        + " levels of partitioning");
+            }
+            this.level = level;
+            boolean rawInput = level == 0;
+            FieldHashPartitionComputerFamily levelPartitionerFamily = rawInput ? rawKeyPartitionerFamily
+                    : storedKeyPartitionerFamily;
+            levelAggregatorFactory = rawInput ? aggregatorFactory : mergerFactory;
+            levelKeys = rawInput ? keyFields : storedKeys;
+            levelRecordDescriptor = rawInput ? inRecordDescriptor : outRecordDescriptor;
+            tableFactory = new HashSpillableTableFactory(new SeededPartitionComputerFactory(levelPartitionerFamily,
+                    level * 2 + 1), Math.max(1, tableSize / numPartitions));
+            partitioner = levelPartitionerFamily.createPartitioner(level * 2);
+            tables = new ISpillableTable[numPartitions];
+            spilled = new boolean[numPartitions];
+            accessor = new FrameTupleAccessor(ctx.getFrameSize(), levelRecordDescriptor);
+        }
+
+        void insertFrame(ByteBuffer buffer) throws HyracksDataException {
+            accessor.reset(buffer);
+            int tupleCount = accessor.getTupleCount();
+            for (int i = 0; i < tupleCount; i++) {
+                int p = partitioner.partition(accessor, i, numPartitions);
+                if (spilled[p]) {
+                    stage(i);
+                    continue;
+                }
+                if (tables[p] == null) {
+                    // the frame that overflows the limit is released right away by spilling the largest table
+                    tables[p] = buildTable(tableFramesLimit + 1);
+                }
+                int framesBefore = tables[p].getFrames().size();
+                if (!tables[p].insert(accessor, i)) {
+                    throw new HyracksDataException("Failed to insert a new buffer into the aggregate operator!");
+                }
+                tableFrames += tables[p].getFrames().size() - framesBefore;
+                if (tableFrames > tableFramesLimit) {
+                    spillLargestPartition();
+                }
+            }
+        }
+
+        private ISpillableTable buildTable(int framesLimit) throws HyracksDataException {
+            ISpillableTable table = tableFactory.buildSpillableTable(ctx, levelKeys, comparatorFactories, null,
+                    levelAggregatorFactory, levelRecordDescriptor, outRecordDescriptor, framesLimit);
+            table.reset();
+            return table;
+        }
+
+        private void stage(int tIndex) throws HyracksDataException {
+            if (!stagingTable.insert(accessor, tIndex)) {
+                stagingTable.flushFrames(spillWriter, true);
+                stagingTable.reset();
+                if (!stagingTable.insert(accessor, tIndex)) {
+                    throw new HyracksDataException("Failed to insert a new buffer into the aggregate operator!");
+                }
+            }
+        }
+
+        private void spillLargestPartition() throws HyracksDataException {
+            int victim = -1;
+            for (int p = 0; p < numPartitions; ++p) {
+                if (tables[p] != null
+                        && (victim < 0 || tables[p].getFrames().size() > tables[victim].getFrames().size())) {
+                    victim = p;
+                }
+            }
+            if (spillWriter == null) {
+                spillWriter = new PartitionedRunWriter(storedKeyPartitionerFamily.createPartitioner(level * 2));
+                spillWriter.open();
+                stagingTable = buildTable(1);
+            }
+            tables[victim].flushFrames(spillWriter, true);
+            tableFrames -= tables[victim].getFrames().size();
+            tables[victim].close();
+            tables[victim] = null;
+            spilled[victim] = true;
+        }
+
+        void finish() throws HyracksDataException {
+            for (int p = 0; p < numPartitions; ++p) {
+                if (tables[p] != null) {
+                    tables[p].flushFrames(writer, false);
+                    tables[p].close();
+                    tables[p] = null;
+                }
+            }
+            tableFrames = 0;
+            if (spillWriter == null) {
+                return;
+            }
+            stagingTable.flushFrames(spillWriter, true);
+            stagingTable.close();
+            stagingTable = null;
+            spillWriter.close();
+            RunFileReader[] runs = spillWriter.getRuns();
+            spillWriter = null;
+            ByteBuffer inFrame = ctx.allocateFrame();
+            for (int i = 0; i < runs.length; ++i) {
+                if (runs[i] == null) {
+                    continue;
+                }
+                GroupingLevel child = new GroupingLevel(level + 1);
+                runs[i].open();
+                try {
+                    while (runs[i].nextFrame(inFrame)) {
+                        child.insertFrame(inFrame);
+                    }
+                } finally {
+                    runs[i].close();
+                }
+                runs[i] = null;
+                child.finish();
+            }
+        }
+    }
+
+    /**
+     * Routes partial aggregates to one run file per partition; run files are
+     * only created for partitions that receive tuples.
+     */
+    private class PartitionedRunWriter implements IFrameWriter {
+        private final ITuplePartitionComputer tpc;
+        private final FrameTupleAccessor partialAccessor;
+        private final FrameTupleAppender[] appenders;
+        private final RunFileWriter[] runWriters;
+
+        PartitionedRunWriter(ITuplePartitionComputer tpc) {
+            this.tpc = tpc;
+            partialAccessor = new FrameTupleAccessor(ctx.getFrameSize(), outRecordDescriptor);
+            appenders = new FrameTupleAppender[numPartitions];
+            runWriters = new RunFileWriter[numPartitions];
+        }
+
+        @Override
+        public void open() throws HyracksDataException {
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            partialAccessor.reset(buffer);
+            int tupleCount = partialAccessor.getTupleCount();
+            for (int i = 0; i < tupleCount; ++i) {
+                int p = tpc.partition(partialAccessor, i, numPartitions);
+                if (appenders[p] == null) {
+                    createRun(p);
+                }
+                FrameTupleAppender appender = appenders[p];
+                if (!appender.append(partialAccessor, i)) {
+                    FrameUtils.flushFrame(appender.getBuffer(), runWriters[p]);
+                    appender.reset(appender.getBuffer(), true);
+                    if (!appender.append(partialAccessor, i)) {
+                        throw new HyracksDataException("The output item is too large to be fit into a frame.");
+                    }
+                }
+            }
+        }
+
+        private void createRun(int p) throws HyracksDataException {
+            FileReference runFile;
+            try {
+                runFile = ctx.getJobletContext().createManagedWorkspaceFile(
+                        HybridHashGroupOperatorDescriptor.class.getSimpleName());
+            } catch (IOException e) {
+                throw new HyracksDataException(e);
+            }
+            runWriters[p] = new RunFileWriter(runFile, ctx);
+            runWriters[p].open();
+            appenders[p] = new FrameTupleAppender(ctx.getFrameSize());
+            appenders[p].reset(ctx.allocateFrame(), true);
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+            for (int i = 0; i < numPartitions; ++i) {
+                if (runWriters[i] != null) {
+                    runWriters[i].fail();
+                }
+            }
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+            for (int i = 0; i < numPartitions; ++i) {
+                if (runWriters[i] != null) {
+                    if (appenders[i].getTupleCount() > 0) {
+                        FrameUtils.flushFrame(appenders[i].getBuffer(), runWriters[i]);
+                    }
+                    runWriters[i].close();
+                    appenders[i] = null;
+                }
+            }
+        }
+
+        RunFileReader[] getRuns() throws HyracksDataException {
+            RunFileReader[] runs = new RunFileReader[numPartitions];
+            for (int i = 0; i < numPartitions; ++i) {
+                if (runWriters[i] != null) {
+                    runs[i] = runWriters[i].createReader();
+                }
+            }
+            return runs;
+        }
+    }
+}
@@ -42,7 +42,6 @@ import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTuplePairComparator;
 import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
 import edu.uci.ics.hyracks.dataflow.common.data.partition.FieldHashPartitionComputerFactory;
-import edu.uci.ics.hyracks.dataflow.common.data.partition.RepartitionComputerFactory;
 import edu.uci.ics.hyracks.dataflow.common.io.RunFileReader;
 import edu.uci.ics.hyracks.dataflow.common.io.RunFileWriter;
 import edu.uci.ics.hyracks.dataflow.std.base.AbstractActivityNode;
@@ -50,8 +49,7 @@ import edu.uci.ics.hyracks.dataflow.std.base.AbstractOperatorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.base.AbstractStateObject;
 import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputSinkOperatorNodePushable;
 import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
-import edu.uci.ics.hyracks.dataflow.std.structures.ISerializableTable;
-import edu.uci.ics.hyracks.dataflow.std.structures.SerializableHashTable;
+import edu.uci.ics.hyracks.dataflow.std.structures.OpenAddressingHashTable;
 
 public class HybridHashJoinOperatorDescriptor extends AbstractOperatorDescriptor {
     private static final int BUILD_AND_PARTITION_ACTIVITY_ID = 0;
@@ -121,6 +119,11 @@ public class HybridHashJoinOperatorDescriptor extends AbstractOperatorDescriptor
         recordDescriptors[0] = recordDescriptor;
     }
 
+    @Override
+    public int getRequiredMemoryFrames() {
+        return memsize;
+    }
+
     @Override
     public void contributeActivities(IActivityGraphBuilder builder) {
         ActivityId p1Aid = new ActivityId(odId, BUILD_AND_PARTITION_ACTIVITY_ID);
@@ -311,8 +314,8 @@ public class HybridHashJoinOperatorDescriptor extends AbstractOperatorDescriptor
                     ITuplePartitionComputer hpc1 = new FieldHashPartitionComputerFactory(keys1, hashFunctionFactories)
                             .createPartitioner();
                     int tableSize = (int) (state.memoryForHashtable * recordsPerFrame * factor);
-                    ISerializableTable table = new SerializableHashTable(tableSize, ctx);
-                    state.joiner = new InMemoryHashJoin(ctx, tableSize,
+                    OpenAddressingHashTable table = new OpenAddressingHashTable(tableSize, ctx);
+                    state.joiner = new InMemoryHashJoin(ctx,
                             new FrameTupleAccessor(ctx.getFrameSize(), rd0), hpc0, new FrameTupleAccessor(
                                     ctx.getFrameSize(), rd1), hpc1, new FrameTuplePairComparator(keys0, keys1,
                                     comparators), isLeftOuter, nullWriters1, table);
@@ -341,7 +344,7 @@ public class HybridHashJoinOperatorDescriptor extends AbstractOperatorDescriptor
                     if (writer == null) {
                         FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
                                 BuildAndPartitionActivityNode.class.getSimpleName());
-                        writer = new RunFileWriter(file, ctx.getIOManager());
+                        writer = new RunFileWriter(file, ctx);
                         writer.open();
                         state.fWriters[i] = writer;
                     }
@@ -469,10 +472,8 @@ public class HybridHashJoinOperatorDescriptor extends AbstractOperatorDescriptor
                 public void close() throws HyracksDataException {
                     state.joiner.join(inBuffer, writer);
                     state.joiner.closeJoin(writer);
-                    ITuplePartitionComputer hpcRep0 = new RepartitionComputerFactory(state.nPartitions, hpcf0)
-                            .createPartitioner();
-                    ITuplePartitionComputer hpcRep1 = new RepartitionComputerFactory(state.nPartitions, hpcf1)
-                            .createPartitioner();
+                    ITuplePartitionComputer hpc0 = hpcf0.createPartitioner();
+                    ITuplePartitionComputer hpc1 = hpcf1.createPartitioner();
                     if (state.memoryForHashtable != memsize - 2) {
                         for (int i = 0; i < state.nPartitions; i++) {
                             ByteBuffer buf = bufferForPartitions[i];
@@ -496,10 +497,10 @@ public class HybridHashJoinOperatorDescriptor extends AbstractOperatorDescriptor
                             if ((buildWriter == null && !isLeftOuter) || probeWriter == null) {
                                 continue;
                             }
-                            ISerializableTable table = new SerializableHashTable(tableSize, ctx);
-                            InMemoryHashJoin joiner = new InMemoryHashJoin(ctx, tableSize, new FrameTupleAccessor(
-                                    ctx.getFrameSize(), rd0), hpcRep0, new FrameTupleAccessor(ctx.getFrameSize(), rd1),
-                                    hpcRep1, new FrameTuplePairComparator(keys0, keys1, comparators), isLeftOuter,
+                            OpenAddressingHashTable table = new OpenAddressingHashTable(tableSize, ctx);
+                            InMemoryHashJoin joiner = new InMemoryHashJoin(ctx, new FrameTupleAccessor(
+                                    ctx.getFrameSize(), rd0), hpc0, new FrameTupleAccessor(ctx.getFrameSize(), rd1),
+                                    hpc1, new FrameTuplePairComparator(keys0, keys1, comparators), isLeftOuter,
                                     nullWriters1, table);
 
                             if (buildWriter != null) {
@@ -540,7 +541,7 @@ public class HybridHashJoinOperatorDescriptor extends AbstractOperatorDescriptor
                     if (writer == null) {
                         FileReference file = ctx.createManagedWorkspaceFile(PartitionAndJoinActivityNode.class
                                 .getSimpleName());
-                        writer = new RunFileWriter(file, ctx.getIOManager());
+                        writer = new RunFileWriter(file, ctx);
                         writer.open();
                         probeWriters[i] = writer;
                     }
@@ -28,7 +28,7 @@ import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
 import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTuplePairComparator;
-import edu.uci.ics.hyracks.dataflow.std.structures.ISerializableTable;
+import edu.uci.ics.hyracks.dataflow.std.structures.OpenAddressingHashTable;
 import edu.uci.ics.hyracks.dataflow.std.structures.TuplePointer;
 
 public class InMemoryHashJoin {
@@ -43,23 +43,26 @@ public class InMemoryHashJoin {
     private final ByteBuffer outBuffer;
     private final boolean isLeftOuter;
     private final ArrayTupleBuilder nullTupleBuild;
-    private final ISerializableTable table;
-    private final int tableSize;
+    private final OpenAddressingHashTable table;
     private final TuplePointer storedTuplePointer;
     private final boolean reverseOutputOrder; //Should we reverse the order of tuples, we are writing in output
 
-    public InMemoryHashJoin(IHyracksTaskContext ctx, int tableSize, FrameTupleAccessor accessor0,
-            ITuplePartitionComputer tpc0, FrameTupleAccessor accessor1, ITuplePartitionComputer tpc1,
-            FrameTuplePairComparator comparator, boolean isLeftOuter, INullWriter[] nullWriters1,
-            ISerializableTable table) throws HyracksDataException {
-        this(ctx, tableSize, accessor0, tpc0, accessor1, tpc1, comparator, isLeftOuter, nullWriters1, table, false);
+    public InMemoryHashJoin(IHyracksTaskContext ctx, FrameTupleAccessor accessor0, ITuplePartitionComputer tpc0,
+            FrameTupleAccessor accessor1, ITuplePartitionComputer tpc1, FrameTuplePairComparator comparator,
+            boolean isLeftOuter, INullWriter[] nullWriters1, OpenAddressingHashTable table)
+            throws HyracksDataException {
+        this(ctx, accessor0, tpc0, accessor1, tpc1, comparator, isLeftOuter, nullWriters1, table, false);
     }
 
-    public InMemoryHashJoin(IHyracksTaskContext ctx, int tableSize, FrameTupleAccessor accessor0,
-            ITuplePartitionComputer tpc0, FrameTupleAccessor accessor1, ITuplePartitionComputer tpc1,
-            FrameTuplePairComparator comparator, boolean isLeftOuter, INullWriter[] nullWriters1,
-            ISerializableTable table, boolean reverse) throws HyracksDataException {
-        this.tableSize = tableSize;
+    /**
+     * The partition computers hash the keys of the two inputs: their results for
+     * {@link OpenAddressingHashTable#HASH_RANGE} partitions are the hashes the table is keyed by, so they must agree
+     * on equal keys and must not scale the number of partitions, as repartitioning computers do.
+     */
+    public InMemoryHashJoin(IHyracksTaskContext ctx, FrameTupleAccessor accessor0, ITuplePartitionComputer tpc0,
+            FrameTupleAccessor accessor1, ITuplePartitionComputer tpc1, FrameTuplePairComparator comparator,
+            boolean isLeftOuter, INullWriter[] nullWriters1, OpenAddressingHashTable table, boolean reverse)
+            throws HyracksDataException {
         this.table = table;
         storedTuplePointer = new TuplePointer();
         buffers = new ArrayList<ByteBuffer>();
@@ -92,10 +95,10 @@ public class InMemoryHashJoin {
         accessorBuild.reset(buffer);
         int tCount = accessorBuild.getTupleCount();
         for (int i = 0; i < tCount; ++i) {
-            int entry = tpcBuild.partition(accessorBuild, i, tableSize);
+            int hash = tpcBuild.partition(accessorBuild, i, OpenAddressingHashTable.HASH_RANGE);
             storedTuplePointer.frameIndex = bIndex;
             storedTuplePointer.tupleIndex = i;
-            table.insert(entry, storedTuplePointer);
+            table.insert(hash, storedTuplePointer);
         }
     }
 
@@ -103,11 +106,11 @@ public class InMemoryHashJoin {
         accessorProbe.reset(buffer);
         int tupleCount0 = accessorProbe.getTupleCount();
         for (int i = 0; i < tupleCount0; ++i) {
-            int entry = tpcProbe.partition(accessorProbe, i, tableSize);
+            int hash = tpcProbe.partition(accessorProbe, i, OpenAddressingHashTable.HASH_RANGE);
             boolean matchFound = false;
             int offset = 0;
             do {
-                table.getTuplePointer(entry, offset++, storedTuplePointer);
+                table.getTuplePointer(hash, offset++, storedTuplePointer);
                 if (storedTuplePointer.frameIndex < 0)
                     break;
                 int bIndex = storedTuplePointer.frameIndex;
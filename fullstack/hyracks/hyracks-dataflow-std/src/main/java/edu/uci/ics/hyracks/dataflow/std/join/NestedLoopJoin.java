@@ -77,7 +77,7 @@ public class NestedLoopJoin {
 
         FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
                 this.getClass().getSimpleName() + this.toString());
-        runFileWriter = new RunFileWriter(file, ctx.getIOManager());
+        runFileWriter = new RunFileWriter(file, ctx);
         runFileWriter.open();
     }
 
@@ -0,0 +1,570 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.join;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.io.RunFileReader;
+import edu.uci.ics.hyracks.dataflow.common.io.RunFileWriter;
+
+/**
+ * Joins the tile-assigned tuples of one partition on MBR intersection. The build side is grouped by tile and sorted on
+ * x low within a tile. A probe tuple only looks at the build tuples of its own tile whose x low lies between its x low
+ * minus the widest build MBR of the tile and its x high, which are the only ones whose x intervals can overlap.
+ * Both tuples of a pair are copied to every tile they share, so a pair is only output by the tile that holds the
+ * lower left corner of the intersection of the two MBRs. Output tuples are the fields of the probe tuple followed by
+ * the fields of the build tuple, without the tile fields.
+ * As in {@link OptimizedHybridHashJoin}, the tiles are spread over a number of partitions, and when the build frames
+ * and the sort arrays no longer fit in the given number of frames, less one frame each for the probe input and the
+ * output, the largest partition in memory is spilled to a run file together with its probe tuples. A spilled
+ * partition is joined after the probe input ends, in chunks of its build side that fit in memory, each of which scans
+ * the probe run once, so a single tile larger than memory still completes.
+ */
+public class SpatialJoin {
+    // bytes of the sort arrays per build tuple: tile, frame and tuple index, and the four MBR coordinates
+    private static final int BYTES_PER_BUILD_TUPLE = 3 * 4 + 4 * 8;
+
+    private static final int MAX_PARTITIONS = 32;
+
+    private final IHyracksTaskContext ctx;
+    private final int frameSize;
+    private final int memSize;
+    private final SpatialTileGrid grid;
+    private final FrameTupleAccessor accessorBuild;
+    private final int[] mbrFieldsBuild;
+    private final int tileFieldBuild;
+    private final FrameTupleAccessor accessorProbe;
+    private final int[] mbrFieldsProbe;
+    private final int tileFieldProbe;
+    private final FrameTupleAppender appender;
+    private final FrameTupleAppender partitionAppender;
+    private final ByteBuffer outBuffer;
+    private final ArrayTupleBuilder tb;
+    private final SpatialMBR mbr = new SpatialMBR();
+
+    // build frames of the partitions in memory; a spilled partition keeps a single frame to buffer its run files
+    private final int numPartitions;
+    private final List<List<ByteBuffer>> partitionFrames;
+    private final int[] partitionTuples;
+    private final BitSet spilled;
+    private final RunFileWriter[] buildWriters;
+    private final RunFileWriter[] probeWriters;
+    private int residentFrames;
+    private int residentTuples;
+
+    // build frames indexed by the sort arrays
+    private final List<ByteBuffer> buffers;
+    private int bufferCount;
+
+    // build tuples, sorted on (tile, x low) by index()
+    private int size;
+    private int[] tiles = new int[0];
+    private double[] xLows = new double[0];
+    private double[] yLows = new double[0];
+    private double[] xHighs = new double[0];
+    private double[] yHighs = new double[0];
+    private int[] frameIndexes = new int[0];
+    private int[] tupleIndexes = new int[0];
+
+    // distinct tiles of the indexed build tuples, with their range of build tuples and widest MBR
+    private int tileCount;
+    private int[] tileIds = new int[0];
+    private int[] tileStarts = new int[1];
+    private double[] tileMaxWidths = new double[0];
+
+    public SpatialJoin(IHyracksTaskContext ctx, SpatialTileGrid grid, FrameTupleAccessor accessorProbe,
+            int[] mbrFieldsProbe, int tileFieldProbe, FrameTupleAccessor accessorBuild, int[] mbrFieldsBuild,
+            int tileFieldBuild, int memSize) throws HyracksDataException {
+        this.ctx = ctx;
+        this.frameSize = ctx.getFrameSize();
+        this.memSize = memSize;
+        this.grid = grid;
+        this.accessorBuild = accessorBuild;
+        this.mbrFieldsBuild = mbrFieldsBuild;
+        this.tileFieldBuild = tileFieldBuild;
+        this.accessorProbe = accessorProbe;
+        this.mbrFieldsProbe = mbrFieldsProbe;
+        this.tileFieldProbe = tileFieldProbe;
+        appender = new FrameTupleAppender(ctx.getFrameSize());
+        partitionAppender = new FrameTupleAppender(ctx.getFrameSize());
+        outBuffer = ctx.allocateFrame();
+        appender.reset(outBuffer, true);
+        tb = new ArrayTupleBuilder(accessorProbe.getFieldCount() + accessorBuild.getFieldCount() - 2);
+        // every spilled partition holds a frame, next to the probe input and the output
+        numPartitions = Math.max(1, Math.min(memSize - 2, MAX_PARTITIONS));
+        partitionFrames = new ArrayList<List<ByteBuffer>>(numPartitions);
+        for (int i = 0; i < numPartitions; ++i) {
+            partitionFrames.add(new ArrayList<ByteBuffer>());
+        }
+        partitionTuples = new int[numPartitions];
+        spilled = new BitSet(numPartitions);
+        buildWriters = new RunFileWriter[numPartitions];
+        probeWriters = new RunFileWriter[numPartitions];
+        buffers = new ArrayList<ByteBuffer>();
+    }
+
+    public void build(ByteBuffer buffer) throws HyracksDataException {
+        accessorBuild.reset(buffer);
+        int tCount = accessorBuild.getTupleCount();
+        for (int i = 0; i < tCount; ++i) {
+            int pid = getPartition(getTile(accessorBuild, i, tileFieldBuild));
+            List<ByteBuffer> frames = partitionFrames.get(pid);
+            if (spilled.get(pid)) {
+                spillTuple(pid, accessorBuild, i, buildWriters);
+                continue;
+            }
+            if (frames.isEmpty() || !appendTo(frames.get(frames.size() - 1), accessorBuild, i)) {
+                ByteBuffer frame = ctx.allocateFrame();
+                partitionAppender.reset(frame, true);
+                if (!partitionAppender.append(accessorBuild, i)) {
+                    throw new HyracksDataException("Build tuple too large for a frame.");
+                }
+                frames.add(frame);
+                ++residentFrames;
+            }
+            ++partitionTuples[pid];
+            ++residentTuples;
+            while (usedFrames() > memSize) {
+                if (!spillLargestPartition()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the run files of the spilled build partitions and sorts the build side in memory. Must be called once,
+     * after the last call to {@link #build(ByteBuffer)}.
+     */
+    public void completeBuild() throws HyracksDataException {
+        for (int pid = spilled.nextSetBit(0); pid >= 0; pid = spilled.nextSetBit(pid + 1)) {
+            // the frame that buffered the build run buffers the probe run from now on
+            flushSpilled(pid, buildWriters);
+            buildWriters[pid].close();
+        }
+        bufferCount = 0;
+        for (int pid = 0; pid < numPartitions; ++pid) {
+            if (!spilled.get(pid)) {
+                for (ByteBuffer frame : partitionFrames.get(pid)) {
+                    addBuffer(frame);
+                }
+            }
+        }
+        index();
+    }
+
+    public void join(ByteBuffer buffer, IFrameWriter writer) throws HyracksDataException {
+        accessorProbe.reset(buffer);
+        int tupleCount0 = accessorProbe.getTupleCount();
+        for (int i = 0; i < tupleCount0; ++i) {
+            int tile = getTile(accessorProbe, i, tileFieldProbe);
+            int pid = getPartition(tile);
+            if (spilled.get(pid)) {
+                spillTuple(pid, accessorProbe, i, probeWriters);
+            } else {
+                probe(i, tile, writer);
+            }
+        }
+    }
+
+    public void closeJoin(IFrameWriter writer) throws HyracksDataException {
+        for (int pid = spilled.nextSetBit(0); pid >= 0; pid = spilled.nextSetBit(pid + 1)) {
+            flushSpilled(pid, probeWriters);
+            if (probeWriters[pid] != null) {
+                probeWriters[pid].close();
+            }
+        }
+        // the partitions in memory are done, their frames are reused for the spilled ones
+        List<ByteBuffer> free = new ArrayList<ByteBuffer>();
+        for (int pid = 0; pid < numPartitions; ++pid) {
+            free.addAll(partitionFrames.get(pid));
+            partitionFrames.get(pid).clear();
+        }
+        buffers.clear();
+        buffers.addAll(free);
+        bufferCount = 0;
+        residentFrames = 0;
+        residentTuples = 0;
+        ByteBuffer probeFrame = null;
+        for (int pid = spilled.nextSetBit(0); pid >= 0; pid = spilled.nextSetBit(pid + 1)) {
+            if (probeWriters[pid] != null) {
+                if (probeFrame == null) {
+                    probeFrame = ctx.allocateFrame();
+                }
+                joinSpilledPartition(pid, probeFrame, writer);
+            }
+        }
+        if (appender.getTupleCount() > 0) {
+            FrameUtils.flushFrame(outBuffer, writer);
+        }
+    }
+
+    private void probe(int probeTupleIndex, int tile, IFrameWriter writer) throws HyracksDataException {
+        int t = Arrays.binarySearch(tileIds, 0, tileCount, tile);
+        if (t < 0) {
+            return;
+        }
+        mbr.reset(accessorProbe, probeTupleIndex, mbrFieldsProbe);
+        double lowBound = Math.nextAfter(mbr.getXLow() - tileMaxWidths[t], Double.NEGATIVE_INFINITY);
+        int end = tileStarts[t + 1];
+        for (int j = lowerBound(tileStarts[t], end, lowBound); j < end && xLows[j] <= mbr.getXHigh(); ++j) {
+            if (xHighs[j] < mbr.getXLow() || yLows[j] > mbr.getYHigh() || yHighs[j] < mbr.getYLow()) {
+                continue;
+            }
+            if (grid.getTile(Math.max(xLows[j], mbr.getXLow()), Math.max(yLows[j], mbr.getYLow())) != tile) {
+                // reported by another tile
+                continue;
+            }
+            accessorBuild.reset(buffers.get(frameIndexes[j]));
+            appendToResult(probeTupleIndex, tupleIndexes[j], writer);
+        }
+    }
+
+    /**
+     * Joins a spilled partition in chunks of its build run that fit in memory, next to one frame each for reading the
+     * probe run and for the output. Each chunk holds at least one frame.
+     */
+    private void joinSpilledPartition(int pid, ByteBuffer probeFrame, IFrameWriter writer) throws HyracksDataException {
+        ByteBuffer readAhead = null;
+        RunFileReader buildReader = buildWriters[pid].createReader();
+        buildReader.open();
+        try {
+            boolean more = true;
+            while (more) {
+                bufferCount = 0;
+                int chunkTuples = 0;
+                if (readAhead != null) {
+                    addBuffer(readAhead);
+                    accessorBuild.reset(readAhead);
+                    chunkTuples += accessorBuild.getTupleCount();
+                    readAhead = null;
+                }
+                while (true) {
+                    ByteBuffer frame = bufferCount < buffers.size() ? buffers.get(bufferCount) : ctx.allocateFrame();
+                    if (!buildReader.nextFrame(frame)) {
+                        more = false;
+                        break;
+                    }
+                    accessorBuild.reset(frame);
+                    int tCount = accessorBuild.getTupleCount();
+                    if (bufferCount > 0 && bufferCount + 1 + arrayFrames(chunkTuples + tCount) + 2 > memSize) {
+                        // starts the next chunk; taken out of the pool so the chunk does not overwrite it
+                        readAhead = frame;
+                        if (bufferCount < buffers.size() && buffers.get(bufferCount) == frame) {
+                            buffers.remove(bufferCount);
+                        }
+                        break;
+                    }
+                    addBuffer(frame);
+                    chunkTuples += tCount;
+                }
+                if (bufferCount == 0) {
+                    break;
+                }
+                index();
+                RunFileReader probeReader = probeWriters[pid].createReader();
+                probeReader.open();
+                try {
+                    while (probeReader.nextFrame(probeFrame)) {
+                        accessorProbe.reset(probeFrame);
+                        int tupleCount0 = accessorProbe.getTupleCount();
+                        for (int i = 0; i < tupleCount0; ++i) {
+                            probe(i, getTile(accessorProbe, i, tileFieldProbe), writer);
+                        }
+                    }
+                } finally {
+                    probeReader.close();
+                }
+            }
+        } finally {
+            buildReader.close();
+        }
+    }
+
+    private int usedFrames() {
+        return residentFrames + spilled.cardinality() + arrayFrames(residentTuples) + 2;
+    }
+
+    private int arrayFrames(int tupleCount) {
+        long arrayBytes = (long) tupleCount * BYTES_PER_BUILD_TUPLE;
+        return (int) ((arrayBytes + frameSize - 1) / frameSize);
+    }
+
+    /**
+     * Writes out all but the last frame of the largest partition in memory, which becomes its buffer.
+     *
+     * @return false if all partitions are spilled already
+     */
+    private boolean spillLargestPartition() throws HyracksDataException {
+        int victim = -1;
+        for (int pid = 0; pid < numPartitions; ++pid) {
+            if (!spilled.get(pid) && partitionTuples[pid] > 0
+                    && (victim < 0 || partitionFrames.get(pid).size() > partitionFrames.get(victim).size())) {
+                victim = pid;
+            }
+        }
+        if (victim < 0) {
+            return false;
+        }
+        List<ByteBuffer> frames = partitionFrames.get(victim);
+        RunFileWriter runWriter = createRunWriter(victim, buildWriters);
+        for (int i = 0; i < frames.size() - 1; ++i) {
+            writeFrame(runWriter, frames.get(i));
+        }
+        ByteBuffer last = frames.get(frames.size() - 1);
+        residentFrames -= frames.size();
+        residentTuples -= partitionTuples[victim];
+        partitionTuples[victim] = 0;
+        frames.clear();
+        frames.add(last);
+        spilled.set(victim);
+        return true;
+    }
+
+    private void spillTuple(int pid, FrameTupleAccessor accessor, int tIndex, RunFileWriter[] writers)
+            throws HyracksDataException {
+        ByteBuffer frame = partitionFrames.get(pid).get(0);
+        if (!appendTo(frame, accessor, tIndex)) {
+            writeFrame(createRunWriter(pid, writers), frame);
+            partitionAppender.reset(frame, true);
+            if (!partitionAppender.append(accessor, tIndex)) {
+                throw new HyracksDataException("Tuple too large for a frame.");
+            }
+        }
+    }
+
+    private void flushSpilled(int pid, RunFileWriter[] writers) throws HyracksDataException {
+        ByteBuffer frame = partitionFrames.get(pid).get(0);
+        partitionAppender.reset(frame, false);
+        if (partitionAppender.getTupleCount() > 0) {
+            writeFrame(createRunWriter(pid, writers), frame);
+        }
+        partitionAppender.reset(frame, true);
+    }
+
+    private RunFileWriter createRunWriter(int pid, RunFileWriter[] writers) throws HyracksDataException {
+        if (writers[pid] == null) {
+            FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
+                    SpatialJoin.class.getSimpleName());
+            writers[pid] = new RunFileWriter(file, ctx);
+            writers[pid].open();
+        }
+        return writers[pid];
+    }
+
+    private static void writeFrame(RunFileWriter runWriter, ByteBuffer frame) throws HyracksDataException {
+        // the spill frames are written again and again, and every write moves the position to the end
+        frame.clear();
+        runWriter.nextFrame(frame);
+    }
+
+    private boolean appendTo(ByteBuffer frame, FrameTupleAccessor accessor, int tIndex) {
+        partitionAppender.reset(frame, false);
+        return partitionAppender.append(accessor, tIndex);
+    }
+
+    private int getPartition(int tile) {
+        return (tile & Integer.MAX_VALUE) % numPartitions;
+    }
+
+    private void addBuffer(ByteBuffer frame) {
+        if (bufferCount < buffers.size()) {
+            buffers.set(bufferCount, frame);
+        } else {
+            buffers.add(frame);
+        }
+        ++bufferCount;
+    }
+
+    /**
+     * Builds the sort arrays over the first {@code bufferCount} frames of {@code buffers}.
+     */
+    private void index() {
+        size = 0;
+        for (int b = 0; b < bufferCount; ++b) {
+            accessorBuild.reset(buffers.get(b));
+            size += accessorBuild.getTupleCount();
+        }
+        if (tiles.length < size) {
+            tiles = new int[size];
+            xLows = new double[size];
+            yLows = new double[size];
+            xHighs = new double[size];
+            yHighs = new double[size];
+            frameIndexes = new int[size];
+            tupleIndexes = new int[size];
+            tileIds = new int[size];
+            tileStarts = new int[size + 1];
+            tileMaxWidths = new double[size];
+        }
+        int n = 0;
+        for (int b = 0; b < bufferCount; ++b) {
+            accessorBuild.reset(buffers.get(b));
+            int tCount = accessorBuild.getTupleCount();
+            for (int i = 0; i < tCount; ++i) {
+                mbr.reset(accessorBuild, i, mbrFieldsBuild);
+                tiles[n] = getTile(accessorBuild, i, tileFieldBuild);
+                xLows[n] = mbr.getXLow();
+                yLows[n] = mbr.getYLow();
+                xHighs[n] = mbr.getXHigh();
+                yHighs[n] = mbr.getYHigh();
+                frameIndexes[n] = b;
+                tupleIndexes[n] = i;
+                ++n;
+            }
+        }
+        sort(0, size);
+        tileCount = 0;
+        for (int i = 0; i < size; ++i) {
+            if (tileCount == 0 || tiles[i] != tileIds[tileCount - 1]) {
+                tileIds[tileCount] = tiles[i];
+                tileStarts[tileCount] = i;
+                tileMaxWidths[tileCount] = 0.0;
+                ++tileCount;
+            }
+            // rounded up, so that the search window never misses a tuple
+            double width = Math.nextUp(xHighs[i] - xLows[i]);
+            if (width > tileMaxWidths[tileCount - 1]) {
+                tileMaxWidths[tileCount - 1] = width;
+            }
+        }
+        tileStarts[tileCount] = size;
+    }
+
+    private void appendToResult(int probeSidetIx, int buildSidetIx, IFrameWriter writer) throws HyracksDataException {
+        tb.reset();
+        addFieldsWithoutTile(accessorProbe, probeSidetIx, tileFieldProbe);
+        addFieldsWithoutTile(accessorBuild, buildSidetIx, tileFieldBuild);
+        if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+            FrameUtils.flushFrame(outBuffer, writer);
+            appender.reset(outBuffer, true);
+            if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                throw new HyracksDataException("Joined tuple too large for a frame.");
+            }
+        }
+    }
+
+    private void addFieldsWithoutTile(FrameTupleAccessor accessor, int tIndex, int tileField)
+            throws HyracksDataException {
+        int fieldCount = accessor.getFieldCount();
+        for (int f = 0; f < fieldCount; ++f) {
+            if (f != tileField) {
+                tb.addField(accessor, tIndex, f);
+            }
+        }
+    }
+
+    private static int getTile(FrameTupleAccessor accessor, int tIndex, int tileField) {
+        return IntegerSerializerDeserializer.getInt(accessor.getBuffer().array(), accessor.getTupleStartOffset(tIndex)
+                + accessor.getFieldSlotsLength() + accessor.getFieldStartOffset(tIndex, tileField));
+    }
+
+    // first position in [from, to) whose x low is not below the given value
+    private int lowerBound(int from, int to, double xLow) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (xLows[mid] < xLow) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int compare(int a, int b) {
+        if (tiles[a] != tiles[b]) {
+            return tiles[a] < tiles[b] ? -1 : 1;
+        }
+        return Double.compare(xLows[a], xLows[b]);
+    }
+
+    private void sort(int offset, int length) {
+        while (length > 1) {
+            if (length < 8) {
+                for (int i = offset + 1; i < offset + length; ++i) {
+                    for (int j = i; j > offset && compare(j - 1, j) > 0; --j) {
+                        swap(j - 1, j);
+                    }
+                }
+                return;
+            }
+            swap(offset, offset + length / 2);
+            int lt = offset;
+            int gt = offset + length - 1;
+            int i = offset + 1;
+            while (i <= gt) {
+                int c = compare(i, lt);
+                if (c < 0) {
+                    swap(lt++, i++);
+                } else if (c > 0) {
+                    swap(i, gt--);
+                } else {
+                    ++i;
+                }
+            }
+            // recurse into the smaller side, loop on the larger one
+            int leftLength = lt - offset;
+            int rightLength = offset + length - gt - 1;
+            if (leftLength < rightLength) {
+                sort(offset, leftLength);
+                offset = gt + 1;
+                length = rightLength;
+            } else {
+                sort(gt + 1, rightLength);
+                length = leftLength;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        int ti = tiles[a];
+        tiles[a] = tiles[b];
+        tiles[b] = ti;
+        double td = xLows[a];
+        xLows[a] = xLows[b];
+        xLows[b] = td;
+        td = yLows[a];
+        yLows[a] = yLows[b];
+        yLows[b] = td;
+        td = xHighs[a];
+        xHighs[a] = xHighs[b];
+        xHighs[b] = td;
+        td = yHighs[a];
+        yHighs[a] = yHighs[b];
+        yHighs[b] = td;
+        ti = frameIndexes[a];
+        frameIndexes[a] = frameIndexes[b];
+        frameIndexes[b] = ti;
+        ti = tupleIndexes[a];
+        tupleIndexes[a] = tupleIndexes[b];
+        tupleIndexes[b] = ti;
+    }
+}
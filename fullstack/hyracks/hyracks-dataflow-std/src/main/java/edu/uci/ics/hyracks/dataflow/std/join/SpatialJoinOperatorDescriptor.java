@@ -0,0 +1,205 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.join;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.ActivityId;
+import edu.uci.ics.hyracks.api.dataflow.IActivityGraphBuilder;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
+import edu.uci.ics.hyracks.api.dataflow.TaskId;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.IOperatorDescriptorRegistry;
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractActivityNode;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractStateObject;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputSinkOperatorNodePushable;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
+
+/**
+ * Joins two inputs on the intersection of their MBRs. Both inputs are expected to come out of a
+ * {@link SpatialTileAssignOperatorDescriptor} over the same grid and to be partitioned on the tile field with a
+ * {@link SpatialTilePartitionComputerFactory}, so that every partition joins a disjoint set of tiles. Input 1 is
+ * built in memory and input 0 is probed against it; output tuples are the fields of input 0 followed by the fields of
+ * input 1, both without their tile field. Every intersecting pair is output exactly once.
+ * When the build side of a partition does not fit in the memory of the operator, the join spills groups of tiles to
+ * disk and joins them afterwards, see {@link SpatialJoin}.
+ */
+public class SpatialJoinOperatorDescriptor extends AbstractOperatorDescriptor {
+    private static final long serialVersionUID = 1L;
+    private final SpatialTileGrid grid;
+    private final int[] mbrFields0;
+    private final int tileField0;
+    private final int[] mbrFields1;
+    private final int tileField1;
+    private final int memSize;
+
+    public SpatialJoinOperatorDescriptor(IOperatorDescriptorRegistry spec, SpatialTileGrid grid, int[] mbrFields0,
+            int tileField0, int[] mbrFields1, int tileField1, int memSize, RecordDescriptor recordDescriptor) {
+        super(spec, 2, 1);
+        if (mbrFields0.length != 4 || mbrFields1.length != 4) {
+            throw new IllegalArgumentException("An MBR is given by 4 fields: x low, y low, x high and y high");
+        }
+        if (memSize < 3) {
+            throw new IllegalArgumentException("The spatial join needs at least 3 frames of memory, got " + memSize);
+        }
+        this.grid = grid;
+        this.mbrFields0 = mbrFields0;
+        this.tileField0 = tileField0;
+        this.mbrFields1 = mbrFields1;
+        this.tileField1 = tileField1;
+        this.memSize = memSize;
+        recordDescriptors[0] = recordDescriptor;
+    }
+
+    @Override
+    public int getRequiredMemoryFrames() {
+        return memSize;
+    }
+
+    @Override
+    public void contributeActivities(IActivityGraphBuilder builder) {
+        ActivityId sbaId = new ActivityId(odId, 0);
+        ActivityId spaId = new ActivityId(odId, 1);
+        SpatialBuildActivityNode sba = new SpatialBuildActivityNode(sbaId, spaId);
+        SpatialProbeActivityNode spa = new SpatialProbeActivityNode(spaId);
+
+        builder.addActivity(this, sba);
+        builder.addSourceEdge(1, sba, 0);
+
+        builder.addActivity(this, spa);
+        builder.addSourceEdge(0, spa, 0);
+
+        builder.addTargetEdge(0, spa, 0);
+
+        builder.addBlockingEdge(sba, spa);
+    }
+
+    public static class SpatialBuildTaskState extends AbstractStateObject {
+        private SpatialJoin joiner;
+
+        public SpatialBuildTaskState() {
+        }
+
+        private SpatialBuildTaskState(JobId jobId, TaskId taskId) {
+            super(jobId, taskId);
+        }
+
+        @Override
+        public void toBytes(DataOutput out) throws IOException {
+
+        }
+
+        @Override
+        public void fromBytes(DataInput in) throws IOException {
+
+        }
+    }
+
+    private class SpatialBuildActivityNode extends AbstractActivityNode {
+        private static final long serialVersionUID = 1L;
+
+        private final ActivityId spaId;
+
+        public SpatialBuildActivityNode(ActivityId id, ActivityId spaId) {
+            super(id);
+            this.spaId = spaId;
+        }
+
+        @Override
+        public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+                IRecordDescriptorProvider recordDescProvider, final int partition, int nPartitions) {
+            final RecordDescriptor rd0 = recordDescProvider.getInputRecordDescriptor(spaId, 0);
+            final RecordDescriptor rd1 = recordDescProvider.getInputRecordDescriptor(getActivityId(), 0);
+
+            IOperatorNodePushable op = new AbstractUnaryInputSinkOperatorNodePushable() {
+                private SpatialBuildTaskState state;
+
+                @Override
+                public void open() throws HyracksDataException {
+                    state = new SpatialBuildTaskState(ctx.getJobletContext().getJobId(), new TaskId(getActivityId(),
+                            partition));
+                    state.joiner = new SpatialJoin(ctx, grid, new FrameTupleAccessor(ctx.getFrameSize(), rd0),
+                            mbrFields0, tileField0, new FrameTupleAccessor(ctx.getFrameSize(), rd1), mbrFields1,
+                            tileField1, memSize);
+                }
+
+                @Override
+                public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    state.joiner.build(buffer);
+                }
+
+                @Override
+                public void close() throws HyracksDataException {
+                    state.joiner.completeBuild();
+                    ctx.setStateObject(state);
+                }
+
+                @Override
+                public void fail() throws HyracksDataException {
+                }
+            };
+            return op;
+        }
+    }
+
+    private class SpatialProbeActivityNode extends AbstractActivityNode {
+        private static final long serialVersionUID = 1L;
+
+        public SpatialProbeActivityNode(ActivityId id) {
+            super(id);
+        }
+
+        @Override
+        public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+                IRecordDescriptorProvider recordDescProvider, final int partition, int nPartitions) {
+            IOperatorNodePushable op = new AbstractUnaryInputUnaryOutputOperatorNodePushable() {
+                private SpatialBuildTaskState state;
+
+                @Override
+                public void open() throws HyracksDataException {
+                    state = (SpatialBuildTaskState) ctx.getStateObject(new TaskId(new ActivityId(getOperatorId(), 0),
+                            partition));
+                    writer.open();
+                }
+
+                @Override
+                public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    state.joiner.join(buffer, writer);
+                }
+
+                @Override
+                public void close() throws HyracksDataException {
+                    state.joiner.closeJoin(writer);
+                    writer.close();
+                }
+
+                @Override
+                public void fail() throws HyracksDataException {
+                    writer.fail();
+                }
+            };
+            return op;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.join;
+
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.DoubleSerializerDeserializer;
+
+/**
+ * Decodes the MBR of a tuple from four double fields: x low, y low, x high, y high.
+ */
+public class SpatialMBR {
+    private double xLow;
+    private double yLow;
+    private double xHigh;
+    private double yHigh;
+
+    public void reset(IFrameTupleAccessor accessor, int tIndex, int[] mbrFields) {
+        xLow = getDouble(accessor, tIndex, mbrFields[0]);
+        yLow = getDouble(accessor, tIndex, mbrFields[1]);
+        xHigh = getDouble(accessor, tIndex, mbrFields[2]);
+        yHigh = getDouble(accessor, tIndex, mbrFields[3]);
+    }
+
+    private static double getDouble(IFrameTupleAccessor accessor, int tIndex, int fIndex) {
+        return DoubleSerializerDeserializer.getDouble(accessor.getBuffer().array(), accessor.getTupleStartOffset(tIndex)
+                + accessor.getFieldSlotsLength() + accessor.getFieldStartOffset(tIndex, fIndex));
+    }
+
+    public double getXLow() {
+        return xLow;
+    }
+
+    public double getYLow() {
+        return yLow;
+    }
+
+    public double getXHigh() {
+        return xHigh;
+    }
+
+    public double getYHigh() {
+        return yHigh;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.join;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.IOperatorDescriptorRegistry;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractSingleActivityOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
+
+/**
+ * Outputs one copy of every input tuple for each grid tile its MBR overlaps, with the tile id appended as an integer
+ * field. The MBR is read from four double fields in the order x low, y low, x high, y high; a point has equal low and
+ * high coordinates. This is the first step of a {@link SpatialJoinOperatorDescriptor}.
+ */
+public class SpatialTileAssignOperatorDescriptor extends AbstractSingleActivityOperatorDescriptor {
+    private static final long serialVersionUID = 1L;
+
+    private final SpatialTileGrid grid;
+    private final int[] mbrFields;
+
+    public SpatialTileAssignOperatorDescriptor(IOperatorDescriptorRegistry spec, RecordDescriptor recordDescriptor,
+            SpatialTileGrid grid, int[] mbrFields) {
+        super(spec, 1, 1);
+        if (mbrFields.length != 4) {
+            throw new IllegalArgumentException("Expected 4 MBR fields, got " + mbrFields.length);
+        }
+        recordDescriptors[0] = recordDescriptor;
+        this.grid = grid;
+        this.mbrFields = mbrFields;
+    }
+
+    @Override
+    public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+            final IRecordDescriptorProvider recordDescProvider, int partition, int nPartitions)
+            throws HyracksDataException {
+        final RecordDescriptor inRecDesc = recordDescProvider.getInputRecordDescriptor(getActivityId(), 0);
+        return new AbstractUnaryInputUnaryOutputOperatorNodePushable() {
+            private FrameTupleAccessor accessor;
+            private FrameTupleAppender appender;
+            private ByteBuffer outBuffer;
+            private ArrayTupleBuilder tb;
+            private final SpatialMBR mbr = new SpatialMBR();
+
+            @Override
+            public void open() throws HyracksDataException {
+                accessor = new FrameTupleAccessor(ctx.getFrameSize(), inRecDesc);
+                appender = new FrameTupleAppender(ctx.getFrameSize());
+                outBuffer = ctx.allocateFrame();
+                appender.reset(outBuffer, true);
+                tb = new ArrayTupleBuilder(inRecDesc.getFieldCount() + 1);
+                writer.open();
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                accessor.reset(buffer);
+                int tupleCount = accessor.getTupleCount();
+                for (int i = 0; i < tupleCount; i++) {
+                    mbr.reset(accessor, i, mbrFields);
+                    int lowColumn = grid.getColumn(mbr.getXLow());
+                    int highColumn = grid.getColumn(mbr.getXHigh());
+                    int lowRow = grid.getRow(mbr.getYLow());
+                    int highRow = grid.getRow(mbr.getYHigh());
+                    for (int row = lowRow; row <= highRow; row++) {
+                        for (int column = lowColumn; column <= highColumn; column++) {
+                            appendTileCopy(i, grid.getTile(column, row));
+                        }
+                    }
+                }
+            }
+
+            private void appendTileCopy(int tIndex, int tile) throws HyracksDataException {
+                tb.reset();
+                for (int f = 0; f < accessor.getFieldCount(); f++) {
+                    tb.addField(accessor, tIndex, f);
+                }
+                DataOutput dos = tb.getDataOutput();
+                try {
+                    dos.writeInt(tile);
+                } catch (IOException e) {
+                    throw new HyracksDataException(e);
+                }
+                tb.addFieldEndOffset();
+                if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                    FrameUtils.flushFrame(outBuffer, writer);
+                    appender.reset(outBuffer, true);
+                    if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                        throw new HyracksDataException("Tuple too large for a frame.");
+                    }
+                }
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                if (appender.getTupleCount() > 0) {
+                    FrameUtils.flushFrame(outBuffer, writer);
+                }
+                writer.close();
+            }
+
+            @Override
+            public void fail() throws HyracksDataException {
+                writer.fail();
+            }
+        };
+    }
+}
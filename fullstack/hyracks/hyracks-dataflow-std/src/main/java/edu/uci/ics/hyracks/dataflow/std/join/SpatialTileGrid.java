@@ -0,0 +1,84 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.join;
+
+import java.io.Serializable;
+
+/**
+ * A uniform grid of columns x rows tiles over a two-dimensional space. Coordinates outside the bounds fall into the
+ * nearest border tile, so every MBR overlaps at least one tile. Tiles are numbered row by row.
+ */
+public class SpatialTileGrid implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final int columns;
+    private final int rows;
+
+    public SpatialTileGrid(double minX, double minY, double maxX, double maxY, int columns, int rows) {
+        if (!(minX < maxX) || !(minY < maxY)) {
+            throw new IllegalArgumentException("Empty grid bounds: (" + minX + ", " + minY + ") - (" + maxX + ", "
+                    + maxY + ")");
+        }
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("A grid needs at least one tile: " + columns + " x " + rows);
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getTileCount() {
+        return columns * rows;
+    }
+
+    public int getColumn(double x) {
+        return getCell(x, minX, maxX, columns);
+    }
+
+    public int getRow(double y) {
+        return getCell(y, minY, maxY, rows);
+    }
+
+    public int getTile(int column, int row) {
+        return row * columns + column;
+    }
+
+    public int getTile(double x, double y) {
+        return getTile(getColumn(x), getRow(y));
+    }
+
+    private static int getCell(double v, double min, double max, int cells) {
+        int cell = (int) Math.floor((v - min) / (max - min) * cells);
+        if (cell < 0) {
+            return 0;
+        }
+        return cell >= cells ? cells - 1 : cell;
+    }
+}
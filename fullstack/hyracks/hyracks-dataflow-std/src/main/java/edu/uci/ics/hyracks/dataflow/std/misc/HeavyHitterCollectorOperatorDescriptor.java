@@ -0,0 +1,210 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.misc;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.ActivityId;
+import edu.uci.ics.hyracks.api.dataflow.IActivityGraphBuilder;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
+import edu.uci.ics.hyracks.api.dataflow.OperatorDescriptorId;
+import edu.uci.ics.hyracks.api.dataflow.TaskId;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.IOperatorDescriptorRegistry;
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractActivityNode;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractStateObject;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputSinkOperatorNodePushable;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
+
+/**
+ * Makes the heavy hitters found by the sample stage available to a skew-aware connector. Input 0 receives the
+ * heavy hitter hashes of all {@link HeavyHitterSamplerOperatorDescriptor} partitions through an M:N replicating
+ * connector; only when they are all in does the operator pass input 1 through to its output unchanged. The output
+ * must be connected to a
+ * {@link edu.uci.ics.hyracks.dataflow.std.connectors.SkewAwareMToNPartitioningConnectorDescriptor} created for this
+ * operator, whose partitioners look the heavy hitters up in the task state of the same partition.
+ */
+public class HeavyHitterCollectorOperatorDescriptor extends AbstractOperatorDescriptor {
+    private static final long serialVersionUID = 1L;
+
+    private static final int COLLECT_ACTIVITY_ID = 0;
+    private static final int PASS_ACTIVITY_ID = 1;
+
+    public HeavyHitterCollectorOperatorDescriptor(IOperatorDescriptorRegistry spec, RecordDescriptor recordDescriptor) {
+        super(spec, 2, 1);
+        recordDescriptors[0] = recordDescriptor;
+    }
+
+    @Override
+    public void contributeActivities(IActivityGraphBuilder builder) {
+        CollectActivityNode ca = new CollectActivityNode(new ActivityId(odId, COLLECT_ACTIVITY_ID));
+        PassActivityNode pa = new PassActivityNode(new ActivityId(odId, PASS_ACTIVITY_ID));
+
+        builder.addActivity(this, ca);
+        builder.addSourceEdge(0, ca, 0);
+
+        builder.addActivity(this, pa);
+        builder.addSourceEdge(1, pa, 0);
+        builder.addTargetEdge(0, pa, 0);
+
+        builder.addBlockingEdge(ca, pa);
+    }
+
+    /**
+     * @return the sorted, distinct heavy hitter hashes collected by the given partition of the collector
+     */
+    public static int[] getHeavyHitters(IHyracksTaskContext ctx, OperatorDescriptorId collectorId, int partition)
+            throws HyracksDataException {
+        HeavyHittersTaskState state = (HeavyHittersTaskState) ctx.getStateObject(new TaskId(new ActivityId(
+                collectorId, COLLECT_ACTIVITY_ID), partition));
+        if (state == null) {
+            throw new HyracksDataException("No heavy hitters were collected by partition " + partition + " of "
+                    + collectorId);
+        }
+        return state.hashes;
+    }
+
+    public static class HeavyHittersTaskState extends AbstractStateObject {
+        private int[] hashes;
+
+        public HeavyHittersTaskState() {
+        }
+
+        private HeavyHittersTaskState(JobId jobId, TaskId taskId) {
+            super(jobId, taskId);
+        }
+
+        @Override
+        public void toBytes(DataOutput out) throws IOException {
+            out.writeInt(hashes.length);
+            for (int hash : hashes) {
+                out.writeInt(hash);
+            }
+        }
+
+        @Override
+        public void fromBytes(DataInput in) throws IOException {
+            hashes = new int[in.readInt()];
+            for (int i = 0; i < hashes.length; ++i) {
+                hashes[i] = in.readInt();
+            }
+        }
+    }
+
+    private class CollectActivityNode extends AbstractActivityNode {
+        private static final long serialVersionUID = 1L;
+
+        public CollectActivityNode(ActivityId id) {
+            super(id);
+        }
+
+        @Override
+        public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+                IRecordDescriptorProvider recordDescProvider, final int partition, int nPartitions) {
+            final FrameTupleAccessor accessor = new FrameTupleAccessor(ctx.getFrameSize(),
+                    recordDescProvider.getInputRecordDescriptor(getActivityId(), 0));
+            return new AbstractUnaryInputSinkOperatorNodePushable() {
+                private HeavyHittersTaskState state;
+                private int size;
+
+                @Override
+                public void open() throws HyracksDataException {
+                    state = new HeavyHittersTaskState(ctx.getJobletContext().getJobId(), new TaskId(getActivityId(),
+                            partition));
+                    state.hashes = new int[16];
+                    size = 0;
+                }
+
+                @Override
+                public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    accessor.reset(buffer);
+                    int tupleCount = accessor.getTupleCount();
+                    for (int i = 0; i < tupleCount; ++i) {
+                        if (size == state.hashes.length) {
+                            state.hashes = Arrays.copyOf(state.hashes, size * 2);
+                        }
+                        state.hashes[size++] = IntegerSerializerDeserializer.getInt(buffer.array(),
+                                accessor.getTupleStartOffset(i) + accessor.getFieldSlotsLength()
+                                        + accessor.getFieldStartOffset(i, 0));
+                    }
+                }
+
+                @Override
+                public void close() throws HyracksDataException {
+                    // every sampler partition reports its own heavy hitters, so a hash can arrive more than once
+                    int[] hashes = Arrays.copyOf(state.hashes, size);
+                    Arrays.sort(hashes);
+                    int n = 0;
+                    for (int i = 0; i < hashes.length; ++i) {
+                        if (n == 0 || hashes[i] != hashes[n - 1]) {
+                            hashes[n++] = hashes[i];
+                        }
+                    }
+                    state.hashes = Arrays.copyOf(hashes, n);
+                    ctx.setStateObject(state);
+                }
+
+                @Override
+                public void fail() throws HyracksDataException {
+                }
+            };
+        }
+    }
+
+    private class PassActivityNode extends AbstractActivityNode {
+        private static final long serialVersionUID = 1L;
+
+        public PassActivityNode(ActivityId id) {
+            super(id);
+        }
+
+        @Override
+        public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+                IRecordDescriptorProvider recordDescProvider, int partition, int nPartitions) {
+            return new AbstractUnaryInputUnaryOutputOperatorNodePushable() {
+                @Override
+                public void open() throws HyracksDataException {
+                    writer.open();
+                }
+
+                @Override
+                public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    writer.nextFrame(buffer);
+                }
+
+                @Override
+                public void fail() throws HyracksDataException {
+                    writer.fail();
+                }
+
+                @Override
+                public void close() throws HyracksDataException {
+                    writer.close();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.misc;
+
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunction;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.IOperatorDescriptorRegistry;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractSingleActivityOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
+import edu.uci.ics.hyracks.dataflow.std.structures.HeavyHitterDetector;
+
+/**
+ * The sample stage of a skew-aware repartitioning: every partition feeds the key hashes of its input to a
+ * {@link HeavyHitterDetector} and, once its input is exhausted, emits the hashes of its local heavy hitters, one
+ * {@link #HEAVY_HITTER_RECORD_DESCRIPTOR} tuple per hash.
+ * A key that makes up at least minFraction of the whole input makes up at least minFraction of some partition's
+ * input, so the union of the outputs of all partitions contains every global heavy hitter; that union is what
+ * {@link HeavyHitterCollectorOperatorDescriptor} builds when it receives the output through an M:N replicating
+ * connector.
+ */
+public class HeavyHitterSamplerOperatorDescriptor extends AbstractSingleActivityOperatorDescriptor {
+    private static final long serialVersionUID = 1L;
+
+    public static final RecordDescriptor HEAVY_HITTER_RECORD_DESCRIPTOR = new RecordDescriptor(
+            new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+    private final int[] keyFields;
+    private final IBinaryHashFunctionFactory[] hashFunctionFactories;
+    private final int capacity;
+    private final int sampleRate;
+    private final double minFraction;
+
+    /**
+     * @param capacity
+     *            the number of keys the detector tracks
+     * @param sampleRate
+     *            every sampleRate-th input tuple is counted
+     * @param minFraction
+     *            the minimum estimated share of the sampled tuples for a key to be reported
+     */
+    public HeavyHitterSamplerOperatorDescriptor(IOperatorDescriptorRegistry spec, int[] keyFields,
+            IBinaryHashFunctionFactory[] hashFunctionFactories, int capacity, int sampleRate, double minFraction) {
+        super(spec, 1, 1);
+        this.keyFields = keyFields;
+        this.hashFunctionFactories = hashFunctionFactories;
+        this.capacity = capacity;
+        this.sampleRate = sampleRate;
+        this.minFraction = minFraction;
+        recordDescriptors[0] = HEAVY_HITTER_RECORD_DESCRIPTOR;
+    }
+
+    @Override
+    public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+            final IRecordDescriptorProvider recordDescProvider, int partition, int nPartitions)
+            throws HyracksDataException {
+        final FrameTupleAccessor accessor = new FrameTupleAccessor(ctx.getFrameSize(),
+                recordDescProvider.getInputRecordDescriptor(getActivityId(), 0));
+        final IBinaryHashFunction[] hashFunctions = new IBinaryHashFunction[hashFunctionFactories.length];
+        for (int i = 0; i < hashFunctionFactories.length; ++i) {
+            hashFunctions[i] = hashFunctionFactories[i].createBinaryHashFunction();
+        }
+        return new AbstractUnaryInputUnaryOutputOperatorNodePushable() {
+            private final HeavyHitterDetector detector = new HeavyHitterDetector(capacity, sampleRate);
+
+            @Override
+            public void open() throws HyracksDataException {
+                detector.reset();
+                writer.open();
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                accessor.reset(buffer);
+                int tupleCount = accessor.getTupleCount();
+                for (int i = 0; i < tupleCount; ++i) {
+                    detector.offer(accessor, i, keyFields, hashFunctions);
+                }
+            }
+
+            @Override
+            public void fail() throws HyracksDataException {
+                writer.fail();
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                try {
+                    ByteBuffer outFrame = ctx.allocateFrame();
+                    FrameTupleAppender appender = new FrameTupleAppender(ctx.getFrameSize());
+                    appender.reset(outFrame, true);
+                    ArrayTupleBuilder tb = new ArrayTupleBuilder(1);
+                    for (int hash : detector.getHeavyHitters(minFraction)) {
+                        tb.reset();
+                        tb.addField(IntegerSerializerDeserializer.INSTANCE, hash);
+                        if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                            FrameUtils.flushFrame(outFrame, writer);
+                            appender.reset(outFrame, true);
+                            if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                                throw new IllegalStateException();
+                            }
+                        }
+                    }
+                    if (appender.getTupleCount() > 0) {
+                        FrameUtils.flushFrame(outFrame, writer);
+                    }
+                } finally {
+                    writer.close();
+                }
+            }
+        };
+    }
+}
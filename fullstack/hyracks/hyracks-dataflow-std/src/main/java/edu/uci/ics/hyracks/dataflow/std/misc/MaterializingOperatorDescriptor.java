@@ -103,7 +103,7 @@ public class MaterializingOperatorDescriptor extends AbstractOperatorDescriptor
                             partition));
                     FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
                             MaterializingOperatorDescriptor.class.getSimpleName());
-                    state.out = new RunFileWriter(file, ctx.getIOManager());
+                    state.out = new RunFileWriter(file, ctx);
                     state.out.open();
                 }
 
@@ -70,6 +70,11 @@ public class ExternalSortOperatorDescriptor extends AbstractOperatorDescriptor {
         recordDescriptors[0] = recordDescriptor;
     }
 
+    @Override
+    public int getRequiredMemoryFrames() {
+        return framesLimit;
+    }
+
     @Override
     public void contributeActivities(IActivityGraphBuilder builder) {
         SortActivity sa = new SortActivity(new ActivityId(odId, SORT_ACTIVITY_ID));
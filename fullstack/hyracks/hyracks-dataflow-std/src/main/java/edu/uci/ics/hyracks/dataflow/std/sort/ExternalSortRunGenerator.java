@@ -72,7 +72,7 @@ public class ExternalSortRunGenerator implements IFrameWriter {
         frameSorter.sortFrames();
         FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(
                 ExternalSortRunGenerator.class.getSimpleName());
-        RunFileWriter writer = new RunFileWriter(file, ctx.getIOManager());
+        RunFileWriter writer = new RunFileWriter(file, ctx);
         writer.open();
         try {
             frameSorter.flushFrames(writer);
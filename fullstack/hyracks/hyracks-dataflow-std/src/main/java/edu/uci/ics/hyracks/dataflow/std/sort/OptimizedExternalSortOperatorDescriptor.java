@@ -93,6 +93,11 @@ public class OptimizedExternalSortOperatorDescriptor extends AbstractOperatorDes
         recordDescriptors[0] = recordDescriptor;
     }
 
+    @Override
+    public int getRequiredMemoryFrames() {
+        return memSize;
+    }
+
     @Override
     public void contributeActivities(IActivityGraphBuilder builder) {
         OptimizedSortActivity osa = new OptimizedSortActivity(new ActivityId(odId, SORT_ACTIVITY_ID));
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.sort;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.IOperatorDescriptorRegistry;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractSingleActivityOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
+
+/**
+ * Draws a uniform random sample of at most sampleSize tuples from its input and outputs the sample fields of the
+ * sampled tuples once the input is closed. The random source is seeded with the partition, so that a job draws the
+ * same sample every time it runs on the same data. This is the first step of a range-partitioned sort, see
+ * {@link RangeSplitOperatorDescriptor}.
+ */
+public class RangeSampleOperatorDescriptor extends AbstractSingleActivityOperatorDescriptor {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] sampleFields;
+    private final int sampleSize;
+
+    public RangeSampleOperatorDescriptor(IOperatorDescriptorRegistry spec, int[] sampleFields, int sampleSize,
+            RecordDescriptor recordDescriptor) {
+        super(spec, 1, 1);
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("Sample size must be positive, got " + sampleSize);
+        }
+        this.sampleFields = sampleFields;
+        this.sampleSize = sampleSize;
+        recordDescriptors[0] = recordDescriptor;
+    }
+
+    @Override
+    public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+            final IRecordDescriptorProvider recordDescProvider, final int partition, int nPartitions)
+            throws HyracksDataException {
+        final RecordDescriptor inRecDesc = recordDescProvider.getInputRecordDescriptor(getActivityId(), 0);
+        return new AbstractUnaryInputUnaryOutputOperatorNodePushable() {
+            private FrameTupleAccessor accessor;
+            private ArrayTupleBuilder tb;
+            private List<byte[]> samples;
+            private List<int[]> sampleEndOffsets;
+            private Random random;
+            private long seen;
+
+            @Override
+            public void open() throws HyracksDataException {
+                accessor = new FrameTupleAccessor(ctx.getFrameSize(), inRecDesc);
+                tb = new ArrayTupleBuilder(sampleFields.length);
+                samples = new ArrayList<byte[]>();
+                sampleEndOffsets = new ArrayList<int[]>();
+                random = new Random(partition);
+                seen = 0;
+                writer.open();
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                accessor.reset(buffer);
+                int tupleCount = accessor.getTupleCount();
+                for (int i = 0; i < tupleCount; ++i) {
+                    ++seen;
+                    if (samples.size() < sampleSize) {
+                        copySample(i);
+                        samples.add(Arrays.copyOf(tb.getByteArray(), tb.getSize()));
+                        sampleEndOffsets.add(Arrays.copyOf(tb.getFieldEndOffsets(), sampleFields.length));
+                    } else {
+                        long r = (long) (random.nextDouble() * seen);
+                        if (r < sampleSize) {
+                            copySample(i);
+                            samples.set((int) r, Arrays.copyOf(tb.getByteArray(), tb.getSize()));
+                            sampleEndOffsets.set((int) r, Arrays.copyOf(tb.getFieldEndOffsets(), sampleFields.length));
+                        }
+                    }
+                }
+            }
+
+            private void copySample(int tIndex) throws HyracksDataException {
+                tb.reset();
+                for (int f = 0; f < sampleFields.length; ++f) {
+                    tb.addField(accessor, tIndex, sampleFields[f]);
+                }
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                try {
+                    FrameTupleAppender appender = new FrameTupleAppender(ctx.getFrameSize());
+                    ByteBuffer outBuffer = ctx.allocateFrame();
+                    appender.reset(outBuffer, true);
+                    for (int i = 0; i < samples.size(); ++i) {
+                        byte[] sample = samples.get(i);
+                        int[] ends = sampleEndOffsets.get(i);
+                        if (!appender.append(ends, sample, 0, sample.length)) {
+                            FrameUtils.flushFrame(outBuffer, writer);
+                            appender.reset(outBuffer, true);
+                            if (!appender.append(ends, sample, 0, sample.length)) {
+                                throw new HyracksDataException("Sample too large for a frame.");
+                            }
+                        }
+                    }
+                    if (appender.getTupleCount() > 0) {
+                        FrameUtils.flushFrame(outBuffer, writer);
+                    }
+                } finally {
+                    samples = null;
+                    sampleEndOffsets = null;
+                    writer.close();
+                }
+            }
+
+            @Override
+            public void fail() throws HyracksDataException {
+                writer.fail();
+            }
+        };
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.sort;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.ActivityId;
+import edu.uci.ics.hyracks.api.dataflow.IActivityGraphBuilder;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
+import edu.uci.ics.hyracks.api.dataflow.OperatorDescriptorId;
+import edu.uci.ics.hyracks.api.dataflow.TaskId;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.IOperatorDescriptorRegistry;
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.RangeMap;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractActivityNode;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractStateObject;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputSinkOperatorNodePushable;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
+
+/**
+ * Makes the split points of a range-partitioned sort available to a
+ * {@link edu.uci.ics.hyracks.dataflow.std.connectors.RangePartitioningConnectorDescriptor}. Input 0 receives the key
+ * samples of all {@link RangeSampleOperatorDescriptor} partitions through an M:N replicating connector; only when
+ * they are all in does the operator pass input 1 through to its output unchanged. The output must be connected to a
+ * range partitioning connector created for this operator, whose partitioners pick the splits from the samples kept
+ * in the task state of the same partition, see {@link RangeSplitSelector}. Since input 1 is only read after all
+ * samples have been seen, it has to be materialized when it comes from the same operator as the samples.
+ */
+public class RangeSplitOperatorDescriptor extends AbstractOperatorDescriptor {
+    private static final long serialVersionUID = 1L;
+
+    private static final int SAMPLE_ACTIVITY_ID = 0;
+    private static final int PASS_ACTIVITY_ID = 1;
+
+    private final IBinaryComparatorFactory[] comparatorFactories;
+
+    public RangeSplitOperatorDescriptor(IOperatorDescriptorRegistry spec,
+            IBinaryComparatorFactory[] comparatorFactories, RecordDescriptor recordDescriptor) {
+        super(spec, 2, 1);
+        this.comparatorFactories = comparatorFactories;
+        recordDescriptors[0] = recordDescriptor;
+    }
+
+    @Override
+    public void contributeActivities(IActivityGraphBuilder builder) {
+        SampleActivityNode sa = new SampleActivityNode(new ActivityId(odId, SAMPLE_ACTIVITY_ID));
+        PassActivityNode pa = new PassActivityNode(new ActivityId(odId, PASS_ACTIVITY_ID));
+
+        builder.addActivity(this, sa);
+        builder.addSourceEdge(0, sa, 0);
+
+        builder.addActivity(this, pa);
+        builder.addSourceEdge(1, pa, 0);
+        builder.addTargetEdge(0, pa, 0);
+
+        builder.addBlockingEdge(sa, pa);
+    }
+
+    /**
+     * @return the range map that cuts the samples seen by the given partition of the splitter into nPartitions
+     *         ranges of equal size
+     */
+    public static RangeMap getRangeMap(IHyracksTaskContext ctx, OperatorDescriptorId splitterId, int partition,
+            int nPartitions) throws HyracksDataException {
+        SamplesTaskState state = (SamplesTaskState) ctx.getStateObject(new TaskId(new ActivityId(splitterId,
+                SAMPLE_ACTIVITY_ID), partition));
+        if (state == null) {
+            throw new HyracksDataException("No samples were collected by partition " + partition + " of "
+                    + splitterId);
+        }
+        return state.selector.createRangeMap(nPartitions);
+    }
+
+    public static class SamplesTaskState extends AbstractStateObject {
+        private RangeSplitSelector selector;
+
+        public SamplesTaskState() {
+        }
+
+        private SamplesTaskState(JobId jobId, TaskId taskId) {
+            super(jobId, taskId);
+        }
+
+        @Override
+        public void toBytes(DataOutput out) throws IOException {
+
+        }
+
+        @Override
+        public void fromBytes(DataInput in) throws IOException {
+
+        }
+    }
+
+    private class SampleActivityNode extends AbstractActivityNode {
+        private static final long serialVersionUID = 1L;
+
+        public SampleActivityNode(ActivityId id) {
+            super(id);
+        }
+
+        @Override
+        public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+                IRecordDescriptorProvider recordDescProvider, final int partition, int nPartitions) {
+            final FrameTupleAccessor accessor = new FrameTupleAccessor(ctx.getFrameSize(),
+                    recordDescProvider.getInputRecordDescriptor(getActivityId(), 0));
+            return new AbstractUnaryInputSinkOperatorNodePushable() {
+                private SamplesTaskState state;
+
+                @Override
+                public void open() throws HyracksDataException {
+                    state = new SamplesTaskState(ctx.getJobletContext().getJobId(), new TaskId(getActivityId(),
+                            partition));
+                    IBinaryComparator[] comparators = new IBinaryComparator[comparatorFactories.length];
+                    for (int i = 0; i < comparatorFactories.length; ++i) {
+                        comparators[i] = comparatorFactories[i].createBinaryComparator();
+                    }
+                    state.selector = new RangeSplitSelector(comparators);
+                }
+
+                @Override
+                public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    accessor.reset(buffer);
+                    state.selector.addSamples(accessor);
+                }
+
+                @Override
+                public void close() throws HyracksDataException {
+                    ctx.setStateObject(state);
+                }
+
+                @Override
+                public void fail() throws HyracksDataException {
+                }
+            };
+        }
+    }
+
+    private class PassActivityNode extends AbstractActivityNode {
+        private static final long serialVersionUID = 1L;
+
+        public PassActivityNode(ActivityId id) {
+            super(id);
+        }
+
+        @Override
+        public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+                IRecordDescriptorProvider recordDescProvider, int partition, int nPartitions) {
+            return new AbstractUnaryInputUnaryOutputOperatorNodePushable() {
+                @Override
+                public void open() throws HyracksDataException {
+                    writer.open();
+                }
+
+                @Override
+                public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    writer.nextFrame(buffer);
+                }
+
+                @Override
+                public void fail() throws HyracksDataException {
+                    writer.fail();
+                }
+
+                @Override
+                public void close() throws HyracksDataException {
+                    writer.close();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.RangeMap;
+
+/**
+ * Collects a sample of sort keys and picks the split points that cut it into ranges of equal size. The sample tuples
+ * hold exactly the key fields, in comparator order. Given the same sample in any order, the same splits are picked.
+ */
+public class RangeSplitSelector {
+    private final IBinaryComparator[] comparators;
+    private final ArrayTupleBuilder tb;
+    private final List<byte[]> keys;
+    private final List<int[]> keyEndOffsets;
+
+    public RangeSplitSelector(IBinaryComparator[] comparators) {
+        this.comparators = comparators;
+        tb = new ArrayTupleBuilder(comparators.length);
+        keys = new ArrayList<byte[]>();
+        keyEndOffsets = new ArrayList<int[]>();
+    }
+
+    public void addSamples(IFrameTupleAccessor accessor) throws HyracksDataException {
+        int tupleCount = accessor.getTupleCount();
+        for (int i = 0; i < tupleCount; ++i) {
+            tb.reset();
+            for (int f = 0; f < comparators.length; ++f) {
+                tb.addField(accessor, i, f);
+            }
+            keys.add(Arrays.copyOf(tb.getByteArray(), tb.getSize()));
+            keyEndOffsets.add(Arrays.copyOf(tb.getFieldEndOffsets(), comparators.length));
+        }
+    }
+
+    public int getSampleCount() {
+        return keys.size();
+    }
+
+    /**
+     * Returns the nPartitions - 1 splits at the quantiles of the sample, or no splits if the sample is empty.
+     */
+    public RangeMap createRangeMap(int nPartitions) {
+        int n = keys.size();
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; ++i) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compareKeys(a, b);
+            }
+        });
+        List<Integer> splits = new ArrayList<Integer>();
+        if (n > 0) {
+            for (int p = 1; p < nPartitions; ++p) {
+                splits.add(order[(int) ((long) p * n / nPartitions)]);
+            }
+        }
+        int size = 0;
+        for (Integer s : splits) {
+            size += keys.get(s).length;
+        }
+        byte[] bytes = new byte[size];
+        int[] endOffsets = new int[splits.size() * comparators.length];
+        int pos = 0;
+        for (int i = 0; i < splits.size(); ++i) {
+            byte[] key = keys.get(splits.get(i));
+            int[] ends = keyEndOffsets.get(splits.get(i));
+            System.arraycopy(key, 0, bytes, pos, key.length);
+            for (int f = 0; f < comparators.length; ++f) {
+                endOffsets[i * comparators.length + f] = pos + ends[f];
+            }
+            pos += key.length;
+        }
+        return new RangeMap(comparators.length, bytes, endOffsets);
+    }
+
+    private int compareKeys(int a, int b) {
+        byte[] keyA = keys.get(a);
+        byte[] keyB = keys.get(b);
+        int[] endsA = keyEndOffsets.get(a);
+        int[] endsB = keyEndOffsets.get(b);
+        for (int f = 0; f < comparators.length; ++f) {
+            int startA = f == 0 ? 0 : endsA[f - 1];
+            int startB = f == 0 ? 0 : endsB[f - 1];
+            int c = comparators[f].compare(keyA, startA, endsA[f] - startA, keyB, startB, endsB[f] - startB);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+}
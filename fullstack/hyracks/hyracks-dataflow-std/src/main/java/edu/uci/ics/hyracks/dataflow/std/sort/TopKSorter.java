@@ -0,0 +1,458 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.sort;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uci.ics.hyracks.api.comm.IFrameReader;
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.INormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.common.io.RunFileWriter;
+
+/**
+ * Keeps the first K tuples of its input (in sort order) in a bounded max-heap of tuple pointers.
+ * Every heap entry points into a copy of the tuple in one of the data frames, so once the heap holds K tuples an
+ * input tuple that does not beat the current K-th one is rejected after a single comparison, without being copied.
+ * Tuples evicted from the heap leave garbage behind in the data frames; when the data frames are full, the live
+ * tuples are compacted into a second, equally sized area. Only if K tuples do not fit into half of the frame
+ * budget does the sorter fall back to {@link OptimizedExternalSortRunGeneratorWithLimit} and a limited merge; the
+ * heap is then written out as the first run and its frames are released before the run generator takes the frame
+ * budget.
+ * Ties are broken by arrival order, so the in-memory path returns the same tuples, in the same order, as a stable
+ * sort followed by a limit.
+ */
+public class TopKSorter {
+    private static final int ENTRY_SIZE = 5;
+
+    private final IHyracksTaskContext ctx;
+    private final int[] sortFields;
+    private final INormalizedKeyComputerFactory firstKeyNormalizerFactory;
+    private final IBinaryComparatorFactory[] comparatorFactories;
+    private final INormalizedKeyComputer nkc;
+    private final IBinaryComparator[] comparators;
+    private final RecordDescriptor recordDescriptor;
+    private final int framesLimit;
+    private final int areaFrameCount;
+    private final int fieldSlotsLength;
+
+    private final FrameTupleAccessor inAccessor;
+    private final FrameTupleAccessor dataAccessor;
+    private final FrameTupleAppender appender;
+    private final ByteBuffer outFrame;
+
+    private List<ByteBuffer> dataFrames;
+    private List<ByteBuffer> spareFrames;
+    private int currentFrame;
+
+    private int limit;
+    /**
+     * Entries of ENTRY_SIZE ints: data frame index, tuple start, tuple end, normalized key, arrival number.
+     */
+    private int[] heap;
+    private int[] compactedHeap;
+    private int heapSize;
+    private int arrivals;
+
+    private OptimizedExternalSortRunGeneratorWithLimit runGenerator;
+    private IFrameReader heapRun;
+
+    public TopKSorter(IHyracksTaskContext ctx, int[] sortFields,
+            INormalizedKeyComputerFactory firstKeyNormalizerFactory, IBinaryComparatorFactory[] comparatorFactories,
+            RecordDescriptor recordDescriptor, int framesLimit) {
+        if (framesLimit < 3) {
+            throw new IllegalStateException("frame limit should at least be 3, but it is " + framesLimit + "!");
+        }
+        this.ctx = ctx;
+        this.sortFields = sortFields;
+        this.firstKeyNormalizerFactory = firstKeyNormalizerFactory;
+        this.comparatorFactories = comparatorFactories;
+        nkc = firstKeyNormalizerFactory == null ? null : firstKeyNormalizerFactory.createNormalizedKeyComputer();
+        comparators = new IBinaryComparator[comparatorFactories.length];
+        for (int i = 0; i < comparatorFactories.length; ++i) {
+            comparators[i] = comparatorFactories[i].createBinaryComparator();
+        }
+        this.recordDescriptor = recordDescriptor;
+        this.framesLimit = framesLimit;
+        // one frame for output, the rest is split between the data area and the compaction area
+        this.areaFrameCount = (framesLimit - 1) / 2;
+        this.fieldSlotsLength = recordDescriptor.getFieldCount() * 4;
+        inAccessor = new FrameTupleAccessor(ctx.getFrameSize(), recordDescriptor);
+        dataAccessor = new FrameTupleAccessor(ctx.getFrameSize(), recordDescriptor);
+        appender = new FrameTupleAppender(ctx.getFrameSize());
+        outFrame = ctx.allocateFrame();
+        dataFrames = new ArrayList<ByteBuffer>();
+        spareFrames = new ArrayList<ByteBuffer>();
+        reset(0);
+    }
+
+    /**
+     * Discards the current contents and starts collecting the first limit tuples of a new input.
+     */
+    public void reset(int limit) {
+        this.limit = limit;
+        heapSize = 0;
+        arrivals = 0;
+        currentFrame = -1;
+        runGenerator = null;
+        heapRun = null;
+    }
+
+    public void insertFrame(ByteBuffer buffer) throws HyracksDataException {
+        if (limit <= 0) {
+            return;
+        }
+        if (runGenerator != null) {
+            runGenerator.nextFrame(buffer);
+            return;
+        }
+        inAccessor.reset(buffer);
+        int tCount = inAccessor.getTupleCount();
+        int sfIdx = sortFields[0];
+        byte[] array = buffer.array();
+        for (int i = 0; i < tCount; ++i) {
+            int tStart = inAccessor.getTupleStartOffset(i);
+            int pnk = 0;
+            if (nkc != null) {
+                int f0StartRel = inAccessor.getFieldStartOffset(i, sfIdx);
+                int f0EndRel = inAccessor.getFieldEndOffset(i, sfIdx);
+                pnk = nkc.normalize(array, tStart + fieldSlotsLength + f0StartRel, f0EndRel - f0StartRel);
+            }
+            if (heapSize == limit
+                    && compare(buffer, tStart, pnk, dataFrames.get(heap[0]), heap[1], heap[3]) >= 0) {
+                // ties lose against the earlier arrival at the top of the heap
+                continue;
+            }
+            if (!append(i)) {
+                if (!compact() || !append(i)) {
+                    switchToRunGeneration(i);
+                    return;
+                }
+            }
+            dataAccessor.reset(dataFrames.get(currentFrame));
+            int tIndex = appender.getTupleCount() - 1;
+            int e = heapSize < limit ? heapSize++ : 0;
+            ensureHeapCapacity();
+            heap[e * ENTRY_SIZE] = currentFrame;
+            heap[e * ENTRY_SIZE + 1] = dataAccessor.getTupleStartOffset(tIndex);
+            heap[e * ENTRY_SIZE + 2] = dataAccessor.getTupleEndOffset(tIndex);
+            heap[e * ENTRY_SIZE + 3] = pnk;
+            heap[e * ENTRY_SIZE + 4] = arrivals++;
+            if (e == 0) {
+                siftDown(0, heapSize);
+            } else {
+                siftUp(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the collected tuples to the writer in sort order. The writer is neither opened nor closed.
+     */
+    public void flush(IFrameWriter writer) throws HyracksDataException {
+        if (runGenerator != null) {
+            runGenerator.close();
+            List<IFrameReader> runs = new ArrayList<IFrameReader>(runGenerator.getRuns());
+            runs.add(0, heapRun);
+            runGenerator = null;
+            heapRun = null;
+            ExternalSortRunMerger merger = new ExternalSortRunMerger(ctx, limit, runs, sortFields, comparators,
+                    recordDescriptor, Math.min(runs.size() + 2, framesLimit), new NonClosingFrameWriter(writer));
+            merger.processWithReplacementSelection();
+            return;
+        }
+        writeSorted(writer);
+    }
+
+    /**
+     * Releases the frames and the heap. The sorter can still be reset and used again afterwards.
+     */
+    public void close() {
+        dataFrames.clear();
+        spareFrames.clear();
+        heap = null;
+        compactedHeap = null;
+        runGenerator = null;
+        heapRun = null;
+    }
+
+    /**
+     * Writes the tuples referenced by the heap to the writer in sort order and empties the heap.
+     */
+    private void writeSorted(IFrameWriter writer) throws HyracksDataException {
+        // heapsort in place: repeatedly move the largest remaining tuple behind the shrinking heap
+        for (int n = heapSize - 1; n > 0; --n) {
+            swap(0, n);
+            siftDown(0, n);
+        }
+        appender.reset(outFrame, true);
+        for (int e = 0; e < heapSize; ++e) {
+            dataAccessor.reset(dataFrames.get(heap[e * ENTRY_SIZE]));
+            int tStart = heap[e * ENTRY_SIZE + 1];
+            int tEnd = heap[e * ENTRY_SIZE + 2];
+            if (!appender.append(dataAccessor, tStart, tEnd)) {
+                FrameUtils.flushFrame(outFrame, writer);
+                appender.reset(outFrame, true);
+                if (!appender.append(dataAccessor, tStart, tEnd)) {
+                    throw new IllegalStateException();
+                }
+            }
+        }
+        if (appender.getTupleCount() > 0) {
+            FrameUtils.flushFrame(outFrame, writer);
+        }
+        heapSize = 0;
+    }
+
+    /**
+     * Copies the i-th input tuple to the end of the data area.
+     *
+     * @return false if the data area is full
+     */
+    private boolean append(int i) throws HyracksDataException {
+        if (currentFrame >= 0 && appender.append(inAccessor, i)) {
+            return true;
+        }
+        if (currentFrame + 1 >= areaFrameCount) {
+            return false;
+        }
+        currentFrame++;
+        appender.reset(getFrame(dataFrames, currentFrame), true);
+        if (!appender.append(inAccessor, i)) {
+            throw new HyracksDataException("Record size larger than frame size (" + ctx.getFrameSize() + ")");
+        }
+        return true;
+    }
+
+    /**
+     * Copies the tuples referenced by the heap into the spare area and swaps the two areas.
+     *
+     * @return false if the live tuples take more than half of an area, in which case compacting again and again
+     *         would cost more than spilling
+     */
+    private boolean compact() {
+        if (compactedHeap == null || compactedHeap.length < heap.length) {
+            compactedHeap = new int[heap.length];
+        }
+        int target = 0;
+        long liveBytes = 0;
+        appender.reset(getFrame(spareFrames, target), true);
+        for (int e = 0; e < heapSize; ++e) {
+            dataAccessor.reset(dataFrames.get(heap[e * ENTRY_SIZE]));
+            int tStart = heap[e * ENTRY_SIZE + 1];
+            int tEnd = heap[e * ENTRY_SIZE + 2];
+            if (!appender.append(dataAccessor, tStart, tEnd)) {
+                if (++target >= areaFrameCount) {
+                    return false;
+                }
+                appender.reset(getFrame(spareFrames, target), true);
+                appender.append(dataAccessor, tStart, tEnd);
+            }
+            liveBytes += tEnd - tStart + 4;
+            dataAccessor.reset(appender.getBuffer());
+            int newStart = dataAccessor.getTupleStartOffset(appender.getTupleCount() - 1);
+            compactedHeap[e * ENTRY_SIZE] = target;
+            compactedHeap[e * ENTRY_SIZE + 1] = newStart;
+            compactedHeap[e * ENTRY_SIZE + 2] = newStart + tEnd - tStart;
+            compactedHeap[e * ENTRY_SIZE + 3] = heap[e * ENTRY_SIZE + 3];
+            compactedHeap[e * ENTRY_SIZE + 4] = heap[e * ENTRY_SIZE + 4];
+        }
+        if (liveBytes * 2 > (long) areaFrameCount * ctx.getFrameSize()) {
+            return false;
+        }
+        int[] tHeap = heap;
+        heap = compactedHeap;
+        compactedHeap = tHeap;
+        List<ByteBuffer> tFrames = dataFrames;
+        dataFrames = spareFrames;
+        spareFrames = tFrames;
+        currentFrame = target;
+        return true;
+    }
+
+    /**
+     * Writes the heap out as a sorted run and releases the data and spare frames, then hands the rest of the current
+     * input frame, starting at tuple i, to an external sort run generator with the same limit. The run generator
+     * allocates its own frames, so the heap's frames must be gone before it is opened to stay within framesLimit.
+     */
+    private void switchToRunGeneration(int i) throws HyracksDataException {
+        FileReference file = ctx.getJobletContext().createManagedWorkspaceFile(TopKSorter.class.getSimpleName());
+        RunFileWriter runWriter = new RunFileWriter(file, ctx);
+        runWriter.open();
+        try {
+            writeSorted(runWriter);
+        } finally {
+            runWriter.close();
+        }
+        heapRun = runWriter.createReader();
+        dataFrames.clear();
+        spareFrames.clear();
+        heap = null;
+        compactedHeap = null;
+        currentFrame = -1;
+        runGenerator = new OptimizedExternalSortRunGeneratorWithLimit(ctx, sortFields, firstKeyNormalizerFactory,
+                comparatorFactories, recordDescriptor, framesLimit, limit);
+        runGenerator.open();
+        appender.reset(outFrame, true);
+        int tCount = inAccessor.getTupleCount();
+        for (int j = i; j < tCount; ++j) {
+            if (!appender.append(inAccessor, j)) {
+                runGenerator.nextFrame(outFrame);
+                appender.reset(outFrame, true);
+                if (!appender.append(inAccessor, j)) {
+                    throw new HyracksDataException("Record size larger than frame size (" + ctx.getFrameSize()
+                            + ")");
+                }
+            }
+        }
+        if (appender.getTupleCount() > 0) {
+            runGenerator.nextFrame(outFrame);
+        }
+    }
+
+    private ByteBuffer getFrame(List<ByteBuffer> frames, int index) {
+        if (index == frames.size()) {
+            frames.add(ctx.allocateFrame());
+        }
+        return frames.get(index);
+    }
+
+    private void ensureHeapCapacity() {
+        if (heap == null || heap.length < heapSize * ENTRY_SIZE) {
+            int capacity = heap == null ? 64 : heap.length / ENTRY_SIZE * 2;
+            capacity = Math.max(heapSize, Math.min(capacity, limit));
+            int[] newHeap = new int[capacity * ENTRY_SIZE];
+            if (heap != null) {
+                System.arraycopy(heap, 0, newHeap, 0, heap.length);
+            }
+            heap = newHeap;
+        }
+    }
+
+    private void siftUp(int e) {
+        while (e > 0) {
+            int parent = (e - 1) >> 1;
+            if (compare(e, parent) <= 0) {
+                return;
+            }
+            swap(e, parent);
+            e = parent;
+        }
+    }
+
+    private void siftDown(int e, int size) {
+        while (true) {
+            int largest = e;
+            int left = 2 * e + 1;
+            int right = left + 1;
+            if (left < size && compare(left, largest) > 0) {
+                largest = left;
+            }
+            if (right < size && compare(right, largest) > 0) {
+                largest = right;
+            }
+            if (largest == e) {
+                return;
+            }
+            swap(e, largest);
+            e = largest;
+        }
+    }
+
+    private int compare(int e1, int e2) {
+        int o1 = e1 * ENTRY_SIZE;
+        int o2 = e2 * ENTRY_SIZE;
+        int c = compare(dataFrames.get(heap[o1]), heap[o1 + 1], heap[o1 + 3], dataFrames.get(heap[o2]),
+                heap[o2 + 1], heap[o2 + 3]);
+        if (c != 0) {
+            return c;
+        }
+        return heap[o1 + 4] < heap[o2 + 4] ? -1 : (heap[o1 + 4] == heap[o2 + 4] ? 0 : 1);
+    }
+
+    private int compare(ByteBuffer buf1, int j1, int v1, ByteBuffer buf2, int j2, int v2) {
+        if (v1 != v2) {
+            return ((((long) v1) & 0xffffffffL) < (((long) v2) & 0xffffffffL)) ? -1 : 1;
+        }
+        byte[] b1 = buf1.array();
+        byte[] b2 = buf2.array();
+        for (int f = 0; f < comparators.length; ++f) {
+            int fIdx = sortFields[f];
+            int f1Start = fIdx == 0 ? 0 : buf1.getInt(j1 + (fIdx - 1) * 4);
+            int f1End = buf1.getInt(j1 + fIdx * 4);
+            int s1 = j1 + fieldSlotsLength + f1Start;
+            int l1 = f1End - f1Start;
+            int f2Start = fIdx == 0 ? 0 : buf2.getInt(j2 + (fIdx - 1) * 4);
+            int f2End = buf2.getInt(j2 + fIdx * 4);
+            int s2 = j2 + fieldSlotsLength + f2Start;
+            int l2 = f2End - f2Start;
+            int c = comparators[f].compare(b1, s1, l1, b2, s2, l2);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private void swap(int e1, int e2) {
+        int o1 = e1 * ENTRY_SIZE;
+        int o2 = e2 * ENTRY_SIZE;
+        for (int i = 0; i < ENTRY_SIZE; ++i) {
+            int t = heap[o1 + i];
+            heap[o1 + i] = heap[o2 + i];
+            heap[o2 + i] = t;
+        }
+    }
+
+    /**
+     * The merger opens and closes its writer itself; the caller of {@link TopKSorter#flush} owns that lifecycle.
+     */
+    private static class NonClosingFrameWriter implements IFrameWriter {
+        private final IFrameWriter writer;
+
+        NonClosingFrameWriter(IFrameWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void open() throws HyracksDataException {
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            writer.nextFrame(buffer);
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+            writer.fail();
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.structures;
+
+import java.util.Arrays;
+
+import edu.uci.ics.hyracks.api.comm.IFrameTupleAccessor;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunction;
+
+/**
+ * Sampling-based detection of heavy-hitter join/grouping keys.
+ * Keys are tracked by their 32-bit key hash using the Space-Saving algorithm with a bounded
+ * number of counters, so the memory footprint is independent of the number of distinct keys.
+ * Every sampleRate-th offered key is counted.
+ * The detected hashes are handed to both sides of a skew-aware repartitioning
+ * (see {@link edu.uci.ics.hyracks.dataflow.std.misc.HeavyHitterSamplerOperatorDescriptor}),
+ * so a hash collision only causes a non-hot key to be treated as hot, which is still correct.
+ */
+public class HeavyHitterDetector {
+    private final int[] hashes;
+    private final long[] counts;
+    private final int sampleRate;
+    private int size;
+    private long offered;
+    private long sampled;
+
+    public HeavyHitterDetector(int capacity, int sampleRate) {
+        if (capacity <= 0 || sampleRate <= 0) {
+            throw new IllegalArgumentException("capacity and sampleRate must be positive");
+        }
+        this.hashes = new int[capacity];
+        this.counts = new long[capacity];
+        this.sampleRate = sampleRate;
+    }
+
+    public void offer(int keyHash) {
+        if (offered++ % sampleRate != 0) {
+            return;
+        }
+        sampled++;
+        int minIndex = 0;
+        for (int i = 0; i < size; ++i) {
+            if (hashes[i] == keyHash) {
+                counts[i]++;
+                return;
+            }
+            if (counts[i] < counts[minIndex]) {
+                minIndex = i;
+            }
+        }
+        if (size < hashes.length) {
+            hashes[size] = keyHash;
+            counts[size] = 1;
+            size++;
+            return;
+        }
+        // Space-Saving: the new key takes over the least frequent counter and inherits its count
+        hashes[minIndex] = keyHash;
+        counts[minIndex]++;
+    }
+
+    public void offer(IFrameTupleAccessor accessor, int tIndex, int[] keyFields,
+            IBinaryHashFunction[] hashFunctions) {
+        offer(hashKey(accessor, tIndex, keyFields, hashFunctions));
+    }
+
+    public long getSampledCount() {
+        return sampled;
+    }
+
+    /**
+     * @param minFraction
+     *            minimum estimated share of the sampled keys for a key to be reported
+     * @return the sorted hashes of all keys whose estimated frequency is at least minFraction
+     */
+    public int[] getHeavyHitters(double minFraction) {
+        int[] result = new int[size];
+        int n = 0;
+        double threshold = minFraction * sampled;
+        for (int i = 0; i < size; ++i) {
+            if (counts[i] > 0 && counts[i] >= threshold) {
+                result[n++] = hashes[i];
+            }
+        }
+        result = Arrays.copyOf(result, n);
+        Arrays.sort(result);
+        return result;
+    }
+
+    public void reset() {
+        size = 0;
+        offered = 0;
+        sampled = 0;
+    }
+
+    /**
+     * Computes the key hash the same way {@link edu.uci.ics.hyracks.dataflow.common.data.partition.FieldHashPartitionComputerFactory}
+     * does before taking the modulo, so detection and partitioning agree on a key's identity.
+     */
+    public static int hashKey(IFrameTupleAccessor accessor, int tIndex, int[] keyFields,
+            IBinaryHashFunction[] hashFunctions) {
+        int h = 0;
+        int startOffset = accessor.getTupleStartOffset(tIndex);
+        int slotLength = accessor.getFieldSlotsLength();
+        for (int j = 0; j < keyFields.length; ++j) {
+            int fIdx = keyFields[j];
+            int fStart = accessor.getFieldStartOffset(tIndex, fIdx);
+            int fEnd = accessor.getFieldEndOffset(tIndex, fIdx);
+            int fh = hashFunctions[j].hash(accessor.getBuffer().array(), startOffset + slotLength + fStart, fEnd
+                    - fStart);
+            h = h * 31 + fh;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.structures;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+
+/**
+ * A frame-backed, linear-probing hash table of tuple pointers, keyed by the full hash of the tuple's key.
+ * Every slot stores the hash next to the tuple pointer. A probe walks the contiguous run of slots that starts at
+ * the hash's home slot and only reports the pointers whose stored hash equals the probe hash, so tuples of other
+ * keys are skipped without being compared. Tuples with the same hash are returned in insertion order, which keeps
+ * the {@link ISerializableTable} contract: getTuplePointer(hash, offset) with increasing offsets is answered by
+ * resuming the previous probe rather than restarting it.
+ * Callers should compute the hash with {@link #HASH_RANGE} partitions instead of reducing it modulo their table
+ * size; a reduced hash still works, but then all tuples of a bucket match and have to be compared. The table size
+ * sets the initial number of slots, the smallest power of two that holds that many tuples within the configured
+ * maximum load factor, and the table doubles whenever the load factor would exceed it; since the hashes are stored,
+ * growing never touches the tuples themselves. Like the header frames of {@link SerializableHashTable}, slot frames
+ * are only allocated when the first tuple is stored in them.
+ * An insert walks past every earlier tuple with the same hash, so that a key with d duplicates would cost O(d^2);
+ * to avoid that, the table remembers for every group of {@code 1 << HINT_SHIFT} home slots the slot of the last
+ * insert and resumes after it when the next insert carries the same hash. The hints live on the heap and take
+ * an int per group, a twenty-fourth of the memory of the slot frames.
+ */
+public class OpenAddressingHashTable implements ISerializableTable {
+    public static final double DEFAULT_MAX_LOAD_FACTOR = 0.5;
+
+    /**
+     * The number of partitions to ask an {@link edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputer} for
+     * when its result is used as the hash of a tuple. Hash partitioners then return their hash code unreduced.
+     */
+    public static final int HASH_RANGE = Integer.MAX_VALUE;
+
+    private static final int INT_SIZE = 4;
+    private static final int SLOT_SIZE = 3 * INT_SIZE;
+    private static final int HASH_OFFSET = 0;
+    private static final int FRAME_INDEX_OFFSET = INT_SIZE;
+    private static final int TUPLE_INDEX_OFFSET = 2 * INT_SIZE;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int HINT_SHIFT = 3;
+    private static final ByteBuffer[] NO_FRAMES = new ByteBuffer[0];
+    private static final int[] NO_SLOTS = new int[0];
+
+    private final IHyracksTaskContext ctx;
+    private final double maxLoadFactor;
+    private final int slotsPerFrame;
+    private final int initialCapacity;
+
+    private ByteBuffer[] frames;
+    private int[] lastSlots;
+    private int capacity;
+    private int shift;
+    private int growThreshold;
+    private int tupleCount;
+    private int frameCount;
+
+    /**
+     * The last answered probe, so that the next offset of the same hash resumes from its slot.
+     */
+    private int cursorHash;
+    private int cursorOffset;
+    private int cursorSlot;
+
+    public OpenAddressingHashTable(int tableSize, IHyracksTaskContext ctx) {
+        this(tableSize, ctx, DEFAULT_MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * @param tableSize
+     *            the expected number of tuples; it sets the initial number of slots
+     * @param maxLoadFactor
+     *            the fraction of occupied slots above which the table doubles, in (0, 1)
+     */
+    public OpenAddressingHashTable(int tableSize, IHyracksTaskContext ctx, double maxLoadFactor) {
+        if (maxLoadFactor <= 0 || maxLoadFactor >= 1) {
+            throw new IllegalStateException("load factor should be in (0, 1), but it is " + maxLoadFactor + "!");
+        }
+        this.ctx = ctx;
+        this.maxLoadFactor = maxLoadFactor;
+        this.slotsPerFrame = ctx.getFrameSize() / SLOT_SIZE;
+        int cap = MIN_CAPACITY;
+        while (cap < MAX_CAPACITY && cap * maxLoadFactor < tableSize) {
+            cap <<= 1;
+        }
+        this.initialCapacity = cap;
+        allocate(initialCapacity);
+    }
+
+    /**
+     * Inserts a tuple pointer under the hash of its key.
+     */
+    @Override
+    public void insert(int hash, TuplePointer tuplePointer) {
+        if (tupleCount >= growThreshold) {
+            grow();
+        }
+        insertSlot(hash, tuplePointer.frameIndex, tuplePointer.tupleIndex);
+        tupleCount++;
+        invalidateCursor();
+    }
+
+    /**
+     * Reads the offset-th tuple pointer inserted under the probe hash, or (-1, -1) if there are not that many.
+     * Slots holding other hashes are skipped.
+     */
+    @Override
+    public void getTuplePointer(int hash, int offset, TuplePointer tuplePointer) {
+        int slot;
+        if (tupleCount == 0) {
+            slot = -1;
+        } else if (offset == cursorOffset + 1 && hash == cursorHash) {
+            slot = cursorSlot < 0 ? -1 : findSlot(hash, (cursorSlot + 1) & (capacity - 1));
+        } else {
+            slot = findSlot(hash, homeSlot(hash));
+            for (int i = 0; i < offset && slot >= 0; ++i) {
+                slot = findSlot(hash, (slot + 1) & (capacity - 1));
+            }
+        }
+        cursorHash = hash;
+        cursorOffset = offset;
+        cursorSlot = slot;
+        getTuplePointerAt(slot, tuplePointer);
+    }
+
+    /**
+     * @return the number of slots; every slot index below it can be passed to {@link #getTuplePointerAt}
+     */
+    public int getSlotCount() {
+        return capacity;
+    }
+
+    /**
+     * Reads the tuple pointer stored in a slot, or (-1, -1) if the slot is empty. Scanning all slots visits
+     * every tuple exactly once, in no particular order.
+     */
+    public void getTuplePointerAt(int slot, TuplePointer tuplePointer) {
+        if (slot < 0) {
+            tuplePointer.frameIndex = -1;
+            tuplePointer.tupleIndex = -1;
+            return;
+        }
+        ByteBuffer frame = frames[slot / slotsPerFrame];
+        if (frame == null) {
+            tuplePointer.frameIndex = -1;
+            tuplePointer.tupleIndex = -1;
+            return;
+        }
+        int offset = (slot % slotsPerFrame) * SLOT_SIZE;
+        tuplePointer.frameIndex = frame.getInt(offset + FRAME_INDEX_OFFSET);
+        tuplePointer.tupleIndex = frame.getInt(offset + TUPLE_INDEX_OFFSET);
+    }
+
+    @Override
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public int getTupleCount() {
+        return tupleCount;
+    }
+
+    @Override
+    public void reset() {
+        for (ByteBuffer frame : frames) {
+            if (frame != null) {
+                clearFrame(frame);
+            }
+        }
+        Arrays.fill(lastSlots, -1);
+        tupleCount = 0;
+        invalidateCursor();
+    }
+
+    /**
+     * Drops all frames. The table stays usable: the next insert allocates the initial number of slots again.
+     */
+    @Override
+    public void close() {
+        frames = NO_FRAMES;
+        lastSlots = NO_SLOTS;
+        capacity = 0;
+        growThreshold = 0;
+        tupleCount = 0;
+        frameCount = 0;
+        invalidateCursor();
+    }
+
+    private void allocate(int newCapacity) {
+        capacity = newCapacity;
+        shift = 32 - Integer.numberOfTrailingZeros(newCapacity);
+        growThreshold = (int) (newCapacity * maxLoadFactor);
+        frames = new ByteBuffer[(newCapacity + slotsPerFrame - 1) / slotsPerFrame];
+        lastSlots = new int[Math.max(1, newCapacity >>> HINT_SHIFT)];
+        Arrays.fill(lastSlots, -1);
+        frameCount = 0;
+        tupleCount = 0;
+        invalidateCursor();
+    }
+
+    private void grow() {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("The hash table cannot grow beyond " + MAX_CAPACITY + " slots");
+        }
+        ByteBuffer[] oldFrames = frames;
+        int oldCapacity = capacity;
+        int oldTupleCount = tupleCount;
+        // start right after an empty slot, so that no run of slots is split and equal hashes keep their order
+        int start = 0;
+        while (oldCapacity > 0 && getFrameIndex(start) >= 0) {
+            start++;
+        }
+        allocate(Math.max(initialCapacity, oldCapacity << 1));
+        for (int j = 1; j <= oldCapacity; ++j) {
+            int i = (start + j) & (oldCapacity - 1);
+            ByteBuffer frame = oldFrames[i / slotsPerFrame];
+            if (frame == null) {
+                continue;
+            }
+            int offset = (i % slotsPerFrame) * SLOT_SIZE;
+            int frameIndex = frame.getInt(offset + FRAME_INDEX_OFFSET);
+            if (frameIndex < 0) {
+                continue;
+            }
+            insertSlot(frame.getInt(offset + HASH_OFFSET), frameIndex, frame.getInt(offset + TUPLE_INDEX_OFFSET));
+        }
+        tupleCount = oldTupleCount;
+    }
+
+    /**
+     * Takes the first empty slot at or after the home slot. Slots are never removed, so every earlier tuple with
+     * the same hash lies between the home slot and that slot, and a probe meets them in insertion order. If the
+     * hint of the home slot's group still holds a tuple with this hash, that tuple is the last one inserted with it,
+     * so the walk can start right after it.
+     */
+    private void insertSlot(int hash, int frameIndex, int tupleIndex) {
+        int mask = capacity - 1;
+        int home = homeSlot(hash);
+        int hint = home >>> HINT_SHIFT;
+        int slot = lastSlots[hint];
+        if (slot >= 0 && getHash(slot) == hash) {
+            slot = (slot + 1) & mask;
+        } else {
+            slot = home;
+        }
+        while (getFrameIndex(slot) >= 0) {
+            slot = (slot + 1) & mask;
+        }
+        ByteBuffer frame = frames[slot / slotsPerFrame];
+        if (frame == null) {
+            frame = ctx.allocateFrame();
+            clearFrame(frame);
+            frames[slot / slotsPerFrame] = frame;
+            frameCount++;
+        }
+        int offset = (slot % slotsPerFrame) * SLOT_SIZE;
+        frame.putInt(offset + HASH_OFFSET, hash);
+        frame.putInt(offset + FRAME_INDEX_OFFSET, frameIndex);
+        frame.putInt(offset + TUPLE_INDEX_OFFSET, tupleIndex);
+        lastSlots[hint] = slot;
+    }
+
+    /**
+     * Returns the first slot at or after startSlot holding the given hash, or -1 once the probe reaches an empty
+     * slot. The load factor guarantees that there is always an empty slot.
+     */
+    private int findSlot(int hash, int startSlot) {
+        int mask = capacity - 1;
+        int slot = startSlot;
+        while (true) {
+            ByteBuffer frame = frames[slot / slotsPerFrame];
+            if (frame == null) {
+                return -1;
+            }
+            int offset = (slot % slotsPerFrame) * SLOT_SIZE;
+            if (frame.getInt(offset + FRAME_INDEX_OFFSET) < 0) {
+                return -1;
+            }
+            if (frame.getInt(offset + HASH_OFFSET) == hash) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Fibonacci hashing: the high bits of the product depend on all bits of the hash, so hashes that agree in
+     * their low bits, such as the hashes of the tuples of one partition, still spread over the slots.
+     */
+    private int homeSlot(int hash) {
+        return (hash * 0x9E3779B9) >>> shift;
+    }
+
+    private int getFrameIndex(int slot) {
+        ByteBuffer frame = frames[slot / slotsPerFrame];
+        return frame == null ? -1 : frame.getInt((slot % slotsPerFrame) * SLOT_SIZE + FRAME_INDEX_OFFSET);
+    }
+
+    private int getHash(int slot) {
+        return frames[slot / slotsPerFrame].getInt((slot % slotsPerFrame) * SLOT_SIZE + HASH_OFFSET);
+    }
+
+    private void invalidateCursor() {
+        cursorOffset = -2;
+        cursorSlot = -1;
+    }
+
+    private static void clearFrame(ByteBuffer frame) {
+        // all bytes 0xff: every frame index reads as -1, i.e. every slot is empty
+        Arrays.fill(frame.array(), frame.arrayOffset(), frame.arrayOffset() + frame.capacity(), (byte) 0xff);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.test.join;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.dataflow.std.join.SpatialTileGrid;
+
+public class SpatialTileGridTest {
+    @Test
+    public void numbersTilesRowByRow() {
+        SpatialTileGrid grid = new SpatialTileGrid(0, 0, 100, 50, 4, 2);
+        Assert.assertEquals(8, grid.getTileCount());
+        Assert.assertEquals(0, grid.getTile(0.0, 0.0));
+        Assert.assertEquals(1, grid.getTile(25.0, 0.0));
+        Assert.assertEquals(3, grid.getTile(99.9, 24.9));
+        Assert.assertEquals(4, grid.getTile(0.0, 25.0));
+        Assert.assertEquals(7, grid.getTile(75.0, 49.9));
+    }
+
+    @Test
+    public void clampsOutOfBoundsCoordinates() {
+        SpatialTileGrid grid = new SpatialTileGrid(-10, -10, 10, 10, 5, 5);
+        Assert.assertEquals(0, grid.getColumn(-1000.0));
+        Assert.assertEquals(4, grid.getColumn(10.0));
+        Assert.assertEquals(4, grid.getColumn(Double.POSITIVE_INFINITY));
+        Assert.assertEquals(0, grid.getRow(Double.NEGATIVE_INFINITY));
+        Assert.assertEquals(4, grid.getRow(1000.0));
+    }
+
+    @Test
+    public void intersectionCornerLiesInTilesOfBothMBRs() {
+        // the spatial join outputs a pair from the tile of this corner, which must be one both tuples were copied to
+        SpatialTileGrid grid = new SpatialTileGrid(0, 0, 100, 100, 7, 9);
+        Random rnd = new Random(11);
+        for (int i = 0; i < 10000; ++i) {
+            double[] r = randomMBR(rnd);
+            double[] s = randomMBR(rnd);
+            if (r[0] > s[2] || s[0] > r[2] || r[1] > s[3] || s[1] > r[3]) {
+                continue;
+            }
+            double x = Math.max(r[0], s[0]);
+            double y = Math.max(r[1], s[1]);
+            int column = grid.getColumn(x);
+            int row = grid.getRow(y);
+            Assert.assertTrue(covers(grid, r, column, row));
+            Assert.assertTrue(covers(grid, s, column, row));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyBounds() {
+        new SpatialTileGrid(0, 0, 0, 10, 1, 1);
+    }
+
+    private static double[] randomMBR(Random rnd) {
+        double x = rnd.nextDouble() * 120 - 10;
+        double y = rnd.nextDouble() * 120 - 10;
+        return new double[] { x, y, x + rnd.nextDouble() * 30, y + rnd.nextDouble() * 30 };
+    }
+
+    private static boolean covers(SpatialTileGrid grid, double[] mbr, int column, int row) {
+        return grid.getColumn(mbr[0]) <= column && column <= grid.getColumn(mbr[2]) && grid.getRow(mbr[1]) <= row
+                && row <= grid.getRow(mbr[3]);
+    }
+}
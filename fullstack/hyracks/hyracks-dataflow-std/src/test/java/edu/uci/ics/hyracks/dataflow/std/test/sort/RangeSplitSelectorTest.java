@@ -0,0 +1,164 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.test.sort;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.ITuplePartitionComputer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.FieldRangePartitionComputerFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.RangeMap;
+import edu.uci.ics.hyracks.dataflow.std.sort.RangeSplitSelector;
+
+public class RangeSplitSelectorTest {
+    private static final int FRAME_SIZE = 32768;
+
+    private static final RecordDescriptor INT_DESC = new RecordDescriptor(
+            new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE });
+
+    private static final IBinaryComparatorFactory INT_CMP_FACTORY = new IBinaryComparatorFactory() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public IBinaryComparator createBinaryComparator() {
+            return new IBinaryComparator() {
+                @Override
+                public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+                    int v1 = IntegerSerializerDeserializer.getInt(b1, s1);
+                    int v2 = IntegerSerializerDeserializer.getInt(b2, s2);
+                    return v1 < v2 ? -1 : (v1 > v2 ? 1 : 0);
+                }
+            };
+        }
+    };
+
+    @Test
+    public void picksQuantileSplitsRegardlessOfSampleOrder() throws Exception {
+        List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; ++i) {
+            values.add(i);
+        }
+        Collections.shuffle(values, new Random(3));
+        RangeMap map = createRangeMap(values, 4);
+        Assert.assertEquals(3, map.getSplitCount());
+        Assert.assertEquals(250, splitValue(map, 0));
+        Assert.assertEquals(500, splitValue(map, 1));
+        Assert.assertEquals(750, splitValue(map, 2));
+
+        Collections.shuffle(values, new Random(5));
+        RangeMap other = createRangeMap(values, 4);
+        for (int s = 0; s < 3; ++s) {
+            Assert.assertEquals(splitValue(map, s), splitValue(other, s));
+        }
+
+        ITuplePartitionComputer tpc = partitioner(map);
+        FrameTupleAccessor accessor = frameOf(0, 249, 250, 499, 500, 999, -5, 2000);
+        int[] expected = { 0, 0, 1, 1, 2, 3, 0, 3 };
+        for (int i = 0; i < expected.length; ++i) {
+            Assert.assertEquals(expected[i], tpc.partition(accessor, i, 4));
+        }
+    }
+
+    @Test
+    public void keepsKeyOrderWhenPartitionCountDiffers() throws Exception {
+        List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < 800; ++i) {
+            values.add(i);
+        }
+        ITuplePartitionComputer tpc = partitioner(createRangeMap(values, 8));
+        int[] keys = new int[800];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = i;
+        }
+        FrameTupleAccessor accessor = frameOf(keys);
+        for (int nParts : new int[] { 1, 3, 5, 8, 13 }) {
+            int last = 0;
+            for (int i = 0; i < keys.length; ++i) {
+                int p = tpc.partition(accessor, i, nParts);
+                Assert.assertTrue(p >= last && p < nParts);
+                last = p;
+            }
+            // the 8 ranges are spread evenly, with more partitions than ranges some partitions stay empty
+            Assert.assertEquals(7 * nParts / 8, last);
+        }
+    }
+
+    @Test
+    public void sendsEverythingToFirstPartitionWithoutSamples() throws Exception {
+        RangeMap map = createRangeMap(new ArrayList<Integer>(), 4);
+        Assert.assertEquals(0, map.getSplitCount());
+        ITuplePartitionComputer tpc = partitioner(map);
+        FrameTupleAccessor accessor = frameOf(-1, 0, 1000);
+        for (int i = 0; i < 3; ++i) {
+            Assert.assertEquals(0, tpc.partition(accessor, i, 4));
+        }
+    }
+
+    private static RangeMap createRangeMap(List<Integer> samples, int nPartitions) throws Exception {
+        RangeSplitSelector selector = new RangeSplitSelector(
+                new IBinaryComparator[] { INT_CMP_FACTORY.createBinaryComparator() });
+        // spread the samples over several frames, as they arrive from the sampling partitions
+        for (int start = 0; start < samples.size(); start += 300) {
+            List<Integer> part = samples.subList(start, Math.min(start + 300, samples.size()));
+            int[] keys = new int[part.size()];
+            for (int i = 0; i < keys.length; ++i) {
+                keys[i] = part.get(i);
+            }
+            selector.addSamples(frameOf(keys));
+        }
+        Assert.assertEquals(samples.size(), selector.getSampleCount());
+        return selector.createRangeMap(nPartitions);
+    }
+
+    private static ITuplePartitionComputer partitioner(RangeMap map) {
+        return new FieldRangePartitionComputerFactory(new int[] { 0 },
+                new IBinaryComparatorFactory[] { INT_CMP_FACTORY }, map).createPartitioner();
+    }
+
+    private static int splitValue(RangeMap map, int split) {
+        Assert.assertEquals(4, map.getLength(split, 0));
+        return IntegerSerializerDeserializer.getInt(map.getByteArray(), map.getStartOffset(split, 0));
+    }
+
+    private static FrameTupleAccessor frameOf(int... keys) throws Exception {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE);
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        appender.reset(frame, true);
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(1);
+        for (int key : keys) {
+            tb.reset();
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, key);
+            Assert.assertTrue(appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize()));
+        }
+        FrameTupleAccessor accessor = new FrameTupleAccessor(FRAME_SIZE, INT_DESC);
+        accessor.reset(frame);
+        return accessor;
+    }
+}
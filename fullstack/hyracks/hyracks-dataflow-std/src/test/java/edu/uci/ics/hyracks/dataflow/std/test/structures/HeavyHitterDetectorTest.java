@@ -0,0 +1,55 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.dataflow.std.test.structures;
+
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.dataflow.std.structures.HeavyHitterDetector;
+
+public class HeavyHitterDetectorTest {
+    @Test
+    public void detectsSkewedKeys() {
+        HeavyHitterDetector detector = new HeavyHitterDetector(64, 1);
+        Random rnd = new Random(17);
+        for (int i = 0; i < 100000; ++i) {
+            int r = rnd.nextInt(100);
+            if (r < 30) {
+                detector.offer(42);
+            } else if (r < 45) {
+                detector.offer(-7);
+            } else {
+                detector.offer(1000 + rnd.nextInt(100000));
+            }
+        }
+        int[] heavyHitters = detector.getHeavyHitters(0.1);
+        Assert.assertEquals(2, heavyHitters.length);
+        Assert.assertEquals(-7, heavyHitters[0]);
+        Assert.assertEquals(42, heavyHitters[1]);
+    }
+
+    @Test
+    public void uniformKeysHaveNoHeavyHitters() {
+        HeavyHitterDetector detector = new HeavyHitterDetector(64, 4);
+        for (int i = 0; i < 100000; ++i) {
+            detector.offer(i % 5000);
+        }
+        Assert.assertEquals(25000, detector.getSampledCount());
+        Assert.assertEquals(0, detector.getHeavyHitters(0.05).length);
+    }
+}
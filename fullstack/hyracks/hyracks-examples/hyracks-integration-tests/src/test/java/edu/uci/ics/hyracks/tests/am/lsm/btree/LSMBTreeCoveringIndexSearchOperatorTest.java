@@ -0,0 +1,237 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.am.lsm.btree;
+
+import java.io.BufferedReader;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.constraints.PartitionConstraintHelper;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorDescriptor;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.ITypeTraits;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksException;
+import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import edu.uci.ics.hyracks.data.std.primitive.UTF8StringPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.std.connectors.OneToOneConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.file.ConstantFileSplitProvider;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+import edu.uci.ics.hyracks.dataflow.std.file.IFileSplitProvider;
+import edu.uci.ics.hyracks.dataflow.std.file.PlainFileWriterOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.misc.ConstantTupleSourceOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.sort.ExternalSortOperatorDescriptor;
+import edu.uci.ics.hyracks.storage.am.btree.dataflow.BTreeSearchOperatorDescriptor;
+import edu.uci.ics.hyracks.storage.am.common.dataflow.IIndexDataflowHelperFactory;
+import edu.uci.ics.hyracks.storage.am.common.dataflow.TreeIndexBulkLoadOperatorDescriptor;
+import edu.uci.ics.hyracks.storage.am.common.dataflow.TreeIndexCreateOperatorDescriptor;
+import edu.uci.ics.hyracks.storage.am.common.impls.NoOpOperationCallbackFactory;
+import edu.uci.ics.hyracks.storage.common.file.TransientLocalResourceFactoryProvider;
+import edu.uci.ics.hyracks.test.support.TestStorageManagerComponentHolder;
+import edu.uci.ics.hyracks.tests.am.btree.AbstractBTreeOperatorTest;
+import edu.uci.ics.hyracks.tests.am.common.ITreeIndexOperatorTestHelper;
+
+/**
+ * Searches a secondary index on (orderdate, orderkey) that also includes the order priority as a non-key field. The
+ * index-only search must return the same dates and priorities as a search that looks each order up in the primary
+ * index.
+ */
+public class LSMBTreeCoveringIndexSearchOperatorTest extends AbstractBTreeOperatorTest {
+    // secondary keys orderdate and orderkey, followed by the included orderpriority
+    private final ITypeTraits[] coveringTypeTraits = new ITypeTraits[] { UTF8StringPointable.TYPE_TRAITS,
+            UTF8StringPointable.TYPE_TRAITS, UTF8StringPointable.TYPE_TRAITS };
+    private final RecordDescriptor coveringRecDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+            UTF8StringSerializerDeserializer.INSTANCE });
+    private final RecordDescriptor projectedRecDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE });
+
+    @Override
+    protected ITreeIndexOperatorTestHelper createTestHelper() throws HyracksException {
+        return new LSMBTreeOperatorTestHelper(TestStorageManagerComponentHolder.getIOManager());
+    }
+
+    @Override
+    protected IIndexDataflowHelperFactory createDataFlowHelperFactory() {
+        return ((LSMBTreeOperatorTestHelper) testHelper).createDataFlowHelperFactory();
+    }
+
+    @Before
+    public void setup() throws Exception {
+        super.setup();
+        createPrimaryIndex();
+        loadPrimaryIndex();
+        createCoveringIndex();
+        loadCoveringIndex();
+    }
+
+    private void createCoveringIndex() throws Exception {
+        JobSpecification spec = new JobSpecification();
+        TreeIndexCreateOperatorDescriptor createOp = new TreeIndexCreateOperatorDescriptor(spec, storageManager,
+                lcManagerProvider, secondarySplitProvider, coveringTypeTraits, secondaryComparatorFactories,
+                secondaryBloomFilterKeyFields, dataflowHelperFactory, new TransientLocalResourceFactoryProvider(),
+                NoOpOperationCallbackFactory.INSTANCE);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, createOp, NC1_ID);
+        spec.addRoot(createOp);
+        runTest(spec);
+    }
+
+    private void loadCoveringIndex() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(1);
+        tb.reset();
+        UTF8StringSerializerDeserializer.INSTANCE.serialize("0", tb.getDataOutput());
+        tb.addFieldEndOffset();
+        ConstantTupleSourceOperatorDescriptor keyProviderOp = new ConstantTupleSourceOperatorDescriptor(spec,
+                new RecordDescriptor(new ISerializerDeserializer[] { UTF8StringSerializerDeserializer.INSTANCE }),
+                tb.getFieldEndOffsets(), tb.getByteArray(), tb.getSize());
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, keyProviderOp, NC1_ID);
+
+        // scan primary index
+        BTreeSearchOperatorDescriptor primaryScanOp = new BTreeSearchOperatorDescriptor(spec, primaryRecDesc,
+                storageManager, lcManagerProvider, primarySplitProvider, primaryTypeTraits, primaryComparatorFactories,
+                primaryBloomFilterKeyFields, null, null, true, true, dataflowHelperFactory, false,
+                NoOpOperationCallbackFactory.INSTANCE);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, primaryScanOp, NC1_ID);
+
+        ExternalSortOperatorDescriptor sorter = new ExternalSortOperatorDescriptor(spec, 1000, new int[] { 3, 0 },
+                new IBinaryComparatorFactory[] { PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY),
+                        PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY) }, primaryRecDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, sorter, NC1_ID);
+
+        // orderdate and orderkey as keys, orderpriority as included field
+        int[] fieldPermutation = { 3, 0, 4 };
+        TreeIndexBulkLoadOperatorDescriptor bulkLoadOp = new TreeIndexBulkLoadOperatorDescriptor(spec,
+                storageManager, lcManagerProvider, secondarySplitProvider, coveringTypeTraits,
+                secondaryComparatorFactories, secondaryBloomFilterKeyFields, fieldPermutation, 0.7f, true, 1000L,
+                dataflowHelperFactory, NoOpOperationCallbackFactory.INSTANCE);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, bulkLoadOp, NC1_ID);
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), keyProviderOp, 0, primaryScanOp, 0);
+        spec.connect(new OneToOneConnectorDescriptor(spec), primaryScanOp, 0, sorter, 0);
+        spec.connect(new OneToOneConnectorDescriptor(spec), sorter, 0, bulkLoadOp, 0);
+        spec.addRoot(bulkLoadOp);
+        runTest(spec);
+    }
+
+    @Test
+    public void indexOnlySearchTest() throws Exception {
+        File indexOnlyResults = createTempFile();
+        File lookupResults = createTempFile();
+
+        // orderdate and orderpriority straight from the secondary index
+        JobSpecification spec = new JobSpecification();
+        IOperatorDescriptor keyProviderOp = createDateRangeSource(spec);
+        BTreeSearchOperatorDescriptor indexOnlySearchOp = new BTreeSearchOperatorDescriptor(spec, projectedRecDesc,
+                storageManager, lcManagerProvider, secondarySplitProvider, coveringTypeTraits,
+                secondaryComparatorFactories, secondaryBloomFilterKeyFields, new int[] { 0 }, new int[] { 1 }, true,
+                true, dataflowHelperFactory, false, NoOpOperationCallbackFactory.INSTANCE, new int[] { 0, 2 });
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, indexOnlySearchOp, NC1_ID);
+        IOperatorDescriptor printer = createPrinter(spec, indexOnlyResults);
+        spec.connect(new OneToOneConnectorDescriptor(spec), keyProviderOp, 0, indexOnlySearchOp, 0);
+        spec.connect(new OneToOneConnectorDescriptor(spec), indexOnlySearchOp, 0, printer, 0);
+        spec.addRoot(printer);
+        runTest(spec);
+
+        // the same query answered through the primary index
+        spec = new JobSpecification();
+        keyProviderOp = createDateRangeSource(spec);
+        BTreeSearchOperatorDescriptor secondarySearchOp = new BTreeSearchOperatorDescriptor(spec, coveringRecDesc,
+                storageManager, lcManagerProvider, secondarySplitProvider, coveringTypeTraits,
+                secondaryComparatorFactories, secondaryBloomFilterKeyFields, new int[] { 0 }, new int[] { 1 }, true,
+                true, dataflowHelperFactory, false, NoOpOperationCallbackFactory.INSTANCE);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, secondarySearchOp, NC1_ID);
+        BTreeSearchOperatorDescriptor primarySearchOp = new BTreeSearchOperatorDescriptor(spec, primaryRecDesc,
+                storageManager, lcManagerProvider, primarySplitProvider, primaryTypeTraits, primaryComparatorFactories,
+                primaryBloomFilterKeyFields, new int[] { 1 }, new int[] { 1 }, true, true, dataflowHelperFactory,
+                false, NoOpOperationCallbackFactory.INSTANCE);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, primarySearchOp, NC1_ID);
+        printer = createPrinter(spec, lookupResults);
+        spec.connect(new OneToOneConnectorDescriptor(spec), keyProviderOp, 0, secondarySearchOp, 0);
+        spec.connect(new OneToOneConnectorDescriptor(spec), secondarySearchOp, 0, primarySearchOp, 0);
+        spec.connect(new OneToOneConnectorDescriptor(spec), primarySearchOp, 0, printer, 0);
+        spec.addRoot(printer);
+        runTest(spec);
+
+        List<String> expected = new ArrayList<String>();
+        for (String line : readLines(lookupResults)) {
+            String[] fields = line.split(",");
+            expected.add(fields[3] + "," + fields[4]);
+        }
+        List<String> actual = readLines(indexOnlyResults);
+        Collections.sort(expected);
+        Collections.sort(actual);
+        Assert.assertFalse(actual.isEmpty());
+        Assert.assertEquals(expected, actual);
+    }
+
+    private IOperatorDescriptor createDateRangeSource(JobSpecification spec) throws Exception {
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(secondaryKeyFieldCount);
+        DataOutput dos = tb.getDataOutput();
+        tb.reset();
+        // low key
+        UTF8StringSerializerDeserializer.INSTANCE.serialize("1995-01-01", dos);
+        tb.addFieldEndOffset();
+        // high key
+        UTF8StringSerializerDeserializer.INSTANCE.serialize("1995-12-31", dos);
+        tb.addFieldEndOffset();
+        ConstantTupleSourceOperatorDescriptor keyProviderOp = new ConstantTupleSourceOperatorDescriptor(spec,
+                projectedRecDesc, tb.getFieldEndOffsets(), tb.getByteArray(), tb.getSize());
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, keyProviderOp, NC1_ID);
+        return keyProviderOp;
+    }
+
+    private IOperatorDescriptor createPrinter(JobSpecification spec, File file) {
+        IFileSplitProvider outSplits = new ConstantFileSplitProvider(new FileSplit[] { new FileSplit(NC1_ID,
+                file.getAbsolutePath()) });
+        IOperatorDescriptor printer = new PlainFileWriterOperatorDescriptor(spec, outSplits, ",");
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, printer, NC1_ID);
+        return printer;
+    }
+
+    private List<String> readLines(File file) throws Exception {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return lines;
+    }
+
+    @Override
+    public void cleanup() throws Exception {
+        destroyPrimaryIndex();
+        destroySecondaryIndex();
+    }
+}
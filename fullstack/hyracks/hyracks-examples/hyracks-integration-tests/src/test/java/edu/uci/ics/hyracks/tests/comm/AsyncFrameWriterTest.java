@@ -0,0 +1,130 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.comm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.AsyncFrameWriter;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class AsyncFrameWriterTest {
+    private static final int FRAME_SIZE = 4096;
+
+    @Test
+    public void deliversFramesInOrderOnAnotherThread() throws Exception {
+        IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+        RecordingWriter target = new RecordingWriter(-1);
+        AsyncFrameWriter writer = new AsyncFrameWriter(ctx, target, 3);
+        ByteBuffer frame = ctx.allocateFrame();
+        for (int round = 0; round < 2; ++round) {
+            writer.open();
+            for (int i = 0; i < 500; ++i) {
+                frame.putInt(0, i);
+                frame.putInt(FRAME_SIZE - 4, -i);
+                writer.nextFrame(frame);
+            }
+            writer.close();
+        }
+        Assert.assertEquals(2, target.nOpens);
+        Assert.assertEquals(2, target.nCloses);
+        Assert.assertEquals(0, target.nFails);
+        Assert.assertEquals(1000, target.markers.size());
+        for (int i = 0; i < 1000; ++i) {
+            Assert.assertEquals(i % 500, target.markers.get(i).intValue());
+        }
+        Assert.assertTrue(target.consumerThread != Thread.currentThread());
+    }
+
+    @Test
+    public void reportsConsumerFailureToProducer() throws Exception {
+        IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+        RecordingWriter target = new RecordingWriter(10);
+        AsyncFrameWriter writer = new AsyncFrameWriter(ctx, target, 2);
+        ByteBuffer frame = ctx.allocateFrame();
+        writer.open();
+        boolean failed = false;
+        try {
+            for (int i = 0; i < 1000; ++i) {
+                frame.putInt(0, i);
+                frame.putInt(FRAME_SIZE - 4, -i);
+                writer.nextFrame(frame);
+            }
+        } catch (HyracksDataException e) {
+            failed = true;
+            writer.fail();
+        } finally {
+            writer.close();
+        }
+        Assert.assertTrue(failed);
+        Assert.assertEquals(1, target.nFails);
+        Assert.assertEquals(1, target.nCloses);
+        Assert.assertEquals(10, target.markers.size());
+    }
+
+    private static class RecordingWriter implements IFrameWriter {
+        private final int failAt;
+
+        private final List<Integer> markers = new ArrayList<Integer>();
+
+        private int nOpens;
+
+        private int nCloses;
+
+        private int nFails;
+
+        private volatile Thread consumerThread;
+
+        RecordingWriter(int failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public void open() throws HyracksDataException {
+            ++nOpens;
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            consumerThread = Thread.currentThread();
+            if (markers.size() == failAt) {
+                throw new HyracksDataException("Failing at frame " + failAt);
+            }
+            int marker = buffer.getInt(0);
+            Assert.assertEquals(-marker, buffer.getInt(FRAME_SIZE - 4));
+            markers.add(marker);
+            // give the producer a chance to run ahead and fill the queue
+            Thread.yield();
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+            ++nFails;
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+            ++nCloses;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.comm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameReader;
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.LZFrameCodec;
+import edu.uci.ics.hyracks.dataflow.std.collectors.DecompressingFrameReader;
+import edu.uci.ics.hyracks.dataflow.std.connectors.CompressingFrameWriter;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class FrameCompressionTest {
+    private static final int FRAME_SIZE = 32768;
+
+    @Test
+    public void codecRoundTrip() throws Exception {
+        Random rnd = new Random(3);
+        LZFrameCodec codec = new LZFrameCodec();
+        byte[] compressed = new byte[LZFrameCodec.maxCompressedLength(FRAME_SIZE)];
+        byte[] restored = new byte[FRAME_SIZE];
+        for (int i = 0; i < 200; ++i) {
+            byte[] data = i % 4 == 3 ? randomBytes(rnd, rnd.nextInt(FRAME_SIZE)) : tupleLikeBytes(rnd,
+                    rnd.nextInt(FRAME_SIZE));
+            int len = codec.compress(data, 0, data.length, compressed, 0);
+            Assert.assertTrue(len <= LZFrameCodec.maxCompressedLength(data.length));
+            int n = LZFrameCodec.decompress(compressed, 0, len, restored, 0, restored.length);
+            Assert.assertEquals(data.length, n);
+            Assert.assertTrue(Arrays.equals(data, Arrays.copyOf(restored, n)));
+        }
+    }
+
+    @Test(expected = HyracksDataException.class)
+    public void rejectsOversizedOutput() throws Exception {
+        byte[] data = new byte[1000];
+        byte[] compressed = new byte[LZFrameCodec.maxCompressedLength(data.length)];
+        int len = new LZFrameCodec().compress(data, 0, data.length, compressed, 0);
+        LZFrameCodec.decompress(compressed, 0, len, new byte[999], 0, 999);
+    }
+
+    @Test
+    public void compressibleFramesRoundTrip() throws Exception {
+        Random rnd = new Random(7);
+        List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
+        for (int i = 0; i < 100; ++i) {
+            frames.add(ByteBuffer.wrap(tupleLikeBytes(rnd, FRAME_SIZE)));
+        }
+        List<ByteBuffer> sent = roundTrip(frames);
+        Assert.assertTrue(sent.size() < frames.size() / 2);
+    }
+
+    @Test
+    public void incompressibleFramesRoundTrip() throws Exception {
+        Random rnd = new Random(11);
+        List<ByteBuffer> frames = new ArrayList<ByteBuffer>();
+        for (int i = 0; i < 100; ++i) {
+            frames.add(ByteBuffer.wrap(i % 10 == 0 ? tupleLikeBytes(rnd, FRAME_SIZE) : randomBytes(rnd, FRAME_SIZE)));
+        }
+        List<ByteBuffer> sent = roundTrip(frames);
+        // every frame costs a header
+        Assert.assertTrue(sent.size() <= frames.size() + 1);
+    }
+
+    private List<ByteBuffer> roundTrip(List<ByteBuffer> frames) throws HyracksDataException {
+        IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+        final List<ByteBuffer> sent = new ArrayList<ByteBuffer>();
+        IFrameWriter writer = new CompressingFrameWriter(ctx, new IFrameWriter() {
+            @Override
+            public void open() throws HyracksDataException {
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                Assert.assertEquals(FRAME_SIZE, buffer.remaining());
+                sent.add(ByteBuffer.wrap(Arrays.copyOf(buffer.array(), FRAME_SIZE)));
+            }
+
+            @Override
+            public void fail() throws HyracksDataException {
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+            }
+        });
+        writer.open();
+        for (ByteBuffer frame : frames) {
+            writer.nextFrame(frame);
+        }
+        writer.close();
+
+        final Iterator<ByteBuffer> sentFrames = sent.iterator();
+        IFrameReader reader = new DecompressingFrameReader(ctx, new IFrameReader() {
+            @Override
+            public void open() throws HyracksDataException {
+            }
+
+            @Override
+            public boolean nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                if (!sentFrames.hasNext()) {
+                    return false;
+                }
+                buffer.clear();
+                buffer.put(sentFrames.next());
+                return true;
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+            }
+        });
+        reader.open();
+        ByteBuffer buffer = ctx.allocateFrame();
+        for (ByteBuffer frame : frames) {
+            Assert.assertTrue(reader.nextFrame(buffer));
+            Assert.assertTrue(Arrays.equals(frame.array(), buffer.array()));
+        }
+        Assert.assertFalse(reader.nextFrame(buffer));
+        reader.close();
+        return sent;
+    }
+
+    private static byte[] randomBytes(Random rnd, int len) {
+        byte[] b = new byte[len];
+        rnd.nextBytes(b);
+        return b;
+    }
+
+    /**
+     * Small ints, repeated strings and an empty tail, like a frame of tuples.
+     */
+    private static byte[] tupleLikeBytes(Random rnd, int len) {
+        ByteBuffer b = ByteBuffer.allocate(len);
+        String[] words = { "BUILDING", "AUTOMOBILE", "MACHINERY", "HOUSEHOLD", "FURNITURE" };
+        while (b.remaining() > 64 && rnd.nextInt(50) != 0) {
+            b.putInt(rnd.nextInt(1000));
+            b.put(words[rnd.nextInt(words.length)].getBytes());
+            b.putInt(rnd.nextInt());
+        }
+        return b.array();
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.control;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.dataflow.ActivityId;
+import edu.uci.ics.hyracks.api.dataflow.ConnectorDescriptorId;
+import edu.uci.ics.hyracks.api.dataflow.OperatorDescriptorId;
+import edu.uci.ics.hyracks.api.dataflow.TaskAttemptId;
+import edu.uci.ics.hyracks.api.dataflow.TaskId;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.exceptions.HyracksException;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.io.IWorkspaceFileFactory;
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounterContext;
+import edu.uci.ics.hyracks.api.partitions.IPartition;
+import edu.uci.ics.hyracks.api.partitions.PartitionId;
+import edu.uci.ics.hyracks.control.common.controllers.NCConfig;
+import edu.uci.ics.hyracks.control.common.job.PartitionState;
+import edu.uci.ics.hyracks.control.nc.NodeControllerService;
+import edu.uci.ics.hyracks.control.nc.partitions.PartitionManager;
+import edu.uci.ics.hyracks.control.nc.partitions.SpillingPipelinedPartition;
+import edu.uci.ics.hyracks.test.support.CounterContext;
+import edu.uci.ics.hyracks.test.support.TestJobletContext;
+import edu.uci.ics.hyracks.test.support.TestNCApplicationContext;
+import edu.uci.ics.hyracks.test.support.TestRootContext;
+import edu.uci.ics.hyracks.test.support.TestTaskContext;
+
+public class SpillingPipelinedPartitionTest {
+    private static final int FRAME_SIZE = 256;
+
+    private static final JobId JOB_ID = new JobId(0);
+
+    private static final PartitionId PID = new PartitionId(JOB_ID, new ConnectorDescriptorId(0), 0, 0);
+
+    private static final TaskAttemptId TA_ID = new TaskAttemptId(new TaskId(new ActivityId(new OperatorDescriptorId(0),
+            0), 0), 0);
+
+    @Test
+    public void handsFramesOffWithoutSpilling() throws Exception {
+        SpillingTaskContext ctx = new SpillingTaskContext();
+        RecordingPartitionManager manager = new RecordingPartitionManager();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SpillingPipelinedPartition partition = new SpillingPipelinedPartition(ctx, manager, PID, TA_ID, executor,
+                    10000);
+            GatedWriter consumer = new GatedWriter(Integer.MAX_VALUE);
+            partition.open();
+            partition.writeTo(consumer);
+            for (int i = 0; i < 100; ++i) {
+                partition.nextFrame(frame(i));
+            }
+            partition.close();
+            consumer.awaitClose();
+
+            Assert.assertEquals(expected(0, 100), consumer.getReceived());
+            Assert.assertFalse(consumer.isFailed());
+            Assert.assertEquals(0, ctx.getSpillBytes());
+            Assert.assertTrue(manager.files.isEmpty());
+            Assert.assertEquals(2, manager.states.size());
+            Assert.assertEquals(PartitionState.STARTED, manager.states.get(0));
+            Assert.assertEquals(PartitionState.COMMITTED, manager.states.get(1));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void spillsDrainsInOrderAndSwitchesBack() throws Exception {
+        SpillingTaskContext ctx = new SpillingTaskContext();
+        RecordingPartitionManager manager = new RecordingPartitionManager();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // spill as soon as the hand-off frame is still taken
+            SpillingPipelinedPartition partition = new SpillingPipelinedPartition(ctx, manager, PID, TA_ID, executor,
+                    0);
+            GatedWriter consumer = new GatedWriter(0);
+            partition.open();
+            partition.writeTo(consumer);
+
+            // the blocked consumer holds at most one frame and the hand-off another, the rest goes to disk
+            for (int i = 0; i < 10; ++i) {
+                partition.nextFrame(frame(i));
+            }
+            Assert.assertTrue(ctx.getSpillBytes() >= 8 * FRAME_SIZE);
+            Assert.assertEquals(1, manager.files.size());
+
+            consumer.open(Integer.MAX_VALUE);
+            consumer.awaitReceived(10);
+            Assert.assertEquals(expected(0, 10), consumer.getReceived());
+
+            // once the forwarder has caught up, frames are handed off again and the spill file stops growing
+            int next = 10;
+            boolean handedOff = false;
+            for (int attempt = 0; attempt < 50 && !handedOff; ++attempt) {
+                long spilled = ctx.getSpillBytes();
+                partition.nextFrame(frame(next++));
+                consumer.awaitReceived(next);
+                handedOff = ctx.getSpillBytes() == spilled;
+            }
+            Assert.assertTrue(handedOff);
+            long spilled = ctx.getSpillBytes();
+            for (int i = 0; i < 20; ++i) {
+                partition.nextFrame(frame(next++));
+                consumer.awaitReceived(next);
+            }
+            Assert.assertEquals(spilled, ctx.getSpillBytes());
+
+            partition.close();
+            consumer.awaitClose();
+            Assert.assertEquals(expected(0, next), consumer.getReceived());
+            Assert.assertFalse(consumer.isFailed());
+
+            // the forwarder deletes the spill file after closing the consumer
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            Assert.assertFalse(manager.files.get(0).getFile().exists());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static ByteBuffer frame(int i) {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE);
+        frame.putInt(0, i);
+        return frame;
+    }
+
+    private static List<Integer> expected(int start, int end) {
+        List<Integer> frames = new ArrayList<Integer>();
+        for (int i = start; i < end; ++i) {
+            frames.add(i);
+        }
+        return frames;
+    }
+
+    /**
+     * Records the marker of every frame it receives, but only takes as many frames as it has been allowed to.
+     */
+    private static class GatedWriter implements IFrameWriter {
+        private final Semaphore gate;
+
+        private final List<Integer> received = new ArrayList<Integer>();
+
+        private boolean failed;
+
+        private boolean closed;
+
+        GatedWriter(int permits) {
+            gate = new Semaphore(permits);
+        }
+
+        void open(int permits) {
+            gate.release(permits);
+        }
+
+        @Override
+        public void open() throws HyracksDataException {
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+            gate.acquireUninterruptibly();
+            synchronized (this) {
+                received.add(buffer.getInt(0));
+                notifyAll();
+            }
+        }
+
+        @Override
+        public synchronized void fail() throws HyracksDataException {
+            failed = true;
+        }
+
+        @Override
+        public synchronized void close() throws HyracksDataException {
+            closed = true;
+            notifyAll();
+        }
+
+        synchronized void awaitReceived(int count) throws InterruptedException {
+            while (received.size() < count) {
+                wait();
+            }
+        }
+
+        synchronized void awaitClose() throws InterruptedException {
+            while (!closed) {
+                wait();
+            }
+        }
+
+        synchronized List<Integer> getReceived() {
+            return new ArrayList<Integer>(received);
+        }
+
+        synchronized boolean isFailed() {
+            return failed;
+        }
+    }
+
+    /**
+     * A task context whose counters survive between calls, so the test can read the spilled bytes.
+     */
+    private static class SpillingTaskContext extends TestTaskContext {
+        private final ICounterContext counterContext = new CounterContext("spill");
+
+        SpillingTaskContext() throws HyracksException {
+            super(new TestJobletContext(FRAME_SIZE, new TestNCApplicationContext(new TestRootContext(), null), JOB_ID),
+                    TA_ID);
+        }
+
+        @Override
+        public ICounterContext getCounterContext() {
+            return counterContext;
+        }
+
+        long getSpillBytes() {
+            return counterContext.getCounter(ICounterContext.SPILL_BYTES_COUNTER, true).get();
+        }
+    }
+
+    /**
+     * Keeps the partition states to itself instead of reporting them to a cluster controller, and remembers the spill
+     * files it hands out.
+     */
+    private static class RecordingPartitionManager extends PartitionManager {
+        private final List<PartitionState> states = new ArrayList<PartitionState>();
+
+        private final List<FileReference> files = new ArrayList<FileReference>();
+
+        RecordingPartitionManager() throws Exception {
+            super(createNodeController());
+        }
+
+        private static NodeControllerService createNodeController() throws Exception {
+            NCConfig ncConfig = new NCConfig();
+            ncConfig.clusterNetIPAddress = "127.0.0.1";
+            ncConfig.dataIPAddress = "127.0.0.1";
+            ncConfig.datasetIPAddress = "127.0.0.1";
+            ncConfig.nodeId = "nc0";
+            return new NodeControllerService(ncConfig);
+        }
+
+        @Override
+        public void registerPartition(PartitionId pid, TaskAttemptId taId, IPartition partition, PartitionState state) {
+            updatePartitionState(pid, taId, partition, state);
+        }
+
+        @Override
+        public synchronized void updatePartitionState(PartitionId pid, TaskAttemptId taId, IPartition partition,
+                PartitionState state) {
+            states.add(state);
+        }
+
+        @Override
+        public IWorkspaceFileFactory getFileFactory() {
+            final IWorkspaceFileFactory fileFactory = super.getFileFactory();
+            return new IWorkspaceFileFactory() {
+                @Override
+                public FileReference createUnmanagedWorkspaceFile(String prefix) throws HyracksDataException {
+                    FileReference fRef = fileFactory.createUnmanagedWorkspaceFile(prefix);
+                    files.add(fRef);
+                    return fRef;
+                }
+
+                @Override
+                public FileReference createManagedWorkspaceFile(String prefix) throws HyracksDataException {
+                    return fileFactory.createManagedWorkspaceFile(prefix);
+                }
+            };
+        }
+    }
+}
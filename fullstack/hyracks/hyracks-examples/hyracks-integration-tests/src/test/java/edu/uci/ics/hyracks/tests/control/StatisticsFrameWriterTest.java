@@ -0,0 +1,103 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.control;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.dataflow.ActivityId;
+import edu.uci.ics.hyracks.api.dataflow.OperatorDescriptorId;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.control.common.job.profiling.om.RuntimeStatistics;
+import edu.uci.ics.hyracks.control.nc.profiling.StatisticsFrameWriter;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+
+public class StatisticsFrameWriterTest {
+    private static final int FRAME_SIZE = 256;
+
+    @Test
+    public void countsFramesTuplesAndBytes() throws Exception {
+        ActivityId aid = new ActivityId(new OperatorDescriptorId(3), 0);
+        final int[] delivered = new int[1];
+        StatisticsFrameWriter writer = new StatisticsFrameWriter(aid, true, new NullFrameWriter() {
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                ++delivered[0];
+            }
+        });
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_SIZE);
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        appender.reset(frame, true);
+        byte[] tuple = new byte[10];
+        for (int i = 0; i < 3; ++i) {
+            Assert.assertTrue(appender.append(tuple, 0, tuple.length));
+        }
+        writer.open();
+        writer.nextFrame(frame);
+        // a frame that does not follow the tuple layout is only counted as a frame
+        ByteBuffer raw = ByteBuffer.allocate(FRAME_SIZE);
+        raw.putInt(FRAME_SIZE - 4, -1);
+        writer.nextFrame(raw);
+        writer.addWaitNanos(5000000);
+        writer.close();
+
+        RuntimeStatistics stats = new RuntimeStatistics();
+        writer.dumpStatistics(stats);
+        Assert.assertEquals(2, delivered[0]);
+        Assert.assertEquals(2, stats.getFramesIn());
+        Assert.assertEquals(3, stats.getTuplesIn());
+        Assert.assertEquals(30, stats.getBytesIn());
+        Assert.assertEquals(5000000, stats.getInputWaitNanos());
+        Assert.assertEquals(0, stats.getFramesOut());
+
+        RuntimeStatistics total = new RuntimeStatistics();
+        total.merge(stats);
+        total.merge(stats);
+        total.addTask(1000, 2000, 4096);
+        Assert.assertEquals(4, total.getFramesIn());
+        Assert.assertEquals(6, total.getTuplesIn());
+        Assert.assertEquals(1, total.getTasks());
+        Assert.assertEquals(4096, total.getSpillBytes());
+
+        Assert.assertEquals(1.0, total.getBufferCacheHitRatio(), 0.0);
+        stats.addBufferCacheAccesses(8, 2);
+        total.merge(stats);
+        Assert.assertEquals(8, total.getBufferCachePins());
+        Assert.assertEquals(2, total.getBufferCacheReads());
+        Assert.assertEquals(0.75, total.getBufferCacheHitRatio(), 0.0);
+    }
+
+    private static class NullFrameWriter implements IFrameWriter {
+        @Override
+        public void open() throws HyracksDataException {
+        }
+
+        @Override
+        public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+        }
+
+        @Override
+        public void fail() throws HyracksDataException {
+        }
+
+        @Override
+        public void close() throws HyracksDataException {
+        }
+    }
+}
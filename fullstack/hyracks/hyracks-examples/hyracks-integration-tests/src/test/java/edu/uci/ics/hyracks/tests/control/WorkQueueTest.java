@@ -0,0 +1,159 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.control;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.control.common.work.AbstractWork;
+import edu.uci.ics.hyracks.control.common.work.IJobScopedWork;
+import edu.uci.ics.hyracks.control.common.work.SynchronizableWork;
+import edu.uci.ics.hyracks.control.common.work.WorkQueue;
+
+public class WorkQueueTest {
+    @Test
+    public void runsJobsConcurrentlyAndEachJobInOrder() throws Exception {
+        WorkQueue queue = new WorkQueue(true);
+        queue.start();
+        try {
+            final CountDownLatch otherJobRan = new CountDownLatch(1);
+            final List<Integer> job1Order = Collections.synchronizedList(new ArrayList<Integer>());
+            final List<Integer> job2Order = Collections.synchronizedList(new ArrayList<Integer>());
+            final AtomicInteger timeouts = new AtomicInteger();
+            // the first work of job 1 can only finish if a work of job 2 runs while it waits
+            queue.schedule(new JobWork(new JobId(1)) {
+                @Override
+                public void run() {
+                    try {
+                        if (!otherJobRan.await(10, TimeUnit.SECONDS)) {
+                            timeouts.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        timeouts.incrementAndGet();
+                    }
+                    job1Order.add(0);
+                }
+            });
+            for (int i = 1; i < 100; ++i) {
+                queue.schedule(new RecordingWork(new JobId(1), job1Order, i));
+            }
+            queue.schedule(new JobWork(new JobId(2)) {
+                @Override
+                public void run() {
+                    otherJobRan.countDown();
+                }
+            });
+            for (int i = 0; i < 100; ++i) {
+                queue.schedule(new RecordingWork(new JobId(2), job2Order, i));
+            }
+            // a cluster-wide work runs only after everything scheduled before it
+            final List<Integer> seen = new ArrayList<Integer>();
+            SynchronizableWork barrier = new SynchronizableWork() {
+                @Override
+                protected void doRun() throws Exception {
+                    seen.add(job1Order.size());
+                    seen.add(job2Order.size());
+                }
+            };
+            queue.scheduleAndSync(barrier);
+
+            Assert.assertEquals(0, timeouts.get());
+            Assert.assertEquals(100, seen.get(0).intValue());
+            Assert.assertEquals(100, seen.get(1).intValue());
+            for (int i = 0; i < 100; ++i) {
+                Assert.assertEquals(i, job1Order.get(i).intValue());
+                Assert.assertEquals(i, job2Order.get(i).intValue());
+            }
+            Assert.assertEquals(201, queue.getJobWorkLatency().getCount());
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    public void jobWorksWaitForEarlierClusterWork() throws Exception {
+        WorkQueue queue = new WorkQueue(true);
+        queue.start();
+        try {
+            final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+            queue.schedule(new AbstractWork() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        // ignore
+                    }
+                    events.add("cluster");
+                }
+            });
+            queue.schedule(new JobWork(new JobId(1)) {
+                @Override
+                public void run() {
+                    events.add("job");
+                }
+            });
+            queue.scheduleAndSync(new SynchronizableWork() {
+                @Override
+                protected void doRun() throws Exception {
+                }
+            });
+            Assert.assertEquals(2, events.size());
+            Assert.assertEquals("cluster", events.get(0));
+            Assert.assertEquals("job", events.get(1));
+        } finally {
+            queue.stop();
+        }
+    }
+
+    private static abstract class JobWork extends AbstractWork implements IJobScopedWork {
+        private final JobId jobId;
+
+        JobWork(JobId jobId) {
+            this.jobId = jobId;
+        }
+
+        @Override
+        public JobId getJobId() {
+            return jobId;
+        }
+    }
+
+    private static class RecordingWork extends JobWork {
+        private final List<Integer> order;
+
+        private final int value;
+
+        RecordingWork(JobId jobId, List<Integer> order, int value) {
+            super(jobId);
+            this.order = order;
+            this.value = value;
+        }
+
+        @Override
+        public void run() {
+            order.add(value);
+        }
+    }
+}
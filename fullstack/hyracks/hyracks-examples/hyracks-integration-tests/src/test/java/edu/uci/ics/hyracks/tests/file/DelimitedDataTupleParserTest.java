@@ -0,0 +1,219 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.DoubleSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.DoubleParserFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.IUTF8ValueParser;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.IValueParserFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.IntegerParserFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.UTF8StringParserFactory;
+import edu.uci.ics.hyracks.dataflow.std.file.DelimitedDataTupleParserFactory;
+import edu.uci.ics.hyracks.dataflow.std.file.ITupleParser;
+import edu.uci.ics.hyracks.dataflow.std.file.LineAlignedRangeInputStream;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class DelimitedDataTupleParserTest {
+    private static final int FRAME_SIZE = 32768;
+
+    private final IValueParserFactory[] parserFactories = new IValueParserFactory[] { IntegerParserFactory.INSTANCE,
+            UTF8StringParserFactory.INSTANCE, DoubleParserFactory.INSTANCE };
+    private final RecordDescriptor recordDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+            DoubleSerializerDeserializer.INSTANCE });
+
+    @Test
+    public void parsesLineEndingsAndMultiByteCharacters() throws Exception {
+        String text = "1|abc|1.5\r\n-22|\u00e9t\u00e9 \u4e2d\u6587|2.25\n 3 ||-0.5\r4|\ud83d\ude00|0";
+        List<Object[]> records = parse(new DelimitedDataTupleParserFactory(parserFactories, '|'), text);
+        Assert.assertEquals(4, records.size());
+        assertRecord(records.get(0), 1, "abc", 1.5);
+        assertRecord(records.get(1), -22, "\u00e9t\u00e9 \u4e2d\u6587", 2.25);
+        assertRecord(records.get(2), 3, "", -0.5);
+        assertRecord(records.get(3), 4, "\ud83d\ude00", 0.0);
+    }
+
+    @Test
+    public void parsesQuotedFields() throws Exception {
+        String text = "1,\"a,b\",1\n2,\"say \"\"hi\"\"\nbye\",2\n\"3\",\"\",3\n";
+        List<Object[]> records = parse(new DelimitedDataTupleParserFactory(parserFactories, ',', '"'), text);
+        Assert.assertEquals(3, records.size());
+        assertRecord(records.get(0), 1, "a,b", 1.0);
+        assertRecord(records.get(1), 2, "say \"hi\"\nbye", 2.0);
+        assertRecord(records.get(2), 3, "", 3.0);
+    }
+
+    @Test
+    public void parsesQuotedFieldAtEndOfInput() throws Exception {
+        String text = "1,\"a\",\"1.5\"\n2,\"b\"\"c\",\"2\"";
+        DelimitedDataTupleParserFactory factory = new DelimitedDataTupleParserFactory(parserFactories, ',', '"');
+        byte[] bytes = text.getBytes("UTF-8");
+        // also feed the parser one byte per read, so that the closing quote is the last byte of the buffer
+        for (InputStream in : new InputStream[] { new ByteArrayInputStream(bytes),
+                new OneByteInputStream(new ByteArrayInputStream(bytes)) }) {
+            List<Object[]> records = parse(factory, in);
+            Assert.assertEquals(2, records.size());
+            assertRecord(records.get(0), 1, "a", 1.5);
+            assertRecord(records.get(1), 2, "b\"c", 2.0);
+        }
+    }
+
+    @Test
+    public void skipsUnusedFieldsWithQuotes() throws Exception {
+        // the fourth field is not parsed; only quotes at the start of a field open a quoted field
+        String text = "1,a,1,5\" pipe\n2,b,2,\"x,\"\"y\"\"\nz\",w\n3,c,3,it's \"ok\"\r\n4,d,4,\"\"\n5,e,5\n";
+        List<Object[]> records = parse(new DelimitedDataTupleParserFactory(parserFactories, ',', '"'), text);
+        Assert.assertEquals(5, records.size());
+        for (int i = 0; i < records.size(); ++i) {
+            assertRecord(records.get(i), i + 1, String.valueOf((char) ('a' + i)), i + 1);
+        }
+    }
+
+    @Test(expected = HyracksDataException.class)
+    public void rejectsUnterminatedQuote() throws Exception {
+        parse(new DelimitedDataTupleParserFactory(parserFactories, ',', '"'), "1,\"abc,1\n");
+    }
+
+    @Test
+    public void rejectsStringsLongerThanTheLengthPrefix() throws Exception {
+        IUTF8ValueParser parser = (IUTF8ValueParser) UTF8StringParserFactory.INSTANCE.createValueParser();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        byte[] bytes = new byte[65536];
+        Arrays.fill(bytes, (byte) 'a');
+        parser.parse(bytes, 0, 65535, out);
+        Assert.assertEquals(65537, baos.size());
+        try {
+            parser.parse(bytes, 0, 65536, out);
+            Assert.fail("Expected a HyracksDataException on the byte path");
+        } catch (HyracksDataException e) {
+        }
+        // two-byte characters take the decoding path
+        char[] chars = new char[32768];
+        Arrays.fill(chars, '\u00e9');
+        try {
+            parser.parse(chars, 0, chars.length, out);
+            Assert.fail("Expected a HyracksDataException on the char path");
+        } catch (HyracksDataException e) {
+        }
+        Assert.assertEquals(65537, baos.size());
+    }
+
+    @Test
+    public void byteRangesCoverEachLineOnce() throws Exception {
+        Random rnd = new Random(5);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; ++i) {
+            sb.append(i).append('|');
+            int len = rnd.nextInt(40);
+            for (int j = 0; j < len; ++j) {
+                sb.append(j % 7 == 0 ? '\u00fc' : (char) ('a' + rnd.nextInt(26)));
+            }
+            sb.append('|').append(i / 4.0).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        byte[] bytes = sb.toString().getBytes("UTF-8");
+        DelimitedDataTupleParserFactory factory = new DelimitedDataTupleParserFactory(parserFactories, '|');
+        List<Object[]> whole = parse(factory, new ByteArrayInputStream(bytes));
+        Assert.assertEquals(2000, whole.size());
+        for (int nSplits : new int[] { 1, 2, 3, 7, 64, bytes.length / 2 }) {
+            long rangeLength = (bytes.length + nSplits - 1) / nSplits;
+            List<Object[]> union = new ArrayList<Object[]>();
+            for (int i = 0; i < nSplits; ++i) {
+                long start = Math.min(bytes.length, i * rangeLength);
+                long length = i == nSplits - 1 ? -1 : Math.min(rangeLength, bytes.length - start);
+                union.addAll(parse(factory, new LineAlignedRangeInputStream(new ByteArrayInputStream(bytes), start,
+                        length)));
+            }
+            Assert.assertEquals(whole.size(), union.size());
+            for (int i = 0; i < whole.size(); ++i) {
+                Assert.assertTrue(Arrays.equals(whole.get(i), union.get(i)));
+            }
+        }
+    }
+
+    private static class OneByteInputStream extends FilterInputStream {
+        public OneByteInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1));
+        }
+    }
+
+    private static void assertRecord(Object[] record, int i, String s, double d) {
+        Assert.assertEquals(i, ((Integer) record[0]).intValue());
+        Assert.assertEquals(s, record[1]);
+        Assert.assertEquals(d, ((Double) record[2]).doubleValue());
+    }
+
+    private List<Object[]> parse(DelimitedDataTupleParserFactory factory, String text) throws Exception {
+        return parse(factory, new ByteArrayInputStream(text.getBytes("UTF-8")));
+    }
+
+    private List<Object[]> parse(DelimitedDataTupleParserFactory factory, InputStream in) throws Exception {
+        IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+        ITupleParser parser = factory.createTupleParser(ctx);
+        final List<Object[]> records = new ArrayList<Object[]>();
+        final FrameDeserializer deserializer = new FrameDeserializer(FRAME_SIZE, recordDesc);
+        parser.parse(in, new IFrameWriter() {
+            @Override
+            public void open() throws HyracksDataException {
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                deserializer.reset(buffer);
+                while (!deserializer.done()) {
+                    records.add(deserializer.deserializeRecord());
+                }
+            }
+
+            @Override
+            public void fail() throws HyracksDataException {
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+            }
+        });
+        return records;
+    }
+}
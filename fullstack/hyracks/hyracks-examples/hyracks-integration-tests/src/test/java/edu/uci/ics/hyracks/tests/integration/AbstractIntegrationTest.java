@@ -20,6 +20,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.logging.Level;
@@ -57,7 +58,7 @@ public abstract class AbstractIntegrationTest {
     private static ClusterControllerService cc;
     private static NodeControllerService nc1;
     private static NodeControllerService nc2;
-    private static IHyracksClientConnection hcc;
+    protected static IHyracksClientConnection hcc;
 
     private final List<File> outputFiles;
     
@@ -139,14 +140,22 @@ public abstract class AbstractIntegrationTest {
 
     protected List<String> readResults(JobSpecification spec, JobId jobId, ResultSetId resultSetId) throws Exception {
         int nReaders = 1;
+        IHyracksDataset hyracksDataset = new HyracksDataset(hcc, spec.getFrameSize(), nReaders);
+        return readResults(spec, hyracksDataset.createReader(jobId, resultSetId));
+    }
+
+    protected List<String> readResults(JobSpecification spec, JobId jobId, ResultSetId resultSetId, int nReaders,
+            int nReadBuffers, boolean ordered) throws Exception {
+        IHyracksDataset hyracksDataset = new HyracksDataset(hcc, spec.getFrameSize(), nReaders);
+        return readResults(spec, hyracksDataset.createReader(jobId, resultSetId, nReadBuffers, ordered));
+    }
+
+    private List<String> readResults(JobSpecification spec, IHyracksDatasetReader reader) throws Exception {
         ByteBuffer resultBuffer = ByteBuffer.allocate(spec.getFrameSize());
         resultBuffer.clear();
 
         IFrameTupleAccessor frameTupleAccessor = new ResultFrameTupleAccessor(spec.getFrameSize());
 
-        IHyracksDataset hyracksDataset = new HyracksDataset(hcc, spec.getFrameSize(), nReaders);
-        IHyracksDatasetReader reader = hyracksDataset.createReader(jobId, resultSetId);
-
         List<String> resultRecords = new ArrayList<String>();
         ByteBufferInputStream bbis = new ByteBufferInputStream();
 
@@ -197,6 +206,27 @@ public abstract class AbstractIntegrationTest {
         return true;
     }
 
+    /**
+     * Runs the job and checks that its first result set holds exactly the expected lines, in any order. Hash-based
+     * operators emit their results in no particular order, so both sides are sorted before they are compared.
+     */
+    protected boolean runTestAndCompareUnorderedResults(JobSpecification spec, List<String> expectedResults)
+            throws Exception {
+        JobId jobId = executeTest(spec);
+
+        List<String> results = new ArrayList<String>();
+        for (String result : readResults(spec, jobId, spec.getResultSetIds().get(0))) {
+            results.add(result.trim());
+        }
+        List<String> expected = new ArrayList<String>(expectedResults);
+        Collections.sort(results);
+        Collections.sort(expected);
+        Assert.assertEquals(expected, results);
+
+        hcc.waitForCompletion(jobId);
+        return true;
+    }
+
     protected File createTempFile() throws IOException {
         File tempFile = File.createTempFile(getClass().getName(), ".tmp", outputFolder.getRoot());
         if (LOGGER.isLoggable(Level.INFO)) {
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.integration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.uci.ics.hyracks.api.client.HyracksConnection;
+import edu.uci.ics.hyracks.api.client.IHyracksClientConnection;
+import edu.uci.ics.hyracks.api.constraints.PartitionConstraintHelper;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.IConnectorDescriptor;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
+import edu.uci.ics.hyracks.api.dataflow.connectors.FaultTolerantConnectorPolicyAssignmentPolicy;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.IOperatorDescriptorRegistry;
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
+import edu.uci.ics.hyracks.control.common.controllers.CCConfig;
+import edu.uci.ics.hyracks.control.common.controllers.NCConfig;
+import edu.uci.ics.hyracks.control.nc.NodeControllerService;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.data.std.primitive.UTF8StringPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.IValueParserFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.UTF8StringParserFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.FieldHashPartitionComputerFactory;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractSingleActivityOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
+import edu.uci.ics.hyracks.dataflow.std.connectors.MToNPartitioningConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.connectors.MToNReplicatingConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.file.ConstantFileSplitProvider;
+import edu.uci.ics.hyracks.dataflow.std.file.DelimitedDataTupleParserFactory;
+import edu.uci.ics.hyracks.dataflow.std.file.FileScanOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+import edu.uci.ics.hyracks.dataflow.std.file.PlainFileWriterOperatorDescriptor;
+
+/**
+ * Runs a job whose stages are separated by materialized connectors on a cluster of its own, and stops a node
+ * controller after the first stage has completed while the second stage is still running on it. The lost task
+ * clusters must be re-run on the remaining node and the job must still produce the complete result.
+ */
+public class NodeFailureRecoveryTest {
+    private static final String NC1_ID = "nc1";
+    private static final String NC2_ID = "nc2";
+    private static final String WORDS_FILE = "data/words.txt";
+
+    /**
+     * Counted down once a barrier task has consumed all of its input. The scheduler starts the barrier tasks one at a
+     * time, so the first of them holds back the second, which still has to read the output of the scan on nc2.
+     */
+    private static final CountDownLatch INPUT_CONSUMED = new CountDownLatch(1);
+
+    /**
+     * Lets the barrier tasks finish.
+     */
+    private static final CountDownLatch RELEASE = new CountDownLatch(1);
+
+    private static ClusterControllerService cc;
+    private static NodeControllerService nc1;
+    private static NodeControllerService nc2;
+    private static boolean nc2Stopped;
+    private static IHyracksClientConnection hcc;
+
+    @Rule
+    public TemporaryFolder outputFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void init() throws Exception {
+        CCConfig ccConfig = new CCConfig();
+        ccConfig.clientNetIpAddress = "127.0.0.1";
+        ccConfig.clientNetPort = 39010;
+        ccConfig.clusterNetIpAddress = "127.0.0.1";
+        ccConfig.clusterNetPort = 39011;
+        // detect the stopped node within a few seconds
+        ccConfig.heartbeatPeriod = 500;
+        ccConfig.maxHeartbeatLapsePeriods = 4;
+        File outDir = new File("target/ClusterController");
+        outDir.mkdirs();
+        File ccRoot = File.createTempFile(NodeFailureRecoveryTest.class.getName(), ".data", outDir);
+        ccRoot.delete();
+        ccRoot.mkdir();
+        ccConfig.ccRoot = ccRoot.getAbsolutePath();
+        cc = new ClusterControllerService(ccConfig);
+        cc.start();
+
+        nc1 = new NodeControllerService(createNCConfig(NC1_ID));
+        nc1.start();
+        nc2 = new NodeControllerService(createNCConfig(NC2_ID));
+        nc2.start();
+
+        hcc = new HyracksConnection(ccConfig.clientNetIpAddress, ccConfig.clientNetPort);
+    }
+
+    private static NCConfig createNCConfig(String nodeId) {
+        NCConfig ncConfig = new NCConfig();
+        ncConfig.ccHost = "localhost";
+        ncConfig.ccPort = 39011;
+        ncConfig.clusterNetIPAddress = "127.0.0.1";
+        ncConfig.dataIPAddress = "127.0.0.1";
+        ncConfig.datasetIPAddress = "127.0.0.1";
+        ncConfig.nodeId = nodeId;
+        return ncConfig;
+    }
+
+    @AfterClass
+    public static void deinit() throws Exception {
+        if (!nc2Stopped) {
+            nc2.stop();
+        }
+        nc1.stop();
+        cc.stop();
+    }
+
+    @Test
+    public void rerunsLostStagesAfterNodeFailure() throws Exception {
+        JobSpecification spec = new JobSpecification();
+        RecordDescriptor desc = new RecordDescriptor(
+                new ISerializerDeserializer[] { UTF8StringSerializerDeserializer.INSTANCE });
+        // the second partition of both stages prefers nc2, and can only move to nc1 once nc2 is gone
+        String[][] locations = new String[][] { { NC1_ID }, { NC2_ID, NC1_ID } };
+
+        FileSplit[] splits = new FileSplit[] { new FileSplit(NC1_ID, new FileReference(new File(WORDS_FILE))),
+                new FileSplit(NC2_ID, new FileReference(new File(WORDS_FILE))) };
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, new ConstantFileSplitProvider(
+                splits), new DelimitedDataTupleParserFactory(
+                new IValueParserFactory[] { UTF8StringParserFactory.INSTANCE }, ','), desc);
+        PartitionConstraintHelper.addLocationChoiceConstraint(spec, scanner, locations);
+
+        BarrierOperatorDescriptor barrier = new BarrierOperatorDescriptor(spec, desc);
+        PartitionConstraintHelper.addLocationChoiceConstraint(spec, barrier, locations);
+
+        File outFile = outputFolder.newFile("words.out");
+        PlainFileWriterOperatorDescriptor writer = new PlainFileWriterOperatorDescriptor(spec,
+                new ConstantFileSplitProvider(new FileSplit[] { new FileSplit(NC1_ID, new FileReference(outFile)) }),
+                ",");
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, writer, NC1_ID);
+
+        IConnectorDescriptor conn1 = new MToNPartitioningConnectorDescriptor(spec,
+                new FieldHashPartitionComputerFactory(new int[] { 0 },
+                        new IBinaryHashFunctionFactory[] { PointableBinaryHashFunctionFactory
+                                .of(UTF8StringPointable.FACTORY) }));
+        spec.connect(conn1, scanner, 0, barrier, 0);
+        IConnectorDescriptor conn2 = new MToNReplicatingConnectorDescriptor(spec);
+        spec.connect(conn2, barrier, 0, writer, 0);
+        spec.addRoot(writer);
+        // consumers of a materialized connector start only once all of its producers have completed
+        spec.setConnectorPolicyAssignmentPolicy(new FaultTolerantConnectorPolicyAssignmentPolicy(null, true));
+        spec.setMaxReattempts(5);
+
+        JobId jobId = hcc.startJob(spec);
+        Assert.assertTrue("the second stage did not start", INPUT_CONSUMED.await(60, TimeUnit.SECONDS));
+        nc2.stop();
+        nc2Stopped = true;
+        RELEASE.countDown();
+        hcc.waitForCompletion(jobId);
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < splits.length; ++i) {
+            expected.addAll(readLines(new File(WORDS_FILE), true));
+        }
+        List<String> actual = readLines(outFile, false);
+        Collections.sort(expected);
+        Collections.sort(actual);
+        Assert.assertEquals(expected, actual);
+    }
+
+    /**
+     * Reads the lines of a file, or only their first comma-separated field, which is what the scan produces.
+     */
+    private static List<String> readLines(File file, boolean firstField) throws Exception {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int comma = line.indexOf(',');
+                lines.add(firstField && comma >= 0 ? line.substring(0, comma) : line);
+            }
+        } finally {
+            in.close();
+        }
+        return lines;
+    }
+
+    /**
+     * Passes its input through, but holds back the end of its output until the test releases it.
+     */
+    private static class BarrierOperatorDescriptor extends AbstractSingleActivityOperatorDescriptor {
+        private static final long serialVersionUID = 1L;
+
+        public BarrierOperatorDescriptor(IOperatorDescriptorRegistry spec, RecordDescriptor desc) {
+            super(spec, 1, 1);
+            recordDescriptors[0] = desc;
+        }
+
+        @Override
+        public IOperatorNodePushable createPushRuntime(IHyracksTaskContext ctx,
+                IRecordDescriptorProvider recordDescProvider, int partition, int nPartitions)
+                throws HyracksDataException {
+            return new AbstractUnaryInputUnaryOutputOperatorNodePushable() {
+                @Override
+                public void open() throws HyracksDataException {
+                    writer.open();
+                }
+
+                @Override
+                public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    FrameUtils.flushFrame(buffer, writer);
+                }
+
+                @Override
+                public void fail() throws HyracksDataException {
+                    writer.fail();
+                }
+
+                @Override
+                public void close() throws HyracksDataException {
+                    INPUT_CONSUMED.countDown();
+                    try {
+                        if (!RELEASE.await(60, TimeUnit.SECONDS)) {
+                            throw new HyracksDataException("The barrier was not released");
+                        }
+                    } catch (InterruptedException e) {
+                        throw new HyracksDataException(e);
+                    }
+                    writer.close();
+                }
+            };
+        }
+    }
+}
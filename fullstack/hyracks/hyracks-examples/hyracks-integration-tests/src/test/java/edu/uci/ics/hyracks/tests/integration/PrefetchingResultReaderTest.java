@@ -0,0 +1,188 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.integration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.constraints.PartitionConstraintHelper;
+import edu.uci.ics.hyracks.api.dataflow.IConnectorDescriptor;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorDescriptor;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.dataset.IHyracksDatasetReader;
+import edu.uci.ics.hyracks.api.dataset.ResultSetId;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.client.dataset.HyracksDataset;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.IValueParserFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.UTF8StringParserFactory;
+import edu.uci.ics.hyracks.dataflow.std.connectors.OneToOneConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.file.ConstantFileSplitProvider;
+import edu.uci.ics.hyracks.dataflow.std.file.DelimitedDataTupleParserFactory;
+import edu.uci.ics.hyracks.dataflow.std.file.FileScanOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+import edu.uci.ics.hyracks.dataflow.std.file.IFileSplitProvider;
+import edu.uci.ics.hyracks.dataflow.std.result.ResultWriterOperatorDescriptor;
+import edu.uci.ics.hyracks.tests.util.ResultSerializerFactoryProvider;
+
+public class PrefetchingResultReaderTest extends AbstractIntegrationTest {
+    private static final String WORDS_FILE = "data/words.txt";
+
+    private static final int N_PARTITIONS = 4;
+
+    @Test
+    public void orderedPrefetchingRead() throws Exception {
+        JobSpecification spec = createScanJob(true);
+        JobId jobId = executeTest(spec);
+        List<String> results = readResults(spec, jobId, spec.getResultSetIds().get(0), 2, 4, true);
+        hcc.waitForCompletion(jobId);
+
+        // every partition scans the whole file, and the partitions must come back one after the other
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < N_PARTITIONS; ++i) {
+            expected.addAll(readWords());
+        }
+        Assert.assertEquals(expected, trim(results));
+    }
+
+    @Test
+    public void unorderedPrefetchingRead() throws Exception {
+        JobSpecification spec = createScanJob(false);
+        JobId jobId = executeTest(spec);
+        List<String> results = trim(readResults(spec, jobId, spec.getResultSetIds().get(0), 2, 4, false));
+        hcc.waitForCompletion(jobId);
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < N_PARTITIONS; ++i) {
+            expected.addAll(readWords());
+        }
+        Collections.sort(expected);
+        Collections.sort(results);
+        Assert.assertEquals(expected, results);
+    }
+
+    @Test
+    public void unorderedPrefetchingReadOfOrderedResult() throws Exception {
+        // the directory reveals the partitions one by one, and only after the previous one has been read to its end
+        JobSpecification spec = createScanJob(true);
+        JobId jobId = executeTest(spec);
+        List<String> results = trim(readResults(spec, jobId, spec.getResultSetIds().get(0), 2, 4, false));
+        hcc.waitForCompletion(jobId);
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < N_PARTITIONS; ++i) {
+            expected.addAll(readWords());
+        }
+        Collections.sort(expected);
+        Collections.sort(results);
+        Assert.assertEquals(expected, results);
+    }
+
+    @Test
+    public void closeStopsTheReader() throws Exception {
+        JobSpecification spec = createScanJob(true);
+        JobId jobId = executeTest(spec);
+        IHyracksDatasetReader reader = new HyracksDataset(hcc, spec.getFrameSize(), 2).createReader(jobId, spec
+                .getResultSetIds().get(0), 2, true);
+        ByteBuffer buffer = ByteBuffer.allocate(spec.getFrameSize());
+        Assert.assertTrue(reader.read(buffer) > 0);
+        reader.close();
+        try {
+            buffer.clear();
+            reader.read(buffer);
+            Assert.fail("Expected a HyracksDataException after close()");
+        } catch (HyracksDataException e) {
+        }
+
+        // the discovery thread waits for the end of the first partition, which is never read, until it is interrupted
+        String threadName = "Result prefetcher for " + jobId + ":";
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(threadName)) {
+                thread.join(10000);
+                Assert.assertFalse(thread.isAlive());
+            }
+        }
+        hcc.waitForCompletion(jobId);
+    }
+
+    private JobSpecification createScanJob(boolean ordered) throws Exception {
+        JobSpecification spec = new JobSpecification();
+        // small frames make every partition span many frames
+        spec.setFrameSize(256);
+
+        FileSplit[] splits = new FileSplit[N_PARTITIONS];
+        String[] locations = new String[N_PARTITIONS];
+        for (int i = 0; i < N_PARTITIONS; ++i) {
+            locations[i] = i % 2 == 0 ? NC1_ID : NC2_ID;
+            splits[i] = new FileSplit(locations[i], new FileReference(new File(WORDS_FILE)));
+        }
+        IFileSplitProvider splitProvider = new ConstantFileSplitProvider(splits);
+        RecordDescriptor desc = new RecordDescriptor(
+                new ISerializerDeserializer[] { UTF8StringSerializerDeserializer.INSTANCE });
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, splitProvider,
+                new DelimitedDataTupleParserFactory(new IValueParserFactory[] { UTF8StringParserFactory.INSTANCE },
+                        ','), desc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, scanner, locations);
+
+        ResultSetId rsId = new ResultSetId(1);
+        IOperatorDescriptor printer = new ResultWriterOperatorDescriptor(spec, rsId, ordered,
+                ResultSerializerFactoryProvider.INSTANCE.getResultSerializerFactoryProvider());
+        spec.addResultSetId(rsId);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, printer, locations);
+
+        IConnectorDescriptor conn = new OneToOneConnectorDescriptor(spec);
+        spec.connect(conn, scanner, 0, printer, 0);
+        spec.addRoot(printer);
+        return spec;
+    }
+
+    /**
+     * Returns the first comma-separated field of every line of the input, which is what the scan produces.
+     */
+    private static List<String> readWords() throws Exception {
+        List<String> words = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new FileReader(WORDS_FILE));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int comma = line.indexOf(',');
+                words.add(comma < 0 ? line : line.substring(0, comma));
+            }
+        } finally {
+            in.close();
+        }
+        return words;
+    }
+
+    private static List<String> trim(List<String> lines) {
+        List<String> trimmed = new ArrayList<String>(lines.size());
+        for (String line : lines) {
+            trimmed.add(line.trim());
+        }
+        return trimmed;
+    }
+}
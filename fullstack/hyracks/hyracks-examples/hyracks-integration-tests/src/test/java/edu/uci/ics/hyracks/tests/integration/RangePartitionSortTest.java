@@ -0,0 +1,149 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.integration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.constraints.PartitionConstraintHelper;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorDescriptor;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.dataset.ResultSetId;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import edu.uci.ics.hyracks.data.std.primitive.UTF8StringPointable;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.IValueParserFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.UTF8StringParserFactory;
+import edu.uci.ics.hyracks.dataflow.std.connectors.MToNReplicatingConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.connectors.OneToOneConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.connectors.RangePartitioningConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.file.ConstantFileSplitProvider;
+import edu.uci.ics.hyracks.dataflow.std.file.DelimitedDataTupleParserFactory;
+import edu.uci.ics.hyracks.dataflow.std.file.FileScanOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+import edu.uci.ics.hyracks.dataflow.std.file.IFileSplitProvider;
+import edu.uci.ics.hyracks.dataflow.std.misc.MaterializingOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.misc.SplitOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.result.ResultWriterOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.sort.ExternalSortOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.sort.RangeSampleOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.sort.RangeSplitOperatorDescriptor;
+import edu.uci.ics.hyracks.tests.util.ResultSerializerFactoryProvider;
+
+public class RangePartitionSortTest extends AbstractIntegrationTest {
+    private static final String[] ORDERS_FILES = { "data/tpch0.001/orders-part1.tbl",
+            "data/tpch0.001/orders-part2.tbl" };
+
+    @Test
+    public void rangePartitionedSort() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        FileSplit[] ordersSplits = new FileSplit[] {
+                new FileSplit(NC1_ID, new FileReference(new File(ORDERS_FILES[0]))),
+                new FileSplit(NC2_ID, new FileReference(new File(ORDERS_FILES[1]))) };
+        IFileSplitProvider ordersSplitProvider = new ConstantFileSplitProvider(ordersSplits);
+        ISerializerDeserializer[] ordersFields = new ISerializerDeserializer[9];
+        IValueParserFactory[] ordersParsers = new IValueParserFactory[9];
+        for (int i = 0; i < ordersFields.length; ++i) {
+            ordersFields[i] = UTF8StringSerializerDeserializer.INSTANCE;
+            ordersParsers[i] = UTF8StringParserFactory.INSTANCE;
+        }
+        RecordDescriptor ordersDesc = new RecordDescriptor(ordersFields);
+        RecordDescriptor sampleDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { UTF8StringSerializerDeserializer.INSTANCE });
+        IBinaryComparatorFactory[] comparatorFactories = new IBinaryComparatorFactory[] {
+                PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY) };
+
+        FileScanOperatorDescriptor ordScanner = new FileScanOperatorDescriptor(spec, ordersSplitProvider,
+                new DelimitedDataTupleParserFactory(ordersParsers, '|'), ordersDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, ordScanner, NC1_ID, NC2_ID);
+
+        SplitOperatorDescriptor splitter = new SplitOperatorDescriptor(spec, ordersDesc, 2);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, splitter, NC1_ID, NC2_ID);
+
+        // the data is held back until the split points are known
+        MaterializingOperatorDescriptor materializer = new MaterializingOperatorDescriptor(spec, ordersDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, materializer, NC1_ID, NC2_ID);
+
+        RangeSampleOperatorDescriptor sampler = new RangeSampleOperatorDescriptor(spec, new int[] { 0 }, 100,
+                sampleDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, sampler, NC1_ID, NC2_ID);
+
+        RangeSplitOperatorDescriptor rangeSplitter = new RangeSplitOperatorDescriptor(spec, comparatorFactories,
+                ordersDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, rangeSplitter, NC1_ID, NC2_ID);
+
+        String[] sortLocations = new String[] { NC1_ID, NC2_ID, NC1_ID, NC2_ID };
+        ExternalSortOperatorDescriptor sorter = new ExternalSortOperatorDescriptor(spec, 4, new int[] { 0 },
+                comparatorFactories, ordersDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, sorter, sortLocations);
+
+        ResultSetId rsId = new ResultSetId(1);
+        spec.addResultSetId(rsId);
+
+        IOperatorDescriptor printer = new ResultWriterOperatorDescriptor(spec, rsId, true,
+                ResultSerializerFactoryProvider.INSTANCE.getResultSerializerFactoryProvider());
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, printer, sortLocations);
+
+        spec.connect(new OneToOneConnectorDescriptor(spec), ordScanner, 0, splitter, 0);
+        spec.connect(new OneToOneConnectorDescriptor(spec), splitter, 0, materializer, 0);
+        spec.connect(new OneToOneConnectorDescriptor(spec), splitter, 1, sampler, 0);
+        spec.connect(new MToNReplicatingConnectorDescriptor(spec), sampler, 0, rangeSplitter, 0);
+        spec.connect(new OneToOneConnectorDescriptor(spec), materializer, 0, rangeSplitter, 1);
+        spec.connect(new RangePartitioningConnectorDescriptor(spec, new int[] { 0 }, comparatorFactories,
+                rangeSplitter), rangeSplitter, 0, sorter, 0);
+        spec.connect(new OneToOneConnectorDescriptor(spec), sorter, 0, printer, 0);
+        spec.addRoot(printer);
+
+        JobId jobId = executeTest(spec);
+        List<String> results = readResults(spec, jobId, rsId, 1, 4, true);
+        hcc.waitForCompletion(jobId);
+
+        // reading the sorted partitions one after the other gives all orders in key order
+        Assert.assertEquals(countLines(ORDERS_FILES), results.size());
+        String lastKey = null;
+        for (String result : results) {
+            String line = result.trim();
+            String key = line.substring(0, line.indexOf(", "));
+            Assert.assertTrue(lastKey + " > " + key, lastKey == null || lastKey.compareTo(key) <= 0);
+            lastKey = key;
+        }
+    }
+
+    private static int countLines(String[] fileNames) throws Exception {
+        int count = 0;
+        for (String fileName : fileNames) {
+            BufferedReader in = new BufferedReader(new FileReader(fileName));
+            try {
+                while (in.readLine() != null) {
+                    ++count;
+                }
+            } finally {
+                in.close();
+            }
+        }
+        return count;
+    }
+}
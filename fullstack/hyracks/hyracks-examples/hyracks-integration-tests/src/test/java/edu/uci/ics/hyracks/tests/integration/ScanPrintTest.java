@@ -21,6 +21,9 @@ import org.junit.Test;
 import edu.uci.ics.hyracks.api.constraints.PartitionConstraintHelper;
 import edu.uci.ics.hyracks.api.dataflow.IConnectorDescriptor;
 import edu.uci.ics.hyracks.api.dataflow.IOperatorDescriptor;
+import edu.uci.ics.hyracks.api.dataflow.connectors.IConnectorPolicy;
+import edu.uci.ics.hyracks.api.dataflow.connectors.IConnectorPolicyAssignmentPolicy;
+import edu.uci.ics.hyracks.api.dataflow.connectors.SpillingPipeliningConnectorPolicy;
 import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
 import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
@@ -156,4 +159,50 @@ public class ScanPrintTest extends AbstractIntegrationTest {
         spec.addRoot(printer);
         runTest(spec);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void scanPrintSpillingShuffle() throws Exception {
+        JobSpecification spec = new JobSpecification();
+
+        // every line is one field, so without spilling the job prints the file as it is
+        String inputFileName = "data/tpch0.001/lineitem.tbl";
+        FileSplit[] inputSplits = new FileSplit[] { new FileSplit(NC1_ID, new FileReference(new File(
+                inputFileName))) };
+        RecordDescriptor lineDesc = new RecordDescriptor(
+                new ISerializerDeserializer[] { UTF8StringSerializerDeserializer.INSTANCE });
+
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, new ConstantFileSplitProvider(
+                inputSplits), new DelimitedDataTupleParserFactory(
+                new IValueParserFactory[] { UTF8StringParserFactory.INSTANCE }, '\u0000'), lineDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, scanner, NC1_ID);
+
+        ResultSetId rsId = new ResultSetId(1);
+        IOperatorDescriptor printer = new ResultWriterOperatorDescriptor(spec, rsId, true,
+                ResultSerializerFactoryProvider.INSTANCE.getResultSerializerFactoryProvider());
+        spec.addResultSetId(rsId);
+
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, printer, NC2_ID);
+
+        IConnectorDescriptor conn1 = new MToNPartitioningConnectorDescriptor(spec,
+                new FieldHashPartitionComputerFactory(new int[] { 0 },
+                        new IBinaryHashFunctionFactory[] { PointableBinaryHashFunctionFactory
+                                .of(UTF8StringPointable.FACTORY) }));
+        spec.connect(conn1, scanner, 0, printer, 0);
+
+        spec.addRoot(printer);
+        // spill as soon as a consumer does not take a frame right away
+        spec.setConnectorPolicyAssignmentPolicy(new SpillingConnectorPolicyAssignmentPolicy());
+        // a single producer and consumer keep the order, so spilled frames must come back complete and in order
+        runTestAndCompareResults(spec, new String[] { inputFileName });
+    }
+
+    private static class SpillingConnectorPolicyAssignmentPolicy implements IConnectorPolicyAssignmentPolicy {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public IConnectorPolicy getConnectorPolicyAssignment(IConnectorDescriptor c, int nProducers, int nConsumers,
+                int[] fanouts) {
+            return new SpillingPipeliningConnectorPolicy(0);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.integration;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.constraints.PartitionConstraintHelper;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorDescriptor;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.dataset.ResultSetId;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.DoubleSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.DoubleParserFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.IValueParserFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.IntegerParserFactory;
+import edu.uci.ics.hyracks.dataflow.std.connectors.MToNPartitioningConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.connectors.MToNReplicatingConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.connectors.OneToOneConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.file.ConstantFileSplitProvider;
+import edu.uci.ics.hyracks.dataflow.std.file.DelimitedDataTupleParserFactory;
+import edu.uci.ics.hyracks.dataflow.std.file.FileScanOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+import edu.uci.ics.hyracks.dataflow.std.join.SpatialJoinOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.join.SpatialTileAssignOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.join.SpatialTileGrid;
+import edu.uci.ics.hyracks.dataflow.std.join.SpatialTilePartitionComputerFactory;
+import edu.uci.ics.hyracks.dataflow.std.result.ResultWriterOperatorDescriptor;
+import edu.uci.ics.hyracks.tests.util.ResultSerializerFactoryProvider;
+
+public class SpatialJoinTest extends AbstractIntegrationTest {
+    private static final int[] MBR_FIELDS = new int[] { 1, 2, 3, 4 };
+    private static final int TILE_FIELD = 5;
+
+    private static final RecordDescriptor RECT_DESC = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, DoubleSerializerDeserializer.INSTANCE,
+            DoubleSerializerDeserializer.INSTANCE, DoubleSerializerDeserializer.INSTANCE,
+            DoubleSerializerDeserializer.INSTANCE });
+
+    private static final RecordDescriptor TILED_RECT_DESC = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, DoubleSerializerDeserializer.INSTANCE,
+            DoubleSerializerDeserializer.INSTANCE, DoubleSerializerDeserializer.INSTANCE,
+            DoubleSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+
+    private static final RecordDescriptor JOINED_DESC = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, DoubleSerializerDeserializer.INSTANCE,
+            DoubleSerializerDeserializer.INSTANCE, DoubleSerializerDeserializer.INSTANCE,
+            DoubleSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE,
+            DoubleSerializerDeserializer.INSTANCE, DoubleSerializerDeserializer.INSTANCE,
+            DoubleSerializerDeserializer.INSTANCE, DoubleSerializerDeserializer.INSTANCE });
+
+    @Test
+    public void tiledJoinMatchesNestedLoopJoin() throws Exception {
+        Random rnd = new Random(17);
+        // a 4 x 4 grid over [0, 100) x [0, 100) on 3 partitions; some rectangles stick out of the grid
+        runAndCompare(new SpatialTileGrid(0, 0, 100, 100, 4, 4), createRectangles(rnd, 400),
+                createRectangles(rnd, 300), 64, NC1_ID, NC2_ID, NC1_ID);
+    }
+
+    @Test
+    public void buildSideLargerThanMemorySpills() throws Exception {
+        Random rnd = new Random(23);
+        runAndCompare(new SpatialTileGrid(0, 0, 100, 100, 2, 2), createRectangles(rnd, 400),
+                createRectangles(rnd, 2000), 4, NC1_ID);
+    }
+
+    @Test
+    public void tileLargerThanMemoryIsJoinedInChunks() throws Exception {
+        Random rnd = new Random(29);
+        // all rectangles fall into one tile, so spilling alone cannot make the build side fit
+        runAndCompare(new SpatialTileGrid(0, 0, 100, 100, 1, 1), createRectangles(rnd, 300),
+                createRectangles(rnd, 2000), 4, NC1_ID);
+    }
+
+    private void runAndCompare(SpatialTileGrid grid, List<double[]> left, List<double[]> right, int memSize,
+            String... joinLocations) throws Exception {
+        JobSpecification spec = new JobSpecification();
+        IOperatorDescriptor join = createJoinJob(spec, grid, left, right, memSize, joinLocations);
+        Assert.assertEquals(memSize, join.getRequiredMemoryFrames());
+        ResultSetId rsId = new ResultSetId(1);
+        spec.addResultSetId(rsId);
+        IOperatorDescriptor printer = new ResultWriterOperatorDescriptor(spec, rsId, false,
+                ResultSerializerFactoryProvider.INSTANCE.getResultSerializerFactoryProvider());
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, printer, NC1_ID);
+        spec.connect(new MToNReplicatingConnectorDescriptor(spec), join, 0, printer, 0);
+        spec.addRoot(printer);
+
+        JobId jobId = executeTest(spec);
+        List<String> results = readResults(spec, jobId, rsId);
+        hcc.waitForCompletion(jobId);
+
+        List<String> actual = new ArrayList<String>();
+        for (String result : results) {
+            // the joined tuples hold the two input tuples without their tile fields
+            String[] fields = result.trim().split(", ");
+            Assert.assertEquals(JOINED_DESC.getFieldCount(), fields.length);
+            actual.add(fields[0] + "-" + fields[5]);
+        }
+        List<String> expected = new ArrayList<String>();
+        for (double[] l : left) {
+            for (double[] r : right) {
+                if (l[1] <= r[3] && r[1] <= l[3] && l[2] <= r[4] && r[2] <= l[4]) {
+                    expected.add((int) l[0] + "-" + (int) r[0]);
+                }
+            }
+        }
+        Collections.sort(expected);
+        Collections.sort(actual);
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, actual);
+    }
+
+    private IOperatorDescriptor createJoinJob(JobSpecification spec, SpatialTileGrid grid, List<double[]> left,
+            List<double[]> right, int memSize, String... joinLocations) throws IOException {
+        IOperatorDescriptor leftTiles = createTiledScan(spec, grid, writeSplits(left, "left"));
+        IOperatorDescriptor rightTiles = createTiledScan(spec, grid, writeSplits(right, "right"));
+
+        SpatialJoinOperatorDescriptor join = new SpatialJoinOperatorDescriptor(spec, grid, MBR_FIELDS, TILE_FIELD,
+                MBR_FIELDS, TILE_FIELD, memSize, JOINED_DESC);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, join, joinLocations);
+
+        spec.connect(new MToNPartitioningConnectorDescriptor(spec, new SpatialTilePartitionComputerFactory(TILE_FIELD)),
+                leftTiles, 0, join, 0);
+        spec.connect(new MToNPartitioningConnectorDescriptor(spec, new SpatialTilePartitionComputerFactory(TILE_FIELD)),
+                rightTiles, 0, join, 1);
+        return join;
+    }
+
+    private IOperatorDescriptor createTiledScan(JobSpecification spec, SpatialTileGrid grid, FileSplit[] splits) {
+        IValueParserFactory[] parsers = new IValueParserFactory[] { IntegerParserFactory.INSTANCE,
+                DoubleParserFactory.INSTANCE, DoubleParserFactory.INSTANCE, DoubleParserFactory.INSTANCE,
+                DoubleParserFactory.INSTANCE };
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, new ConstantFileSplitProvider(
+                splits), new DelimitedDataTupleParserFactory(parsers, '|'), RECT_DESC);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, scanner, NC1_ID, NC2_ID);
+
+        SpatialTileAssignOperatorDescriptor tiles = new SpatialTileAssignOperatorDescriptor(spec, TILED_RECT_DESC,
+                grid, MBR_FIELDS);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, tiles, NC1_ID, NC2_ID);
+        spec.connect(new OneToOneConnectorDescriptor(spec), scanner, 0, tiles, 0);
+        return tiles;
+    }
+
+    /**
+     * Creates rectangles of up to 20 x 20 with their lower left corner in [-5, 100) x [-5, 100), as { id, x low, y
+     * low, x high, y high }.
+     */
+    private static List<double[]> createRectangles(Random rnd, int count) {
+        List<double[]> rects = new ArrayList<double[]>();
+        for (int i = 0; i < count; ++i) {
+            double xLow = rnd.nextInt(1050) / 10.0 - 5;
+            double yLow = rnd.nextInt(1050) / 10.0 - 5;
+            rects.add(new double[] { i, xLow, yLow, xLow + rnd.nextInt(200) / 10.0, yLow + rnd.nextInt(200) / 10.0 });
+        }
+        return rects;
+    }
+
+    private FileSplit[] writeSplits(List<double[]> rects, String name) throws IOException {
+        String[] nodes = new String[] { NC1_ID, NC2_ID };
+        FileSplit[] splits = new FileSplit[nodes.length];
+        for (int i = 0; i < nodes.length; ++i) {
+            File file = outputFolder.newFile(name + i + ".tbl");
+            PrintWriter out = new PrintWriter(new FileWriter(file));
+            try {
+                for (int j = i; j < rects.size(); j += nodes.length) {
+                    double[] r = rects.get(j);
+                    out.println((int) r[0] + "|" + r[1] + "|" + r[2] + "|" + r[3] + "|" + r[4]);
+                }
+            } finally {
+                out.close();
+            }
+            splits[i] = new FileSplit(nodes[i], new FileReference(file));
+        }
+        return splits;
+    }
+}
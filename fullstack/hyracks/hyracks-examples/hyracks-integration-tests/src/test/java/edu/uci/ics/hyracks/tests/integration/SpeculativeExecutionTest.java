@@ -0,0 +1,293 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.integration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import edu.uci.ics.hyracks.api.client.HyracksConnection;
+import edu.uci.ics.hyracks.api.client.IHyracksClientConnection;
+import edu.uci.ics.hyracks.api.constraints.PartitionConstraintHelper;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.IConnectorDescriptor;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
+import edu.uci.ics.hyracks.api.dataflow.connectors.FaultTolerantConnectorPolicyAssignmentPolicy;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.IOperatorDescriptorRegistry;
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
+import edu.uci.ics.hyracks.control.cc.job.TaskClusterAttempt;
+import edu.uci.ics.hyracks.control.common.controllers.CCConfig;
+import edu.uci.ics.hyracks.control.common.controllers.NCConfig;
+import edu.uci.ics.hyracks.control.nc.NodeControllerService;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryHashFunctionFactory;
+import edu.uci.ics.hyracks.data.std.primitive.UTF8StringPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.IValueParserFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.parsers.UTF8StringParserFactory;
+import edu.uci.ics.hyracks.dataflow.common.data.partition.FieldHashPartitionComputerFactory;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractSingleActivityOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
+import edu.uci.ics.hyracks.dataflow.std.connectors.MToNPartitioningConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.connectors.MToNReplicatingConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.file.ConstantFileSplitProvider;
+import edu.uci.ics.hyracks.dataflow.std.file.DelimitedDataTupleParserFactory;
+import edu.uci.ics.hyracks.dataflow.std.file.FileScanOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.file.FileSplit;
+import edu.uci.ics.hyracks.dataflow.std.file.PlainFileWriterOperatorDescriptor;
+
+/**
+ * Runs a job on a cluster of its own, with straggler checks enabled, in which one task of a stage between two
+ * materialized connectors hangs. The cluster controller must start a second attempt of that task on the other node,
+ * keep its result and abort the hanging attempt, and the job must produce the complete result exactly once.
+ */
+public class SpeculativeExecutionTest {
+    private static final String NC1_ID = "nc1";
+    private static final String NC2_ID = "nc2";
+    private static final String WORDS_FILE = "data/words.txt";
+    private static final int STRAGGLER_PARTITIONS = 4;
+
+    /**
+     * Number of first attempts of straggler tasks started so far. The last one to start hangs: by then the others
+     * have finished, however the scheduler orders the tasks, so there are finished peers to compare it with.
+     */
+    private static final AtomicInteger FIRST_ATTEMPTS_STARTED = new AtomicInteger();
+
+    private static final AtomicInteger SECOND_ATTEMPTS_COMPLETED = new AtomicInteger();
+
+    /**
+     * Counted down when the hanging attempt is interrupted by its abort.
+     */
+    private static final CountDownLatch HANGING_ATTEMPT_ABORTED = new CountDownLatch(1);
+
+    /**
+     * Lets the hanging attempt finish, should it not be aborted.
+     */
+    private static final CountDownLatch RELEASE = new CountDownLatch(1);
+
+    private static volatile String hangingNodeId;
+    private static volatile String secondAttemptNodeId;
+
+    private static ClusterControllerService cc;
+    private static NodeControllerService nc1;
+    private static NodeControllerService nc2;
+    private static IHyracksClientConnection hcc;
+
+    @Rule
+    public TemporaryFolder outputFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void init() throws Exception {
+        CCConfig ccConfig = new CCConfig();
+        ccConfig.clientNetIpAddress = "127.0.0.1";
+        ccConfig.clientNetPort = 39020;
+        ccConfig.clusterNetIpAddress = "127.0.0.1";
+        ccConfig.clusterNetPort = 39021;
+        ccConfig.speculationPeriod = 500;
+        File outDir = new File("target/ClusterController");
+        outDir.mkdirs();
+        File ccRoot = File.createTempFile(SpeculativeExecutionTest.class.getName(), ".data", outDir);
+        ccRoot.delete();
+        ccRoot.mkdir();
+        ccConfig.ccRoot = ccRoot.getAbsolutePath();
+        cc = new ClusterControllerService(ccConfig);
+        cc.start();
+
+        nc1 = new NodeControllerService(createNCConfig(NC1_ID));
+        nc1.start();
+        nc2 = new NodeControllerService(createNCConfig(NC2_ID));
+        nc2.start();
+
+        hcc = new HyracksConnection(ccConfig.clientNetIpAddress, ccConfig.clientNetPort);
+    }
+
+    private static NCConfig createNCConfig(String nodeId) {
+        NCConfig ncConfig = new NCConfig();
+        ncConfig.ccHost = "localhost";
+        ncConfig.ccPort = 39021;
+        ncConfig.clusterNetIPAddress = "127.0.0.1";
+        ncConfig.dataIPAddress = "127.0.0.1";
+        ncConfig.datasetIPAddress = "127.0.0.1";
+        ncConfig.nodeId = nodeId;
+        return ncConfig;
+    }
+
+    @AfterClass
+    public static void deinit() throws Exception {
+        RELEASE.countDown();
+        nc2.stop();
+        nc1.stop();
+        cc.stop();
+    }
+
+    @Test
+    public void replacesHangingTaskWithSecondAttempt() throws Exception {
+        JobSpecification spec = new JobSpecification();
+        RecordDescriptor desc = new RecordDescriptor(
+                new ISerializerDeserializer[] { UTF8StringSerializerDeserializer.INSTANCE });
+
+        FileSplit[] splits = new FileSplit[] { new FileSplit(NC1_ID, new FileReference(new File(WORDS_FILE))),
+                new FileSplit(NC2_ID, new FileReference(new File(WORDS_FILE))) };
+        FileScanOperatorDescriptor scanner = new FileScanOperatorDescriptor(spec, new ConstantFileSplitProvider(
+                splits), new DelimitedDataTupleParserFactory(
+                new IValueParserFactory[] { UTF8StringParserFactory.INSTANCE }, ','), desc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, scanner, NC1_ID, NC2_ID);
+
+        StragglerOperatorDescriptor straggler = new StragglerOperatorDescriptor(spec, desc);
+        // every straggler task may run on either node, so a second attempt has somewhere to go
+        String[][] locations = new String[STRAGGLER_PARTITIONS][];
+        for (int i = 0; i < STRAGGLER_PARTITIONS; ++i) {
+            locations[i] = i % 2 == 0 ? new String[] { NC1_ID, NC2_ID } : new String[] { NC2_ID, NC1_ID };
+        }
+        PartitionConstraintHelper.addLocationChoiceConstraint(spec, straggler, locations);
+
+        File outFile = outputFolder.newFile("words.out");
+        PlainFileWriterOperatorDescriptor writer = new PlainFileWriterOperatorDescriptor(spec,
+                new ConstantFileSplitProvider(new FileSplit[] { new FileSplit(NC1_ID, new FileReference(outFile)) }),
+                ",");
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, writer, NC1_ID);
+
+        IConnectorDescriptor conn1 = new MToNPartitioningConnectorDescriptor(spec,
+                new FieldHashPartitionComputerFactory(new int[] { 0 },
+                        new IBinaryHashFunctionFactory[] { PointableBinaryHashFunctionFactory
+                                .of(UTF8StringPointable.FACTORY) }));
+        spec.connect(conn1, scanner, 0, straggler, 0);
+        IConnectorDescriptor conn2 = new MToNReplicatingConnectorDescriptor(spec);
+        spec.connect(conn2, straggler, 0, writer, 0);
+        spec.addRoot(writer);
+        // only tasks between materialized connectors whose consumers wait for them are run twice
+        spec.setConnectorPolicyAssignmentPolicy(new FaultTolerantConnectorPolicyAssignmentPolicy(null, true));
+
+        long start = System.currentTimeMillis();
+        JobId jobId = hcc.startJob(spec);
+        hcc.waitForCompletion(jobId);
+        long elapsed = System.currentTimeMillis() - start;
+
+        // the job finishes with the second attempt, long before the hanging attempt would have given up
+        Assert.assertTrue("the job took " + elapsed + "ms", elapsed < 30000);
+        Assert.assertEquals(1, SECOND_ATTEMPTS_COMPLETED.get());
+        Assert.assertTrue("the hanging attempt was not aborted", HANGING_ATTEMPT_ABORTED.await(30, TimeUnit.SECONDS));
+        Assert.assertNotNull(hangingNodeId);
+        Assert.assertFalse("both attempts ran on " + hangingNodeId, hangingNodeId.equals(secondAttemptNodeId));
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < splits.length; ++i) {
+            expected.addAll(readLines(new File(WORDS_FILE), true));
+        }
+        List<String> actual = readLines(outFile, false);
+        Collections.sort(expected);
+        Collections.sort(actual);
+        Assert.assertEquals(expected, actual);
+    }
+
+    /**
+     * Reads the lines of a file, or only their first comma-separated field, which is what the scan produces.
+     */
+    private static List<String> readLines(File file, boolean firstField) throws Exception {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int comma = line.indexOf(',');
+                lines.add(firstField && comma >= 0 ? line.substring(0, comma) : line);
+            }
+        } finally {
+            in.close();
+        }
+        return lines;
+    }
+
+    /**
+     * Passes its input through. The last first attempt to start holds back the end of its output until it is
+     * aborted or the test releases it.
+     */
+    private static class StragglerOperatorDescriptor extends AbstractSingleActivityOperatorDescriptor {
+        private static final long serialVersionUID = 1L;
+
+        public StragglerOperatorDescriptor(IOperatorDescriptorRegistry spec, RecordDescriptor desc) {
+            super(spec, 1, 1);
+            recordDescriptors[0] = desc;
+        }
+
+        @Override
+        public IOperatorNodePushable createPushRuntime(final IHyracksTaskContext ctx,
+                IRecordDescriptorProvider recordDescProvider, int partition, int nPartitions)
+                throws HyracksDataException {
+            final String nodeId = ctx.getJobletContext().getApplicationContext().getNodeId();
+            final boolean secondAttempt = ctx.getTaskAttemptId().getAttempt() >= TaskClusterAttempt
+                    .SECONDARY_ATTEMPT_OFFSET;
+            return new AbstractUnaryInputUnaryOutputOperatorNodePushable() {
+                private boolean hang;
+
+                @Override
+                public void open() throws HyracksDataException {
+                    hang = !secondAttempt && FIRST_ATTEMPTS_STARTED.incrementAndGet() == STRAGGLER_PARTITIONS;
+                    writer.open();
+                }
+
+                @Override
+                public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                    FrameUtils.flushFrame(buffer, writer);
+                }
+
+                @Override
+                public void fail() throws HyracksDataException {
+                    writer.fail();
+                }
+
+                @Override
+                public void close() throws HyracksDataException {
+                    if (hang) {
+                        hangingNodeId = nodeId;
+                        try {
+                            RELEASE.await(60, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            HANGING_ATTEMPT_ABORTED.countDown();
+                            throw new HyracksDataException(e);
+                        }
+                    }
+                    writer.close();
+                    if (secondAttempt) {
+                        secondAttemptNodeId = nodeId;
+                        SECOND_ATTEMPTS_COMPLETED.incrementAndGet();
+                    }
+                }
+            };
+        }
+    }
+}
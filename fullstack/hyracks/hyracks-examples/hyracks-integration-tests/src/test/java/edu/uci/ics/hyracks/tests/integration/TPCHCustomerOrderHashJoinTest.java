@@ -15,7 +15,11 @@
 package edu.uci.ics.hyracks.tests.integration;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import edu.uci.ics.hyracks.api.constraints.PartitionConstraintHelper;
@@ -28,6 +32,7 @@ import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
 import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
 import edu.uci.ics.hyracks.api.dataset.ResultSetId;
 import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.JobId;
 import edu.uci.ics.hyracks.api.job.JobSpecification;
 import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
 import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryHashFunctionFactory;
@@ -39,6 +44,8 @@ import edu.uci.ics.hyracks.dataflow.common.data.partition.FieldHashPartitionComp
 import edu.uci.ics.hyracks.dataflow.std.connectors.MToNPartitioningConnectorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.connectors.MToNReplicatingConnectorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.connectors.OneToOneConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.connectors.SkewAwareMToNPartitioningConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.connectors.SkewAwareMToNPartitioningConnectorDescriptor.SkewHandling;
 import edu.uci.ics.hyracks.dataflow.std.file.ConstantFileSplitProvider;
 import edu.uci.ics.hyracks.dataflow.std.file.DelimitedDataTupleParserFactory;
 import edu.uci.ics.hyracks.dataflow.std.file.FileScanOperatorDescriptor;
@@ -47,7 +54,10 @@ import edu.uci.ics.hyracks.dataflow.std.file.IFileSplitProvider;
 import edu.uci.ics.hyracks.dataflow.std.join.GraceHashJoinOperatorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.join.HybridHashJoinOperatorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.join.InMemoryHashJoinOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.misc.HeavyHitterCollectorOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.misc.HeavyHitterSamplerOperatorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.misc.MaterializingOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.misc.SplitOperatorDescriptor;
 import edu.uci.ics.hyracks.dataflow.std.result.ResultWriterOperatorDescriptor;
 import edu.uci.ics.hyracks.tests.util.NoopNullWriterFactory;
 import edu.uci.ics.hyracks.tests.util.ResultSerializerFactoryProvider;
@@ -658,6 +668,154 @@ public class TPCHCustomerOrderHashJoinTest extends AbstractIntegrationTest {
         runTest(spec);
     }
 
+    @Test
+    public void customerOrderCIDJoinMultiSkewAware() throws Exception {
+        List<String> expected = runAndReadSortedResults(createCustomerOrderCIDJoinMultiJob(false));
+        List<String> results = runAndReadSortedResults(createCustomerOrderCIDJoinMultiJob(true));
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, results);
+    }
+
+    private JobSpecification createCustomerOrderCIDJoinMultiJob(boolean skewAware) throws IOException {
+        JobSpecification spec = new JobSpecification();
+
+        FileSplit[] custSplits = new FileSplit[] {
+                new FileSplit(NC1_ID, new FileReference(new File("data/tpch0.001/customer-part1.tbl"))),
+                new FileSplit(NC2_ID, new FileReference(new File("data/tpch0.001/customer-part2.tbl"))) };
+        IFileSplitProvider custSplitsProvider = new ConstantFileSplitProvider(custSplits);
+        RecordDescriptor custDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE });
+
+        FileSplit[] ordersSplits = new FileSplit[] {
+                new FileSplit(NC1_ID, new FileReference(new File("data/tpch0.001/orders-part1.tbl"))),
+                new FileSplit(NC2_ID, new FileReference(new File("data/tpch0.001/orders-part2.tbl"))) };
+        IFileSplitProvider ordersSplitsProvider = new ConstantFileSplitProvider(ordersSplits);
+        RecordDescriptor ordersDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE });
+
+        RecordDescriptor custOrderJoinDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                UTF8StringSerializerDeserializer.INSTANCE });
+
+        FileScanOperatorDescriptor ordScanner = new FileScanOperatorDescriptor(spec, ordersSplitsProvider,
+                new DelimitedDataTupleParserFactory(new IValueParserFactory[] { UTF8StringParserFactory.INSTANCE,
+                        UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                        UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                        UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                        UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE }, '|'), ordersDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, ordScanner, NC1_ID, NC2_ID);
+
+        FileScanOperatorDescriptor custScanner = new FileScanOperatorDescriptor(spec, custSplitsProvider,
+                new DelimitedDataTupleParserFactory(new IValueParserFactory[] { UTF8StringParserFactory.INSTANCE,
+                        UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                        UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                        UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                        UTF8StringParserFactory.INSTANCE }, '|'), custDesc);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, custScanner, NC1_ID, NC2_ID);
+
+        InMemoryHashJoinOperatorDescriptor join = new InMemoryHashJoinOperatorDescriptor(
+                spec,
+                new int[] { 1 },
+                new int[] { 0 },
+                new IBinaryHashFunctionFactory[] { PointableBinaryHashFunctionFactory.of(UTF8StringPointable.FACTORY) },
+                new IBinaryComparatorFactory[] { PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY) },
+                custOrderJoinDesc, 128);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, join, NC1_ID, NC2_ID);
+
+        ResultSetId rsId = new ResultSetId(1);
+        spec.addResultSetId(rsId);
+
+        IOperatorDescriptor printer = new ResultWriterOperatorDescriptor(spec, rsId, false,
+                ResultSerializerFactoryProvider.INSTANCE.getResultSerializerFactoryProvider());
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, printer, NC1_ID);
+
+        IBinaryHashFunctionFactory keyHashFactory = PointableBinaryHashFunctionFactory.of(UTF8StringPointable.FACTORY);
+        if (skewAware) {
+            // a second scan of the orders feeds the sampler; the customers with the most orders become heavy
+            // hitters, so their customers are broadcast and their orders spread
+            FileScanOperatorDescriptor ordSampleScanner = new FileScanOperatorDescriptor(spec, ordersSplitsProvider,
+                    new DelimitedDataTupleParserFactory(new IValueParserFactory[] { UTF8StringParserFactory.INSTANCE,
+                            UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                            UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                            UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE,
+                            UTF8StringParserFactory.INSTANCE, UTF8StringParserFactory.INSTANCE }, '|'), ordersDesc);
+            PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, ordSampleScanner, NC1_ID, NC2_ID);
+
+            HeavyHitterSamplerOperatorDescriptor sampler = new HeavyHitterSamplerOperatorDescriptor(spec,
+                    new int[] { 1 }, new IBinaryHashFunctionFactory[] { keyHashFactory }, 32, 1, 0.02);
+            PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, sampler, NC1_ID, NC2_ID);
+
+            SplitOperatorDescriptor split = new SplitOperatorDescriptor(spec,
+                    HeavyHitterSamplerOperatorDescriptor.HEAVY_HITTER_RECORD_DESCRIPTOR, 2);
+            PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, split, NC1_ID, NC2_ID);
+
+            HeavyHitterCollectorOperatorDescriptor ordCollector = new HeavyHitterCollectorOperatorDescriptor(spec,
+                    ordersDesc);
+            PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, ordCollector, NC1_ID, NC2_ID);
+
+            HeavyHitterCollectorOperatorDescriptor custCollector = new HeavyHitterCollectorOperatorDescriptor(spec,
+                    custDesc);
+            PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, custCollector, NC1_ID, NC2_ID);
+
+            spec.connect(new OneToOneConnectorDescriptor(spec), ordSampleScanner, 0, sampler, 0);
+            spec.connect(new MToNReplicatingConnectorDescriptor(spec), sampler, 0, split, 0);
+            spec.connect(new OneToOneConnectorDescriptor(spec), split, 0, ordCollector, 0);
+            spec.connect(new OneToOneConnectorDescriptor(spec), split, 1, custCollector, 0);
+            spec.connect(new OneToOneConnectorDescriptor(spec), ordScanner, 0, ordCollector, 1);
+            spec.connect(new OneToOneConnectorDescriptor(spec), custScanner, 0, custCollector, 1);
+
+            IConnectorDescriptor ordJoinConn = new SkewAwareMToNPartitioningConnectorDescriptor(spec,
+                    new FieldHashPartitionComputerFactory(new int[] { 1 },
+                            new IBinaryHashFunctionFactory[] { keyHashFactory }), new int[] { 1 },
+                    new IBinaryHashFunctionFactory[] { keyHashFactory }, ordCollector, SkewHandling.SPREAD);
+            spec.connect(ordJoinConn, ordCollector, 0, join, 0);
+
+            IConnectorDescriptor custJoinConn = new SkewAwareMToNPartitioningConnectorDescriptor(spec,
+                    new FieldHashPartitionComputerFactory(new int[] { 0 },
+                            new IBinaryHashFunctionFactory[] { keyHashFactory }), new int[] { 0 },
+                    new IBinaryHashFunctionFactory[] { keyHashFactory }, custCollector, SkewHandling.BROADCAST);
+            spec.connect(custJoinConn, custCollector, 0, join, 1);
+        } else {
+            IConnectorDescriptor ordJoinConn = new MToNPartitioningConnectorDescriptor(spec,
+                    new FieldHashPartitionComputerFactory(new int[] { 1 },
+                            new IBinaryHashFunctionFactory[] { keyHashFactory }));
+            spec.connect(ordJoinConn, ordScanner, 0, join, 0);
+
+            IConnectorDescriptor custJoinConn = new MToNPartitioningConnectorDescriptor(spec,
+                    new FieldHashPartitionComputerFactory(new int[] { 0 },
+                            new IBinaryHashFunctionFactory[] { keyHashFactory }));
+            spec.connect(custJoinConn, custScanner, 0, join, 1);
+        }
+
+        IConnectorDescriptor joinPrinterConn = new MToNReplicatingConnectorDescriptor(spec);
+        spec.connect(joinPrinterConn, join, 0, printer, 0);
+
+        spec.addRoot(printer);
+        return spec;
+    }
+
+    private List<String> runAndReadSortedResults(JobSpecification spec) throws Exception {
+        JobId jobId = executeTest(spec);
+        List<String> results = readResults(spec, jobId, spec.getResultSetIds().get(0));
+        hcc.waitForCompletion(jobId);
+        Collections.sort(results);
+        return results;
+    }
+
     @Test
     public void customerOrderCIDGraceJoinMulti() throws Exception {
         JobSpecification spec = new JobSpecification();
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.integration;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.client.HyracksConnection;
+import edu.uci.ics.hyracks.api.client.IHyracksClientConnection;
+import edu.uci.ics.hyracks.api.constraints.PartitionConstraintHelper;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.IOperatorNodePushable;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.api.job.IOperatorDescriptorRegistry;
+import edu.uci.ics.hyracks.api.job.JobId;
+import edu.uci.ics.hyracks.api.job.JobSpecification;
+import edu.uci.ics.hyracks.control.cc.ClusterControllerService;
+import edu.uci.ics.hyracks.control.cc.NodeControllerState;
+import edu.uci.ics.hyracks.control.cc.scheduler.Reservation;
+import edu.uci.ics.hyracks.control.cc.scheduler.TaskAdmissionController;
+import edu.uci.ics.hyracks.control.common.controllers.CCConfig;
+import edu.uci.ics.hyracks.control.common.controllers.NCConfig;
+import edu.uci.ics.hyracks.control.common.controllers.NodeRegistration;
+import edu.uci.ics.hyracks.control.common.heartbeat.HeartbeatSchema;
+import edu.uci.ics.hyracks.control.common.heartbeat.HeartbeatSchema.GarbageCollectorInfo;
+import edu.uci.ics.hyracks.control.nc.NodeControllerService;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractSingleActivityOperatorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryOutputSourceOperatorNodePushable;
+import edu.uci.ics.hyracks.dataflow.std.connectors.MToNReplicatingConnectorDescriptor;
+import edu.uci.ics.hyracks.dataflow.std.misc.NullSinkOperatorDescriptor;
+
+/**
+ * Checks that the cluster controller starts task clusters only within the task slots and memory of the node they run
+ * on, queues the jobs that do not fit, and gives the capacity back when tasks complete or fail. Runs on a cluster of
+ * its own with a single node of {@value #TASK_SLOTS} task slots and {@value #TASK_MEMORY_FRAMES} frames of task
+ * memory.
+ */
+public class TaskAdmissionTest {
+    private static final String NC1_ID = "nc1";
+    private static final int TASK_SLOTS = 4;
+    private static final int TASK_MEMORY_FRAMES = 16;
+    private static final int FRAME_SIZE = 32768;
+
+    /**
+     * Started tasks, by the gate their source waits at.
+     */
+    private static final Map<String, AtomicInteger> STARTED = new ConcurrentHashMap<String, AtomicInteger>();
+
+    /**
+     * Gates that the sources wait at until the test opens them.
+     */
+    private static final Map<String, CountDownLatch> GATES = new ConcurrentHashMap<String, CountDownLatch>();
+
+    /**
+     * Gates whose sources fail instead of finishing once opened.
+     */
+    private static final Set<String> FAILING_GATES = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private static ClusterControllerService cc;
+    private static NodeControllerService nc1;
+    private static IHyracksClientConnection hcc;
+
+    @BeforeClass
+    public static void init() throws Exception {
+        CCConfig ccConfig = new CCConfig();
+        ccConfig.clientNetIpAddress = "127.0.0.1";
+        ccConfig.clientNetPort = 39030;
+        ccConfig.clusterNetIpAddress = "127.0.0.1";
+        ccConfig.clusterNetPort = 39031;
+        File outDir = new File("target/ClusterController");
+        outDir.mkdirs();
+        File ccRoot = File.createTempFile(TaskAdmissionTest.class.getName(), ".data", outDir);
+        ccRoot.delete();
+        ccRoot.mkdir();
+        ccConfig.ccRoot = ccRoot.getAbsolutePath();
+        cc = new ClusterControllerService(ccConfig);
+        cc.start();
+
+        NCConfig ncConfig = new NCConfig();
+        ncConfig.ccHost = "localhost";
+        ncConfig.ccPort = 39031;
+        ncConfig.clusterNetIPAddress = "127.0.0.1";
+        ncConfig.dataIPAddress = "127.0.0.1";
+        ncConfig.datasetIPAddress = "127.0.0.1";
+        ncConfig.nodeId = NC1_ID;
+        ncConfig.taskSlots = TASK_SLOTS;
+        ncConfig.taskMemory = (long) TASK_MEMORY_FRAMES * FRAME_SIZE;
+        nc1 = new NodeControllerService(ncConfig);
+        nc1.start();
+
+        hcc = new HyracksConnection(ccConfig.clientNetIpAddress, ccConfig.clientNetPort);
+    }
+
+    @AfterClass
+    public static void deinit() throws Exception {
+        for (CountDownLatch gate : GATES.values()) {
+            gate.countDown();
+        }
+        nc1.stop();
+        cc.stop();
+    }
+
+    @Test
+    public void nodeAdmitsWithinItsCapacity() {
+        NodeRegistration reg = new NodeRegistration(null, NC1_ID, new NCConfig(), null, null, null, null, null, 1,
+                null, null, null, null, null, null, null, null, new HeartbeatSchema(new GarbageCollectorInfo[0]), 2,
+                1000);
+        NodeControllerState node = new NodeControllerState(null, reg);
+        // an idle node takes anything, so that work larger than the node can still run
+        Assert.assertTrue(node.canAdmit(5, 5000));
+        node.reserve(1, 400);
+        Assert.assertTrue(node.canAdmit(1, 600));
+        Assert.assertFalse("memory limit", node.canAdmit(1, 601));
+        Assert.assertFalse("slot limit", node.canAdmit(2, 0));
+        node.reserve(1, 600);
+        Assert.assertFalse(node.canAdmit(1, 0));
+        node.release(1, 400);
+        Assert.assertTrue(node.canAdmit(1, 400));
+        node.release(1, 600);
+        Assert.assertEquals(0, node.getUsedTaskSlots());
+        Assert.assertTrue(node.canAdmit(5, 5000));
+    }
+
+    @Test
+    public void controllerQueuesJobsInOrder() throws Exception {
+        TaskAdmissionController tac = cc.getTaskAdmissionController();
+        // made-up jobs, which the controller only knows by their ids
+        JobId first = new JobId(1000001);
+        JobId second = new JobId(1000002);
+        JobId third = new JobId(1000003);
+        Reservation all = new Reservation(NC1_ID, TASK_SLOTS, FRAME_SIZE);
+        Reservation one = new Reservation(NC1_ID, 1, FRAME_SIZE);
+        Assert.assertTrue(tac.admit(first, Collections.singletonList(all), false));
+        Assert.assertFalse("the node is full", tac.admit(second, Collections.singletonList(one), false));
+        Assert.assertFalse("a job waits before it", tac.admit(third, Collections.singletonList(one), false));
+        Assert.assertFalse("a job waits", tac.tryAdmit(one));
+        // jobs that already run tasks are not held back
+        Assert.assertTrue(tac.admit(first, Collections.singletonList(one), true));
+        tac.release(one);
+        tac.release(all);
+        // the third job gives up, the second is first in line and the node has room again
+        tac.jobFinished(third);
+        Assert.assertTrue(tac.admit(second, Collections.singletonList(one), false));
+        Assert.assertTrue(tac.admit(third, Collections.singletonList(one), false));
+        tac.release(one);
+        tac.release(one);
+        tac.jobFinished(first);
+        tac.jobFinished(second);
+        assertNodeIdle();
+    }
+
+    @Test
+    public void queuesJobBeyondTheSlotsOfTheNode() throws Exception {
+        JobId running = hcc.startJob(createJob("slots-running", 2, 0));
+        awaitStarted("slots-running", 2);
+        // three more tasks do not fit next to the three that run
+        JobId queued = hcc.startJob(createJob("slots-queued", 2, 0));
+        Thread.sleep(1000);
+        Assert.assertEquals(0, getStarted("slots-queued"));
+        open("slots-running");
+        hcc.waitForCompletion(running);
+        awaitStarted("slots-queued", 2);
+        open("slots-queued");
+        hcc.waitForCompletion(queued);
+        assertNodeIdle();
+    }
+
+    @Test
+    public void queuesJobBeyondTheMemoryOfTheNode() throws Exception {
+        JobId running = hcc.startJob(createJob("memory-running", 1, 0));
+        awaitStarted("memory-running", 1);
+        // two tasks fit into the free slots, but the source needs more memory than the node has left
+        JobId queued = hcc.startJob(createJob("memory-queued", 1, TASK_MEMORY_FRAMES));
+        Thread.sleep(1000);
+        Assert.assertEquals(0, getStarted("memory-queued"));
+        open("memory-running");
+        hcc.waitForCompletion(running);
+        // the node is idle now, so the job runs even though it needs more memory than the node has
+        awaitStarted("memory-queued", 1);
+        open("memory-queued");
+        hcc.waitForCompletion(queued);
+        assertNodeIdle();
+    }
+
+    @Test
+    public void runsTaskClusterLargerThanTheNode() throws Exception {
+        // twice the slots of the node in a single pipelined task cluster
+        JobId jobId = hcc.startJob(createJob("large", 2 * TASK_SLOTS, 0));
+        awaitStarted("large", 2 * TASK_SLOTS);
+        open("large");
+        hcc.waitForCompletion(jobId);
+        assertNodeIdle();
+    }
+
+    @Test
+    public void releasesCapacityOfFailedJobs() throws Exception {
+        JobId jobId = hcc.startJob(createJob("failing", 2, 0));
+        awaitStarted("failing", 2);
+        // the sources fail when their gate opens, the sink is aborted
+        FAILING_GATES.add("failing");
+        open("failing");
+        try {
+            hcc.waitForCompletion(jobId);
+            Assert.fail("the job did not fail");
+        } catch (Exception e) {
+            // expected
+        }
+        assertNodeIdle();
+    }
+
+    private static JobSpecification createJob(String gate, int nSources, int sourceMemoryFrames) {
+        STARTED.put(gate, new AtomicInteger());
+        GATES.put(gate, new CountDownLatch(1));
+        JobSpecification spec = new JobSpecification();
+        spec.setFrameSize(FRAME_SIZE);
+        GatedSourceOperatorDescriptor source = new GatedSourceOperatorDescriptor(spec, gate, sourceMemoryFrames);
+        String[] locations = new String[nSources];
+        Arrays.fill(locations, NC1_ID);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, source, locations);
+        NullSinkOperatorDescriptor sink = new NullSinkOperatorDescriptor(spec);
+        PartitionConstraintHelper.addAbsoluteLocationConstraint(spec, sink, NC1_ID);
+        spec.connect(new MToNReplicatingConnectorDescriptor(spec), source, 0, sink, 0);
+        spec.addRoot(sink);
+        return spec;
+    }
+
+    private static int getStarted(String gate) {
+        return STARTED.get(gate).get();
+    }
+
+    private static void awaitStarted(String gate, int nTasks) throws Exception {
+        long deadline = System.currentTimeMillis() + 30000;
+        while (getStarted(gate) < nTasks) {
+            Assert.assertTrue(nTasks + " tasks did not start, only " + getStarted(gate),
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private static void open(String gate) {
+        GATES.get(gate).countDown();
+    }
+
+    /**
+     * Waits until all reservations at the node have been released. They are only changed while holding the
+     * admission controller's monitor.
+     */
+    private static void assertNodeIdle() throws Exception {
+        NodeControllerState node = cc.getNodeMap().get(NC1_ID);
+        long deadline = System.currentTimeMillis() + 10000;
+        while (true) {
+            int usedSlots;
+            synchronized (cc.getTaskAdmissionController()) {
+                usedSlots = node.getUsedTaskSlots();
+            }
+            if (usedSlots == 0) {
+                return;
+            }
+            Assert.assertTrue(usedSlots + " task slots are still reserved", System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * Produces no data, but only finishes once its gate is opened.
+     */
+    private static class GatedSourceOperatorDescriptor extends AbstractSingleActivityOperatorDescriptor {
+        private static final long serialVersionUID = 1L;
+
+        private final String gate;
+
+        private final int requiredMemoryFrames;
+
+        public GatedSourceOperatorDescriptor(IOperatorDescriptorRegistry spec, String gate, int requiredMemoryFrames) {
+            super(spec, 0, 1);
+            this.gate = gate;
+            this.requiredMemoryFrames = requiredMemoryFrames;
+            recordDescriptors[0] = new RecordDescriptor(
+                    new ISerializerDeserializer[] { UTF8StringSerializerDeserializer.INSTANCE });
+        }
+
+        @Override
+        public int getRequiredMemoryFrames() {
+            return requiredMemoryFrames;
+        }
+
+        @Override
+        public IOperatorNodePushable createPushRuntime(IHyracksTaskContext ctx,
+                IRecordDescriptorProvider recordDescProvider, int partition, int nPartitions)
+                throws HyracksDataException {
+            return new AbstractUnaryOutputSourceOperatorNodePushable() {
+                @Override
+                public void initialize() throws HyracksDataException {
+                    writer.open();
+                    STARTED.get(gate).incrementAndGet();
+                    try {
+                        if (!GATES.get(gate).await(60, TimeUnit.SECONDS)) {
+                            throw new HyracksDataException("The gate " + gate + " was not opened");
+                        }
+                        if (FAILING_GATES.contains(gate)) {
+                            throw new HyracksDataException("The gate " + gate + " failed the task");
+                        }
+                    } catch (InterruptedException e) {
+                        writer.fail();
+                        throw new HyracksDataException(e);
+                    } catch (HyracksDataException e) {
+                        writer.fail();
+                        throw e;
+                    }
+                    writer.close();
+                }
+            };
+        }
+    }
+}
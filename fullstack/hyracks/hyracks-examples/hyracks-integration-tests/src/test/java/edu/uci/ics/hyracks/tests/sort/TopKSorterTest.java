@@ -0,0 +1,157 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.sort;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.comm.IFrameWriter;
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.RecordDescriptor;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAccessor;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.FrameTupleAppender;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.normalizers.IntegerNormalizedKeyComputerFactory;
+import edu.uci.ics.hyracks.dataflow.std.sort.TopKSorter;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class TopKSorterTest {
+    private static final int FRAME_SIZE = 4096;
+
+    private final RecordDescriptor recordDesc = new RecordDescriptor(new ISerializerDeserializer[] {
+            IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE });
+    private final IBinaryComparatorFactory[] comparatorFactories = new IBinaryComparatorFactory[] {
+            PointableBinaryComparatorFactory.of(IntegerPointable.FACTORY) };
+
+    @Test
+    public void keepsFirstKTuplesInStableOrder() throws Exception {
+        IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+        TopKSorter sorter = new TopKSorter(ctx, new int[] { 0 }, new IntegerNormalizedKeyComputerFactory(),
+                comparatorFactories, recordDesc, 5);
+        List<int[]> input = generate(20000, 500);
+        for (int limit : new int[] { 0, 1, 7, 100 }) {
+            sorter.reset(limit);
+            feed(ctx, sorter, input);
+            List<int[]> output = collect(ctx, sorter);
+            List<int[]> expected = new ArrayList<int[]>(input);
+            // Collections.sort is stable, so equal keys stay in input order
+            Collections.sort(expected, new Comparator<int[]>() {
+                @Override
+                public int compare(int[] a, int[] b) {
+                    return a[0] < b[0] ? -1 : (a[0] == b[0] ? 0 : 1);
+                }
+            });
+            Assert.assertEquals(limit, output.size());
+            for (int i = 0; i < limit; ++i) {
+                Assert.assertEquals(expected.get(i)[0], output.get(i)[0]);
+                Assert.assertEquals(expected.get(i)[1], output.get(i)[1]);
+            }
+        }
+        sorter.close();
+    }
+
+    @Test
+    public void fallsBackToExternalSortWhenKDoesNotFit() throws Exception {
+        IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+        TopKSorter sorter = new TopKSorter(ctx, new int[] { 0 }, null, comparatorFactories, recordDesc, 4);
+        List<int[]> input = generate(30000, 100000);
+        int limit = 2000;
+        sorter.reset(limit);
+        feed(ctx, sorter, input);
+        List<int[]> output = collect(ctx, sorter);
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int[] t : input) {
+            expected.add(t[0]);
+        }
+        Collections.sort(expected);
+        Assert.assertEquals(limit, output.size());
+        for (int i = 0; i < limit; ++i) {
+            Assert.assertEquals(expected.get(i).intValue(), output.get(i)[0]);
+        }
+        sorter.close();
+    }
+
+    private static List<int[]> generate(int n, int keyRange) {
+        Random rnd = new Random(17);
+        List<int[]> tuples = new ArrayList<int[]>();
+        for (int i = 0; i < n; ++i) {
+            tuples.add(new int[] { rnd.nextInt(keyRange) - keyRange / 2, i });
+        }
+        return tuples;
+    }
+
+    private void feed(IHyracksTaskContext ctx, TopKSorter sorter, List<int[]> input) throws HyracksDataException {
+        ByteBuffer frame = ctx.allocateFrame();
+        FrameTupleAppender appender = new FrameTupleAppender(FRAME_SIZE);
+        appender.reset(frame, true);
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(2);
+        for (int[] t : input) {
+            tb.reset();
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, t[0]);
+            tb.addField(IntegerSerializerDeserializer.INSTANCE, t[1]);
+            if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
+                sorter.insertFrame(frame);
+                appender.reset(frame, true);
+                appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize());
+            }
+        }
+        sorter.insertFrame(frame);
+    }
+
+    private List<int[]> collect(IHyracksTaskContext ctx, TopKSorter sorter) throws HyracksDataException {
+        final List<int[]> output = new ArrayList<int[]>();
+        final FrameTupleAccessor accessor = new FrameTupleAccessor(FRAME_SIZE, recordDesc);
+        sorter.flush(new IFrameWriter() {
+            @Override
+            public void open() throws HyracksDataException {
+                Assert.fail("the sorter must not open its writer");
+            }
+
+            @Override
+            public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
+                accessor.reset(buffer);
+                for (int i = 0; i < accessor.getTupleCount(); ++i) {
+                    int start = accessor.getTupleStartOffset(i) + accessor.getFieldSlotsLength();
+                    output.add(new int[] { buffer.getInt(start + accessor.getFieldStartOffset(i, 0)),
+                            buffer.getInt(start + accessor.getFieldStartOffset(i, 1)) });
+                }
+            }
+
+            @Override
+            public void fail() throws HyracksDataException {
+            }
+
+            @Override
+            public void close() throws HyracksDataException {
+                Assert.fail("the sorter must not close its writer");
+            }
+        });
+        return output;
+    }
+}
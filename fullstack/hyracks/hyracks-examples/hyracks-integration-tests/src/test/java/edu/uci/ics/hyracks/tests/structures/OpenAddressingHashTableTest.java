@@ -0,0 +1,164 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.tests.structures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.dataflow.std.structures.OpenAddressingHashTable;
+import edu.uci.ics.hyracks.dataflow.std.structures.TuplePointer;
+import edu.uci.ics.hyracks.test.support.TestUtils;
+
+public class OpenAddressingHashTableTest {
+    private static final int FRAME_SIZE = 4096;
+
+    @Test
+    public void returnsAllPointersOfAHashInInsertionOrder() throws Exception {
+        IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+        OpenAddressingHashTable table = new OpenAddressingHashTable(997, ctx);
+        Random rnd = new Random(7);
+        // full 32-bit hashes, negative ones included, drawn from a pool so that hashes repeat
+        int[] pool = new int[3000];
+        for (int i = 0; i < pool.length; ++i) {
+            pool[i] = rnd.nextInt();
+        }
+        pool[0] = Integer.MIN_VALUE;
+        pool[1] = Integer.MAX_VALUE;
+        pool[2] = 0;
+        pool[3] = -1;
+        Map<Integer, List<Integer>> expected = new HashMap<Integer, List<Integer>>();
+        TuplePointer pointer = new TuplePointer();
+        int n = 20000;
+        for (int i = 0; i < n; ++i) {
+            int hash = pool[i < 4 ? i : rnd.nextInt(pool.length)];
+            pointer.frameIndex = i / 100;
+            pointer.tupleIndex = i % 100;
+            table.insert(hash, pointer);
+            List<Integer> ids = expected.get(hash);
+            if (ids == null) {
+                ids = new ArrayList<Integer>();
+                expected.put(hash, ids);
+            }
+            ids.add(i);
+        }
+        Assert.assertEquals(n, table.getTupleCount());
+        for (int hash : pool) {
+            List<Integer> ids = expected.get(hash);
+            int count = ids == null ? 0 : ids.size();
+            int offset = 0;
+            while (true) {
+                table.getTuplePointer(hash, offset, pointer);
+                if (pointer.frameIndex < 0) {
+                    break;
+                }
+                int id = ids.get(offset);
+                Assert.assertEquals(id / 100, pointer.frameIndex);
+                Assert.assertEquals(id % 100, pointer.tupleIndex);
+                offset++;
+            }
+            Assert.assertEquals(count, offset);
+        }
+        // hashes that were never inserted find nothing, even when they share a home slot with inserted ones
+        for (int i = 0; i < 1000; ++i) {
+            int hash = rnd.nextInt();
+            if (!expected.containsKey(hash)) {
+                table.getTuplePointer(hash, 0, pointer);
+                Assert.assertEquals(-1, pointer.frameIndex);
+            }
+        }
+        // random access must agree with sequential access
+        int hash = pool[4];
+        if (expected.containsKey(hash) && expected.get(hash).size() > 2) {
+            int id = expected.get(hash).get(2);
+            table.getTuplePointer(pool[5], 0, pointer);
+            table.getTuplePointer(hash, 2, pointer);
+            Assert.assertEquals(id / 100, pointer.frameIndex);
+            Assert.assertEquals(id % 100, pointer.tupleIndex);
+        }
+    }
+
+    @Test
+    public void slotScanVisitsEveryTupleOnce() throws Exception {
+        IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+        OpenAddressingHashTable table = new OpenAddressingHashTable(64, ctx, 0.9);
+        TuplePointer pointer = new TuplePointer();
+        int n = 5000;
+        for (int round = 0; round < 2; ++round) {
+            for (int i = 0; i < n; ++i) {
+                pointer.frameIndex = i;
+                pointer.tupleIndex = -i;
+                table.insert(i * 31, pointer);
+            }
+            boolean[] seen = new boolean[n];
+            int found = 0;
+            for (int slot = 0; slot < table.getSlotCount(); ++slot) {
+                table.getTuplePointerAt(slot, pointer);
+                if (pointer.frameIndex < 0) {
+                    continue;
+                }
+                Assert.assertFalse(seen[pointer.frameIndex]);
+                Assert.assertEquals(-pointer.frameIndex, pointer.tupleIndex);
+                seen[pointer.frameIndex] = true;
+                found++;
+            }
+            Assert.assertEquals(n, found);
+            table.reset();
+            Assert.assertEquals(0, table.getTupleCount());
+            table.getTuplePointer(31, 0, pointer);
+            Assert.assertEquals(-1, pointer.frameIndex);
+        }
+        table.close();
+    }
+
+    @Test
+    public void closeReleasesFramesAndTableStaysUsable() throws Exception {
+        IHyracksTaskContext ctx = TestUtils.create(FRAME_SIZE);
+        OpenAddressingHashTable table = new OpenAddressingHashTable(1000, ctx);
+        TuplePointer pointer = new TuplePointer();
+        for (int i = 0; i < 3000; ++i) {
+            pointer.frameIndex = i;
+            pointer.tupleIndex = i;
+            table.insert(i % 10, pointer);
+        }
+        Assert.assertTrue(table.getFrameCount() > 0);
+        table.close();
+        Assert.assertEquals(0, table.getFrameCount());
+        Assert.assertEquals(0, table.getSlotCount());
+        table.getTuplePointer(3, 0, pointer);
+        Assert.assertEquals(-1, pointer.frameIndex);
+
+        for (int i = 0; i < 50; ++i) {
+            pointer.frameIndex = i;
+            pointer.tupleIndex = i;
+            table.insert(i % 10, pointer);
+        }
+        Assert.assertEquals(50, table.getTupleCount());
+        for (int offset = 0; offset < 5; ++offset) {
+            table.getTuplePointer(7, offset, pointer);
+            Assert.assertEquals(7 + offset * 10, pointer.frameIndex);
+        }
+        table.getTuplePointer(7, 5, pointer);
+        Assert.assertEquals(-1, pointer.frameIndex);
+        table.close();
+    }
+}
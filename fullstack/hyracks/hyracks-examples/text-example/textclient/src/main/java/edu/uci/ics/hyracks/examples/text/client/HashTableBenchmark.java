@@ -0,0 +1,186 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.examples.text.client;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.dataflow.std.structures.ISerializableTable;
+import edu.uci.ics.hyracks.dataflow.std.structures.OpenAddressingHashTable;
+import edu.uci.ics.hyracks.dataflow.std.structures.SerializableHashTable;
+import edu.uci.ics.hyracks.dataflow.std.structures.TuplePointer;
+
+/**
+ * Micro-benchmark of the tuple pointer tables behind the hash joins and hash group-bys. It drives the tables the way
+ * InMemoryHashJoin does: the build side inserts one pointer per tuple, and every probe walks the pointers returned
+ * for its key and compares the keys they point to. The chained {@link SerializableHashTable} is keyed by the hash
+ * modulo the configured table size, {@link OpenAddressingHashTable} by the full hash.
+ * Every configuration runs a number of warm-up rounds before the measured rounds, each round on a fresh table, and
+ * the averages of the measured rounds are reported together with the number of key comparisons per probe, which
+ * stand in for the tuple comparisons of a join. Run it through the hashtablebench program of the textclient assembly, e.g.
+ * 
+ * <pre>
+ * hashtablebench -build-tuples 1000000 -probes 4000000 -duplicates 1,4 -load-factors 0.5,0.75
+ * </pre>
+ */
+public class HashTableBenchmark {
+    private static final int TUPLES_PER_FRAME = 100;
+
+    private static class Options {
+        @Option(name = "-build-tuples", usage = "Number of build tuples (default: 1000000)")
+        public int numBuild = 1000000;
+
+        @Option(name = "-probes", usage = "Number of probes, half of which hit (default: 4000000)")
+        public int numProbe = 4000000;
+
+        @Option(name = "-duplicates", usage = "Comma separated numbers of build tuples per key (default: 1,4,16)")
+        public String duplicates = "1,4,16";
+
+        @Option(name = "-table-size-ratios", usage = "Comma separated table sizes relative to the number of build keys (default: 4,1,0.25,0.0625)")
+        public String tableSizeRatios = "4,1,0.25,0.0625";
+
+        @Option(name = "-load-factors", usage = "Comma separated maximum load factors of the open addressing table (default: 0.5,0.75)")
+        public String loadFactors = "0.5,0.75";
+
+        @Option(name = "-frame-size", usage = "Frame size (default: 32768)")
+        public int frameSize = 32768;
+
+        @Option(name = "-warmup-rounds", usage = "Unmeasured rounds per configuration (default: 2)")
+        public int warmupRounds = 2;
+
+        @Option(name = "-rounds", usage = "Measured rounds per configuration (default: 5)")
+        public int rounds = 5;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        CmdLineParser parser = new CmdLineParser(options);
+        parser.parseArgument(args);
+
+        IHyracksTaskContext ctx = createContext(options.frameSize);
+        for (String d : options.duplicates.split(",")) {
+            int duplicates = Integer.parseInt(d.trim());
+            Random rnd = new Random(42);
+            int numKeys = Math.max(1, options.numBuild / duplicates);
+            int[] keys = new int[numKeys];
+            for (int i = 0; i < numKeys; ++i) {
+                keys[i] = rnd.nextInt();
+            }
+            int[] buildKeys = new int[options.numBuild];
+            for (int i = 0; i < buildKeys.length; ++i) {
+                buildKeys[i] = keys[rnd.nextInt(numKeys)];
+            }
+            int[] probeKeys = new int[options.numProbe];
+            for (int i = 0; i < probeKeys.length; ++i) {
+                probeKeys[i] = (i & 1) == 0 ? keys[rnd.nextInt(numKeys)] : rnd.nextInt();
+            }
+            for (String r : options.tableSizeRatios.split(",")) {
+                int tableSize = Math.max(1, (int) (numKeys * Double.parseDouble(r.trim())));
+                System.out.println("BUILD TUPLES PER KEY: " + duplicates + ", TABLE SIZE: " + tableSize);
+                run("chained", ctx, 0, tableSize, buildKeys, probeKeys, options);
+                for (String lf : options.loadFactors.split(",")) {
+                    run("open addressing", ctx, Double.parseDouble(lf.trim()), tableSize, buildKeys, probeKeys,
+                            options);
+                }
+            }
+        }
+    }
+
+    private static void run(String name, IHyracksTaskContext ctx, double loadFactor, int tableSize,
+            int[] buildKeys, int[] probeKeys, Options options) {
+        long buildTime = 0;
+        long probeTime = 0;
+        long matches = 0;
+        long comparisons = 0;
+        int frames = 0;
+        TuplePointer pointer = new TuplePointer();
+        for (int round = 0; round < options.warmupRounds + options.rounds; ++round) {
+            ISerializableTable table = loadFactor > 0 ? new OpenAddressingHashTable(tableSize, ctx, loadFactor)
+                    : new SerializableHashTable(tableSize, ctx);
+            long start = System.nanoTime();
+            for (int i = 0; i < buildKeys.length; ++i) {
+                pointer.frameIndex = i / TUPLES_PER_FRAME;
+                pointer.tupleIndex = i % TUPLES_PER_FRAME;
+                table.insert(key(buildKeys[i], loadFactor, tableSize), pointer);
+            }
+            long mid = System.nanoTime();
+            matches = 0;
+            comparisons = 0;
+            for (int i = 0; i < probeKeys.length; ++i) {
+                int key = key(probeKeys[i], loadFactor, tableSize);
+                int offset = 0;
+                while (true) {
+                    table.getTuplePointer(key, offset++, pointer);
+                    if (pointer.frameIndex < 0) {
+                        break;
+                    }
+                    comparisons++;
+                    if (buildKeys[pointer.frameIndex * TUPLES_PER_FRAME + pointer.tupleIndex] == probeKeys[i]) {
+                        matches++;
+                    }
+                }
+            }
+            long end = System.nanoTime();
+            if (round >= options.warmupRounds) {
+                buildTime += mid - start;
+                probeTime += end - mid;
+            }
+            frames = table.getFrameCount();
+            table.close();
+        }
+        System.out.println("  " + name + (loadFactor > 0 ? " (max load factor " + loadFactor + ")" : "")
+                + ": build " + buildTime / options.rounds / 1000000 + "ms, probe " + probeTime / options.rounds
+                / 1000000 + "ms, " + frames + " frames, " + matches + " matches, "
+                + String.format("%.2f", (double) comparisons / probeKeys.length) + " comparisons per probe");
+    }
+
+    /**
+     * The hash a join computes for the key: reduced modulo the table size for the chained table, unreduced for the
+     * open addressing table.
+     */
+    private static int key(int key, double loadFactor, int tableSize) {
+        int h = key * 31;
+        if (h < 0) {
+            h = -(h + 1);
+        }
+        return loadFactor > 0 ? h : h % tableSize;
+    }
+
+    /**
+     * The tables only allocate frames, so the context implements nothing else.
+     */
+    private static IHyracksTaskContext createContext(final int frameSize) {
+        return (IHyracksTaskContext) Proxy.newProxyInstance(HashTableBenchmark.class.getClassLoader(),
+                new Class<?>[] { IHyracksTaskContext.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getFrameSize")) {
+                            return frameSize;
+                        }
+                        if (method.getName().equals("allocateFrame")) {
+                            return ByteBuffer.allocate(frameSize);
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
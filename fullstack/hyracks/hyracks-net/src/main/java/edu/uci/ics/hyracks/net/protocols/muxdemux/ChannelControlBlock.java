@@ -247,7 +247,7 @@ public class ChannelControlBlock {
                     writerState.command.setChannelId(channelId);
                     writerState.command.setCommandType(MuxDemuxCommand.CommandType.DATA);
                     writerState.command.setData(size);
-                    writerState.reset(currentWriteBuffer, size, ChannelControlBlock.this);
+                    writerState.append(currentWriteBuffer, size, ChannelControlBlock.this);
                 } else {
                     adjustChannelWritability();
                 }
@@ -255,7 +255,7 @@ public class ChannelControlBlock {
                 writerState.command.setChannelId(channelId);
                 writerState.command.setCommandType(MuxDemuxCommand.CommandType.ERROR);
                 writerState.command.setData(ecode);
-                writerState.reset(null, 0, null);
+                writerState.append(null, 0, null);
                 ecodeSent = true;
                 localClose.set(true);
                 adjustChannelWritability();
@@ -263,7 +263,7 @@ public class ChannelControlBlock {
                 writerState.command.setChannelId(channelId);
                 writerState.command.setCommandType(MuxDemuxCommand.CommandType.CLOSE_CHANNEL);
                 writerState.command.setData(0);
-                writerState.reset(null, 0, null);
+                writerState.append(null, 0, null);
                 eosSent = true;
                 localClose.set(true);
                 adjustChannelWritability();
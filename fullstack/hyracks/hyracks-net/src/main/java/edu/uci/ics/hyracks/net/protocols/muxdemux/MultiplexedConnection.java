@@ -153,80 +153,178 @@ public class MultiplexedConnection implements ITCPConnectionEventListener {
         return channel;
     }
 
+    /**
+     * Collects the commands and payload chunks of several channels so that they go out with a single gathering
+     * write.
+     */
     class WriterState {
+        private static final int MAX_COMMANDS_PER_WRITE = 64;
+
+        /*
+         * Payload frames are usually heap buffers, which the socket channel copies into a temporary direct buffer
+         * per gathered element, so the number of payload chunks in a write is kept small.
+         */
+        private static final int MAX_PAYLOADS_PER_WRITE = 16;
+
         private final ByteBuffer cmdWriteBuffer;
 
         final MuxDemuxCommand command;
 
-        private ByteBuffer pendingBuffer;
+        private final ByteBuffer[] cmdViews;
 
-        private int pendingWriteSize;
+        private final ByteBuffer[] writeBuffers;
 
-        private ChannelControlBlock ccb;
+        private final ByteBuffer[] payloads;
+
+        private final int[] payloadLimits;
+
+        private final ChannelControlBlock[] payloadCCBs;
+
+        private int nCommands;
+
+        private int nCmdViews;
+
+        private int nWriteBuffers;
+
+        private int nPayloads;
+
+        private int firstPendingBuffer;
+
+        private boolean lastBufferIsCommand;
+
+        private long payloadBytes;
+
+        private int heldWriteEvents;
 
         public WriterState() {
-            cmdWriteBuffer = ByteBuffer.allocateDirect(MuxDemuxCommand.COMMAND_SIZE);
-            cmdWriteBuffer.flip();
+            cmdWriteBuffer = ByteBuffer.allocateDirect(MAX_COMMANDS_PER_WRITE * MuxDemuxCommand.COMMAND_SIZE);
             command = new MuxDemuxCommand();
-            ccb = null;
+            cmdViews = new ByteBuffer[MAX_COMMANDS_PER_WRITE];
+            for (int i = 0; i < cmdViews.length; ++i) {
+                cmdViews[i] = cmdWriteBuffer.duplicate();
+            }
+            writeBuffers = new ByteBuffer[MAX_COMMANDS_PER_WRITE + MAX_PAYLOADS_PER_WRITE];
+            payloads = new ByteBuffer[MAX_PAYLOADS_PER_WRITE];
+            payloadLimits = new int[MAX_PAYLOADS_PER_WRITE];
+            payloadCCBs = new ChannelControlBlock[MAX_PAYLOADS_PER_WRITE];
         }
 
         boolean writePending() {
-            return cmdWriteBuffer.remaining() > 0 || (pendingBuffer != null && pendingWriteSize > 0);
+            return firstPendingBuffer < nWriteBuffers;
         }
 
-        void reset(ByteBuffer pendingBuffer, int pendingWriteSize, ChannelControlBlock ccb) {
-            cmdWriteBuffer.clear();
-            command.write(cmdWriteBuffer);
-            cmdWriteBuffer.flip();
-            this.pendingBuffer = pendingBuffer;
-            this.pendingWriteSize = pendingWriteSize;
-            this.ccb = ccb;
+        boolean isFull() {
+            return nCommands >= MAX_COMMANDS_PER_WRITE || nPayloads >= MAX_PAYLOADS_PER_WRITE;
         }
 
-        boolean performPendingWrite(SocketChannel sc) throws IOException {
-            int len = cmdWriteBuffer.remaining();
-            if (len > 0) {
-                int written = sc.write(cmdWriteBuffer);
-                muxDemux.getPerformanceCounters().addSignalingBytesWritten(written);
-                if (written < len) {
-                    return false;
+        int getCommandCount() {
+            return nCommands;
+        }
+
+        boolean contains(ChannelControlBlock ccb) {
+            for (int i = 0; i < nPayloads; ++i) {
+                if (payloadCCBs[i] == ccb) {
+                    return true;
                 }
             }
+            return false;
+        }
+
+        /**
+         * Appends the current command, followed by the next pendingWriteSize bytes of pendingBuffer if there is one.
+         * Must not be called on a full batch or while a batch is partially written.
+         */
+        void append(ByteBuffer pendingBuffer, int pendingWriteSize, ChannelControlBlock ccb) {
+            assert !isFull() && firstPendingBuffer == 0;
+            int cmdStart = nCommands * MuxDemuxCommand.COMMAND_SIZE;
+            int cmdEnd = cmdStart + MuxDemuxCommand.COMMAND_SIZE;
+            cmdWriteBuffer.clear();
+            cmdWriteBuffer.position(cmdStart);
+            command.write(cmdWriteBuffer);
+            ++nCommands;
+            if (lastBufferIsCommand) {
+                // consecutive commands share one slice of the command buffer
+                writeBuffers[nWriteBuffers - 1].limit(cmdEnd);
+            } else {
+                ByteBuffer view = cmdViews[nCmdViews++];
+                view.clear();
+                view.position(cmdStart);
+                view.limit(cmdEnd);
+                writeBuffers[nWriteBuffers++] = view;
+                lastBufferIsCommand = true;
+            }
             if (pendingBuffer != null) {
-                if (pendingWriteSize > 0) {
-                    assert pendingWriteSize <= pendingBuffer.remaining();
-                    int oldLimit = pendingBuffer.limit();
-                    try {
-                        pendingBuffer.limit(pendingWriteSize + pendingBuffer.position());
-                        int written = sc.write(pendingBuffer);
-                        muxDemux.getPerformanceCounters().addPayloadBytesWritten(written);
-                        pendingWriteSize -= written;
-                    } finally {
-                        pendingBuffer.limit(oldLimit);
-                    }
+                assert pendingWriteSize <= pendingBuffer.remaining();
+                payloadLimits[nPayloads] = pendingBuffer.limit();
+                pendingBuffer.limit(pendingBuffer.position() + pendingWriteSize);
+                payloads[nPayloads] = pendingBuffer;
+                payloadCCBs[nPayloads] = ccb;
+                ++nPayloads;
+                writeBuffers[nWriteBuffers++] = pendingBuffer;
+                lastBufferIsCommand = false;
+                payloadBytes += pendingWriteSize;
+            }
+        }
+
+        /**
+         * Makes the batch responsible for one pending write event, which is released once the batch is written.
+         */
+        void holdWriteEvent() {
+            ++heldWriteEvents;
+        }
+
+        /**
+         * Writes as much of the batch as the socket accepts.
+         * 
+         * @return true if the batch was completely written, in which case it is reset.
+         */
+        boolean performPendingWrite(SocketChannel sc) throws IOException {
+            MuxDemuxPerformanceCounters pc = muxDemux.getPerformanceCounters();
+            while (firstPendingBuffer < nWriteBuffers) {
+                sc.write(writeBuffers, firstPendingBuffer, nWriteBuffers - firstPendingBuffer);
+                pc.addWriteCalls(1);
+                while (firstPendingBuffer < nWriteBuffers && !writeBuffers[firstPendingBuffer].hasRemaining()) {
+                    ++firstPendingBuffer;
                 }
-                if (pendingWriteSize > 0) {
+                if (firstPendingBuffer < nWriteBuffers) {
                     return false;
                 }
-                pendingBuffer = null;
-                pendingWriteSize = 0;
             }
-            if (ccb != null) {
-                ccb.writeComplete();
-                ccb = null;
+            pc.addSignalingBytesWritten(nCommands * MuxDemuxCommand.COMMAND_SIZE);
+            pc.addPayloadBytesWritten(payloadBytes);
+            pc.addPayloadChunksWritten(nPayloads);
+            for (int i = 0; i < nPayloads; ++i) {
+                payloads[i].limit(payloadLimits[i]);
+                payloads[i] = null;
+                payloadCCBs[i].writeComplete();
+                payloadCCBs[i] = null;
+            }
+            for (int i = 0; i < nWriteBuffers; ++i) {
+                writeBuffers[i] = null;
+            }
+            nCommands = 0;
+            nCmdViews = 0;
+            nWriteBuffers = 0;
+            nPayloads = 0;
+            firstPendingBuffer = 0;
+            lastBufferIsCommand = false;
+            payloadBytes = 0;
+            for (; heldWriteEvents > 0; --heldWriteEvents) {
+                pendingWriteEventsCounter.decrement();
             }
             return true;
         }
     }
 
+    /**
+     * Fills the writer state with the pending control commands and the next chunks of the writable channels, and
+     * sends a batch whenever it is full. Every command in a batch holds one pending write event, so that
+     * {@link SelectionKey#OP_WRITE} stays enabled until the batch is on the wire.
+     */
     void driveWriterStateMachine() throws IOException, NetException {
         SocketChannel sc = tcpConnection.getSocketChannel();
-        if (writerState.writePending()) {
-            if (!writerState.performPendingWrite(sc)) {
-                return;
-            }
-            pendingWriteEventsCounter.decrement();
+        if (!writerState.performPendingWrite(sc)) {
+            return;
         }
         int numCycles;
 
@@ -237,75 +335,99 @@ public class MultiplexedConnection implements ITCPConnectionEventListener {
         for (int i = 0; i < numCycles; ++i) {
             ChannelControlBlock writeCCB = null;
             synchronized (MultiplexedConnection.this) {
-                BitSet pendingChannelSynBitmap = cSet.getPendingChannelSynBitmap();
-                for (int j = pendingChannelSynBitmap.nextSetBit(0); j >= 0; j = pendingChannelSynBitmap.nextSetBit(j)) {
-                    pendingChannelSynBitmap.clear(j);
-                    writerState.command.setChannelId(j);
-                    writerState.command.setCommandType(MuxDemuxCommand.CommandType.OPEN_CHANNEL);
-                    writerState.command.setData(0);
-                    writerState.reset(null, 0, null);
-                    if (!writerState.performPendingWrite(sc)) {
-                        return;
-                    }
-                    pendingWriteEventsCounter.decrement();
-                }
-                BitSet pendingChannelCreditsBitmap = cSet.getPendingChannelCreditsBitmap();
-                for (int j = pendingChannelCreditsBitmap.nextSetBit(0); j >= 0; j = pendingChannelCreditsBitmap
-                        .nextSetBit(j)) {
-                    writerState.command.setChannelId(j);
-                    writerState.command.setCommandType(MuxDemuxCommand.CommandType.ADD_CREDITS);
-                    ChannelControlBlock ccb = cSet.getCCB(j);
-                    int credits = ccb.getReadCredits();
-                    int effectiveCredits;
-                    if (credits <= MuxDemuxCommand.MAX_DATA_VALUE) {
-                        effectiveCredits = credits;
-                        ccb.setReadCredits(0);
-                        pendingChannelCreditsBitmap.clear(j);
-                    } else {
-                        effectiveCredits = MuxDemuxCommand.MAX_DATA_VALUE;
-                        ccb.setReadCredits(credits - effectiveCredits);
-                    }
-                    writerState.command.setData(effectiveCredits);
-                    writerState.reset(null, 0, null);
-                    if (!writerState.performPendingWrite(sc)) {
-                        return;
+                appendControlCommands();
+                if (!writerState.isFull()) {
+                    BitSet pendingChannelWriteBitmap = cSet.getPendingChannelWriteBitmap();
+                    lastChannelWritten = pendingChannelWriteBitmap.nextSetBit(lastChannelWritten + 1);
+                    if (lastChannelWritten == -1) {
+                        lastChannelWritten = pendingChannelWriteBitmap.nextSetBit(0);
                     }
-                    if (credits == effectiveCredits) {
-                        pendingWriteEventsCounter.decrement();
+                    if (lastChannelWritten >= 0) {
+                        writeCCB = cSet.getCCB(lastChannelWritten);
                     }
                 }
-                BitSet pendingEOSAckBitmap = cSet.getPendingEOSAckBitmap();
-                for (int j = pendingEOSAckBitmap.nextSetBit(0); j >= 0; j = pendingEOSAckBitmap.nextSetBit(j)) {
-                    pendingEOSAckBitmap.clear(j);
-                    ChannelControlBlock ccb = cSet.getCCB(j);
-                    ccb.reportRemoteEOSAck();
-                    writerState.command.setChannelId(j);
-                    writerState.command.setCommandType(MuxDemuxCommand.CommandType.CLOSE_CHANNEL_ACK);
-                    writerState.command.setData(0);
-                    writerState.reset(null, 0, null);
-                    if (!writerState.performPendingWrite(sc)) {
-                        return;
-                    }
-                    pendingWriteEventsCounter.decrement();
+            }
+            if (writeCCB == null) {
+                if (!writerState.isFull()) {
+                    break;
                 }
-                BitSet pendingChannelWriteBitmap = cSet.getPendingChannelWriteBitmap();
-                lastChannelWritten = pendingChannelWriteBitmap.nextSetBit(lastChannelWritten + 1);
-                if (lastChannelWritten == -1) {
-                    lastChannelWritten = pendingChannelWriteBitmap.nextSetBit(0);
-                    if (lastChannelWritten == -1) {
-                        return;
-                    }
+                if (!writerState.performPendingWrite(sc)) {
+                    return;
                 }
-                writeCCB = cSet.getCCB(lastChannelWritten);
+                continue;
             }
+            // a channel's next chunk can only be taken once its previous one is written
+            if (writerState.contains(writeCCB) && !writerState.performPendingWrite(sc)) {
+                return;
+            }
+            int nCommands = writerState.getCommandCount();
             writeCCB.write(writerState);
-            if (writerState.writePending()) {
+            if (writerState.getCommandCount() > nCommands) {
                 pendingWriteEventsCounter.increment();
-                if (!writerState.performPendingWrite(sc)) {
-                    return;
-                }
-                pendingWriteEventsCounter.decrement();
+                writerState.holdWriteEvent();
+            }
+            if (writerState.isFull() && !writerState.performPendingWrite(sc)) {
+                return;
+            }
+        }
+        writerState.performPendingWrite(sc);
+    }
+
+    /**
+     * Appends the pending channel-open, credit and close-acknowledgement commands until the writer state is full.
+     * The pending write event of each command is handed over to the writer state.
+     */
+    private void appendControlCommands() throws NetException {
+        BitSet pendingChannelSynBitmap = cSet.getPendingChannelSynBitmap();
+        for (int j = pendingChannelSynBitmap.nextSetBit(0); j >= 0; j = pendingChannelSynBitmap.nextSetBit(j)) {
+            if (writerState.isFull()) {
+                return;
+            }
+            pendingChannelSynBitmap.clear(j);
+            writerState.command.setChannelId(j);
+            writerState.command.setCommandType(MuxDemuxCommand.CommandType.OPEN_CHANNEL);
+            writerState.command.setData(0);
+            writerState.append(null, 0, null);
+            writerState.holdWriteEvent();
+        }
+        BitSet pendingChannelCreditsBitmap = cSet.getPendingChannelCreditsBitmap();
+        for (int j = pendingChannelCreditsBitmap.nextSetBit(0); j >= 0; j = pendingChannelCreditsBitmap
+                .nextSetBit(j)) {
+            if (writerState.isFull()) {
+                return;
+            }
+            writerState.command.setChannelId(j);
+            writerState.command.setCommandType(MuxDemuxCommand.CommandType.ADD_CREDITS);
+            ChannelControlBlock ccb = cSet.getCCB(j);
+            int credits = ccb.getReadCredits();
+            int effectiveCredits;
+            if (credits <= MuxDemuxCommand.MAX_DATA_VALUE) {
+                effectiveCredits = credits;
+                ccb.setReadCredits(0);
+                pendingChannelCreditsBitmap.clear(j);
+            } else {
+                effectiveCredits = MuxDemuxCommand.MAX_DATA_VALUE;
+                ccb.setReadCredits(credits - effectiveCredits);
+            }
+            writerState.command.setData(effectiveCredits);
+            writerState.append(null, 0, null);
+            if (credits == effectiveCredits) {
+                writerState.holdWriteEvent();
+            }
+        }
+        BitSet pendingEOSAckBitmap = cSet.getPendingEOSAckBitmap();
+        for (int j = pendingEOSAckBitmap.nextSetBit(0); j >= 0; j = pendingEOSAckBitmap.nextSetBit(j)) {
+            if (writerState.isFull()) {
+                return;
             }
+            pendingEOSAckBitmap.clear(j);
+            ChannelControlBlock ccb = cSet.getCCB(j);
+            ccb.reportRemoteEOSAck();
+            writerState.command.setChannelId(j);
+            writerState.command.setCommandType(MuxDemuxCommand.CommandType.CLOSE_CHANNEL_ACK);
+            writerState.command.setData(0);
+            writerState.append(null, 0, null);
+            writerState.holdWriteEvent();
         }
     }
 
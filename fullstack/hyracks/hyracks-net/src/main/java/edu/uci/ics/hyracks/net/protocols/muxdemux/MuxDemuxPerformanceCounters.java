@@ -25,11 +25,17 @@ public class MuxDemuxPerformanceCounters {
 
     private final AtomicLong signalingBytesWritten;
 
+    private final AtomicLong writeCalls;
+
+    private final AtomicLong payloadChunksWritten;
+
     public MuxDemuxPerformanceCounters() {
         payloadBytesRead = new AtomicLong();
         payloadBytesWritten = new AtomicLong();
         signalingBytesRead = new AtomicLong();
         signalingBytesWritten = new AtomicLong();
+        writeCalls = new AtomicLong();
+        payloadChunksWritten = new AtomicLong();
     }
 
     public void addPayloadBytesRead(long delta) {
@@ -63,4 +69,27 @@ public class MuxDemuxPerformanceCounters {
     public long getSignalingBytesWritten() {
         return signalingBytesWritten.get();
     }
+
+    public void addWriteCalls(long delta) {
+        writeCalls.addAndGet(delta);
+    }
+
+    /**
+     * @return the number of write calls made on the sockets, each of which may carry the commands and payload
+     *         chunks of several channels
+     */
+    public long getWriteCalls() {
+        return writeCalls.get();
+    }
+
+    public void addPayloadChunksWritten(long delta) {
+        payloadChunksWritten.addAndGet(delta);
+    }
+
+    /**
+     * @return the number of DATA commands written, i.e. the number of frames or frame pieces sent
+     */
+    public long getPayloadChunksWritten() {
+        return payloadChunksWritten.get();
+    }
 }
\ No newline at end of file
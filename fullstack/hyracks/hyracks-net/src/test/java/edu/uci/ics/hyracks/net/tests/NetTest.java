@@ -31,6 +31,7 @@ import edu.uci.ics.hyracks.net.protocols.muxdemux.ChannelControlBlock;
 import edu.uci.ics.hyracks.net.protocols.muxdemux.IChannelOpenListener;
 import edu.uci.ics.hyracks.net.protocols.muxdemux.MultiplexedConnection;
 import edu.uci.ics.hyracks.net.protocols.muxdemux.MuxDemux;
+import edu.uci.ics.hyracks.net.protocols.muxdemux.MuxDemuxPerformanceCounters;
 
 public class NetTest {
     @Test
@@ -56,6 +57,34 @@ public class NetTest {
         Assert.assertFalse("Failure flag was set to true", failFlag.get());
     }
 
+    @Test
+    public void testManyChannels() throws Exception {
+        AtomicBoolean failFlag = new AtomicBoolean();
+
+        MuxDemux md1 = createMuxDemux("md1", failFlag);
+        md1.start();
+        MuxDemux md2 = createMuxDemux("md2", failFlag);
+        md2.start();
+        InetSocketAddress md2Address = md2.getLocalAddress();
+
+        MultiplexedConnection md1md2 = md1.connect(md2Address);
+
+        Thread[] threads = new Thread[16];
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = createThread(md1md2, i % 2 == 0 ? 1 : -1);
+            threads[i].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        Assert.assertFalse("Failure flag was set to true", failFlag.get());
+        MuxDemuxPerformanceCounters pc = md1.getPerformanceCounters();
+        Assert.assertTrue(pc.getPayloadChunksWritten() >= threads.length * 10000);
+        Assert.assertTrue("Writes of several channels were not gathered",
+                pc.getWriteCalls() < pc.getPayloadChunksWritten());
+    }
+
     private Thread createThread(final MultiplexedConnection md1md2, final int factor) {
         return new Thread() {
             @Override
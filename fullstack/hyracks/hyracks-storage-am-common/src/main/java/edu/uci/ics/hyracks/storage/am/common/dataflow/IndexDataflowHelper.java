@@ -20,9 +20,11 @@ import java.io.IOException;
 import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.api.job.profiling.counters.ICounterContext;
 import edu.uci.ics.hyracks.storage.am.common.api.IIndex;
 import edu.uci.ics.hyracks.storage.am.common.api.IIndexDataflowHelper;
 import edu.uci.ics.hyracks.storage.am.common.api.IIndexLifecycleManager;
+import edu.uci.ics.hyracks.storage.common.buffercache.BufferCache;
 import edu.uci.ics.hyracks.storage.common.file.ILocalResourceFactory;
 import edu.uci.ics.hyracks.storage.common.file.ILocalResourceRepository;
 import edu.uci.ics.hyracks.storage.common.file.LocalResource;
@@ -40,6 +42,10 @@ public abstract class IndexDataflowHelper implements IIndexDataflowHelper {
 
     protected IIndex index;
 
+    private long openPinCount;
+
+    private long openReadCount;
+
     public IndexDataflowHelper(IIndexOperatorDescriptor opDesc, final IHyracksTaskContext ctx, int partition) {
         this.opDesc = opDesc;
         this.ctx = ctx;
@@ -102,9 +108,17 @@ public abstract class IndexDataflowHelper implements IIndexDataflowHelper {
             }
             lcManager.open(resourceID);
         }
+        openPinCount = BufferCache.getThreadPinCount();
+        openReadCount = BufferCache.getThreadReadCount();
     }
 
     public void close() throws HyracksDataException {
+        // the operator works on the index in the thread that opens and closes it
+        ICounterContext counterContext = ctx.getCounterContext();
+        counterContext.getCounter(ICounterContext.BUFFER_CACHE_PINS_COUNTER, true).update(
+                BufferCache.getThreadPinCount() - openPinCount);
+        counterContext.getCounter(ICounterContext.BUFFER_CACHE_READS_COUNTER, true).update(
+                BufferCache.getThreadReadCount() - openReadCount);
         synchronized (lcManager) {
             lcManager.close(getResourceID());
         }
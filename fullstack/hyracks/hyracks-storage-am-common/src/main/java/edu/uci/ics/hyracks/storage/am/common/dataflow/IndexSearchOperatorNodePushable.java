@@ -54,15 +54,27 @@ public abstract class IndexSearchOperatorNodePushable extends AbstractUnaryInput
 
     protected final RecordDescriptor inputRecDesc;
     protected final boolean retainInput;
+    protected final int[] projectFields;
     protected FrameTupleReference frameTuple;
 
     public IndexSearchOperatorNodePushable(IIndexOperatorDescriptor opDesc, IHyracksTaskContext ctx, int partition,
             IRecordDescriptorProvider recordDescProvider) {
+        this(opDesc, ctx, partition, recordDescProvider, null);
+    }
+
+    /**
+     * @param projectFields
+     *            - Index fields written for each result, in this order, or null to write all of them. Lets a search
+     *            that only needs key and included fields of a secondary index answer the query from the index alone.
+     */
+    public IndexSearchOperatorNodePushable(IIndexOperatorDescriptor opDesc, IHyracksTaskContext ctx, int partition,
+            IRecordDescriptorProvider recordDescProvider, int[] projectFields) {
         this.opDesc = opDesc;
         this.ctx = ctx;
         this.indexHelper = opDesc.getIndexDataflowHelperFactory().createIndexDataflowHelper(opDesc, ctx, partition);
         this.retainInput = opDesc.getRetainInput();
         this.inputRecDesc = recordDescProvider.getInputRecordDescriptor(opDesc.getActivityId(), 0);
+        this.projectFields = projectFields;
     }
 
     protected abstract ISearchPredicate createSearchPredicate();
@@ -111,9 +123,17 @@ public abstract class IndexSearchOperatorNodePushable extends AbstractUnaryInput
                 }
             }
             ITupleReference tuple = cursor.getTuple();
-            for (int i = 0; i < tuple.getFieldCount(); i++) {
-                dos.write(tuple.getFieldData(i), tuple.getFieldStart(i), tuple.getFieldLength(i));
-                tb.addFieldEndOffset();
+            if (projectFields == null) {
+                for (int i = 0; i < tuple.getFieldCount(); i++) {
+                    dos.write(tuple.getFieldData(i), tuple.getFieldStart(i), tuple.getFieldLength(i));
+                    tb.addFieldEndOffset();
+                }
+            } else {
+                for (int i = 0; i < projectFields.length; i++) {
+                    int f = projectFields[i];
+                    dos.write(tuple.getFieldData(f), tuple.getFieldStart(f), tuple.getFieldLength(f));
+                    tb.addFieldEndOffset();
+                }
             }
             if (!appender.append(tb.getFieldEndOffsets(), tb.getByteArray(), 0, tb.getSize())) {
                 FrameUtils.flushFrame(writeBuffer, writer);
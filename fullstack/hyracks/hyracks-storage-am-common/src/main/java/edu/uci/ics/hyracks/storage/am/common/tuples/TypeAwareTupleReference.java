@@ -33,6 +33,11 @@ public class TypeAwareTupleReference implements ITreeIndexTupleReference {
     protected VarLenIntEncoderDecoder encDec = new VarLenIntEncoderDecoder();
     protected int[] decodedFieldSlots;
 
+    // set once the field slots have been computed for the current field range, which only happens up front when all
+    // fields in the range are fixed-length
+    private boolean layoutComputed;
+    private boolean fixedLength;
+
     public TypeAwareTupleReference(ITypeTraits[] typeTraits) {
         this.typeTraits = typeTraits;
         this.fieldStartIndex = 0;
@@ -44,6 +49,15 @@ public class TypeAwareTupleReference implements ITreeIndexTupleReference {
         this.buf = buf;
         this.tupleStartOff = tupleStartOff;
 
+        if (!layoutComputed) {
+            computeLayout();
+        }
+        if (fixedLength) {
+            // all field offsets are the same in every tuple, there is nothing to decode
+            dataStartOff = tupleStartOff + nullFlagsBytes;
+            return;
+        }
+
         // decode field slots
         int field = 0;
         int cumul = 0;
@@ -61,6 +75,25 @@ public class TypeAwareTupleReference implements ITreeIndexTupleReference {
         dataStartOff = encDec.getPos();
     }
 
+    private void computeLayout() {
+        int end = fieldStartIndex + fieldCount;
+        fixedLength = true;
+        for (int i = fieldStartIndex; i < end; i++) {
+            if (!typeTraits[i].isFixedLength()) {
+                fixedLength = false;
+                break;
+            }
+        }
+        if (fixedLength) {
+            int cumul = 0;
+            for (int i = fieldStartIndex; i < end; i++) {
+                cumul += typeTraits[i].getFixedLength();
+                decodedFieldSlots[i - fieldStartIndex] = cumul;
+            }
+        }
+        layoutComputed = true;
+    }
+
     @Override
     public void resetByTupleIndex(ITreeIndexFrame frame, int tupleIndex) {
         resetByTupleOffset(frame.getBuffer(), frame.getTupleOffset(tupleIndex));
@@ -78,6 +111,7 @@ public class TypeAwareTupleReference implements ITreeIndexTupleReference {
         }
         nullFlagsBytes = getNullFlagsBytes();
         this.fieldStartIndex = 0;
+        layoutComputed = false;
     }
 
     @Override
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api;
+
+import java.io.Serializable;
+import java.util.concurrent.Executor;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+
+/**
+ * Supplies the executor on which an LSM inverted index searches the components of a query concurrently. Indexes
+ * live longer than the tasks that open them, so the executor should be shared by the node rather than owned by a
+ * task.
+ */
+public interface ILSMInvertedIndexSearchExecutorProvider extends Serializable {
+    public Executor getSearchExecutor(IHyracksTaskContext ctx);
+}
@@ -29,6 +29,7 @@ import edu.uci.ics.hyracks.dataflow.common.comm.util.FrameUtils;
 import edu.uci.ics.hyracks.dataflow.std.base.AbstractUnaryInputUnaryOutputOperatorNodePushable;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.IBinaryTokenizer;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.IToken;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.IntArray;
 
 public class BinaryTokenizerOperatorNodePushable extends AbstractUnaryInputUnaryOutputOperatorNodePushable {
 
@@ -45,6 +46,8 @@ public class BinaryTokenizerOperatorNodePushable extends AbstractUnaryInputUnary
     private GrowableArray builderData;
     private FrameTupleAppender appender;
     private ByteBuffer writeBuffer;
+    private GrowableArray tokenData;
+    private IntArray tokenEnds;
 
     public BinaryTokenizerOperatorNodePushable(IHyracksTaskContext ctx, RecordDescriptor inputRecDesc,
             RecordDescriptor outputRecDesc, IBinaryTokenizer tokenizer, int docField, int[] keyFields,
@@ -66,6 +69,10 @@ public class BinaryTokenizerOperatorNodePushable extends AbstractUnaryInputUnary
         builderData = builder.getFieldData();
         appender = new FrameTupleAppender(ctx.getFrameSize());
         appender.reset(writeBuffer, true);
+        if (addNumTokensKey) {
+            tokenData = new GrowableArray();
+            tokenEnds = new IntArray();
+        }
         writer.open();
     }
 
@@ -73,52 +80,60 @@ public class BinaryTokenizerOperatorNodePushable extends AbstractUnaryInputUnary
     public void nextFrame(ByteBuffer buffer) throws HyracksDataException {
         accessor.reset(buffer);
         int tupleCount = accessor.getTupleCount();
-        for (int i = 0; i < tupleCount; i++) {
-            short numTokens = 0;
-            if (addNumTokensKey) {
-                // Run through the tokens to get the total number of tokens.
+        try {
+            for (int i = 0; i < tupleCount; i++) {
                 tokenizer.reset(
                         accessor.getBuffer().array(),
                         accessor.getTupleStartOffset(i) + accessor.getFieldSlotsLength()
                                 + accessor.getFieldStartOffset(i, docField), accessor.getFieldLength(i, docField));
-                while (tokenizer.hasNext()) {
-                    tokenizer.next();
-                    numTokens++;
-                }
-            }
-
-            tokenizer.reset(
-                    accessor.getBuffer().array(),
-                    accessor.getTupleStartOffset(i) + accessor.getFieldSlotsLength()
-                            + accessor.getFieldStartOffset(i, docField), accessor.getFieldLength(i, docField));
-            while (tokenizer.hasNext()) {
-                tokenizer.next();
-
-                builder.reset();
-                try {
-                    IToken token = tokenizer.getToken();
-                    token.serializeToken(builderData);
-                    builder.addFieldEndOffset();
-                    // Add number of tokens if requested.
-                    if (addNumTokensKey) {
+                if (addNumTokensKey) {
+                    // Tokenize the document once into a buffer of serialized tokens, so that the number of tokens is
+                    // known before the first one is written out.
+                    tokenData.reset();
+                    tokenEnds.reset();
+                    while (tokenizer.hasNext()) {
+                        tokenizer.next();
+                        tokenizer.getToken().serializeToken(tokenData);
+                        tokenEnds.add(tokenData.getLength());
+                    }
+                    short numTokens = (short) tokenEnds.length();
+                    int tokenStart = 0;
+                    for (int j = 0; j < tokenEnds.length(); j++) {
+                        builder.reset();
+                        builder.getDataOutput().write(tokenData.getByteArray(), tokenStart,
+                                tokenEnds.get(j) - tokenStart);
+                        builder.addFieldEndOffset();
                         builder.getDataOutput().writeShort(numTokens);
                         builder.addFieldEndOffset();
+                        appendTuple(i);
+                        tokenStart = tokenEnds.get(j);
+                    }
+                } else {
+                    while (tokenizer.hasNext()) {
+                        tokenizer.next();
+                        builder.reset();
+                        IToken token = tokenizer.getToken();
+                        token.serializeToken(builderData);
+                        builder.addFieldEndOffset();
+                        appendTuple(i);
                     }
-                } catch (IOException e) {
-                    throw new HyracksDataException(e.getMessage());
                 }
+            }
+        } catch (IOException e) {
+            throw new HyracksDataException(e.getMessage());
+        }
+    }
 
-                for (int k = 0; k < keyFields.length; k++) {
-                    builder.addField(accessor, i, keyFields[k]);
-                }
+    private void appendTuple(int tupleIndex) throws HyracksDataException {
+        for (int k = 0; k < keyFields.length; k++) {
+            builder.addField(accessor, tupleIndex, keyFields[k]);
+        }
 
-                if (!appender.append(builder.getFieldEndOffsets(), builder.getByteArray(), 0, builder.getSize())) {
-                    FrameUtils.flushFrame(writeBuffer, writer);
-                    appender.reset(writeBuffer, true);
-                    if (!appender.append(builder.getFieldEndOffsets(), builder.getByteArray(), 0, builder.getSize())) {
-                        throw new IllegalStateException();
-                    }
-                }
+        if (!appender.append(builder.getFieldEndOffsets(), builder.getByteArray(), 0, builder.getSize())) {
+            FrameUtils.flushFrame(writeBuffer, writer);
+            appender.reset(writeBuffer, true);
+            if (!appender.append(builder.getFieldEndOffsets(), builder.getByteArray(), 0, builder.getSize())) {
+                throw new IllegalStateException();
             }
         }
     }
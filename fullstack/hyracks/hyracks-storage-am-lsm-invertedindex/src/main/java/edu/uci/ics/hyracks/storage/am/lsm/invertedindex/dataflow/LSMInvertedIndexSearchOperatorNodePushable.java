@@ -47,7 +47,7 @@ public class LSMInvertedIndexSearchOperatorNodePushable extends IndexSearchOpera
     @Override
     protected ISearchPredicate createSearchPredicate() {
         AbstractLSMInvertedIndexOperatorDescriptor invIndexOpDesc = (AbstractLSMInvertedIndexOperatorDescriptor) opDesc;
-        return new InvertedIndexSearchPredicate(invIndexOpDesc.getTokenizerFactory().createTokenizer(), searchModifier);
+        return new InvertedIndexSearchPredicate(invIndexOpDesc.getTokenizerFactory(), searchModifier);
     }
 
     @Override
@@ -23,16 +23,32 @@ import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIOOperationSchedulerPro
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMMergePolicyProvider;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMOperationTrackerFactory;
 import edu.uci.ics.hyracks.storage.am.lsm.common.dataflow.AbstractLSMIndexDataflowHelperFactory;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.ILSMInvertedIndexSearchExecutorProvider;
 
 public class PartitionedLSMInvertedIndexDataflowHelperFactory extends AbstractLSMIndexDataflowHelperFactory {
 
     private static final long serialVersionUID = 1L;
 
+    private final ILSMInvertedIndexSearchExecutorProvider searchExecutorProvider;
+
     public PartitionedLSMInvertedIndexDataflowHelperFactory(ILSMMergePolicyProvider mergePolicyProvider,
             ILSMOperationTrackerFactory opTrackerProvider, ILSMIOOperationSchedulerProvider ioSchedulerProvider,
             ILSMIOOperationCallbackProvider ioOpCallbackProvider, int memPageSize, int memNumPages) {
+        this(mergePolicyProvider, opTrackerProvider, ioSchedulerProvider, ioOpCallbackProvider, memPageSize,
+                memNumPages, null);
+    }
+
+    /**
+     * Lets the indexes search the components of a query concurrently, on the executor the given provider returns
+     * for the node. Null keeps the searches sequential.
+     */
+    public PartitionedLSMInvertedIndexDataflowHelperFactory(ILSMMergePolicyProvider mergePolicyProvider,
+            ILSMOperationTrackerFactory opTrackerProvider, ILSMIOOperationSchedulerProvider ioSchedulerProvider,
+            ILSMIOOperationCallbackProvider ioOpCallbackProvider, int memPageSize, int memNumPages,
+            ILSMInvertedIndexSearchExecutorProvider searchExecutorProvider) {
         super(mergePolicyProvider, opTrackerProvider, ioSchedulerProvider, ioOpCallbackProvider, memNumPages,
                 memNumPages);
+        this.searchExecutorProvider = searchExecutorProvider;
     }
 
     @Override
@@ -40,7 +56,8 @@ public class PartitionedLSMInvertedIndexDataflowHelperFactory extends AbstractLS
             int partition) {
         return new PartitionedLSMInvertedIndexDataflowHelper(opDesc, ctx, partition, memPageSize, memNumPages,
                 mergePolicyProvider.getMergePolicy(ctx), opTrackerFactory, ioSchedulerProvider.getIOScheduler(ctx),
-                ioOpCallbackProvider);
+                ioOpCallbackProvider, searchExecutorProvider == null ? null
+                        : searchExecutorProvider.getSearchExecutor(ctx));
     }
 
 }
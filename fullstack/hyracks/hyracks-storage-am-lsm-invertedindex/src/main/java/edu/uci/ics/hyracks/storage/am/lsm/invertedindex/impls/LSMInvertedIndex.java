@@ -17,6 +17,7 @@ package edu.uci.ics.hyracks.storage.am.lsm.invertedindex.impls;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
 import edu.uci.ics.hyracks.api.dataflow.value.ITypeTraits;
@@ -95,6 +96,9 @@ public class LSMInvertedIndex extends AbstractLSMIndex implements IInvertedIndex
     protected final ITypeTraits[] tokenTypeTraits;
     protected final IBinaryComparatorFactory[] tokenCmpFactories;
 
+    // Runs the searches of the individual components of a query concurrently, if set.
+    private Executor searchExecutor;
+
     public LSMInvertedIndex(IInMemoryBufferCache memBufferCache, IInMemoryFreePageManager memFreePageManager,
             OnDiskInvertedIndexFactory diskInvIndexFactory, BTreeFactory deletedKeysBTreeFactory,
             BloomFilterFactory bloomFilterFactory, ILSMIndexFileManager fileManager,
@@ -368,7 +372,7 @@ public class LSMInvertedIndex extends AbstractLSMIndex implements IInvertedIndex
         if (pred instanceof InvertedIndexSearchPredicate) {
             initState = new LSMInvertedIndexSearchCursorInitialState(keyCmp, keysOnlyTuple, indexAccessors,
                     deletedKeysBTreeAccessors, mutableComponent.getDeletedKeysBTree().getLeafFrameFactory(), ictx,
-                    includeMutableComponent, lsmHarness, operationalComponents);
+                    includeMutableComponent, lsmHarness, operationalComponents, searchExecutor);
         } else {
             InMemoryInvertedIndex memInvIndex = (InMemoryInvertedIndex) mutableComponent.getInvIndex();
             MultiComparator tokensAndKeysCmp = MultiComparator.create(memInvIndex.getBTree().getComparatorFactories());
@@ -692,6 +696,20 @@ public class LSMInvertedIndex extends AbstractLSMIndex implements IInvertedIndex
         return tokenizerFactory;
     }
 
+    /**
+     * Lets searches run the T-occurrence search of each component on the given executor instead of one component
+     * after the other on the calling thread. Only searches whose predicate can be copied, see
+     * {@link InvertedIndexSearchPredicate#createCopy()}, and that span more than one component are parallelized. The
+     * results of all components of a query are kept in memory at the same time. Pass null to search sequentially.
+     */
+    public void setSearchExecutor(Executor searchExecutor) {
+        this.searchExecutor = searchExecutor;
+    }
+
+    public Executor getSearchExecutor() {
+        return searchExecutor;
+    }
+
     protected void forceFlushInvListsFileDirtyPages(OnDiskInvertedIndex invIndex) throws HyracksDataException {
         int fileId = invIndex.getInvListsFileId();
         IBufferCache bufferCache = invIndex.getBufferCache();
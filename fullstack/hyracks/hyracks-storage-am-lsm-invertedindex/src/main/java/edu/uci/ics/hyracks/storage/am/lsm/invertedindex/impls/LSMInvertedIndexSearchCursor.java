@@ -14,9 +14,17 @@
  */
 package edu.uci.ics.hyracks.storage.am.lsm.invertedindex.impls;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleReference;
 import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
 import edu.uci.ics.hyracks.storage.am.btree.api.IBTreeLeafFrame;
 import edu.uci.ics.hyracks.storage.am.btree.impls.RangePredicate;
@@ -31,11 +39,25 @@ import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMComponent;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMHarness;
 import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIndexOperationContext;
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.BloomFilterAwareBTreePointSearchCursor;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedIndex;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedIndexAccessor;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedIndexSearchModifier;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedListCursor;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IPartitionedInvertedIndex;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.exceptions.OccurrenceThresholdPanicException;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.search.InvertedIndexSearchPredicate;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.search.TopKInvertedListMerger;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.search.TopKSearchModifier;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.IBinaryTokenizer;
 
 /**
  * Searches the components one-by-one, completely consuming a cursor before moving on to the next one.
  * Therefore, the are no guarantees about sort order of the results.
+ * Top-K searches are the exception: they merge the inverted lists of all components when the cursor is opened, and
+ * return the results best first.
+ * If the index has a search executor, the components are searched concurrently as soon as the cursor is opened, each
+ * with its own accessor and a copy of the search predicate. The results are still consumed, and checked against the
+ * deleted keys of the newer components, one component after the other on the calling thread.
  */
 public class LSMInvertedIndexSearchCursor implements IIndexCursor {
 
@@ -57,6 +79,18 @@ public class LSMInvertedIndexSearchCursor implements IIndexCursor {
 
     private List<ILSMComponent> operationalComponents;
 
+    // Only used by top-K searches.
+    private TopKInvertedListMerger topKMerger;
+    private int topKResultIndex = -1;
+    private final List<ArrayTupleBuilder> queryTokenBuilders = new ArrayList<ArrayTupleBuilder>();
+    private final ArrayTupleReference queryToken = new ArrayTupleReference();
+
+    // Only used by searches that run the components concurrently.
+    private final List<FutureTask<IIndexCursor>> componentSearches = new ArrayList<FutureTask<IIndexCursor>>();
+    private final List<InvertedIndexSearchPredicate> componentPreds = new ArrayList<InvertedIndexSearchPredicate>();
+    private ISearchPredicate componentPredsSource;
+    private int nextComponentSearch;
+
     @Override
     public void open(ICursorInitialState initialState, ISearchPredicate searchPred) throws HyracksDataException {
         LSMInvertedIndexSearchCursorInitialState lsmInitState = (LSMInvertedIndexSearchCursorInitialState) initialState;
@@ -86,6 +120,173 @@ public class LSMInvertedIndexSearchCursor implements IIndexCursor {
 
         MultiComparator keyCmp = lsmInitState.getKeyComparator();
         keySearchPred = new RangePredicate(null, null, true, true, keyCmp, keyCmp);
+
+        IInvertedIndexSearchModifier searchModifier = ((InvertedIndexSearchPredicate) searchPred).getSearchModifier();
+        if (searchModifier instanceof TopKSearchModifier) {
+            if (topKMerger == null) {
+                topKMerger = new TopKInvertedListMerger(keyCmp) {
+                    @Override
+                    protected boolean isValidResult(ITupleReference element) throws HyracksDataException,
+                            IndexException {
+                        return !isDeleted(element);
+                    }
+                };
+            }
+            try {
+                searchTopK((InvertedIndexSearchPredicate) searchPred, ((TopKSearchModifier) searchModifier).getK());
+            } catch (IndexException e) {
+                throw new HyracksDataException(e);
+            }
+        } else {
+            topKResultIndex = -1;
+            Executor searchExecutor = lsmInitState.getSearchExecutor();
+            if (searchExecutor != null && indexAccessors.size() > 1) {
+                startComponentSearches(searchExecutor, (InvertedIndexSearchPredicate) searchPred);
+            }
+        }
+    }
+
+    private void startComponentSearches(Executor searchExecutor, InvertedIndexSearchPredicate searchPred)
+            throws HyracksDataException {
+        if (!componentSearches.isEmpty()) {
+            cancelComponentSearches();
+        }
+        int numComponents = indexAccessors.size();
+        // Each component search tokenizes the query, so each needs a predicate of its own.
+        if (componentPredsSource != searchPred) {
+            componentPreds.clear();
+            componentPredsSource = searchPred;
+        }
+        while (componentPreds.size() < numComponents) {
+            InvertedIndexSearchPredicate componentSearchPred = searchPred.createCopy();
+            if (componentSearchPred == null) {
+                // Cannot copy the query tokenizer, search the components one after the other.
+                return;
+            }
+            componentPreds.add(componentSearchPred);
+        }
+        for (int i = 0; i < numComponents; i++) {
+            InvertedIndexSearchPredicate componentSearchPred = componentPreds.get(i);
+            componentSearchPred.setQueryTuple(searchPred.getQueryTuple());
+            componentSearchPred.setQueryFieldIndex(searchPred.getQueryFieldIndex());
+            FutureTask<IIndexCursor> componentSearch = new FutureTask<IIndexCursor>(new ComponentSearch(
+                    indexAccessors.get(i), componentSearchPred));
+            componentSearches.add(componentSearch);
+            searchExecutor.execute(componentSearch);
+        }
+        nextComponentSearch = 0;
+    }
+
+    private IIndexCursor getComponentSearchResult(int index) throws HyracksDataException, IndexException {
+        nextComponentSearch = index + 1;
+        try {
+            return componentSearches.get(index).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HyracksDataException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof OccurrenceThresholdPanicException) {
+                throw (OccurrenceThresholdPanicException) cause;
+            }
+            if (cause instanceof HyracksDataException) {
+                throw (HyracksDataException) cause;
+            }
+            throw new HyracksDataException(cause);
+        }
+    }
+
+    /**
+     * Waits for the component searches whose results were not consumed, so that none of them still reads a component
+     * after the search has ended.
+     */
+    private void cancelComponentSearches() throws HyracksDataException {
+        boolean interrupted = false;
+        for (int i = nextComponentSearch; i < componentSearches.size(); i++) {
+            while (true) {
+                try {
+                    componentSearches.get(i).get().close();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    // The search has closed its cursor.
+                    break;
+                }
+            }
+        }
+        componentSearches.clear();
+        nextComponentSearch = 0;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void searchTopK(InvertedIndexSearchPredicate searchPred, int k) throws HyracksDataException,
+            IndexException {
+        ILSMComponent firstComponent = operationalComponents.get(0);
+        IInvertedIndex firstInvIndex = includeMemComponent ? ((LSMInvertedIndexMutableComponent) firstComponent)
+                .getInvIndex() : ((LSMInvertedIndexImmutableComponent) firstComponent).getInvIndex();
+        if (firstInvIndex instanceof IPartitionedInvertedIndex) {
+            throw new HyracksDataException("Top-K search is not supported by partitioned inverted indexes.");
+        }
+        int numTokens = tokenizeQuery(searchPred);
+        int numComponents = indexAccessors.size();
+
+        // Open the lists of all components first, the weights depend on the list lengths across the whole index.
+        List<List<IInvertedListCursor>> componentLists = new ArrayList<List<IInvertedListCursor>>(numComponents);
+        long[] numElements = new long[numTokens];
+        long totalNumElements = 0;
+        for (int i = 0; i < numComponents; i++) {
+            IInvertedIndexAccessor accessor = (IInvertedIndexAccessor) indexAccessors.get(i);
+            List<IInvertedListCursor> lists = new ArrayList<IInvertedListCursor>(numTokens);
+            for (int j = 0; j < numTokens; j++) {
+                ArrayTupleBuilder tokenBuilder = queryTokenBuilders.get(j);
+                queryToken.reset(tokenBuilder.getFieldEndOffsets(), tokenBuilder.getByteArray());
+                IInvertedListCursor listCursor = accessor.createInvertedListCursor();
+                accessor.openInvertedListCursor(listCursor, queryToken);
+                lists.add(listCursor);
+                numElements[j] += listCursor.size();
+                totalNumElements += listCursor.size();
+            }
+            componentLists.add(lists);
+        }
+        float[] weights = new float[numTokens];
+        for (int j = 0; j < numTokens; j++) {
+            weights[j] = TopKInvertedListMerger.getWeight((int) Math.min(numElements[j], Integer.MAX_VALUE),
+                    totalNumElements);
+        }
+
+        // Newer components first, so the deleted-keys check only needs to look at the components merged before.
+        topKMerger.reset(k);
+        for (accessorIndex = 0; accessorIndex < numComponents; accessorIndex++) {
+            topKMerger.merge(componentLists.get(accessorIndex), weights);
+        }
+        topKResultIndex = 0;
+    }
+
+    private int tokenizeQuery(InvertedIndexSearchPredicate searchPred) throws HyracksDataException {
+        ITupleReference queryTuple = searchPred.getQueryTuple();
+        int queryFieldIndex = searchPred.getQueryFieldIndex();
+        IBinaryTokenizer queryTokenizer = searchPred.getQueryTokenizer();
+        queryTokenizer.reset(queryTuple.getFieldData(queryFieldIndex), queryTuple.getFieldStart(queryFieldIndex),
+                queryTuple.getFieldLength(queryFieldIndex));
+        int numTokens = 0;
+        while (queryTokenizer.hasNext()) {
+            queryTokenizer.next();
+            if (numTokens == queryTokenBuilders.size()) {
+                queryTokenBuilders.add(new ArrayTupleBuilder(1));
+            }
+            ArrayTupleBuilder tokenBuilder = queryTokenBuilders.get(numTokens++);
+            tokenBuilder.reset();
+            try {
+                queryTokenizer.getToken().serializeToken(tokenBuilder.getFieldData());
+            } catch (IOException e) {
+                throw new HyracksDataException(e);
+            }
+            tokenBuilder.addFieldEndOffset();
+        }
+        return numTokens;
     }
 
     protected boolean isDeleted(ITupleReference key) throws HyracksDataException, IndexException {
@@ -121,6 +322,9 @@ public class LSMInvertedIndexSearchCursor implements IIndexCursor {
 
     @Override
     public boolean hasNext() throws HyracksDataException, IndexException {
+        if (topKResultIndex >= 0) {
+            return topKResultIndex < topKMerger.getNumResults();
+        }
         if (!tupleConsumed) {
             return true;
         }
@@ -133,14 +337,20 @@ public class LSMInvertedIndexSearchCursor implements IIndexCursor {
         }
         while (accessorIndex < indexAccessors.size()) {
             // Current cursor has been exhausted, switch to next accessor/cursor.
-            currentAccessor = indexAccessors.get(accessorIndex);
-            currentCursor = currentAccessor.createSearchCursor();
-            try {
-                currentAccessor.search(currentCursor, searchPred);
-            } catch (OccurrenceThresholdPanicException e) {
-                throw e;
-            } catch (IndexException e) {
-                throw new HyracksDataException(e);
+            if (!componentSearches.isEmpty()) {
+                // The previous cursor is closed already, do not close it again if the component search failed.
+                currentCursor = null;
+                currentCursor = getComponentSearchResult(accessorIndex);
+            } else {
+                currentAccessor = indexAccessors.get(accessorIndex);
+                currentCursor = currentAccessor.createSearchCursor();
+                try {
+                    currentAccessor.search(currentCursor, searchPred);
+                } catch (OccurrenceThresholdPanicException e) {
+                    throw e;
+                } catch (IndexException e) {
+                    throw new HyracksDataException(e);
+                }
             }
             if (nextValidTuple()) {
                 return true;
@@ -154,6 +364,13 @@ public class LSMInvertedIndexSearchCursor implements IIndexCursor {
 
     @Override
     public void next() throws HyracksDataException {
+        if (topKResultIndex >= 0) {
+            ITupleReference result = topKMerger.getResult(topKResultIndex++);
+            if (!searchCallback.proceed(result)) {
+                searchCallback.reconcile(result);
+            }
+            return;
+        }
         // Mark the tuple as consumed, so hasNext() can move on.
         tupleConsumed = true;
         // We assume that the underlying cursors materialize their results such that
@@ -176,11 +393,40 @@ public class LSMInvertedIndexSearchCursor implements IIndexCursor {
             currentCursor.close();
             currentCursor = null;
         }
+        if (!componentSearches.isEmpty()) {
+            cancelComponentSearches();
+        }
         accessorIndex = 0;
+        topKResultIndex = -1;
     }
 
     @Override
     public ITupleReference getTuple() {
+        if (topKResultIndex > 0) {
+            return topKMerger.getResult(topKResultIndex - 1);
+        }
         return currentCursor.getTuple();
     }
+
+    private static class ComponentSearch implements Callable<IIndexCursor> {
+        private final IIndexAccessor accessor;
+        private final ISearchPredicate searchPred;
+
+        public ComponentSearch(IIndexAccessor accessor, ISearchPredicate searchPred) {
+            this.accessor = accessor;
+            this.searchPred = searchPred;
+        }
+
+        @Override
+        public IIndexCursor call() throws Exception {
+            IIndexCursor cursor = accessor.createSearchCursor();
+            try {
+                accessor.search(cursor, searchPred);
+            } catch (Exception e) {
+                cursor.close();
+                throw e;
+            }
+            return cursor;
+        }
+    }
 }
@@ -16,6 +16,7 @@
 package edu.uci.ics.hyracks.storage.am.lsm.invertedindex.impls;
 
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import edu.uci.ics.hyracks.storage.am.common.api.ICursorInitialState;
 import edu.uci.ics.hyracks.storage.am.common.api.IIndexAccessor;
@@ -43,12 +44,13 @@ public class LSMInvertedIndexSearchCursorInitialState implements ICursorInitialS
     private final ITreeIndexFrameFactory deletedKeysBtreeLeafFrameFactory;
 
     private final List<ILSMComponent> operationalComponents;
+    private final Executor searchExecutor;
 
     public LSMInvertedIndexSearchCursorInitialState(final MultiComparator keyCmp,
             PermutingTupleReference keysOnlyTuple, List<IIndexAccessor> indexAccessors,
             List<IIndexAccessor> deletedKeysBTreeAccessors, ITreeIndexFrameFactory deletedKeysBtreeLeafFrameFactory,
             IIndexOperationContext ctx, boolean includeMemComponent, ILSMHarness lsmHarness,
-            List<ILSMComponent> operationalComponents) {
+            List<ILSMComponent> operationalComponents, Executor searchExecutor) {
         this.keyCmp = keyCmp;
         this.keysOnlyTuple = keysOnlyTuple;
         this.indexAccessors = indexAccessors;
@@ -56,6 +58,7 @@ public class LSMInvertedIndexSearchCursorInitialState implements ICursorInitialS
         this.deletedKeysBtreeLeafFrameFactory = deletedKeysBtreeLeafFrameFactory;
         this.includeMemComponent = includeMemComponent;
         this.operationalComponents = operationalComponents;
+        this.searchExecutor = searchExecutor;
         this.lsmHarness = lsmHarness;
         this.ctx = (LSMInvertedIndexOpContext) ctx;
         this.searchCallback = this.ctx.searchCallback;
@@ -122,6 +125,10 @@ public class LSMInvertedIndexSearchCursorInitialState implements ICursorInitialS
         return deletedKeysBtreeLeafFrameFactory;
     }
 
+    public Executor getSearchExecutor() {
+        return searchExecutor;
+    }
+
     public PermutingTupleReference getKeysOnlyTuple() {
         return keysOnlyTuple;
     }
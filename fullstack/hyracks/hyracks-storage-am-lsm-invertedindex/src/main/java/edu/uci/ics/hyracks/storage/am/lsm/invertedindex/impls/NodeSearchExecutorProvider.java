@@ -0,0 +1,50 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.am.lsm.invertedindex.impls;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.ILSMInvertedIndexSearchExecutorProvider;
+
+/**
+ * Hands out one pool of daemon threads, one per processor, to all LSM inverted indexes of the node. The pool is
+ * created on first use and lives as long as the node.
+ */
+public enum NodeSearchExecutorProvider implements ILSMInvertedIndexSearchExecutorProvider {
+    INSTANCE;
+
+    @Override
+    public ExecutorService getSearchExecutor(IHyracksTaskContext ctx) {
+        return ExecutorHolder.EXECUTOR;
+    }
+
+    private static class ExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(Runtime.getRuntime()
+                .availableProcessors(), new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "LSMInvertedIndexSearch-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.invertedindex.ondisk;
+
+import edu.uci.ics.hyracks.api.dataflow.value.ITypeTraits;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.ShortSerializerDeserializer;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedListBuilder;
+
+/**
+ * Writes inverted lists whose elements are a single 4-byte integer key (e.g., a primary key) as a sequence of
+ * compressed blocks. A block starts with a header holding the first key of the block, the number of elements in the
+ * block and the number of bytes that follow the header. The remaining keys of the block are stored as the differences
+ * to their predecessors, each encoded with a variable number of bytes (7 bits per byte, the high bit marks that
+ * another byte follows).
+ * The block headers are the skip entries of the list: a reader can hop from header to header and binary search the
+ * first keys without decoding the blocks in between (see {@link CompressedInvertedListCursor}).
+ * A block never spans pages. A new block is started on the next page whenever its header does not fit into the rest
+ * of the current page. Since a header is larger than any encoded difference, a block that has to be closed because
+ * the next difference does not fit also leaves no room for another header, so the reader finds the next block at the
+ * start of the next page.
+ */
+public class CompressedInvertedListBuilder implements IInvertedListBuilder {
+    public static final int BLOCK_HEADER_SIZE = 8;
+    public static final int DEFAULT_BLOCK_SIZE = 128;
+    // Each block header stores its element count and byte length as shorts.
+    public static final int MAX_BLOCK_SIZE = 4096;
+
+    private final int blockSize;
+    private int listSize = 0;
+
+    private byte[] targetBuf;
+    private int pos;
+
+    // Offset of the header of the block being written, or -1 if the next element starts a new block.
+    private int blockStart = -1;
+    private int blockElements;
+    private int prevKey;
+
+    public CompressedInvertedListBuilder(ITypeTraits[] invListFields) {
+        this(invListFields, DEFAULT_BLOCK_SIZE);
+    }
+
+    public CompressedInvertedListBuilder(ITypeTraits[] invListFields, int blockSize) {
+        checkInvListFields(invListFields);
+        if (blockSize < 1 || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Block size must be between 1 and " + MAX_BLOCK_SIZE + ": "
+                    + blockSize);
+        }
+        this.blockSize = blockSize;
+    }
+
+    static void checkInvListFields(ITypeTraits[] invListFields) {
+        if (invListFields.length != 1 || !invListFields[0].isFixedLength() || invListFields[0].getFixedLength() != 4) {
+            throw new IllegalArgumentException(
+                    "Compressed inverted lists only support a single 4-byte integer inverted-list key.");
+        }
+    }
+
+    @Override
+    public boolean startNewList(ITupleReference tuple, int tokenField) {
+        if (pos + BLOCK_HEADER_SIZE > targetBuf.length) {
+            return false;
+        } else {
+            listSize = 0;
+            blockStart = -1;
+            return true;
+        }
+    }
+
+    @Override
+    public boolean appendElement(ITupleReference tuple, int numTokenFields, int numElementFields) {
+        int key = IntegerSerializerDeserializer.getInt(tuple.getFieldData(numTokenFields),
+                tuple.getFieldStart(numTokenFields));
+        if (blockStart < 0 || blockElements == blockSize) {
+            if (pos + BLOCK_HEADER_SIZE > targetBuf.length) {
+                return false;
+            }
+            blockStart = pos;
+            blockElements = 1;
+            IntegerSerializerDeserializer.putInt(key, targetBuf, blockStart);
+            pos += BLOCK_HEADER_SIZE;
+        } else {
+            int delta = key - prevKey;
+            int deltaLength = getVIntLength(delta);
+            if (pos + deltaLength > targetBuf.length) {
+                return false;
+            }
+            writeVInt(delta, targetBuf, pos);
+            pos += deltaLength;
+            blockElements++;
+        }
+        // Keep the header current, so a page switch never leaves a block to be patched.
+        ShortSerializerDeserializer.putShort(blockElements, targetBuf, blockStart + 4);
+        ShortSerializerDeserializer.putShort(pos - blockStart - BLOCK_HEADER_SIZE, targetBuf, blockStart + 6);
+        prevKey = key;
+        listSize++;
+        return true;
+    }
+
+    @Override
+    public void setTargetBuffer(byte[] targetBuf, int startPos) {
+        this.targetBuf = targetBuf;
+        this.pos = startPos;
+        this.blockStart = -1;
+    }
+
+    @Override
+    public int getListSize() {
+        return listSize;
+    }
+
+    @Override
+    public int getPos() {
+        return pos;
+    }
+
+    /**
+     * Returns the number of bytes {@link #writeVInt(int, byte[], int)} needs for the given value, which is treated as
+     * unsigned.
+     */
+    public static int getVIntLength(int val) {
+        int length = 1;
+        while ((val & ~0x7F) != 0) {
+            val >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    public static void writeVInt(int val, byte[] bytes, int offset) {
+        while ((val & ~0x7F) != 0) {
+            bytes[offset++] = (byte) ((val & 0x7F) | 0x80);
+            val >>>= 7;
+        }
+        bytes[offset] = (byte) val;
+    }
+}
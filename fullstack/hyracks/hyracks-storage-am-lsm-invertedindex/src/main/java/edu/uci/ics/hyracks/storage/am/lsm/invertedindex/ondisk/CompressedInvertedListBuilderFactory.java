@@ -0,0 +1,40 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.invertedindex.ondisk;
+
+import edu.uci.ics.hyracks.api.dataflow.value.ITypeTraits;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedListBuilder;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedListBuilderFactory;
+
+public class CompressedInvertedListBuilderFactory implements IInvertedListBuilderFactory {
+
+    private final ITypeTraits[] invListFields;
+    private final int blockSize;
+
+    public CompressedInvertedListBuilderFactory(ITypeTraits[] invListFields) {
+        this(invListFields, CompressedInvertedListBuilder.DEFAULT_BLOCK_SIZE);
+    }
+
+    public CompressedInvertedListBuilderFactory(ITypeTraits[] invListFields, int blockSize) {
+        this.invListFields = invListFields;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public IInvertedListBuilder create() {
+        return new CompressedInvertedListBuilder(invListFields, blockSize);
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.invertedindex.ondisk;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.ITypeTraits;
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.ShortSerializerDeserializer;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedListCursor;
+import edu.uci.ics.hyracks.storage.common.buffercache.IBufferCache;
+import edu.uci.ics.hyracks.storage.common.buffercache.ICachedPage;
+import edu.uci.ics.hyracks.storage.common.file.BufferedFileHandle;
+
+/**
+ * Reads inverted lists written by {@link CompressedInvertedListBuilder}. Iteration decodes one block after the other.
+ * Probes with {@link #containsKey(ITupleReference, MultiComparator)} binary search the first keys of the blocks, which
+ * are collected from the block headers on the first probe after a reset, and only decode the one block that may
+ * contain the key.
+ */
+public class CompressedInvertedListCursor implements IInvertedListCursor {
+
+    private static final int HEADER_SIZE = CompressedInvertedListBuilder.BLOCK_HEADER_SIZE;
+
+    private final IBufferCache bufferCache;
+    private final int fileId;
+    private final int pageSize;
+
+    private int startPageId;
+    private int endPageId;
+    private int startOff;
+    private int numElements;
+
+    // Iteration state.
+    private int currentElementIx;
+    private int currentPageIx;
+    private int currentOff;
+    private int blockRemaining;
+    private int currentKey;
+
+    // Skip entries of the blocks of the current list, built lazily by containsKey().
+    private boolean skipEntriesValid = false;
+    private int numBlocks;
+    private int[] blockFirstKeys = new int[16];
+    private int[] blockPageIxs = new int[16];
+    private int[] blockOffs = new int[16];
+    private int[] blockSizes = new int[16];
+
+    // End offset of the last variable-length integer read by readVInt().
+    private int vIntEnd;
+
+    private final byte[] keyBuf = new byte[4];
+    private final FixedSizeTupleReference tuple;
+    private final byte[] probeBuf = new byte[4];
+    private final FixedSizeTupleReference probeTuple;
+    private ICachedPage[] pages = new ICachedPage[10];
+
+    private boolean pinned = false;
+
+    public CompressedInvertedListCursor(IBufferCache bufferCache, int fileId, ITypeTraits[] invListFields) {
+        CompressedInvertedListBuilder.checkInvListFields(invListFields);
+        this.bufferCache = bufferCache;
+        this.fileId = fileId;
+        this.pageSize = bufferCache.getPageSize();
+        this.tuple = new FixedSizeTupleReference(invListFields);
+        this.tuple.reset(keyBuf, 0);
+        this.probeTuple = new FixedSizeTupleReference(invListFields);
+        this.probeTuple.reset(probeBuf, 0);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return currentElementIx < numElements;
+    }
+
+    @Override
+    public void next() {
+        byte[] data;
+        if (blockRemaining == 0) {
+            if (currentOff + HEADER_SIZE > pageSize) {
+                currentPageIx++;
+                currentOff = 0;
+            }
+            data = pages[currentPageIx].getBuffer().array();
+            currentKey = IntegerSerializerDeserializer.getInt(data, currentOff);
+            blockRemaining = ShortSerializerDeserializer.getShort(data, currentOff + 4) - 1;
+            currentOff += HEADER_SIZE;
+        } else {
+            data = pages[currentPageIx].getBuffer().array();
+            currentKey += readVInt(data, currentOff);
+            currentOff = vIntEnd;
+            blockRemaining--;
+        }
+        currentElementIx++;
+        IntegerSerializerDeserializer.putInt(currentKey, keyBuf, 0);
+    }
+
+    @Override
+    public void pinPages() throws HyracksDataException {
+        if (pinned) {
+            return;
+        }
+        int pix = 0;
+        for (int i = startPageId; i <= endPageId; i++) {
+            pages[pix] = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), false);
+            pages[pix].acquireReadLatch();
+            pix++;
+        }
+        pinned = true;
+    }
+
+    @Override
+    public void unpinPages() throws HyracksDataException {
+        int numPages = endPageId - startPageId + 1;
+        for (int i = 0; i < numPages; i++) {
+            pages[i].releaseReadLatch();
+            bufferCache.unpin(pages[i]);
+        }
+        pinned = false;
+    }
+
+    @Override
+    public boolean containsKey(ITupleReference searchTuple, MultiComparator invListCmp) {
+        if (numElements == 0) {
+            return false;
+        }
+        if (!skipEntriesValid) {
+            readSkipEntries();
+        }
+
+        // Find the last block whose first key is not greater than the search key.
+        int block = -1;
+        int begin = 0;
+        int end = numBlocks - 1;
+        while (begin <= end) {
+            int mid = (begin + end) / 2;
+            IntegerSerializerDeserializer.putInt(blockFirstKeys[mid], probeBuf, 0);
+            int cmp = invListCmp.compare(searchTuple, probeTuple);
+            if (cmp < 0) {
+                end = mid - 1;
+            } else if (cmp > 0) {
+                block = mid;
+                begin = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        if (block < 0) {
+            return false;
+        }
+
+        byte[] data = pages[blockPageIxs[block]].getBuffer().array();
+        int off = blockOffs[block] + HEADER_SIZE;
+        int key = blockFirstKeys[block];
+        for (int i = 1; i < blockSizes[block]; i++) {
+            key += readVInt(data, off);
+            off = vIntEnd;
+            IntegerSerializerDeserializer.putInt(key, probeBuf, 0);
+            int cmp = invListCmp.compare(searchTuple, probeTuple);
+            if (cmp == 0) {
+                return true;
+            } else if (cmp < 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void readSkipEntries() {
+        numBlocks = 0;
+        int pageIx = 0;
+        int off = startOff;
+        int remaining = numElements;
+        while (remaining > 0) {
+            if (off + HEADER_SIZE > pageSize) {
+                pageIx++;
+                off = 0;
+            }
+            if (numBlocks == blockFirstKeys.length) {
+                int newLength = blockFirstKeys.length * 2;
+                blockFirstKeys = copyOf(blockFirstKeys, newLength);
+                blockPageIxs = copyOf(blockPageIxs, newLength);
+                blockOffs = copyOf(blockOffs, newLength);
+                blockSizes = copyOf(blockSizes, newLength);
+            }
+            byte[] data = pages[pageIx].getBuffer().array();
+            blockFirstKeys[numBlocks] = IntegerSerializerDeserializer.getInt(data, off);
+            blockSizes[numBlocks] = ShortSerializerDeserializer.getShort(data, off + 4);
+            blockPageIxs[numBlocks] = pageIx;
+            blockOffs[numBlocks] = off;
+            remaining -= blockSizes[numBlocks];
+            off += HEADER_SIZE + ShortSerializerDeserializer.getShort(data, off + 6);
+            numBlocks++;
+        }
+        skipEntriesValid = true;
+    }
+
+    private static int[] copyOf(int[] arr, int newLength) {
+        int[] newArr = new int[newLength];
+        System.arraycopy(arr, 0, newArr, 0, arr.length);
+        return newArr;
+    }
+
+    private int readVInt(byte[] data, int off) {
+        int val = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[off++];
+            val |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        vIntEnd = off;
+        return val;
+    }
+
+    @Override
+    public void reset(int startPageId, int endPageId, int startOff, int numElements) {
+        this.startPageId = startPageId;
+        this.endPageId = endPageId;
+        this.startOff = startOff;
+        this.numElements = numElements;
+        this.currentElementIx = 0;
+        this.currentPageIx = 0;
+        this.currentOff = startOff;
+        this.blockRemaining = 0;
+        this.skipEntriesValid = false;
+
+        int numPages = endPageId - startPageId + 1;
+        if (numPages > pages.length) {
+            pages = new ICachedPage[numPages];
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public String printInvList(ISerializerDeserializer[] serdes) throws HyracksDataException {
+        int oldCurrentElementIx = currentElementIx;
+        int oldCurrentPageIx = currentPageIx;
+        int oldCurrentOff = currentOff;
+        int oldBlockRemaining = blockRemaining;
+        int oldCurrentKey = currentKey;
+
+        currentElementIx = 0;
+        currentPageIx = 0;
+        currentOff = startOff;
+        blockRemaining = 0;
+
+        StringBuilder strBuilder = new StringBuilder();
+        while (hasNext()) {
+            next();
+            strBuilder.append(printCurrentElement(serdes));
+            strBuilder.append(" ");
+        }
+
+        // reset previous state
+        currentElementIx = oldCurrentElementIx;
+        currentPageIx = oldCurrentPageIx;
+        currentOff = oldCurrentOff;
+        blockRemaining = oldBlockRemaining;
+        currentKey = oldCurrentKey;
+        IntegerSerializerDeserializer.putInt(currentKey, keyBuf, 0);
+
+        return strBuilder.toString();
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public String printCurrentElement(ISerializerDeserializer[] serdes) throws HyracksDataException {
+        ByteArrayInputStream inStream = new ByteArrayInputStream(tuple.getFieldData(0), tuple.getFieldStart(0),
+                tuple.getFieldLength(0));
+        DataInput dataIn = new DataInputStream(inStream);
+        return serdes[0].deserialize(dataIn).toString();
+    }
+
+    @Override
+    public int compareTo(IInvertedListCursor invListCursor) {
+        return numElements - invListCursor.size();
+    }
+
+    @Override
+    public int getEndPageId() {
+        return endPageId;
+    }
+
+    @Override
+    public int size() {
+        return numElements;
+    }
+
+    @Override
+    public int getStartOff() {
+        return startOff;
+    }
+
+    @Override
+    public int getStartPageId() {
+        return startPageId;
+    }
+
+    @Override
+    public ITupleReference getTuple() {
+        return tuple;
+    }
+}
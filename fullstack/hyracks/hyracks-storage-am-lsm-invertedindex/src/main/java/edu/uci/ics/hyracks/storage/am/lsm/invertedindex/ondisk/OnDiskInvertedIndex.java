@@ -247,6 +247,9 @@ public class OnDiskInvertedIndex implements IInvertedIndex {
 
     @Override
     public IInvertedListCursor createInvertedListCursor() {
+        if (invListBuilder instanceof CompressedInvertedListBuilder) {
+            return new CompressedInvertedListCursor(bufferCache, fileId, invListTypeTraits);
+        }
         return new FixedSizeElementInvertedListCursor(bufferCache, fileId, invListTypeTraits);
     }
 
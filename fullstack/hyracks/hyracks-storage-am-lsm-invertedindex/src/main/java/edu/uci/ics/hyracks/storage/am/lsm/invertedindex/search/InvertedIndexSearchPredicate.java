@@ -20,6 +20,7 @@ import edu.uci.ics.hyracks.storage.am.common.api.ISearchPredicate;
 import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedIndexSearchModifier;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.IBinaryTokenizer;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.IBinaryTokenizerFactory;
 
 public class InvertedIndexSearchPredicate implements ISearchPredicate {
     private static final long serialVersionUID = 1L;
@@ -27,12 +28,36 @@ public class InvertedIndexSearchPredicate implements ISearchPredicate {
     private ITupleReference queryTuple;
     private int queryFieldIndex;
     private final IBinaryTokenizer queryTokenizer;
+    private final IBinaryTokenizerFactory queryTokenizerFactory;
     private final IInvertedIndexSearchModifier searchModifier;    
     
     public InvertedIndexSearchPredicate(IBinaryTokenizer queryTokenizer, IInvertedIndexSearchModifier searchModifier) {
         this.queryTokenizer = queryTokenizer;
+        this.queryTokenizerFactory = null;
         this.searchModifier = searchModifier;
     }
+
+    /**
+     * Predicates created from a tokenizer factory can be copied with {@link #createCopy()}, which lets an LSM
+     * inverted index search several components at the same time.
+     */
+    public InvertedIndexSearchPredicate(IBinaryTokenizerFactory queryTokenizerFactory,
+            IInvertedIndexSearchModifier searchModifier) {
+        this.queryTokenizer = queryTokenizerFactory.createTokenizer();
+        this.queryTokenizerFactory = queryTokenizerFactory;
+        this.searchModifier = searchModifier;
+    }
+
+    /**
+     * Returns a predicate with the same search modifier and its own query tokenizer, or null if this predicate was
+     * not created from a tokenizer factory. The query tuple and field index are not copied.
+     */
+    public InvertedIndexSearchPredicate createCopy() {
+        if (queryTokenizerFactory == null) {
+            return null;
+        }
+        return new InvertedIndexSearchPredicate(queryTokenizerFactory, searchModifier);
+    }
     
     public void setQueryTuple(ITupleReference queryTuple) {
         this.queryTuple = queryTuple;
@@ -84,6 +84,9 @@ public class PartitionedTOccurrenceSearcher extends AbstractTOccurrenceSearcher
 
     public void search(OnDiskInvertedIndexSearchCursor resultCursor, InvertedIndexSearchPredicate searchPred,
             IIndexOperationContext ictx) throws HyracksDataException, IndexException {
+        if (searchPred.getSearchModifier() instanceof TopKSearchModifier) {
+            throw new HyracksDataException("Top-K search is not supported by partitioned inverted indexes.");
+        }
         IPartitionedInvertedIndex partInvIndex = (IPartitionedInvertedIndex) invIndex;
         searchResult.reset();
         if (partInvIndex.isEmpty()) {
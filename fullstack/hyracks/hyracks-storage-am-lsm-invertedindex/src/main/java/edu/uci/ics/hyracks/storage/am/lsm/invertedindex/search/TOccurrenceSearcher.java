@@ -21,6 +21,7 @@ import edu.uci.ics.hyracks.api.context.IHyracksCommonContext;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.storage.am.common.api.IIndexOperationContext;
 import edu.uci.ics.hyracks.storage.am.common.api.IndexException;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedIndex;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedIndexSearchModifier;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedListCursor;
@@ -30,9 +31,13 @@ import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.ondisk.OnDiskInvertedInd
 public class TOccurrenceSearcher extends AbstractTOccurrenceSearcher {
 
     protected final ArrayList<IInvertedListCursor> invListCursors = new ArrayList<IInvertedListCursor>();
+    protected final TopKInvertedListMerger topKMerger;
+    protected float[] invListWeights = new float[0];
 
     public TOccurrenceSearcher(IHyracksCommonContext ctx, IInvertedIndex invIndex) {
         super(ctx, invIndex);
+        this.topKMerger = new TopKInvertedListMerger(MultiComparator.createIgnoreFieldLength(invIndex
+                .getInvListCmpFactories()));
     }
 
     public void search(OnDiskInvertedIndexSearchCursor resultCursor, InvertedIndexSearchPredicate searchPred,
@@ -50,6 +55,11 @@ public class TOccurrenceSearcher extends AbstractTOccurrenceSearcher {
         }
 
         IInvertedIndexSearchModifier searchModifier = searchPred.getSearchModifier();
+        if (searchModifier instanceof TopKSearchModifier) {
+            searchTopK(((TopKSearchModifier) searchModifier).getK());
+            resultCursor.open(null, searchPred);
+            return;
+        }
         occurrenceThreshold = searchModifier.getOccurrenceThreshold(numQueryTokens);
         if (occurrenceThreshold <= 0) {
             throw new OccurrenceThresholdPanicException("Merge threshold is <= 0. Failing Search.");
@@ -60,4 +70,27 @@ public class TOccurrenceSearcher extends AbstractTOccurrenceSearcher {
         invListMerger.merge(invListCursors, occurrenceThreshold, numPrefixLists, searchResult);
         resultCursor.open(null, searchPred);
     }
+
+    private void searchTopK(int k) throws HyracksDataException, IndexException {
+        occurrenceThreshold = 1;
+        int numInvLists = invListCursors.size();
+        if (invListWeights.length < numInvLists) {
+            invListWeights = new float[numInvLists];
+        }
+        long totalNumElements = 0;
+        for (int i = 0; i < numInvLists; i++) {
+            totalNumElements += invListCursors.get(i).size();
+        }
+        for (int i = 0; i < numInvLists; i++) {
+            invListWeights[i] = TopKInvertedListMerger.getWeight(invListCursors.get(i).size(), totalNumElements);
+        }
+        topKMerger.reset(k);
+        topKMerger.merge(invListCursors, invListWeights);
+
+        // The results are appended best first, and carry their score in place of the occurrence count.
+        searchResult.reset();
+        for (int i = 0; i < topKMerger.getNumResults(); i++) {
+            searchResult.append(topKMerger.getResult(i), Float.floatToIntBits(topKMerger.getScore(i)));
+        }
+    }
 }
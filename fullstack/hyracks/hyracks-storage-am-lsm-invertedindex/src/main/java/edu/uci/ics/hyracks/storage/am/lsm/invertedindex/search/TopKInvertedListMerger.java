@@ -0,0 +1,270 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.invertedindex.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleReference;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
+import edu.uci.ics.hyracks.dataflow.common.util.TupleUtils;
+import edu.uci.ics.hyracks.storage.am.common.api.IndexException;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedListCursor;
+
+/**
+ * Finds the K inverted-list elements with the highest scores using the MaxScore strategy.
+ * The inverted indexes keep neither term frequencies nor document lengths, so an element scores the sum of the
+ * weights of the query's lists that contain it. A list weighs ln(1 + total / size), where size is the list length
+ * recorded when the list was written and total is the sum of the lengths of all lists of the query, standing in for
+ * the number of documents, which the index does not record.
+ * The lists are ordered by ascending weight. As soon as the K-th best score reaches the sum of the weights of the
+ * lightest lists, an element that only occurs in those lists can no longer make it into the results. These lists
+ * are then no longer scanned: they are only probed for the candidates found in the other lists, and only as long as
+ * the candidate could still beat the K-th best score.
+ * The results of several calls to merge() are combined, so the lists of the components of an LSM index are merged one
+ * after the other, and the scores found in the earlier components prune the later ones. An element must not occur in
+ * the lists of more than one call.
+ */
+public class TopKInvertedListMerger {
+
+    private static final Comparator<ScoredElement> SCORE_CMP = new Comparator<ScoredElement>() {
+        @Override
+        public int compare(ScoredElement o1, ScoredElement o2) {
+            return Float.compare(o1.score, o2.score);
+        }
+    };
+
+    private final MultiComparator invListCmp;
+    private final int numInvListFields;
+    private int k;
+
+    // The best elements so far, lowest score first.
+    private final PriorityQueue<ScoredElement> topK = new PriorityQueue<ScoredElement>(16, SCORE_CMP);
+    private final ArrayList<ScoredElement> freeElements = new ArrayList<ScoredElement>();
+    private ScoredElement[] sortedResults = new ScoredElement[0];
+    private boolean resultsSorted = true;
+
+    private final ArrayTupleBuilder candidateBuilder;
+    private final ArrayTupleReference candidate = new ArrayTupleReference();
+
+    // Lists of the current merge, ordered by ascending weight.
+    private IInvertedListCursor[] lists = new IInvertedListCursor[0];
+    private float[] listWeights = new float[0];
+    // Sum of the weights of the list and all lighter lists.
+    private float[] upperBounds = new float[0];
+    private boolean[] hasCurrent = new boolean[0];
+
+    public TopKInvertedListMerger(MultiComparator invListCmp) {
+        this.invListCmp = invListCmp;
+        this.numInvListFields = invListCmp.getKeyFieldCount();
+        this.candidateBuilder = new ArrayTupleBuilder(numInvListFields);
+    }
+
+    public static float getWeight(int numElements, long totalNumElements) {
+        if (numElements <= 0) {
+            return 0f;
+        }
+        return (float) Math.log(1.0 + (double) totalNumElements / numElements);
+    }
+
+    public void reset(int k) {
+        this.k = k;
+        freeElements.addAll(topK);
+        topK.clear();
+        resultsSorted = false;
+    }
+
+    /**
+     * Returns the score an element must exceed to become one of the results.
+     */
+    public float getThreshold() {
+        return topK.size() < k ? 0f : topK.peek().score;
+    }
+
+    public void merge(List<IInvertedListCursor> invListCursors, float[] weights) throws HyracksDataException,
+            IndexException {
+        int numLists = orderLists(invListCursors, weights);
+        int firstEssential = getFirstEssentialList(numLists);
+        if (firstEssential == numLists) {
+            return;
+        }
+        int numPinned = 0;
+        try {
+            for (; numPinned < numLists; numPinned++) {
+                lists[numPinned].pinPages();
+            }
+            for (int i = firstEssential; i < numLists; i++) {
+                advance(i);
+            }
+            while (true) {
+                // The next candidate is the smallest current element of the lists that are still scanned.
+                int minIx = -1;
+                for (int i = firstEssential; i < numLists; i++) {
+                    if (hasCurrent[i]
+                            && (minIx < 0 || invListCmp.compare(lists[i].getTuple(), lists[minIx].getTuple()) < 0)) {
+                        minIx = i;
+                    }
+                }
+                if (minIx < 0) {
+                    break;
+                }
+                TupleUtils.copyTuple(candidateBuilder, lists[minIx].getTuple(), numInvListFields);
+                candidate.reset(candidateBuilder.getFieldEndOffsets(), candidateBuilder.getByteArray());
+                float score = 0f;
+                for (int i = firstEssential; i < numLists; i++) {
+                    if (hasCurrent[i] && invListCmp.compare(candidate, lists[i].getTuple()) == 0) {
+                        score += listWeights[i];
+                        advance(i);
+                    }
+                }
+                float threshold = getThreshold();
+                for (int i = firstEssential - 1; i >= 0 && score + upperBounds[i] > threshold; i--) {
+                    if (lists[i].containsKey(candidate, invListCmp)) {
+                        score += listWeights[i];
+                    }
+                }
+                if (score > threshold && isValidResult(candidate)) {
+                    addResult(candidate, score);
+                    firstEssential = getFirstEssentialList(numLists);
+                }
+            }
+        } finally {
+            for (int i = 0; i < numPinned; i++) {
+                lists[i].unpinPages();
+            }
+        }
+    }
+
+    /**
+     * Decides whether a candidate may become a result, e.g., whether it has been deleted. Only called for candidates
+     * that score high enough.
+     */
+    protected boolean isValidResult(ITupleReference element) throws HyracksDataException, IndexException {
+        return true;
+    }
+
+    public int getNumResults() {
+        return topK.size();
+    }
+
+    /**
+     * Returns the i-th best element of all merges since the last reset.
+     */
+    public ITupleReference getResult(int i) {
+        sortResults();
+        return sortedResults[i].tuple;
+    }
+
+    public float getScore(int i) {
+        sortResults();
+        return sortedResults[i].score;
+    }
+
+    private int orderLists(List<IInvertedListCursor> invListCursors, float[] weights) {
+        int numCursors = invListCursors.size();
+        if (lists.length < numCursors) {
+            lists = new IInvertedListCursor[numCursors];
+            listWeights = new float[numCursors];
+            upperBounds = new float[numCursors];
+            hasCurrent = new boolean[numCursors];
+        }
+        int numLists = 0;
+        for (int i = 0; i < numCursors; i++) {
+            IInvertedListCursor cursor = invListCursors.get(i);
+            if (weights[i] <= 0f || cursor.size() == 0) {
+                continue;
+            }
+            int j = numLists++;
+            while (j > 0 && listWeights[j - 1] > weights[i]) {
+                lists[j] = lists[j - 1];
+                listWeights[j] = listWeights[j - 1];
+                j--;
+            }
+            lists[j] = cursor;
+            listWeights[j] = weights[i];
+        }
+        float upperBound = 0f;
+        for (int i = 0; i < numLists; i++) {
+            upperBound += listWeights[i];
+            upperBounds[i] = upperBound;
+            hasCurrent[i] = false;
+        }
+        return numLists;
+    }
+
+    // Lists before the returned one cannot produce a result on their own any more.
+    private int getFirstEssentialList(int numLists) {
+        float threshold = getThreshold();
+        int i = 0;
+        while (i < numLists && upperBounds[i] <= threshold) {
+            i++;
+        }
+        return i;
+    }
+
+    private void advance(int i) throws HyracksDataException, IndexException {
+        hasCurrent[i] = lists[i].hasNext();
+        if (hasCurrent[i]) {
+            lists[i].next();
+        }
+    }
+
+    private void addResult(ITupleReference element, float score) throws HyracksDataException {
+        ScoredElement e;
+        if (topK.size() >= k) {
+            e = topK.poll();
+        } else if (!freeElements.isEmpty()) {
+            e = freeElements.remove(freeElements.size() - 1);
+        } else {
+            e = new ScoredElement(numInvListFields);
+        }
+        e.set(element, score);
+        topK.add(e);
+        resultsSorted = false;
+    }
+
+    private void sortResults() {
+        if (resultsSorted) {
+            return;
+        }
+        sortedResults = topK.toArray(sortedResults);
+        Arrays.sort(sortedResults, 0, topK.size(), Collections.reverseOrder(SCORE_CMP));
+        resultsSorted = true;
+    }
+
+    private static class ScoredElement {
+        private final ArrayTupleBuilder builder;
+        private final ArrayTupleReference tuple = new ArrayTupleReference();
+        private float score;
+
+        public ScoredElement(int numFields) {
+            builder = new ArrayTupleBuilder(numFields);
+        }
+
+        public void set(ITupleReference element, float score) throws HyracksDataException {
+            TupleUtils.copyTuple(builder, element, element.getFieldCount());
+            tuple.reset(builder.getFieldEndOffsets(), builder.getByteArray());
+            this.score = score;
+        }
+    }
+}
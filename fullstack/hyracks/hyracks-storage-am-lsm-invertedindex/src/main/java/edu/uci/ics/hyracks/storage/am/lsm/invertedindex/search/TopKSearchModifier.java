@@ -0,0 +1,66 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package edu.uci.ics.hyracks.storage.am.lsm.invertedindex.search;
+
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedIndexSearchModifier;
+
+/**
+ * Asks for the K best-scoring elements instead of all elements that satisfy an occurrence threshold. An element
+ * scores the IDF weights of the query tokens whose lists contain it (see {@link TopKInvertedListMerger}), and the
+ * results are returned in descending order of score.
+ * The occurrence-threshold methods describe a plain disjunctive search, which is what searchers that do not rank
+ * their results fall back to.
+ */
+public class TopKSearchModifier implements IInvertedIndexSearchModifier {
+
+    private final int k;
+
+    public TopKSearchModifier(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("K must be positive: " + k);
+        }
+        this.k = k;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    @Override
+    public int getOccurrenceThreshold(int numQueryTokens) {
+        return 1;
+    }
+
+    @Override
+    public int getNumPrefixLists(int occurrenceThreshold, int numInvLists) {
+        return numInvLists;
+    }
+
+    @Override
+    public short getNumTokensLowerBound(short numQueryTokens) {
+        return -1;
+    }
+
+    @Override
+    public short getNumTokensUpperBound(short numQueryTokens) {
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "Top-K Search Modifier, K: " + k;
+    }
+}
@@ -19,10 +19,14 @@
 
 package edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers;
 
+import java.util.Arrays;
+
 import edu.uci.ics.hyracks.data.std.primitive.UTF8StringPointable;
 
 public abstract class AbstractUTF8StringBinaryTokenizer implements IBinaryTokenizer {
 
+    private static final int INITIAL_TOKEN_TABLE_SIZE = 64;
+
     protected byte[] data;
     protected int start;
     protected int length;
@@ -30,8 +34,14 @@ public abstract class AbstractUTF8StringBinaryTokenizer implements IBinaryTokeni
     protected int index;
     protected int utf8Length;
 
+    // distinct tokens of the current string, to count repeated tokens: start offset and length in characters of the
+    // first occurrence, lower-case hash and number of occurrences so far
     protected final IntArray tokensStart;
     protected final IntArray tokensLength;
+    protected final IntArray tokensHash;
+    protected final IntArray tokensCount;
+    // open addressing table over the distinct tokens, holding token index + 1 (0 is an empty slot)
+    protected int[] tokenTable;
     protected final IToken token;
 
     protected final boolean ignoreTokenCount;
@@ -44,9 +54,14 @@ public abstract class AbstractUTF8StringBinaryTokenizer implements IBinaryTokeni
         if (!ignoreTokenCount) {
             tokensStart = new IntArray();
             tokensLength = new IntArray();
+            tokensHash = new IntArray();
+            tokensCount = new IntArray();
+            tokenTable = new int[INITIAL_TOKEN_TABLE_SIZE];
         } else {
             tokensStart = null;
             tokensLength = null;
+            tokensHash = null;
+            tokensCount = null;
         }
         token = tokenFactory.createToken();
     }
@@ -70,8 +85,90 @@ public abstract class AbstractUTF8StringBinaryTokenizer implements IBinaryTokeni
 
         tokenLength = 0;
         if (!ignoreTokenCount) {
+            if (tokensStart.length() > 0) {
+                Arrays.fill(tokenTable, 0);
+            }
             tokensStart.reset();
             tokensLength.reset();
+            tokensHash.reset();
+            tokensCount.reset();
+        }
+    }
+
+    /**
+     * Records an occurrence of a token of the current string and returns how often the token, compared case
+     * insensitively, has occurred so far including this occurrence. Only tokens with the same lower-case hash and
+     * length are compared character by character.
+     *
+     * @param tokenStart
+     *            - Offset of the token's first byte
+     * @param tokenLength
+     *            - Length of the token in characters
+     * @param hash
+     *            - Hash of the lower-cased characters of the token
+     */
+    protected int countToken(int tokenStart, int tokenLength, int hash) {
+        int mask = tokenTable.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        int entry;
+        while ((entry = tokenTable[slot]) != 0) {
+            int i = entry - 1;
+            if (tokensHash.get(i) == hash && tokensLength.get(i) == tokenLength
+                    && equalsIgnoreCase(tokensStart.get(i), tokenStart, tokenLength)) {
+                int count = tokensCount.get(i) + 1;
+                tokensCount.set(i, count);
+                return count;
+            }
+            slot = (slot + 1) & mask;
+        }
+        tokensStart.add(tokenStart);
+        tokensLength.add(tokenLength);
+        tokensHash.add(hash);
+        tokensCount.add(1);
+        tokenTable[slot] = tokensStart.length();
+        if (tokensStart.length() * 2 > tokenTable.length) {
+            growTokenTable();
+        }
+        return 1;
+    }
+
+    private void growTokenTable() {
+        tokenTable = new int[tokenTable.length * 2];
+        int mask = tokenTable.length - 1;
+        for (int i = 0; i < tokensHash.length(); i++) {
+            int hash = tokensHash.get(i);
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (tokenTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            tokenTable[slot] = i + 1;
+        }
+    }
+
+    private boolean equalsIgnoreCase(int pos1, int pos2, int tokenLength) {
+        for (int i = 0; i < tokenLength; i++) {
+            if (Character.toLowerCase(UTF8StringPointable.charAt(data, pos1)) != Character
+                    .toLowerCase(UTF8StringPointable.charAt(data, pos2))) {
+                return false;
+            }
+            pos1 += UTF8StringPointable.charSize(data, pos1);
+            pos2 += UTF8StringPointable.charSize(data, pos2);
+        }
+        return true;
+    }
+
+    /**
+     * Hashes the lower-cased characters of a token the same way {@link HashedUTF8WordToken} does, without the token
+     * count.
+     */
+    protected int lowerCaseHash(int tokenStart, int tokenLength) {
+        int hash = AbstractUTF8Token.GOLDEN_RATIO_32;
+        int pos = tokenStart;
+        for (int i = 0; i < tokenLength; i++) {
+            hash ^= Character.toLowerCase(UTF8StringPointable.charAt(data, pos));
+            hash *= AbstractUTF8Token.GOLDEN_RATIO_32;
+            pos += UTF8StringPointable.charSize(data, pos);
         }
+        return hash;
     }
 }
@@ -23,59 +23,89 @@ import edu.uci.ics.hyracks.data.std.primitive.UTF8StringPointable;
 
 public class DelimitedUTF8StringBinaryTokenizer extends AbstractUTF8StringBinaryTokenizer {
 
+    // separator flags and lower-case characters for single-byte (ASCII) characters, which are decided without
+    // decoding the character
+    private static final boolean[] ASCII_SEPARATOR = new boolean[128];
+    private static final char[] ASCII_LOWER_CASE = new char[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            ASCII_SEPARATOR[c] = isSeparator(c);
+            ASCII_LOWER_CASE[c] = Character.toLowerCase(c);
+        }
+    }
+
+    // set if the token takes a precomputed hash, so the hash computed while scanning is not computed again
+    private final HashedUTF8WordToken hashedToken;
+
     public DelimitedUTF8StringBinaryTokenizer(boolean ignoreTokenCount, boolean sourceHasTypeTag,
             ITokenFactory tokenFactory) {
         super(ignoreTokenCount, sourceHasTypeTag, tokenFactory);
+        hashedToken = token instanceof HashedUTF8WordToken ? (HashedUTF8WordToken) token : null;
     }
 
     @Override
     public boolean hasNext() {
         // skip delimiters
-        while (index < length && isSeparator(UTF8StringPointable.charAt(data, index))) {
-            index += UTF8StringPointable.charSize(data, index);
+        while (index < length) {
+            byte b = data[index];
+            if (b >= 0) {
+                if (!ASCII_SEPARATOR[b]) {
+                    break;
+                }
+                index++;
+            } else {
+                if (!isSeparator(UTF8StringPointable.charAt(data, index))) {
+                    break;
+                }
+                index += UTF8StringPointable.charSize(data, index);
+            }
         }
         return index < length;
     }
 
-    private boolean isSeparator(char c) {
-        return !(Character.isLetterOrDigit(c) || Character.getType(c) == Character.OTHER_LETTER || Character.getType(c) == Character.OTHER_NUMBER);
+    private static boolean isSeparator(char c) {
+        return !(Character.isLetterOrDigit(c) || Character.getType(c) == Character.OTHER_LETTER || Character
+                .getType(c) == Character.OTHER_NUMBER);
     }
 
     @Override
     public void next() {
         tokenLength = 0;
         int currentTokenStart = index;
-        while (index < length && !isSeparator(UTF8StringPointable.charAt(data, index))) {
-            index += UTF8StringPointable.charSize(data, index);
+        // scan the token and hash its lower-cased characters in the same pass
+        int hash = AbstractUTF8Token.GOLDEN_RATIO_32;
+        while (index < length) {
+            byte b = data[index];
+            char c;
+            if (b >= 0) {
+                if (ASCII_SEPARATOR[b]) {
+                    break;
+                }
+                c = ASCII_LOWER_CASE[b];
+                index++;
+            } else {
+                c = UTF8StringPointable.charAt(data, index);
+                if (isSeparator(c)) {
+                    break;
+                }
+                c = Character.toLowerCase(c);
+                index += UTF8StringPointable.charSize(data, index);
+            }
+            hash ^= c;
+            hash *= AbstractUTF8Token.GOLDEN_RATIO_32;
             tokenLength++;
         }
         int tokenCount = 1;
         if (tokenLength > 0 && !ignoreTokenCount) {
-            // search if we got the same token before
-            for (int i = 0; i < tokensStart.length(); ++i) {
-                if (tokenLength == tokensLength.get(i)) {
-                    int tokenStart = tokensStart.get(i);
-                    tokenCount++; // assume we found it
-                    int offset = 0;
-                    int currLength = 0;
-                    while (currLength < tokenLength) {
-                        // case insensitive comparison
-                        if (Character.toLowerCase(UTF8StringPointable.charAt(data, currentTokenStart + offset)) != Character
-                                .toLowerCase(UTF8StringPointable.charAt(data, tokenStart + offset))) {
-                            tokenCount--;
-                            break;
-                        }
-                        offset += UTF8StringPointable.charSize(data, currentTokenStart + offset);
-                        currLength++;
-                    }
-                }
-            }
-            // add the new token to the list of seen tokens
-            tokensStart.add(currentTokenStart);
-            tokensLength.add(tokenLength);
+            tokenCount = countToken(currentTokenStart, tokenLength, hash);
         }
 
         // set token
-        token.reset(data, currentTokenStart, index, tokenLength, tokenCount);
+        if (hashedToken != null) {
+            hashedToken.reset(data, currentTokenStart, index, tokenLength, tokenCount, hash);
+        } else {
+            token.reset(data, currentTokenStart, index, tokenLength, tokenCount);
+        }
     }
-}
\ No newline at end of file
+}
@@ -75,6 +75,14 @@ public class HashedUTF8WordToken extends UTF8WordToken {
         hash += tokenCount;
     }
 
+    /**
+     * Resets the token with the hash of its lower-cased characters already computed by the tokenizer.
+     */
+    public void reset(byte[] data, int start, int length, int tokenLength, int tokenCount, int lowerCaseHash) {
+        super.reset(data, start, length, tokenLength, tokenCount);
+        hash = lowerCaseHash + tokenCount;
+    }
+
     @Override
     public void serializeToken(GrowableArray out) throws IOException {
         if (tokenTypeTag > 0) {
@@ -47,6 +47,10 @@ public class IntArray {
         return data[i];
     }
 
+    public void set(int i, int d) {
+        data[i] = d;
+    }
+
     public int length() {
         return length;
     }
@@ -34,6 +34,19 @@ public class UTF8WordToken extends AbstractUTF8Token {
     @Override
     public void serializeToken(GrowableArray out) throws IOException {
         handleTokenTypeTag(out.getDataOutput());
+        if (length - start == tokenLength) {
+            // only single-byte characters: copy the bytes and lower-case them in place
+            out.getDataOutput().writeShort(tokenLength);
+            int off = out.getLength();
+            out.getDataOutput().write(data, start, tokenLength);
+            byte[] bytes = out.getByteArray();
+            for (int i = off; i < off + tokenLength; i++) {
+                if (bytes[i] >= 'A' && bytes[i] <= 'Z') {
+                    bytes[i] += 'a' - 'A';
+                }
+            }
+            return;
+        }
         int tokenUTF8LenOff = out.getLength();
         int tokenUTF8Len = 0;
         // Write dummy UTF length which will be correctly set later.
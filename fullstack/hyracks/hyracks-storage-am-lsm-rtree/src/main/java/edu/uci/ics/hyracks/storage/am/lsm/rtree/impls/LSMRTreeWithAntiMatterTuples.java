@@ -54,6 +54,8 @@ import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMOperationTrackerFactory
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LSMComponentFileReferences;
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LSMTreeIndexAccessor;
 import edu.uci.ics.hyracks.storage.am.lsm.common.impls.TreeIndexFactory;
+import edu.uci.ics.hyracks.storage.am.rtree.api.IRTreeNearestNeighborAccessor;
+import edu.uci.ics.hyracks.storage.am.rtree.impls.NearestNeighborSearchPredicate;
 import edu.uci.ics.hyracks.storage.am.rtree.impls.RTree;
 import edu.uci.ics.hyracks.storage.am.rtree.impls.RTreeSearchCursor;
 import edu.uci.ics.hyracks.storage.am.rtree.impls.SearchPredicate;
@@ -153,6 +155,10 @@ public class LSMRTreeWithAntiMatterTuples extends AbstractLSMRTree {
     @Override
     public void search(ILSMIndexOperationContext ictx, IIndexCursor cursor, ISearchPredicate pred)
             throws HyracksDataException, IndexException {
+        if (pred instanceof NearestNeighborSearchPredicate) {
+            nearestNeighborSearch(ictx, cursor, (NearestNeighborSearchPredicate) pred);
+            return;
+        }
         LSMRTreeOpContext ctx = (LSMRTreeOpContext) ictx;
         List<ILSMComponent> operationalComponents = ictx.getComponentHolder();
         boolean includeMutableComponent = operationalComponents.get(0) == mutableComponent;
@@ -195,6 +201,46 @@ public class LSMRTreeWithAntiMatterTuples extends AbstractLSMRTree {
         lsmTreeCursor.initPriorityQueue();
     }
 
+    private void nearestNeighborSearch(ILSMIndexOperationContext ictx, IIndexCursor cursor,
+            NearestNeighborSearchPredicate pred) throws HyracksDataException, IndexException {
+        LSMRTreeOpContext ctx = (LSMRTreeOpContext) ictx;
+        List<ILSMComponent> operationalComponents = ictx.getComponentHolder();
+        boolean includeMutableComponent = operationalComponents.get(0) == mutableComponent;
+        LSMRTreeWithAntiMatterTuplesNearestNeighborSearchCursor lsmTreeCursor;
+        lsmTreeCursor = (LSMRTreeWithAntiMatterTuplesNearestNeighborSearchCursor) cursor;
+        int numComponents = operationalComponents.size();
+
+        ITreeIndexAccessor[] bTreeAccessors = null;
+        if (includeMutableComponent) {
+            // Only in-memory BTree
+            bTreeAccessors = new ITreeIndexAccessor[1];
+            bTreeAccessors[0] = ctx.memBTreeAccessor;
+        }
+        LSMRTreeCursorInitialState initialState = new LSMRTreeCursorInitialState(numComponents,
+                rtreeLeafFrameFactory, rtreeInteriorFrameFactory, btreeLeafFrameFactory,
+                ctx.getBTreeMultiComparator(), null, bTreeAccessors, includeMutableComponent, lsmHarness,
+                comparatorFields, linearizerArray, ctx.searchCallback, operationalComponents);
+        lsmTreeCursor.open(initialState, pred);
+
+        // The in-memory RTree, if any, is the first and newest component.
+        NearestNeighborSearchPredicate componentPred = lsmTreeCursor.getComponentPredicate();
+        ListIterator<ILSMComponent> componentsIter = operationalComponents.listIterator();
+        int componentIx = 0;
+        if (includeMutableComponent) {
+            ctx.memRTreeAccessor.search(lsmTreeCursor.getCursor(componentIx), componentPred);
+            componentIx++;
+            componentsIter.next();
+        }
+        while (componentsIter.hasNext()) {
+            RTree diskRTree = (RTree) ((LSMRTreeImmutableComponent) componentsIter.next()).getRTree();
+            ITreeIndexAccessor diskRTreeAccessor = diskRTree.createAccessor(NoOpOperationCallback.INSTANCE,
+                    NoOpOperationCallback.INSTANCE);
+            diskRTreeAccessor.search(lsmTreeCursor.getCursor(componentIx), componentPred);
+            componentIx++;
+        }
+        lsmTreeCursor.initPriorityQueue();
+    }
+
     @Override
     public boolean scheduleFlush(ILSMIndexOperationContext ctx, ILSMIOOperationCallback callback)
             throws HyracksDataException {
@@ -353,7 +399,8 @@ public class LSMRTreeWithAntiMatterTuples extends AbstractLSMRTree {
         return new LSMRTreeWithAntiMatterTuplesAccessor(lsmHarness, createOpContext(modificationCallback));
     }
 
-    public class LSMRTreeWithAntiMatterTuplesAccessor extends LSMTreeIndexAccessor {
+    public class LSMRTreeWithAntiMatterTuplesAccessor extends LSMTreeIndexAccessor implements
+            IRTreeNearestNeighborAccessor {
         public LSMRTreeWithAntiMatterTuplesAccessor(ILSMHarness lsmHarness, ILSMIndexOperationContext ctx) {
             super(lsmHarness, ctx);
         }
@@ -363,6 +410,11 @@ public class LSMRTreeWithAntiMatterTuples extends AbstractLSMRTree {
             return new LSMRTreeWithAntiMatterTuplesSearchCursor(ctx);
         }
 
+        @Override
+        public ITreeIndexCursor createNearestNeighborSearchCursor() {
+            return new LSMRTreeWithAntiMatterTuplesNearestNeighborSearchCursor(ctx);
+        }
+
         public MultiComparator getMultiComparator() {
             LSMRTreeOpContext concreteCtx = (LSMRTreeOpContext) ctx;
             return concreteCtx.rtreeOpContext.cmp;
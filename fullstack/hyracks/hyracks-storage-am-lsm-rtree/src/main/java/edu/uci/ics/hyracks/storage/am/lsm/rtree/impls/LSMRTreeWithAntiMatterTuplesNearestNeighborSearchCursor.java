@@ -0,0 +1,209 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.am.lsm.rtree.impls;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
+import edu.uci.ics.hyracks.storage.am.btree.api.IBTreeLeafFrame;
+import edu.uci.ics.hyracks.storage.am.btree.impls.BTreeRangeSearchCursor;
+import edu.uci.ics.hyracks.storage.am.btree.impls.RangePredicate;
+import edu.uci.ics.hyracks.storage.am.common.api.ICursorInitialState;
+import edu.uci.ics.hyracks.storage.am.common.api.ISearchPredicate;
+import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndexAccessor;
+import edu.uci.ics.hyracks.storage.am.common.api.IndexException;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
+import edu.uci.ics.hyracks.storage.am.lsm.common.api.ILSMIndexOperationContext;
+import edu.uci.ics.hyracks.storage.am.lsm.common.impls.LSMIndexSearchCursor;
+import edu.uci.ics.hyracks.storage.am.rtree.api.IRTreeInteriorFrame;
+import edu.uci.ics.hyracks.storage.am.rtree.api.IRTreeLeafFrame;
+import edu.uci.ics.hyracks.storage.am.rtree.impls.NearestNeighborSearchPredicate;
+import edu.uci.ics.hyracks.storage.am.rtree.impls.RTreeNearestNeighborSearchCursor;
+
+/**
+ * Merges the nearest neighbor streams of all components. Every component returns all its tuples in (distance, tuple)
+ * order, so copies of the same tuple meet at the head of the priority queue, newest component first. A tuple is
+ * dropped if its newest copy is an antimatter tuple or if it was deleted in the in-memory BTree, and the merge stops
+ * after k live tuples.
+ */
+public class LSMRTreeWithAntiMatterTuplesNearestNeighborSearchCursor extends LSMIndexSearchCursor {
+
+    private BTreeRangeSearchCursor memBTreeCursor;
+    private RangePredicate btreeRangePredicate;
+    private ITreeIndexAccessor memBTreeAccessor;
+    private NearestNeighborSearchPredicate componentPred;
+    private int k;
+    private int resultCount;
+
+    public LSMRTreeWithAntiMatterTuplesNearestNeighborSearchCursor(ILSMIndexOperationContext opCtx) {
+        super(opCtx);
+    }
+
+    @Override
+    public void open(ICursorInitialState initialState, ISearchPredicate searchPred) throws HyracksDataException {
+        LSMRTreeCursorInitialState lsmInitialState = (LSMRTreeCursorInitialState) initialState;
+        NearestNeighborSearchPredicate pred = (NearestNeighborSearchPredicate) searchPred;
+        cmp = lsmInitialState.getBTreeCmp();
+        k = pred.getK();
+        resultCount = 0;
+        // Identical tuples of different components must be adjacent in the merged stream, so the components
+        // break distance ties on all fields. A component cannot stop at k since some of its tuples may be deleted.
+        componentPred = new NearestNeighborSearchPredicate(pred.getQueryPoint(),
+                NearestNeighborSearchPredicate.UNLIMITED, pred.getLowKeyComparator(), pred.getKeyValueProviders(), cmp);
+        int numTrees = lsmInitialState.getNumberOfTrees();
+        rangeCursors = new RTreeNearestNeighborSearchCursor[numTrees];
+        for (int i = 0; i < numTrees; i++) {
+            rangeCursors[i] = new RTreeNearestNeighborSearchCursor((IRTreeInteriorFrame) lsmInitialState
+                    .getRTreeInteriorFrameFactory().createFrame(), (IRTreeLeafFrame) lsmInitialState
+                    .getRTreeLeafFrameFactory().createFrame());
+        }
+        includeMemComponent = lsmInitialState.getIncludeMemComponent();
+        operationalComponents = lsmInitialState.getOperationalComponents();
+        if (includeMemComponent) {
+            memBTreeCursor = new BTreeRangeSearchCursor((IBTreeLeafFrame) lsmInitialState.getBTreeLeafFrameFactory()
+                    .createFrame(), false);
+            memBTreeAccessor = lsmInitialState.getBTreeAccessors()[0];
+            btreeRangePredicate = new RangePredicate(null, null, true, true, cmp, cmp);
+        }
+        lsmHarness = lsmInitialState.getLSMHarness();
+        setPriorityQueueComparator();
+    }
+
+    /**
+     * Returns the predicate the cursors of the components are opened with.
+     */
+    public NearestNeighborSearchPredicate getComponentPredicate() {
+        return componentPred;
+    }
+
+    @Override
+    public boolean hasNext() throws HyracksDataException, IndexException {
+        if (resultCount >= k) {
+            return false;
+        }
+        return super.hasNext();
+    }
+
+    @Override
+    public void next() throws HyracksDataException {
+        super.next();
+        resultCount++;
+    }
+
+    @Override
+    public void reset() throws HyracksDataException, IndexException {
+        if (includeMemComponent) {
+            memBTreeCursor.reset();
+        }
+        resultCount = 0;
+        super.reset();
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        if (includeMemComponent) {
+            memBTreeCursor.close();
+        }
+        super.close();
+    }
+
+    @Override
+    protected boolean isDeleted(PriorityQueueElement checkElement) throws HyracksDataException, IndexException {
+        if (super.isDeleted(checkElement)) {
+            return true;
+        }
+        return includeMemComponent && searchMemBTree(checkElement.getTuple());
+    }
+
+    private boolean searchMemBTree(ITupleReference tuple) throws HyracksDataException, IndexException {
+        btreeRangePredicate.setHighKey(tuple, true);
+        btreeRangePredicate.setLowKey(tuple, true);
+        memBTreeAccessor.search(memBTreeCursor, btreeRangePredicate);
+        try {
+            return memBTreeCursor.hasNext();
+        } finally {
+            memBTreeCursor.close();
+        }
+    }
+
+    private double getDistance(PriorityQueueElement e) {
+        return ((RTreeNearestNeighborSearchCursor) rangeCursors[e.getCursorIndex()]).getDistance();
+    }
+
+    @Override
+    protected void setPriorityQueueComparator() {
+        if (pqCmp == null || cmp != pqCmp.getMultiComparator()) {
+            pqCmp = new PriorityQueueDistanceComparator(cmp);
+        }
+    }
+
+    public class PriorityQueueDistanceComparator extends PriorityQueueComparator {
+
+        public PriorityQueueDistanceComparator(MultiComparator cmp) {
+            super(cmp);
+        }
+
+        @Override
+        public int compare(PriorityQueueElement elementA, PriorityQueueElement elementB) {
+            int result = Double.compare(getDistance(elementA), getDistance(elementB));
+            if (result != 0) {
+                return result;
+            }
+            return super.compare(elementA, elementB);
+        }
+    }
+
+    @Override
+    protected void checkPriorityQueue() throws HyracksDataException, IndexException {
+        while (!outputPriorityQueue.isEmpty() || needPush == true) {
+            if (!outputPriorityQueue.isEmpty()) {
+                PriorityQueueElement checkElement = outputPriorityQueue.peek();
+                // If there is no previous tuple or the previous tuple can be ignored
+                if (outputElement == null) {
+                    if (isDeleted(checkElement)) {
+                        // If the tuple has been deleted then pop it and set needPush to true.
+                        // We cannot push immediately because the tuple may be
+                        // modified if hasNext() is called
+                        outputElement = outputPriorityQueue.poll();
+                        needPush = true;
+                    } else {
+                        break;
+                    }
+                } else {
+                    // Compare the previous tuple and the head tuple in the PQ
+                    if (compare(cmp, outputElement.getTuple(), checkElement.getTuple()) == 0) {
+                        // If the previous tuple and the head tuple are identical
+                        // then pop the head tuple and push the next tuple from
+                        // the tree of head tuple
+                        PriorityQueueElement e = outputPriorityQueue.poll();
+                        pushIntoPriorityQueue(e);
+                    } else {
+                        // If the previous tuple and the head tuple are different
+                        // the info of previous tuple is useless
+                        if (needPush == true) {
+                            pushIntoPriorityQueue(outputElement);
+                            needPush = false;
+                        }
+                        outputElement = null;
+                    }
+                }
+            } else {
+                // the priority queue is empty and needPush
+                pushIntoPriorityQueue(outputElement);
+                needPush = false;
+                outputElement = null;
+            }
+        }
+    }
+}
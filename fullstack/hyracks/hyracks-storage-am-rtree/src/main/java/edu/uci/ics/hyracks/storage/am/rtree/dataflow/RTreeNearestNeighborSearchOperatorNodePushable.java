@@ -0,0 +1,69 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.am.rtree.dataflow;
+
+import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
+import edu.uci.ics.hyracks.api.dataflow.value.IRecordDescriptorProvider;
+import edu.uci.ics.hyracks.storage.am.common.api.IIndexCursor;
+import edu.uci.ics.hyracks.storage.am.common.api.IPrimitiveValueProvider;
+import edu.uci.ics.hyracks.storage.am.common.api.IPrimitiveValueProviderFactory;
+import edu.uci.ics.hyracks.storage.am.common.api.ISearchPredicate;
+import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndex;
+import edu.uci.ics.hyracks.storage.am.common.dataflow.AbstractTreeIndexOperatorDescriptor;
+import edu.uci.ics.hyracks.storage.am.common.dataflow.IndexSearchOperatorNodePushable;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
+import edu.uci.ics.hyracks.storage.am.common.tuples.PermutingFrameTupleReference;
+import edu.uci.ics.hyracks.storage.am.rtree.api.IRTreeNearestNeighborAccessor;
+import edu.uci.ics.hyracks.storage.am.rtree.impls.NearestNeighborSearchPredicate;
+
+public class RTreeNearestNeighborSearchOperatorNodePushable extends IndexSearchOperatorNodePushable {
+    protected final PermutingFrameTupleReference queryPoint;
+    protected final int k;
+    protected final IPrimitiveValueProviderFactory[] valueProviderFactories;
+
+    public RTreeNearestNeighborSearchOperatorNodePushable(AbstractTreeIndexOperatorDescriptor opDesc,
+            IHyracksTaskContext ctx, int partition, IRecordDescriptorProvider recordDescProvider, int[] keyFields,
+            int k, IPrimitiveValueProviderFactory[] valueProviderFactories) {
+        super(opDesc, ctx, partition, recordDescProvider);
+        this.queryPoint = new PermutingFrameTupleReference();
+        this.queryPoint.setFieldPermutation(keyFields);
+        this.k = k;
+        this.valueProviderFactories = valueProviderFactories;
+    }
+
+    @Override
+    protected ISearchPredicate createSearchPredicate() {
+        ITreeIndex treeIndex = (ITreeIndex) index;
+        MultiComparator cmp = MultiComparator.create(treeIndex.getComparatorFactories());
+        IPrimitiveValueProvider[] valueProviders = new IPrimitiveValueProvider[valueProviderFactories.length];
+        for (int i = 0; i < valueProviders.length; i++) {
+            valueProviders[i] = valueProviderFactories[i].createPrimitiveValueProvider();
+        }
+        return new NearestNeighborSearchPredicate(queryPoint, k, cmp, valueProviders, null);
+    }
+
+    @Override
+    protected IIndexCursor createCursor() {
+        if (!(indexAccessor instanceof IRTreeNearestNeighborAccessor)) {
+            throw new IllegalStateException("The index does not support nearest neighbor search.");
+        }
+        return ((IRTreeNearestNeighborAccessor) indexAccessor).createNearestNeighborSearchCursor();
+    }
+
+    @Override
+    protected void resetSearchPredicate(int tupleIndex) {
+        queryPoint.reset(accessor, tupleIndex);
+    }
+}
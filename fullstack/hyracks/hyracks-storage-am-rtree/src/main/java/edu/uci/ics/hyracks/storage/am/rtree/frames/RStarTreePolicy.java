@@ -235,20 +235,17 @@ public class RStarTreePolicy implements IRTreePolicy {
 
     public void generateDist(ITreeIndexFrame leftRTreeFrame, ITreeIndexTupleReference frameTuple,
             ITupleReference tuple, TupleEntryArrayList entries, Rectangle rec, int start, int end) {
-        int j = 0;
-        while (entries.get(j).getTupleIndex() == -1) {
-            j++;
-        }
-        frameTuple.resetByTupleIndex(leftRTreeFrame, entries.get(j).getTupleIndex());
-        rec.set(frameTuple, keyValueProviders);
+        // The MBR of the entries in [start, end) only, the new tuple is the entry with index -1.
         for (int i = start; i < end; ++i) {
-            if (i != j) {
-                if (entries.get(i).getTupleIndex() != -1) {
-                    frameTuple.resetByTupleIndex(leftRTreeFrame, entries.get(i).getTupleIndex());
-                    rec.enlarge(frameTuple, keyValueProviders);
-                } else {
-                    rec.enlarge(tuple, keyValueProviders);
-                }
+            ITupleReference entry = tuple;
+            if (entries.get(i).getTupleIndex() != -1) {
+                frameTuple.resetByTupleIndex(leftRTreeFrame, entries.get(i).getTupleIndex());
+                entry = frameTuple;
+            }
+            if (i == start) {
+                rec.set(entry, keyValueProviders);
+            } else {
+                rec.enlarge(entry, keyValueProviders);
             }
         }
     }
@@ -297,11 +294,12 @@ public class RStarTreePolicy implements IRTreePolicy {
 
                         int c = ((RTreeNSMInteriorFrame) frame).pointerCmp(frameTuple, cmpFrameTuple, cmp);
                         if (c != 0) {
-                            double intersection = RTreeComputationUtils.overlappedArea(frameTuple, tuple,
-                                    cmpFrameTuple, cmp, keyValueProviders);
+                            // overlap the candidate gains with this entry when it is enlarged by the tuple
+                            double intersection = RTreeComputationUtils.overlappedArea(cmpFrameTuple, tuple,
+                                    frameTuple, cmp, keyValueProviders);
                             if (intersection != 0.0) {
                                 difference += intersection
-                                        - RTreeComputationUtils.overlappedArea(frameTuple, null, cmpFrameTuple, cmp,
+                                        - RTreeComputationUtils.overlappedArea(cmpFrameTuple, null, frameTuple, cmp,
                                                 keyValueProviders);
                             }
                         } else {
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.am.rtree.impls;
+
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
+import edu.uci.ics.hyracks.storage.am.common.api.IPrimitiveValueProvider;
+import edu.uci.ics.hyracks.storage.am.common.api.ISearchPredicate;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
+
+/**
+ * Asks for the k entries closest to a query point. The query point has one field per dimension, of the same type as
+ * the low (and high) key fields of the R-tree. Distances are squared Euclidean distances between the point and the
+ * MBR of an entry, so for point data they order entries exactly like the Euclidean distance.
+ * Entries at the same distance are returned in the order of the tie-break comparator if one is given, and in no
+ * particular order otherwise.
+ */
+public class NearestNeighborSearchPredicate implements ISearchPredicate {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    protected ITupleReference queryPoint;
+    protected int k;
+    protected final MultiComparator cmp;
+    protected final IPrimitiveValueProvider[] keyValueProviders;
+    protected final MultiComparator tieBreakCmp;
+
+    /**
+     * @param queryPoint
+     *            - One field per dimension
+     * @param k
+     *            - Number of entries to return, or {@link #UNLIMITED} to return all entries in distance order
+     * @param cmp
+     *            - Comparator over the 2 * dim key fields of the R-tree
+     * @param keyValueProviders
+     *            - One value provider per key field of the R-tree
+     * @param tieBreakCmp
+     *            - Orders entries at the same distance, may be null
+     */
+    public NearestNeighborSearchPredicate(ITupleReference queryPoint, int k, MultiComparator cmp,
+            IPrimitiveValueProvider[] keyValueProviders, MultiComparator tieBreakCmp) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("The number of neighbors must be positive: " + k);
+        }
+        this.queryPoint = queryPoint;
+        this.k = k;
+        this.cmp = cmp;
+        this.keyValueProviders = keyValueProviders;
+        this.tieBreakCmp = tieBreakCmp;
+    }
+
+    public ITupleReference getQueryPoint() {
+        return queryPoint;
+    }
+
+    public void setQueryPoint(ITupleReference queryPoint) {
+        this.queryPoint = queryPoint;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public void setK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("The number of neighbors must be positive: " + k);
+        }
+        this.k = k;
+    }
+
+    public int getDimensions() {
+        return keyValueProviders.length / 2;
+    }
+
+    public IPrimitiveValueProvider[] getKeyValueProviders() {
+        return keyValueProviders;
+    }
+
+    public MultiComparator getTieBreakComparator() {
+        return tieBreakCmp;
+    }
+
+    /**
+     * Reads the coordinates of the query point into the given array.
+     */
+    public void getQueryPointValues(double[] point) {
+        for (int i = 0; i < point.length; i++) {
+            point[i] = keyValueProviders[i].getValue(queryPoint.getFieldData(i), queryPoint.getFieldStart(i));
+        }
+    }
+
+    /**
+     * Returns the squared distance between the point and the closest point of the MBR stored in the first 2 * dim
+     * fields of the tuple, which is 0 if the MBR contains the point.
+     */
+    public double computeMinDistance(double[] point, ITupleReference mbr) {
+        int dim = point.length;
+        double dist = 0.0;
+        for (int i = 0; i < dim; i++) {
+            int j = dim + i;
+            double low = keyValueProviders[i].getValue(mbr.getFieldData(i), mbr.getFieldStart(i));
+            double high = keyValueProviders[j].getValue(mbr.getFieldData(j), mbr.getFieldStart(j));
+            double d = 0.0;
+            if (point[i] < low) {
+                d = low - point[i];
+            } else if (point[i] > high) {
+                d = point[i] - high;
+            }
+            dist += d * d;
+        }
+        return dist;
+    }
+
+    @Override
+    public MultiComparator getLowKeyComparator() {
+        return cmp;
+    }
+
+    @Override
+    public MultiComparator getHighKeyComparator() {
+        return cmp;
+    }
+}
@@ -48,6 +48,7 @@ import edu.uci.ics.hyracks.storage.am.common.util.TreeIndexUtils;
 import edu.uci.ics.hyracks.storage.am.rtree.api.IRTreeFrame;
 import edu.uci.ics.hyracks.storage.am.rtree.api.IRTreeInteriorFrame;
 import edu.uci.ics.hyracks.storage.am.rtree.api.IRTreeLeafFrame;
+import edu.uci.ics.hyracks.storage.am.rtree.api.IRTreeNearestNeighborAccessor;
 import edu.uci.ics.hyracks.storage.am.rtree.frames.RTreeNSMFrame;
 import edu.uci.ics.hyracks.storage.am.rtree.frames.RTreeNSMInteriorFrame;
 import edu.uci.ics.hyracks.storage.am.rtree.tuples.RTreeTypeAwareTupleWriter;
@@ -744,7 +745,7 @@ public class RTree extends AbstractTreeIndex {
         cursor.setBufferCache(bufferCache);
         cursor.setFileId(fileId);
         ctx.cursorInitialState.setRootPage(rootPage);
-        ctx.cursor.open(ctx.cursorInitialState, (SearchPredicate) searchPred);
+        ctx.cursor.open(ctx.cursorInitialState, searchPred);
     }
 
     private void update(ITupleReference tuple, RTreeOpContext ctx) {
@@ -784,7 +785,7 @@ public class RTree extends AbstractTreeIndex {
         return new RTreeAccessor(this, modificationCallback, searchCallback);
     }
 
-    public class RTreeAccessor implements ITreeIndexAccessor {
+    public class RTreeAccessor implements ITreeIndexAccessor, IRTreeNearestNeighborAccessor {
         private RTree rtree;
         private RTreeOpContext ctx;
 
@@ -818,6 +819,12 @@ public class RTree extends AbstractTreeIndex {
                     (IRTreeLeafFrame) leafFrameFactory.createFrame());
         }
 
+        @Override
+        public ITreeIndexCursor createNearestNeighborSearchCursor() {
+            return new RTreeNearestNeighborSearchCursor((IRTreeInteriorFrame) interiorFrameFactory.createFrame(),
+                    (IRTreeLeafFrame) leafFrameFactory.createFrame());
+        }
+
         @Override
         public void search(IIndexCursor cursor, ISearchPredicate searchPred) throws HyracksDataException,
                 IndexException {
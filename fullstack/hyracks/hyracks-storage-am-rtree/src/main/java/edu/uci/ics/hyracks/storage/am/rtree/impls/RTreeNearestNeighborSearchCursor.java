@@ -0,0 +1,268 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.am.rtree.impls;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
+import edu.uci.ics.hyracks.storage.am.common.api.ICursorInitialState;
+import edu.uci.ics.hyracks.storage.am.common.api.ISearchPredicate;
+import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndexCursor;
+import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndexTupleReference;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
+import edu.uci.ics.hyracks.storage.am.rtree.api.IRTreeInteriorFrame;
+import edu.uci.ics.hyracks.storage.am.rtree.api.IRTreeLeafFrame;
+import edu.uci.ics.hyracks.storage.common.buffercache.IBufferCache;
+import edu.uci.ics.hyracks.storage.common.buffercache.ICachedPage;
+import edu.uci.ics.hyracks.storage.common.file.BufferedFileHandle;
+
+/**
+ * Best-first k-nearest-neighbor search. Nodes and leaf tuples are kept in one priority queue ordered by their minimum
+ * distance to the query point; a tuple at the head of the queue is closer than anything not yet returned, so tuples
+ * come out in distance order and only the nodes whose MBRs are closer than the k-th result are read.
+ * A page is only latched while its entries are added to the queue. Leaf tuples are copied, so the cursor holds no
+ * latch between calls, and a returned tuple stays valid until the next call to next().
+ */
+public class RTreeNearestNeighborSearchCursor implements ITreeIndexCursor {
+
+    private int fileId = -1;
+    private IBufferCache bufferCache = null;
+    private final IRTreeInteriorFrame interiorFrame;
+    private final IRTreeLeafFrame leafFrame;
+    private final ITreeIndexTupleReference interiorFrameTuple;
+    private final ITreeIndexTupleReference leafFrameTuple;
+
+    private NearestNeighborSearchPredicate pred;
+    private int rootPage;
+    private double[] queryPoint;
+    private int k;
+    private int resultCount;
+
+    private PriorityQueue<Entry> queue;
+    private final List<Entry> freeEntries = new ArrayList<Entry>();
+    private Entry current;
+
+    public RTreeNearestNeighborSearchCursor(IRTreeInteriorFrame interiorFrame, IRTreeLeafFrame leafFrame) {
+        this.interiorFrame = interiorFrame;
+        this.leafFrame = leafFrame;
+        this.interiorFrameTuple = interiorFrame.createTupleReference();
+        this.leafFrameTuple = leafFrame.createTupleReference();
+    }
+
+    @Override
+    public void open(ICursorInitialState initialState, ISearchPredicate searchPred) throws HyracksDataException {
+        clear();
+        pred = (NearestNeighborSearchPredicate) searchPred;
+        rootPage = ((RTreeCursorInitialState) initialState).getRootPage();
+        k = pred.getK();
+        resultCount = 0;
+        queryPoint = new double[pred.getDimensions()];
+        pred.getQueryPointValues(queryPoint);
+        queue = new PriorityQueue<Entry>(16, new EntryComparator(pred.getTieBreakComparator()));
+        Entry root = allocate();
+        root.setNode(rootPage, -1, 0.0);
+        queue.offer(root);
+    }
+
+    @Override
+    public boolean hasNext() throws HyracksDataException {
+        if (queue == null || resultCount >= k) {
+            return false;
+        }
+        while (!queue.isEmpty()) {
+            Entry head = queue.peek();
+            if (head.isTuple) {
+                return true;
+            }
+            queue.poll();
+            expand(head);
+            freeEntries.add(head);
+        }
+        return false;
+    }
+
+    @Override
+    public void next() throws HyracksDataException {
+        if (current != null) {
+            freeEntries.add(current);
+        }
+        current = queue.poll();
+        resultCount++;
+    }
+
+    @Override
+    public ITupleReference getTuple() {
+        return current.tuple;
+    }
+
+    /**
+     * Returns the distance of the tuple returned by {@link #getTuple()} to the query point.
+     */
+    public double getDistance() {
+        return current.distance;
+    }
+
+    private void expand(Entry node) throws HyracksDataException {
+        ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, node.pageId), false);
+        page.acquireReadLatch();
+        try {
+            interiorFrame.setPage(page);
+            if (node.pageId != rootPage && node.parentLsn < interiorFrame.getPageNsn()) {
+                // Concurrent split detected, the right page holds some of the entries this page had when its parent
+                // was read, so it is at least as far away.
+                int rightPage = interiorFrame.getRightPage();
+                if (rightPage != -1) {
+                    Entry right = allocate();
+                    right.setNode(rightPage, node.parentLsn, node.distance);
+                    queue.offer(right);
+                }
+            }
+            if (!interiorFrame.isLeaf()) {
+                long pageLsn = interiorFrame.getPageLsn();
+                int tupleCount = interiorFrame.getTupleCount();
+                for (int i = 0; i < tupleCount; i++) {
+                    interiorFrameTuple.resetByTupleIndex(interiorFrame, i);
+                    Entry child = allocate();
+                    child.setNode(interiorFrame.getChildPageId(i), pageLsn,
+                            pred.computeMinDistance(queryPoint, interiorFrameTuple));
+                    queue.offer(child);
+                }
+            } else {
+                leafFrame.setPage(page);
+                ByteBuffer buf = leafFrame.getBuffer();
+                int tupleCount = leafFrame.getTupleCount();
+                for (int i = 0; i < tupleCount; i++) {
+                    leafFrameTuple.resetByTupleIndex(leafFrame, i);
+                    Entry tuple = allocate();
+                    tuple.setTuple(buf, leafFrame.getTupleOffset(i), leafFrameTuple.getTupleSize(),
+                            pred.computeMinDistance(queryPoint, leafFrameTuple));
+                    queue.offer(tuple);
+                }
+            }
+        } finally {
+            page.releaseReadLatch();
+            bufferCache.unpin(page);
+        }
+    }
+
+    private Entry allocate() {
+        if (freeEntries.isEmpty()) {
+            return new Entry(leafFrame.createTupleReference());
+        }
+        return freeEntries.remove(freeEntries.size() - 1);
+    }
+
+    private void clear() {
+        if (queue != null) {
+            freeEntries.addAll(queue);
+            queue.clear();
+        }
+        if (current != null) {
+            freeEntries.add(current);
+            current = null;
+        }
+    }
+
+    @Override
+    public void close() throws HyracksDataException {
+        clear();
+        queue = null;
+        resultCount = 0;
+    }
+
+    @Override
+    public void reset() throws HyracksDataException {
+        close();
+    }
+
+    @Override
+    public ICachedPage getPage() {
+        return null;
+    }
+
+    @Override
+    public void setBufferCache(IBufferCache bufferCache) {
+        this.bufferCache = bufferCache;
+    }
+
+    @Override
+    public void setFileId(int fileId) {
+        this.fileId = fileId;
+    }
+
+    @Override
+    public boolean exclusiveLatchNodes() {
+        return false;
+    }
+
+    private static class Entry {
+        private boolean isTuple;
+        private double distance;
+        private int pageId;
+        private long parentLsn;
+        private ByteBuffer tupleBuf;
+        private final ITreeIndexTupleReference tuple;
+
+        public Entry(ITreeIndexTupleReference tuple) {
+            this.tuple = tuple;
+        }
+
+        public void setNode(int pageId, long parentLsn, double distance) {
+            this.isTuple = false;
+            this.pageId = pageId;
+            this.parentLsn = parentLsn;
+            this.distance = distance;
+        }
+
+        public void setTuple(ByteBuffer buf, int tupleOffset, int tupleSize, double distance) {
+            this.isTuple = true;
+            this.distance = distance;
+            if (tupleBuf == null || tupleBuf.capacity() < tupleSize) {
+                tupleBuf = ByteBuffer.allocate(tupleSize);
+            }
+            System.arraycopy(buf.array(), tupleOffset, tupleBuf.array(), 0, tupleSize);
+            tuple.resetByTupleOffset(tupleBuf, 0);
+        }
+    }
+
+    private static class EntryComparator implements Comparator<Entry> {
+        private final MultiComparator tieBreakCmp;
+
+        public EntryComparator(MultiComparator tieBreakCmp) {
+            this.tieBreakCmp = tieBreakCmp;
+        }
+
+        @Override
+        public int compare(Entry a, Entry b) {
+            int c = Double.compare(a.distance, b.distance);
+            if (c != 0) {
+                return c;
+            }
+            // Nodes go first, they may hold tuples at the same distance.
+            if (a.isTuple != b.isTuple) {
+                return a.isTuple ? 1 : -1;
+            }
+            if (!a.isTuple || tieBreakCmp == null) {
+                return 0;
+            }
+            return tieBreakCmp.compare(a.tuple, b.tuple);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.am.rtree.util;
+
+import java.text.DecimalFormat;
+
+/**
+ * Per-level measures of how well an R-tree is packed. Level 0 holds the leaves. The area of a level is the sum of the
+ * volumes of its node MBRs, and its overlap is the sum, over all pairs of nodes with the same parent, of the volume
+ * of their intersection. Both are taken from the entries of the parents, so they are 0 for the root level.
+ */
+public class RTreePackingStats {
+    private final long[] nodes;
+    private final long[] entries;
+    private final double[] area;
+    private final double[] overlap;
+
+    public RTreePackingStats(int levels) {
+        nodes = new long[levels];
+        entries = new long[levels];
+        area = new double[levels];
+        overlap = new double[levels];
+    }
+
+    public void addNode(int level, int entryCount) {
+        nodes[level]++;
+        entries[level] += entryCount;
+    }
+
+    public void addArea(int level, double volume) {
+        area[level] += volume;
+    }
+
+    public void addOverlap(int level, double volume) {
+        overlap[level] += volume;
+    }
+
+    public int getLevels() {
+        return nodes.length;
+    }
+
+    public long getNodes(int level) {
+        return nodes[level];
+    }
+
+    public long getEntries(int level) {
+        return entries[level];
+    }
+
+    public double getArea(int level) {
+        return area[level];
+    }
+
+    public double getOverlap(int level) {
+        return overlap[level];
+    }
+
+    public long getTotalNodes() {
+        long total = 0;
+        for (long n : nodes) {
+            total += n;
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder strBuilder = new StringBuilder();
+        DecimalFormat df = new DecimalFormat("#####.##");
+        for (int level = nodes.length - 1; level >= 0; level--) {
+            strBuilder.append("LEVEL " + level + ": NODES " + nodes[level] + ", ENTRIES " + entries[level]);
+            if (nodes[level] > 0) {
+                strBuilder.append(", AVG ENTRIES/NODE " + df.format((double) entries[level] / nodes[level]));
+            }
+            strBuilder.append(", AREA " + df.format(area[level]) + ", OVERLAP " + df.format(overlap[level]) + "\n");
+        }
+        return strBuilder.toString();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.am.rtree.util;
+
+import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
+import edu.uci.ics.hyracks.storage.am.common.api.IPrimitiveValueProvider;
+import edu.uci.ics.hyracks.storage.am.common.api.IPrimitiveValueProviderFactory;
+import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndexTupleReference;
+import edu.uci.ics.hyracks.storage.am.rtree.api.IRTreeInteriorFrame;
+import edu.uci.ics.hyracks.storage.am.rtree.impls.RTree;
+import edu.uci.ics.hyracks.storage.common.buffercache.IBufferCache;
+import edu.uci.ics.hyracks.storage.common.buffercache.ICachedPage;
+import edu.uci.ics.hyracks.storage.common.file.BufferedFileHandle;
+
+/**
+ * Walks an R-tree from its root to measure how well it is packed, e.g. to compare a bulk-loaded disk component to a
+ * tree built by inserts. The tree must not be modified while the gatherer runs.
+ */
+public class RTreePackingStatsGatherer {
+    private final IBufferCache bufferCache;
+    private final int fileId;
+    private final int rootPage;
+    private final IRTreeInteriorFrame interiorFrame;
+    private final ITreeIndexTupleReference frameTuple;
+    private final IPrimitiveValueProvider[] valueProviders;
+    private final int dim;
+
+    /**
+     * @param valueProviderFactories
+     *            - One value provider per key field of the R-tree, low coordinates first
+     */
+    public RTreePackingStatsGatherer(RTree rtree, IPrimitiveValueProviderFactory[] valueProviderFactories) {
+        this.bufferCache = rtree.getBufferCache();
+        this.fileId = rtree.getFileId();
+        this.rootPage = rtree.getRootPageId();
+        this.interiorFrame = (IRTreeInteriorFrame) rtree.getInteriorFrameFactory().createFrame();
+        this.frameTuple = interiorFrame.createTupleReference();
+        this.valueProviders = new IPrimitiveValueProvider[valueProviderFactories.length];
+        for (int i = 0; i < valueProviderFactories.length; i++) {
+            valueProviders[i] = valueProviderFactories[i].createPrimitiveValueProvider();
+        }
+        this.dim = valueProviderFactories.length / 2;
+    }
+
+    public RTreePackingStats gatherStats() throws HyracksDataException {
+        RTreePackingStats stats;
+        ICachedPage page = pin(rootPage);
+        try {
+            interiorFrame.setPage(page);
+            stats = new RTreePackingStats(interiorFrame.getLevel() + 1);
+        } finally {
+            unpin(page);
+        }
+        gatherStats(rootPage, stats);
+        return stats;
+    }
+
+    /**
+     * Returns the number of nodes a search for the given query MBR reads, which is its IO cost on a cold cache.
+     *
+     * @param queryMBR
+     *            - Low coordinates followed by high coordinates
+     */
+    public int countNodeAccesses(double[] queryMBR) throws HyracksDataException {
+        return countNodeAccesses(rootPage, queryMBR);
+    }
+
+    private void gatherStats(int pageId, RTreePackingStats stats) throws HyracksDataException {
+        int[] children = null;
+        int level;
+        ICachedPage page = pin(pageId);
+        try {
+            interiorFrame.setPage(page);
+            level = interiorFrame.getLevel();
+            int tupleCount = interiorFrame.getTupleCount();
+            stats.addNode(level, tupleCount);
+            if (!interiorFrame.isLeaf()) {
+                children = new int[tupleCount];
+                double[][] mbrs = new double[tupleCount][2 * dim];
+                for (int i = 0; i < tupleCount; i++) {
+                    frameTuple.resetByTupleIndex(interiorFrame, i);
+                    readMBR(mbrs[i]);
+                    children[i] = interiorFrame.getChildPageId(i);
+                    stats.addArea(level - 1, volume(mbrs[i], mbrs[i]));
+                    for (int j = 0; j < i; j++) {
+                        stats.addOverlap(level - 1, Math.max(0.0, volume(mbrs[i], mbrs[j])));
+                    }
+                }
+            }
+        } finally {
+            unpin(page);
+        }
+        if (children != null) {
+            for (int child : children) {
+                gatherStats(child, stats);
+            }
+        }
+    }
+
+    private int countNodeAccesses(int pageId, double[] queryMBR) throws HyracksDataException {
+        int[] children = null;
+        int childCount = 0;
+        double[] mbr = new double[2 * dim];
+        ICachedPage page = pin(pageId);
+        try {
+            interiorFrame.setPage(page);
+            if (!interiorFrame.isLeaf()) {
+                int tupleCount = interiorFrame.getTupleCount();
+                children = new int[tupleCount];
+                for (int i = 0; i < tupleCount; i++) {
+                    frameTuple.resetByTupleIndex(interiorFrame, i);
+                    readMBR(mbr);
+                    if (volume(mbr, queryMBR) >= 0.0) {
+                        children[childCount++] = interiorFrame.getChildPageId(i);
+                    }
+                }
+            }
+        } finally {
+            unpin(page);
+        }
+        int accesses = 1;
+        for (int i = 0; i < childCount; i++) {
+            accesses += countNodeAccesses(children[i], queryMBR);
+        }
+        return accesses;
+    }
+
+    private void readMBR(double[] mbr) {
+        for (int i = 0; i < 2 * dim; i++) {
+            mbr[i] = valueProviders[i].getValue(frameTuple.getFieldData(i), frameTuple.getFieldStart(i));
+        }
+    }
+
+    // Volume of the intersection of two MBRs, or -1 if they do not intersect. Touching MBRs intersect with volume 0.
+    private double volume(double[] a, double[] b) {
+        double volume = 1.0;
+        for (int i = 0; i < dim; i++) {
+            double extent = Math.min(a[dim + i], b[dim + i]) - Math.max(a[i], b[i]);
+            if (extent < 0.0) {
+                return -1.0;
+            }
+            volume *= extent;
+        }
+        return volume;
+    }
+
+    private ICachedPage pin(int pageId) throws HyracksDataException {
+        ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, pageId), false);
+        page.acquireReadLatch();
+        return page;
+    }
+
+    private void unpin(ICachedPage page) throws HyracksDataException {
+        page.releaseReadLatch();
+        bufferCache.unpin(page);
+    }
+}
@@ -40,6 +40,17 @@ public class BufferCache implements IBufferCacheInternal {
     private static final int MIN_CLEANED_COUNT_DIFF = 3;
     private static final int PIN_MAX_WAIT_TIME = 50;
 
+    /**
+     * Number of existing pages each thread pinned, and how many of them it had to read from disk, over all buffer
+     * caches. A task that runs on the thread takes the difference over its run as its share.
+     */
+    private static final ThreadLocal<long[]> THREAD_PAGE_ACCESSES = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+
     private final int maxOpenFiles;
 
     private final IIOManager ioManager;
@@ -137,11 +148,14 @@ public class BufferCache implements IBufferCacheInternal {
         pinSanityCheck(dpid);
         CachedPage cPage = findPage(dpid, newPage);
         if (!newPage) {
+            long[] accesses = THREAD_PAGE_ACCESSES.get();
+            ++accesses[0];
             // Resolve race of multiple threads trying to read the page from disk.
             synchronized (cPage) {
                 if (!cPage.valid) {
                     read(cPage);
                     cPage.valid = true;
+                    ++accesses[1];
                 }
             }
         } else {
@@ -151,6 +165,20 @@ public class BufferCache implements IBufferCacheInternal {
         return cPage;
     }
 
+    /**
+     * Returns the number of existing pages the calling thread has pinned in any buffer cache.
+     */
+    public static long getThreadPinCount() {
+        return THREAD_PAGE_ACCESSES.get()[0];
+    }
+
+    /**
+     * Returns the number of pages the calling thread has read from disk when pinning them in any buffer cache.
+     */
+    public static long getThreadReadCount() {
+        return THREAD_PAGE_ACCESSES.get()[1];
+    }
+
     private CachedPage findPage(long dpid, boolean newPage) throws HyracksDataException {
         while (true) {
             int startCleanedCount = cleanerThread.cleanedCount;
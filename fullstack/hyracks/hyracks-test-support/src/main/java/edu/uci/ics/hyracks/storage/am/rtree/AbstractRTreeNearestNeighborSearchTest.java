@@ -0,0 +1,120 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.am.rtree;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.DoubleSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.util.TupleUtils;
+import edu.uci.ics.hyracks.storage.am.common.api.IPrimitiveValueProviderFactory;
+import edu.uci.ics.hyracks.storage.am.config.AccessMethodTestsConfig;
+import edu.uci.ics.hyracks.storage.am.rtree.frames.RTreePolicyType;
+
+@SuppressWarnings("rawtypes")
+public abstract class AbstractRTreeNearestNeighborSearchTest extends AbstractRTreeTestDriver {
+
+    private final RTreeTestUtils rTreeTestUtils;
+
+    private static final int numInsertRounds = AccessMethodTestsConfig.RTREE_NUM_INSERT_ROUNDS;
+    private static final int numQueriesPerRound = 5;
+    private static final int[] ks = { 1, 10, 50 };
+
+    public AbstractRTreeNearestNeighborSearchTest(boolean testRstarPolicy) {
+        super(testRstarPolicy);
+        this.rTreeTestUtils = new RTreeTestUtils();
+    }
+
+    /**
+     * Called after every round of inserts and deletes. LSM indexes flush here, so that later rounds search deleted
+     * tuples in older components.
+     */
+    protected void endRound(AbstractRTreeTestContext ctx) throws Exception {
+    }
+
+    @Override
+    protected void runTest(ISerializerDeserializer[] fieldSerdes,
+            IPrimitiveValueProviderFactory[] valueProviderFactories, int numKeys, ITupleReference key,
+            RTreePolicyType rtreePolicyType) throws Exception {
+        AbstractRTreeTestContext ctx = createTestContext(fieldSerdes, valueProviderFactories, numKeys, rtreePolicyType);
+        ctx.getIndex().create();
+        ctx.getIndex().activate();
+        // We assume all fieldSerdes are of the same type. Check the first one
+        // to determine which field types to generate.
+        if (fieldSerdes[0] instanceof IntegerSerializerDeserializer) {
+            rTreeTestUtils.bulkLoadIntTuples(ctx, numTuplesToInsert, getRandom());
+        } else if (fieldSerdes[0] instanceof DoubleSerializerDeserializer) {
+            rTreeTestUtils.bulkLoadDoubleTuples(ctx, numTuplesToInsert, getRandom());
+        }
+        checkNearestNeighborSearches(ctx, fieldSerdes, valueProviderFactories, numKeys);
+        for (int i = 0; i < numInsertRounds; i++) {
+            if (fieldSerdes[0] instanceof IntegerSerializerDeserializer) {
+                rTreeTestUtils.insertIntTuples(ctx, numTuplesToInsert, getRandom());
+            } else if (fieldSerdes[0] instanceof DoubleSerializerDeserializer) {
+                rTreeTestUtils.insertDoubleTuples(ctx, numTuplesToInsert, getRandom());
+            }
+            rTreeTestUtils.deleteTuples(ctx, ctx.getCheckTuples().size() / 3, getRandom());
+            checkNearestNeighborSearches(ctx, fieldSerdes, valueProviderFactories, numKeys);
+            endRound(ctx);
+            checkNearestNeighborSearches(ctx, fieldSerdes, valueProviderFactories, numKeys);
+        }
+        ctx.getIndex().deactivate();
+        ctx.getIndex().destroy();
+    }
+
+    private void checkNearestNeighborSearches(AbstractRTreeTestContext ctx, ISerializerDeserializer[] fieldSerdes,
+            IPrimitiveValueProviderFactory[] valueProviderFactories, int numKeys) throws Exception {
+        for (int i = 0; i < numQueriesPerRound; i++) {
+            ITupleReference queryPoint = createQueryPoint(ctx, fieldSerdes, numKeys / 2);
+            for (int k : ks) {
+                rTreeTestUtils.checkNearestNeighborSearch(ctx, valueProviderFactories, queryPoint, k);
+            }
+        }
+    }
+
+    // Picks a corner of a random expected MBR, so that some answers have distance 0.
+    private ITupleReference createQueryPoint(AbstractRTreeTestContext ctx, ISerializerDeserializer[] fieldSerdes,
+            int dim) throws Exception {
+        Random rnd = getRandom();
+        int numCheckTuples = ctx.getCheckTuples().size();
+        int pos = numCheckTuples > 0 ? rnd.nextInt(numCheckTuples) : 0;
+        Iterator<RTreeCheckTuple> iter = ctx.getCheckTuples().iterator();
+        RTreeCheckTuple checkTuple = null;
+        for (int i = 0; i <= pos && iter.hasNext(); i++) {
+            checkTuple = iter.next();
+        }
+        if (fieldSerdes[0] instanceof IntegerSerializerDeserializer) {
+            int[] point = new int[dim];
+            for (int i = 0; checkTuple != null && i < dim; i++) {
+                point[i] = (Integer) checkTuple.getField(i);
+            }
+            return TupleUtils.createIntegerTuple(point);
+        } else {
+            double[] point = new double[dim];
+            for (int i = 0; checkTuple != null && i < dim; i++) {
+                point[i] = (Double) checkTuple.getField(i);
+            }
+            return TupleUtils.createDoubleTuple(point);
+        }
+    }
+
+    @Override
+    protected String getTestOpName() {
+        return "Nearest Neighbor Search";
+    }
+}
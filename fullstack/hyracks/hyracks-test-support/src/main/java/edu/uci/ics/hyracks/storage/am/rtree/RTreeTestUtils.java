@@ -3,6 +3,7 @@ package edu.uci.ics.hyracks.storage.am.rtree;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Random;
@@ -17,11 +18,15 @@ import edu.uci.ics.hyracks.dataflow.common.util.TupleUtils;
 import edu.uci.ics.hyracks.storage.am.common.CheckTuple;
 import edu.uci.ics.hyracks.storage.am.common.IIndexTestContext;
 import edu.uci.ics.hyracks.storage.am.common.TreeIndexTestUtils;
+import edu.uci.ics.hyracks.storage.am.common.api.IPrimitiveValueProvider;
+import edu.uci.ics.hyracks.storage.am.common.api.IPrimitiveValueProviderFactory;
 import edu.uci.ics.hyracks.storage.am.common.api.ISearchPredicate;
 import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndexCursor;
 import edu.uci.ics.hyracks.storage.am.common.api.TreeIndexException;
 import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
 import edu.uci.ics.hyracks.storage.am.common.util.HashMultiSet;
+import edu.uci.ics.hyracks.storage.am.rtree.api.IRTreeNearestNeighborAccessor;
+import edu.uci.ics.hyracks.storage.am.rtree.impls.NearestNeighborSearchPredicate;
 import edu.uci.ics.hyracks.storage.am.rtree.impls.SearchPredicate;
 import edu.uci.ics.hyracks.storage.am.rtree.util.RTreeUtils;
 
@@ -68,6 +73,83 @@ public class RTreeTestUtils extends TreeIndexTestUtils {
         checkExpectedResults(searchCursor, expectedResult, ctx.getFieldSerdes(), ctx.getKeyFieldCount(), null);
     }
 
+    public void checkNearestNeighborSearch(IIndexTestContext ictx,
+            IPrimitiveValueProviderFactory[] valueProviderFactories, ITupleReference queryPoint, int k)
+            throws Exception {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Testing Nearest Neighbor Search.");
+        }
+        AbstractRTreeTestContext ctx = (AbstractRTreeTestContext) ictx;
+        int numKeys = ctx.getKeyFieldCount();
+        IPrimitiveValueProvider[] valueProviders = new IPrimitiveValueProvider[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            valueProviders[i] = valueProviderFactories[i].createPrimitiveValueProvider();
+        }
+        double[] point = new double[numKeys / 2];
+        for (int i = 0; i < point.length; i++) {
+            point[i] = valueProviders[i].getValue(queryPoint.getFieldData(i), queryPoint.getFieldStart(i));
+        }
+
+        // The k smallest distances over all expected tuples. Ties make the expected tuples ambiguous, so the
+        // answer is checked by its distances.
+        double[] expectedDistances = new double[ctx.getCheckTuples().size()];
+        int idx = 0;
+        for (RTreeCheckTuple checkTuple : ctx.getCheckTuples()) {
+            expectedDistances[idx++] = getMinDistance(point, checkTuple);
+        }
+        Arrays.sort(expectedDistances);
+        int expectedCount = Math.min(k, expectedDistances.length);
+
+        MultiComparator cmp = MultiComparator.create(ctx.getComparatorFactories());
+        IRTreeNearestNeighborAccessor accessor = (IRTreeNearestNeighborAccessor) ctx.getIndexAccessor();
+        ITreeIndexCursor searchCursor = (ITreeIndexCursor) accessor.createNearestNeighborSearchCursor();
+        NearestNeighborSearchPredicate searchPred = new NearestNeighborSearchPredicate(queryPoint, k, cmp,
+                valueProviders, null);
+        accessor.search(searchCursor, searchPred);
+        int actualCount = 0;
+        try {
+            while (searchCursor.hasNext()) {
+                searchCursor.next();
+                RTreeCheckTuple checkTuple = (RTreeCheckTuple) createCheckTupleFromTuple(searchCursor.getTuple(),
+                        ctx.getFieldSerdes(), numKeys);
+                if (!ctx.getCheckTuples().contains(checkTuple)) {
+                    fail("Nearest neighbor search returned unexpected answer: " + checkTuple.toString());
+                }
+                if (actualCount >= expectedCount) {
+                    fail("Nearest neighbor search returned more answers than expected.\nExpected: " + expectedCount);
+                }
+                double distance = getMinDistance(point, checkTuple);
+                if (distance != expectedDistances[actualCount]) {
+                    fail("Nearest neighbor search returned answer " + actualCount + " at distance " + distance
+                            + ", expected distance " + expectedDistances[actualCount]);
+                }
+                actualCount++;
+            }
+            if (actualCount < expectedCount) {
+                fail("Nearest neighbor search returned fewer answers than expected.\nExpected: " + expectedCount
+                        + "\nActual  : " + actualCount);
+            }
+        } finally {
+            searchCursor.close();
+        }
+    }
+
+    private double getMinDistance(double[] point, RTreeCheckTuple checkTuple) {
+        double dist = 0.0;
+        for (int i = 0; i < point.length; i++) {
+            double low = ((Number) checkTuple.getField(i)).doubleValue();
+            double high = ((Number) checkTuple.getField(point.length + i)).doubleValue();
+            double d = 0.0;
+            if (point[i] < low) {
+                d = low - point[i];
+            } else if (point[i] > high) {
+                d = point[i] - high;
+            }
+            dist += d * d;
+        }
+        return dist;
+    }
+
     @SuppressWarnings("unchecked")
     public void insertDoubleTuples(IIndexTestContext ctx, int numTuples, Random rnd) throws Exception {
         int fieldCount = ctx.getFieldCount();
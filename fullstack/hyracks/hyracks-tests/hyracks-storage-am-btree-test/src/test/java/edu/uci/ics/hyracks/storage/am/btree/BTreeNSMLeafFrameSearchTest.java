@@ -0,0 +1,280 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.am.btree;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.ISerializerDeserializer;
+import edu.uci.ics.hyracks.api.dataflow.value.ITypeTraits;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import edu.uci.ics.hyracks.data.std.primitive.IntegerPointable;
+import edu.uci.ics.hyracks.data.std.primitive.UTF8StringPointable;
+import edu.uci.ics.hyracks.dataflow.common.data.accessors.ITupleReference;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
+import edu.uci.ics.hyracks.dataflow.common.util.TupleUtils;
+import edu.uci.ics.hyracks.storage.am.btree.frames.BTreeNSMLeafFrame;
+import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndexTupleReference;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.FindTupleMode;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.FindTupleNoExactMatchPolicy;
+import edu.uci.ics.hyracks.storage.am.common.ophelpers.MultiComparator;
+import edu.uci.ics.hyracks.storage.am.common.tuples.TypeAwareTupleWriter;
+import edu.uci.ics.hyracks.storage.common.buffercache.ICachedPage;
+
+/**
+ * Checks that leaf frame searches over fixed-length tuples find the same tuples as a scan of the frame, and that
+ * tuple references pick up a changed field layout.
+ */
+public class BTreeNSMLeafFrameSearchTest {
+    private static final int PAGE_SIZE = 32768;
+
+    private static final ITypeTraits[] INT_PAIR_TRAITS = new ITypeTraits[] { IntegerPointable.TYPE_TRAITS,
+            IntegerPointable.TYPE_TRAITS };
+
+    private static final int GREATEST_KEY_INDICATOR = -1;
+    private static final int ERROR_INDICATOR = -2;
+
+    private static final FindTupleMode[] MODES = new FindTupleMode[] { FindTupleMode.INCLUSIVE,
+            FindTupleMode.EXCLUSIVE, FindTupleMode.EXACT, FindTupleMode.EXCLUSIVE_ERROR_IF_EXISTS };
+
+    @Test
+    public void evenlySpreadKeys() throws Exception {
+        int[] keys = new int[1000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i * 7 - 3000;
+        }
+        checkAgainstScan(keys, 1);
+    }
+
+    @Test
+    public void skewedKeys() throws Exception {
+        // dense at the start, then growing gaps
+        int[] keys = new int[800];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i < 600 ? i : 600 + (i - 600) * (i - 600) * 50;
+        }
+        checkAgainstScan(keys, 1);
+    }
+
+    @Test
+    public void extremeKeys() throws Exception {
+        int[] keys = new int[] { Integer.MIN_VALUE, -5, -4, -3, -2, -1, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12,
+                Integer.MAX_VALUE };
+        checkAgainstScan(keys, 1);
+    }
+
+    @Test
+    public void prefixSearchOverDuplicateFirstFields() throws Exception {
+        // the first field repeats; the key is the pair of fields
+        int[] keys = new int[1200];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i / 5 * 3;
+        }
+        checkAgainstScan(keys, 2);
+    }
+
+    @Test
+    public void setFieldCountResetsTheLayout() throws Exception {
+        ITypeTraits[] traits = new ITypeTraits[] { IntegerPointable.TYPE_TRAITS, IntegerPointable.TYPE_TRAITS,
+                UTF8StringPointable.TYPE_TRAITS, IntegerPointable.TYPE_TRAITS };
+        TypeAwareTupleWriter writer = new TypeAwareTupleWriter(traits);
+        @SuppressWarnings("rawtypes")
+        ISerializerDeserializer[] serdes = new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE,
+                IntegerSerializerDeserializer.INSTANCE, UTF8StringSerializerDeserializer.INSTANCE,
+                IntegerSerializerDeserializer.INSTANCE };
+        ITupleReference tuple = TupleUtils.createTuple(serdes, 11, 22, "variable", 44);
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        int fullOff = 0;
+        int keyOff = 64;
+        int rangeOff = 128;
+        writer.writeTuple(tuple, buf.array(), fullOff);
+        writer.writeTupleFields(tuple, 0, 2, buf.array(), keyOff);
+        writer.writeTupleFields(tuple, 1, 3, buf.array(), rangeOff);
+        ITreeIndexTupleReference ref = writer.createTupleReference();
+
+        // only fixed-length fields
+        ref.setFieldCount(2);
+        ref.resetByTupleOffset(buf, keyOff);
+        Assert.assertEquals(11, getInt(ref, 0));
+        Assert.assertEquals(22, getInt(ref, 1));
+
+        // a variable-length field among the fields
+        ref.setFieldCount(4);
+        ref.resetByTupleOffset(buf, fullOff);
+        Assert.assertEquals(11, getInt(ref, 0));
+        Assert.assertEquals(22, getInt(ref, 1));
+        Assert.assertEquals("variable", getString(ref, 2));
+        Assert.assertEquals(44, getInt(ref, 3));
+
+        // back to only fixed-length fields
+        ref.setFieldCount(2);
+        ref.resetByTupleOffset(buf, keyOff);
+        Assert.assertEquals(11, getInt(ref, 0));
+        Assert.assertEquals(22, getInt(ref, 1));
+        Assert.assertEquals(9, ref.getTupleSize());
+
+        // a range that starts behind the first field
+        ref.setFieldCount(1, 3);
+        ref.resetByTupleOffset(buf, rangeOff);
+        Assert.assertEquals(3, ref.getFieldCount());
+        Assert.assertEquals(22, getInt(ref, 0));
+        Assert.assertEquals("variable", getString(ref, 1));
+        Assert.assertEquals(44, getInt(ref, 2));
+    }
+
+    private static String getString(ITupleReference tuple, int field) {
+        StringBuilder str = new StringBuilder();
+        UTF8StringPointable.toString(str, tuple.getFieldData(field), tuple.getFieldStart(field));
+        return str.toString();
+    }
+
+    private static int getInt(ITupleReference tuple, int field) {
+        return IntegerPointable.getInteger(tuple.getFieldData(field), tuple.getFieldStart(field));
+    }
+
+    private static void checkAgainstScan(int[] keys, int keyFieldCount) throws Exception {
+        BTreeNSMLeafFrame frame = createFrame(keys, createComparator(keyFieldCount));
+        // the searches only give the first key field
+        MultiComparator cmp = createComparator(1);
+        Assert.assertEquals(keys.length, frame.getTupleCount());
+        ITreeIndexTupleReference frameTuple = frame.createTupleReference();
+
+        long min = keys[0];
+        long max = keys[keys.length - 1];
+        int checked = 0;
+        for (int k = 0; k < keys.length + 2; k++) {
+            // every key, a value between neighbors, and values outside the range
+            long[] searchValues = k < keys.length ? new long[] { keys[k], (long) keys[k] + 1 } : new long[] {
+                    min - 1, max + 1 };
+            for (long value : searchValues) {
+                if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                    continue;
+                }
+                ITupleReference searchKey = TupleUtils.createIntegerTuple((int) value);
+                for (FindTupleMode mode : MODES) {
+                    for (FindTupleNoExactMatchPolicy policy : FindTupleNoExactMatchPolicy.values()) {
+                        int actual = frame.findTupleIndex(searchKey, frameTuple, cmp, mode, policy);
+                        String msg = "search for " + value + " in mode " + mode + " and " + policy;
+                        if (hasMatch(frame, frameTuple, cmp, searchKey) && mode != FindTupleMode.EXCLUSIVE) {
+                            if (mode == FindTupleMode.EXCLUSIVE_ERROR_IF_EXISTS) {
+                                Assert.assertEquals(msg, ERROR_INDICATOR, actual);
+                            } else {
+                                // inclusive and exact searches may stop at any tuple that matches the search key
+                                Assert.assertTrue(msg, actual >= 0);
+                                frameTuple.resetByTupleIndex(frame, actual);
+                                Assert.assertEquals(msg, 0, cmp.compare(searchKey, frameTuple));
+                            }
+                        } else if (mode == FindTupleMode.EXACT) {
+                            Assert.assertEquals(msg, ERROR_INDICATOR, actual);
+                        } else {
+                            Assert.assertEquals(msg, scanNeighbor(frame, frameTuple, cmp, searchKey, policy), actual);
+                        }
+                        checked++;
+                    }
+                }
+            }
+        }
+        Assert.assertTrue(checked > keys.length);
+    }
+
+    private static boolean hasMatch(BTreeNSMLeafFrame frame, ITreeIndexTupleReference frameTuple,
+            MultiComparator cmp, ITupleReference searchKey) {
+        for (int i = 0; i < frame.getTupleCount(); i++) {
+            frameTuple.resetByTupleIndex(frame, i);
+            if (cmp.compare(searchKey, frameTuple) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The first tuple greater than the search key for HIGHER_KEY, otherwise the last tuple smaller than it.
+     */
+    private static int scanNeighbor(BTreeNSMLeafFrame frame, ITreeIndexTupleReference frameTuple,
+            MultiComparator cmp, ITupleReference searchKey, FindTupleNoExactMatchPolicy policy) {
+        if (policy == FindTupleNoExactMatchPolicy.HIGHER_KEY) {
+            for (int i = 0; i < frame.getTupleCount(); i++) {
+                frameTuple.resetByTupleIndex(frame, i);
+                if (cmp.compare(searchKey, frameTuple) < 0) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = frame.getTupleCount() - 1; i >= 0; i--) {
+                frameTuple.resetByTupleIndex(frame, i);
+                if (cmp.compare(searchKey, frameTuple) > 0) {
+                    return i;
+                }
+            }
+        }
+        return GREATEST_KEY_INDICATOR;
+    }
+
+    private static MultiComparator createComparator(int keyFieldCount) {
+        IBinaryComparator[] cmps = new IBinaryComparator[keyFieldCount];
+        for (int i = 0; i < keyFieldCount; i++) {
+            cmps[i] = PointableBinaryComparatorFactory.of(IntegerPointable.FACTORY).createBinaryComparator();
+        }
+        return new MultiComparator(cmps);
+    }
+
+    private static BTreeNSMLeafFrame createFrame(int[] keys, MultiComparator cmp) throws Exception {
+        BTreeNSMLeafFrame frame = new BTreeNSMLeafFrame(new TypeAwareTupleWriter(INT_PAIR_TRAITS));
+        frame.setPage(new HeapPage(PAGE_SIZE));
+        frame.initBuffer((byte) 0);
+        frame.setMultiComparator(cmp);
+        for (int i = 0; i < keys.length; i++) {
+            frame.insertSorted(TupleUtils.createIntegerTuple(keys[i], i));
+        }
+        return frame;
+    }
+
+    /**
+     * A page outside of any buffer cache.
+     */
+    private static class HeapPage implements ICachedPage {
+        private final ByteBuffer buffer;
+
+        public HeapPage(int pageSize) {
+            buffer = ByteBuffer.allocate(pageSize);
+        }
+
+        @Override
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        @Override
+        public void acquireReadLatch() {
+        }
+
+        @Override
+        public void releaseReadLatch() {
+        }
+
+        @Override
+        public void acquireWriteLatch() {
+        }
+
+        @Override
+        public void releaseWriteLatch() {
+        }
+    }
+}
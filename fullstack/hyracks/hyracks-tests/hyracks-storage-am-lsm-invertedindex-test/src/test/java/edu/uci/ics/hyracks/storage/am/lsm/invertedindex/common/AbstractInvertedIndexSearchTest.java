@@ -31,6 +31,7 @@ import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedIndexSearch
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.search.ConjunctiveSearchModifier;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.search.EditDistanceSearchModifier;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.search.JaccardSearchModifier;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.search.TopKSearchModifier;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.util.LSMInvertedIndexTestContext;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.util.LSMInvertedIndexTestContext.InvertedIndexType;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.util.LSMInvertedIndexTestUtils;
@@ -65,8 +66,13 @@ public abstract class AbstractInvertedIndexSearchTest extends AbstractInvertedIn
             if (LOGGER.isLoggable(Level.INFO)) {
                 LOGGER.info("Running searches with: " + searchModifier.toString());
             }
-            LSMInvertedIndexTestUtils.testIndexSearch(testCtx, tupleGen, harness.getRandom(), NUM_DOC_QUERIES,
-                    NUM_RANDOM_QUERIES, searchModifier, SCAN_COUNT_ARRAY);
+            if (searchModifier instanceof TopKSearchModifier) {
+                LSMInvertedIndexTestUtils.testTopKIndexSearch(testCtx, tupleGen, harness.getRandom(), NUM_DOC_QUERIES,
+                        NUM_RANDOM_QUERIES, (TopKSearchModifier) searchModifier);
+            } else {
+                LSMInvertedIndexTestUtils.testIndexSearch(testCtx, tupleGen, harness.getRandom(), NUM_DOC_QUERIES,
+                        NUM_RANDOM_QUERIES, searchModifier, SCAN_COUNT_ARRAY);
+            }
         }
 
         invIndex.deactivate();
@@ -81,6 +87,7 @@ public abstract class AbstractInvertedIndexSearchTest extends AbstractInvertedIn
         searchModifiers.add(new JaccardSearchModifier(0.9f));
         searchModifiers.add(new JaccardSearchModifier(0.7f));
         searchModifiers.add(new JaccardSearchModifier(0.5f));
+        addTopKSearchModifiers(searchModifiers);
         runTest(testCtx, tupleGen, searchModifiers);
     }
 
@@ -96,9 +103,25 @@ public abstract class AbstractInvertedIndexSearchTest extends AbstractInvertedIn
         searchModifiers.add(new EditDistanceSearchModifier(LSMInvertedIndexTestUtils.TEST_GRAM_LENGTH, 1));
         searchModifiers.add(new EditDistanceSearchModifier(LSMInvertedIndexTestUtils.TEST_GRAM_LENGTH, 2));
         searchModifiers.add(new EditDistanceSearchModifier(LSMInvertedIndexTestUtils.TEST_GRAM_LENGTH, 3));
+        addTopKSearchModifiers(searchModifiers);
         runTest(testCtx, tupleGen, searchModifiers);
     }
 
+    private void addTopKSearchModifiers(List<IInvertedIndexSearchModifier> searchModifiers) {
+        // Partitioned inverted indexes do not support top-K searches.
+        switch (invIndexType) {
+            case PARTITIONED_INMEMORY:
+            case PARTITIONED_ONDISK:
+            case PARTITIONED_LSM: {
+                break;
+            }
+            default: {
+                searchModifiers.add(new TopKSearchModifier(1));
+                searchModifiers.add(new TopKSearchModifier(10));
+            }
+        }
+    }
+
     @Test
     public void wordTokensInvIndexTest() throws IOException, IndexException {
         LSMInvertedIndexTestContext testCtx = LSMInvertedIndexTestUtils.createWordInvIndexTestContext(harness, invIndexType);
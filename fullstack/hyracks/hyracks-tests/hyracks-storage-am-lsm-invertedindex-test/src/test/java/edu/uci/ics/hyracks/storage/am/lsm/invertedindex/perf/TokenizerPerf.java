@@ -0,0 +1,110 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.am.lsm.invertedindex.perf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import edu.uci.ics.hyracks.data.std.util.GrowableArray;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.DelimitedUTF8StringBinaryTokenizer;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.HashedUTF8NGramTokenFactory;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.HashedUTF8WordTokenFactory;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.IBinaryTokenizer;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.NGramUTF8StringBinaryTokenizer;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.UTF8NGramTokenFactory;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.UTF8WordTokenFactory;
+
+/**
+ * Measures how fast the word and n-gram tokenizers tokenize and serialize documents, with and without token counts.
+ * Prints the average time per pass over all documents.
+ */
+public class TokenizerPerf {
+    public static void main(String[] args) throws Exception {
+        int numDocs = 10000;
+        int wordsPerDoc = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        byte[][] docs = generateDocs(numDocs, wordsPerDoc, 5000);
+
+        runExperiment("word", new DelimitedUTF8StringBinaryTokenizer(true, false, new UTF8WordTokenFactory()), docs);
+        runExperiment("word, counted", new DelimitedUTF8StringBinaryTokenizer(false, false,
+                new UTF8WordTokenFactory()), docs);
+        runExperiment("hashed word", new DelimitedUTF8StringBinaryTokenizer(true, false,
+                new HashedUTF8WordTokenFactory()), docs);
+        runExperiment("hashed word, counted", new DelimitedUTF8StringBinaryTokenizer(false, false,
+                new HashedUTF8WordTokenFactory()), docs);
+        runExperiment("3-gram", new NGramUTF8StringBinaryTokenizer(3, true, true, false, new UTF8NGramTokenFactory()),
+                docs);
+        runExperiment("hashed 3-gram, counted", new NGramUTF8StringBinaryTokenizer(3, true, false, false,
+                new HashedUTF8NGramTokenFactory()), docs);
+    }
+
+    private static byte[][] generateDocs(int numDocs, int wordsPerDoc, int vocabularySize) throws IOException {
+        Random rnd = new Random(50);
+        String[] vocabulary = new String[vocabularySize];
+        for (int i = 0; i < vocabularySize; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 2 + rnd.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                char c = (char) ('a' + rnd.nextInt(26));
+                word.append(rnd.nextInt(10) == 0 ? Character.toUpperCase(c) : c);
+            }
+            vocabulary[i] = word.toString();
+        }
+        byte[][] docs = new byte[numDocs][];
+        for (int i = 0; i < numDocs; i++) {
+            StringBuilder doc = new StringBuilder();
+            for (int j = 0; j < wordsPerDoc; j++) {
+                // skewed word frequencies, so that documents repeat words
+                int w = (int) (vocabularySize * Math.pow(rnd.nextDouble(), 3));
+                doc.append(vocabulary[w]).append(rnd.nextInt(8) == 0 ? ". " : " ");
+            }
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            new DataOutputStream(baos).writeUTF(doc.toString());
+            docs[i] = baos.toByteArray();
+        }
+        return docs;
+    }
+
+    private static void runExperiment(String name, IBinaryTokenizer tokenizer, byte[][] docs) throws IOException {
+        int repeats = 5;
+        GrowableArray out = new GrowableArray();
+        long tokens = 0;
+        // warm up
+        for (byte[] doc : docs) {
+            tokens += tokenize(tokenizer, doc, out);
+        }
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < repeats; i++) {
+            for (byte[] doc : docs) {
+                tokens += tokenize(tokenizer, doc, out);
+            }
+        }
+        long avgTime = (System.currentTimeMillis() - start) / repeats;
+        System.out.println(name + ": " + avgTime + "ms, " + tokens / (repeats + 1) + " tokens");
+    }
+
+    private static int tokenize(IBinaryTokenizer tokenizer, byte[] doc, GrowableArray out) throws IOException {
+        int tokens = 0;
+        tokenizer.reset(doc, 0, doc.length);
+        while (tokenizer.hasNext()) {
+            tokenizer.next();
+            out.reset();
+            tokenizer.getToken().serializeToken(out);
+            tokens++;
+        }
+        return tokens;
+    }
+}
@@ -24,6 +24,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Random;
 
 import junit.framework.Assert;
 
@@ -198,6 +199,51 @@ public class WordTokenizerTest {
         }
     }
 
+    @Test
+    public void testWordTokenizerWithCountedHashedUTF8TokensOfLongText() throws IOException {
+        // enough distinct tokens to grow the tokenizer's table of seen tokens, repeated in varying case
+        Random rnd = new Random(50);
+        StringBuilder longText = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            String word = "w" + rnd.nextInt(300) + (i % 3 == 0 ? "\u00c4B" : "\u00e4b");
+            longText.append(i % 2 == 0 ? word.toUpperCase() : word).append(i % 5 == 0 ? ", " : " ");
+        }
+        String doc = longText.toString().trim();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new DataOutputStream(baos).writeUTF(doc);
+        byte[] longInput = baos.toByteArray();
+
+        ArrayList<String> tokens = new ArrayList<String>();
+        tokenize(doc, tokens);
+        HashMap<String, Integer> tokenCounts = new HashMap<String, Integer>();
+
+        HashedUTF8WordTokenFactory tokenFactory = new HashedUTF8WordTokenFactory();
+        DelimitedUTF8StringBinaryTokenizer tokenizer = new DelimitedUTF8StringBinaryTokenizer(false, false,
+                tokenFactory);
+        // a previous string must not affect the counts
+        tokenizer.reset(inputBuffer, 0, inputBuffer.length);
+        while (tokenizer.hasNext()) {
+            tokenizer.next();
+        }
+        tokenizer.reset(longInput, 0, longInput.length);
+
+        int tokenCount = 0;
+        while (tokenizer.hasNext()) {
+            tokenizer.next();
+            String expectedToken = tokens.get(tokenCount);
+            Integer count = tokenCounts.get(expectedToken);
+            count = count == null ? 1 : count + 1;
+            tokenCounts.put(expectedToken, count);
+
+            GrowableArray tokenData = new GrowableArray();
+            tokenizer.getToken().serializeToken(tokenData);
+            DataInput in = new DataInputStream(new ByteArrayInputStream(tokenData.getByteArray()));
+            Assert.assertEquals(tokenHash(expectedToken, count), in.readInt());
+            tokenCount++;
+        }
+        Assert.assertEquals(tokens.size(), tokenCount);
+    }
+
     // JAQL Hash
     public int tokenHash(String token, int tokenCount) {
         int h = AbstractUTF8Token.GOLDEN_RATIO_32;
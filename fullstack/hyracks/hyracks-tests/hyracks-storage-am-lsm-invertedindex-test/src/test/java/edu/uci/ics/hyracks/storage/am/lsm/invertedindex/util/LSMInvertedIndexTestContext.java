@@ -45,6 +45,7 @@ public class LSMInvertedIndexTestContext extends OrderedIndexTestContext {
     public static enum InvertedIndexType {
         INMEMORY,
         ONDISK,
+        COMPRESSED_ONDISK,
         LSM,
         PARTITIONED_INMEMORY,
         PARTITIONED_ONDISK,
@@ -135,6 +136,12 @@ public class LSMInvertedIndexTestContext extends OrderedIndexTestContext {
                         tokenCmpFactories, harness.getInvListsFileRef());
                 break;
             }
+            case COMPRESSED_ONDISK: {
+                invIndex = InvertedIndexUtils.createCompressedOnDiskInvertedIndex(harness.getDiskBufferCache(),
+                        harness.getDiskFileMapProvider(), invListTypeTraits, invListCmpFactories, tokenTypeTraits,
+                        tokenCmpFactories, harness.getInvListsFileRef());
+                break;
+            }
             case PARTITIONED_ONDISK: {
                 invIndex = InvertedIndexUtils.createPartitionedOnDiskInvertedIndex(harness.getDiskBufferCache(),
                         harness.getDiskFileMapProvider(), invListTypeTraits, invListCmpFactories, tokenTypeTraits,
@@ -167,6 +174,7 @@ public class LSMInvertedIndexTestContext extends OrderedIndexTestContext {
         switch (invIndexType) {
             case INMEMORY:
             case ONDISK:
+            case COMPRESSED_ONDISK:
             case LSM: {
                 indexTupleIter = new InvertedIndexTokenizingTupleIterator(invIndex.getTokenTypeTraits().length,
                         invIndex.getInvListTypeTraits().length, tokenizerFactory.createTokenizer());
@@ -24,9 +24,13 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -61,6 +65,7 @@ import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.api.IInvertedListCursor;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.common.LSMInvertedIndexTestHarness;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.exceptions.OccurrenceThresholdPanicException;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.search.InvertedIndexSearchPredicate;
+import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.search.TopKSearchModifier;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.DelimitedUTF8StringBinaryTokenizerFactory;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.HashedUTF8NGramTokenFactory;
 import edu.uci.ics.hyracks.storage.am.lsm.invertedindex.tokenizers.HashedUTF8WordTokenFactory;
@@ -104,6 +109,7 @@ public class LSMInvertedIndexTestUtils {
         switch (invIndexType) {
             case INMEMORY:
             case ONDISK:
+            case COMPRESSED_ONDISK:
             case LSM: {
                 fieldSerdes = new ISerializerDeserializer[] { UTF8StringSerializerDeserializer.INSTANCE,
                         IntegerSerializerDeserializer.INSTANCE };
@@ -130,6 +136,7 @@ public class LSMInvertedIndexTestUtils {
         switch (invIndexType) {
             case INMEMORY:
             case ONDISK:
+            case COMPRESSED_ONDISK:
             case LSM: {
                 fieldSerdes = new ISerializerDeserializer[] { IntegerSerializerDeserializer.INSTANCE,
                         IntegerSerializerDeserializer.INSTANCE };
@@ -385,6 +392,7 @@ public class LSMInvertedIndexTestUtils {
         switch (invIndexType) {
             case INMEMORY:
             case ONDISK:
+            case COMPRESSED_ONDISK:
             case LSM: {
                 isPartitioned = false;
                 break;
@@ -487,7 +495,9 @@ public class LSMInvertedIndexTestUtils {
         IInvertedIndexAccessor accessor = (IInvertedIndexAccessor) invIndex.createAccessor(
                 NoOpOperationCallback.INSTANCE, NoOpOperationCallback.INSTANCE);
         IBinaryTokenizer tokenizer = testCtx.getTokenizerFactory().createTokenizer();
-        InvertedIndexSearchPredicate searchPred = new InvertedIndexSearchPredicate(tokenizer, searchModifier);
+        // Created from the factory, so that LSM indexes with a search executor can search their components in parallel.
+        InvertedIndexSearchPredicate searchPred = new InvertedIndexSearchPredicate(testCtx.getTokenizerFactory(),
+                searchModifier);
         List<ITupleReference> documentCorpus = testCtx.getDocumentCorpus();
         // Project away the primary-key field.
         int[] fieldPermutation = new int[] { 0 };
@@ -565,4 +575,115 @@ public class LSMInvertedIndexTestUtils {
             }
         }
     }
+
+    /**
+     * Determines the score of every element that shares a token with the search document, the same way
+     * TopKInvertedListMerger scores them.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<Integer, Double> getExpectedScores(TreeSet<CheckTuple> checkTuples,
+            ITupleReference searchDocument, IBinaryTokenizer tokenizer, ISerializerDeserializer tokenSerde)
+            throws IOException {
+        GrowableArray tokenData = new GrowableArray();
+        List<SortedSet<CheckTuple>> invLists = new ArrayList<SortedSet<CheckTuple>>();
+        long totalNumElements = 0;
+        tokenizer.reset(searchDocument.getFieldData(0), searchDocument.getFieldStart(0),
+                searchDocument.getFieldLength(0));
+        while (tokenizer.hasNext()) {
+            tokenizer.next();
+            IToken token = tokenizer.getToken();
+            tokenData.reset();
+            token.serializeToken(tokenData);
+            ByteArrayInputStream inStream = new ByteArrayInputStream(tokenData.getByteArray(), 0, tokenData.getLength());
+            DataInput dataIn = new DataInputStream(inStream);
+            Comparable tokenObj = (Comparable) tokenSerde.deserialize(dataIn);
+            CheckTuple lowKey = new CheckTuple(1, 1);
+            lowKey.appendField(tokenObj);
+            CheckTuple highKey = new CheckTuple(1, 1);
+            highKey.appendField(tokenObj);
+            SortedSet<CheckTuple> invList = OrderedIndexTestUtils.getPrefixExpectedSubset(checkTuples, lowKey, highKey);
+            invLists.add(invList);
+            totalNumElements += invList.size();
+        }
+        Map<Integer, Double> scores = new HashMap<Integer, Double>();
+        for (SortedSet<CheckTuple> invList : invLists) {
+            if (invList.isEmpty()) {
+                continue;
+            }
+            double weight = Math.log(1.0 + (double) totalNumElements / invList.size());
+            for (CheckTuple checkTuple : invList) {
+                Integer element = (Integer) checkTuple.getField(1);
+                Double score = scores.get(element);
+                scores.put(element, score == null ? weight : score + weight);
+            }
+        }
+        return scores;
+    }
+
+    public static void testTopKIndexSearch(LSMInvertedIndexTestContext testCtx, TupleGenerator tupleGen, Random rnd,
+            int numDocQueries, int numRandomQueries, TopKSearchModifier searchModifier) throws IOException,
+            IndexException {
+        final double eps = 1e-4;
+        IInvertedIndex invIndex = testCtx.invIndex;
+        IInvertedIndexAccessor accessor = (IInvertedIndexAccessor) invIndex.createAccessor(
+                NoOpOperationCallback.INSTANCE, NoOpOperationCallback.INSTANCE);
+        IBinaryTokenizer tokenizer = testCtx.getTokenizerFactory().createTokenizer();
+        InvertedIndexSearchPredicate searchPred = new InvertedIndexSearchPredicate(tokenizer, searchModifier);
+        List<ITupleReference> documentCorpus = testCtx.getDocumentCorpus();
+        // Project away the primary-key field.
+        int[] fieldPermutation = new int[] { 0 };
+        PermutingTupleReference searchDocument = new PermutingTupleReference(fieldPermutation);
+
+        IIndexCursor resultCursor = accessor.createSearchCursor();
+        int numQueries = numDocQueries + numRandomQueries;
+        for (int i = 0; i < numQueries; i++) {
+            if (i >= numDocQueries || i >= documentCorpus.size()) {
+                searchDocument.reset(tupleGen.next());
+            } else {
+                int queryIndex = Math.abs(rnd.nextInt() % documentCorpus.size());
+                searchDocument.reset(documentCorpus.get(queryIndex));
+            }
+            searchPred.setQueryTuple(searchDocument);
+            searchPred.setQueryFieldIndex(0);
+
+            resultCursor.reset();
+            accessor.search(resultCursor, searchPred);
+            List<Integer> actualResults = new ArrayList<Integer>();
+            try {
+                while (resultCursor.hasNext()) {
+                    resultCursor.next();
+                    ITupleReference resultTuple = resultCursor.getTuple();
+                    actualResults.add(IntegerSerializerDeserializer.getInt(resultTuple.getFieldData(0),
+                            resultTuple.getFieldStart(0)));
+                }
+            } finally {
+                resultCursor.close();
+            }
+
+            Map<Integer, Double> expectedScores = getExpectedScores(testCtx.getCheckTuples(), searchDocument,
+                    tokenizer, testCtx.getFieldSerdes()[0]);
+            if (actualResults.size() != Math.min(searchModifier.getK(), expectedScores.size())) {
+                fail("Top-K results do not match. Expected " + Math.min(searchModifier.getK(), expectedScores.size())
+                        + " results, but got " + actualResults.size() + ".");
+            }
+            // The results must come best first, and no other element may score higher than the last of them.
+            Set<Integer> returned = new HashSet<Integer>();
+            double prevScore = Double.MAX_VALUE;
+            for (Integer actual : actualResults) {
+                Double score = expectedScores.get(actual);
+                if (score == null || !returned.add(actual)) {
+                    fail("Top-K results do not match. Unexpected result: " + actual + ".");
+                }
+                if (score > prevScore + eps) {
+                    fail("Top-K results are not ordered by descending score.");
+                }
+                prevScore = score;
+            }
+            for (Map.Entry<Integer, Double> e : expectedScores.entrySet()) {
+                if (!returned.contains(e.getKey()) && e.getValue() > prevScore + eps) {
+                    fail("Top-K results do not match. Missing result: " + e.getKey() + ".");
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2009-2013 by The Regents of the University of California
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * you may obtain a copy of the License from
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uci.ics.hyracks.storage.am.rtree;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparator;
+import edu.uci.ics.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import edu.uci.ics.hyracks.api.dataflow.value.ITypeTraits;
+import edu.uci.ics.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import edu.uci.ics.hyracks.data.std.primitive.DoublePointable;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import edu.uci.ics.hyracks.dataflow.common.comm.io.ArrayTupleReference;
+import edu.uci.ics.hyracks.dataflow.common.util.TupleUtils;
+import edu.uci.ics.hyracks.storage.am.common.api.IIndexBulkLoader;
+import edu.uci.ics.hyracks.storage.am.common.api.IPrimitiveValueProviderFactory;
+import edu.uci.ics.hyracks.storage.am.common.api.ITreeIndexAccessor;
+import edu.uci.ics.hyracks.storage.am.common.impls.NoOpOperationCallback;
+import edu.uci.ics.hyracks.storage.am.rtree.frames.RTreePolicyType;
+import edu.uci.ics.hyracks.storage.am.rtree.impls.RTree;
+import edu.uci.ics.hyracks.storage.am.rtree.linearize.HilbertDoubleComparatorFactory;
+import edu.uci.ics.hyracks.storage.am.rtree.util.RTreePackingStats;
+import edu.uci.ics.hyracks.storage.am.rtree.util.RTreePackingStatsGatherer;
+import edu.uci.ics.hyracks.storage.am.rtree.util.RTreeUtils;
+import edu.uci.ics.hyracks.storage.am.rtree.utils.AbstractRTreeTest;
+
+/**
+ * Compares an R*-tree built by inserts, like the in-memory component of an LSM R-tree, to a tree bulk-loaded in
+ * Hilbert order, like the disk components written by flushes and merges.
+ */
+public class RTreePackingTest extends AbstractRTreeTest {
+    private static final int NUM_TUPLES = 5000;
+    private static final int NUM_QUERIES = 200;
+
+    private final int fieldCount = 5;
+    private final ITypeTraits[] typeTraits = new ITypeTraits[fieldCount];
+    private final IBinaryComparatorFactory[] cmpFactories = new IBinaryComparatorFactory[4];
+    private final IPrimitiveValueProviderFactory[] valueProviderFactories;
+
+    public RTreePackingTest() {
+        for (int i = 0; i < fieldCount; i++) {
+            typeTraits[i] = DoublePointable.TYPE_TRAITS;
+        }
+        for (int i = 0; i < cmpFactories.length; i++) {
+            cmpFactories[i] = PointableBinaryComparatorFactory.of(DoublePointable.FACTORY);
+        }
+        valueProviderFactories = RTreeUtils.createPrimitiveValueProviderFactories(cmpFactories.length,
+                DoublePointable.FACTORY);
+    }
+
+    @Test
+    public void hilbertPackedTreeIsSmallerAndReadsFewerNodes() throws Exception {
+        Random rnd = new Random(50);
+        List<double[]> entries = new ArrayList<double[]>();
+        for (int i = 0; i < NUM_TUPLES; i++) {
+            double x = rnd.nextDouble() * 1000.0;
+            double y = rnd.nextDouble() * 1000.0;
+            entries.add(new double[] { x, y, x + rnd.nextDouble() * 5.0, y + rnd.nextDouble() * 5.0, i });
+        }
+        List<double[]> queries = new ArrayList<double[]>();
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            double x = rnd.nextDouble() * 1000.0;
+            double y = rnd.nextDouble() * 1000.0;
+            queries.add(new double[] { x, y, x + 20.0, y + 20.0 });
+        }
+
+        RTree rtree = createRTree();
+        ITreeIndexAccessor accessor = rtree.createAccessor(NoOpOperationCallback.INSTANCE,
+                NoOpOperationCallback.INSTANCE);
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(fieldCount);
+        ArrayTupleReference tuple = new ArrayTupleReference();
+        for (double[] e : entries) {
+            TupleUtils.createDoubleTuple(tb, tuple, e);
+            accessor.insert(tuple);
+        }
+        RTreePackingStats insertedStats = new RTreePackingStatsGatherer(rtree, valueProviderFactories).gatherStats();
+        double insertedAccesses = averageNodeAccesses(rtree, queries);
+        rtree.deactivate();
+        rtree.destroy();
+
+        sortOnHilbertCurve(entries);
+        rtree = createRTree();
+        IIndexBulkLoader bulkLoader = rtree.createBulkLoader(1.0f, false, NUM_TUPLES);
+        for (double[] e : entries) {
+            TupleUtils.createDoubleTuple(tb, tuple, e);
+            bulkLoader.add(tuple);
+        }
+        bulkLoader.end();
+        RTreePackingStats packedStats = new RTreePackingStatsGatherer(rtree, valueProviderFactories).gatherStats();
+        double packedAccesses = averageNodeAccesses(rtree, queries);
+        rtree.deactivate();
+        rtree.destroy();
+
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("INSERTED R*-TREE, " + insertedAccesses + " NODES READ PER QUERY\n" + insertedStats);
+            LOGGER.info("HILBERT PACKED R-TREE, " + packedAccesses + " NODES READ PER QUERY\n" + packedStats);
+        }
+        Assert.assertEquals(NUM_TUPLES, insertedStats.getEntries(0));
+        Assert.assertEquals(NUM_TUPLES, packedStats.getEntries(0));
+        Assert.assertTrue(packedStats.getNodes(0) < insertedStats.getNodes(0));
+        Assert.assertTrue(packedStats.getTotalNodes() < insertedStats.getTotalNodes());
+        Assert.assertTrue(packedAccesses < insertedAccesses);
+        // a sound R*-tree is not far behind
+        Assert.assertTrue(insertedAccesses < 2 * packedAccesses);
+    }
+
+    private RTree createRTree() throws Exception {
+        RTree rtree = RTreeUtils.createRTree(harness.getBufferCache(), harness.getFileMapProvider(), typeTraits,
+                valueProviderFactories, cmpFactories, RTreePolicyType.RSTARTREE, harness.getFileReference());
+        rtree.create();
+        rtree.activate();
+        return rtree;
+    }
+
+    private double averageNodeAccesses(RTree rtree, List<double[]> queries) throws Exception {
+        RTreePackingStatsGatherer gatherer = new RTreePackingStatsGatherer(rtree, valueProviderFactories);
+        long accesses = 0;
+        for (double[] query : queries) {
+            accesses += gatherer.countNodeAccesses(query);
+        }
+        return (double) accesses / queries.size();
+    }
+
+    // Same order as the flush of an LSM R-tree: the Hilbert value of the low corner of the MBR.
+    private void sortOnHilbertCurve(List<double[]> entries) {
+        final IBinaryComparator linearizer = new HilbertDoubleComparatorFactory(2).createBinaryComparator();
+        Collections.sort(entries, new Comparator<double[]>() {
+            private final ByteBuffer a = ByteBuffer.allocate(16);
+            private final ByteBuffer b = ByteBuffer.allocate(16);
+
+            @Override
+            public int compare(double[] e1, double[] e2) {
+                a.putDouble(0, e1[0]).putDouble(8, e1[1]);
+                b.putDouble(0, e2[0]).putDouble(8, e2[1]);
+                return linearizer.compare(a.array(), 0, 16, b.array(), 0, 16);
+            }
+        });
+    }
+}
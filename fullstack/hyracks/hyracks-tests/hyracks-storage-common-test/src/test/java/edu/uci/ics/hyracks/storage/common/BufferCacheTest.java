@@ -16,6 +16,7 @@ import org.junit.Test;
 import edu.uci.ics.hyracks.api.context.IHyracksTaskContext;
 import edu.uci.ics.hyracks.api.exceptions.HyracksDataException;
 import edu.uci.ics.hyracks.api.io.FileReference;
+import edu.uci.ics.hyracks.storage.common.buffercache.BufferCache;
 import edu.uci.ics.hyracks.storage.common.buffercache.IBufferCache;
 import edu.uci.ics.hyracks.storage.common.buffercache.ICachedPage;
 import edu.uci.ics.hyracks.storage.common.file.BufferedFileHandle;
@@ -300,6 +301,45 @@ public class BufferCacheTest {
         bufferCache.close();
     }
 
+    @Test
+    public void countsPinsAndReadsOfTheCallingThread() throws HyracksDataException {
+        TestStorageManagerComponentHolder.init(PAGE_SIZE, NUM_PAGES, MAX_OPEN_FILES);
+        IBufferCache bufferCache = TestStorageManagerComponentHolder.getBufferCache(ctx);
+        IFileMapProvider fmp = TestStorageManagerComponentHolder.getFileMapProvider(ctx);
+        FileReference file = new FileReference(new File(getFileName()));
+        bufferCache.createFile(file);
+        int fileId = fmp.lookupFileId(file);
+        bufferCache.openFile(fileId);
+
+        long pins = BufferCache.getThreadPinCount();
+        long reads = BufferCache.getThreadReadCount();
+        // new pages are neither hits nor misses; one more page than the cache holds evicts some of them
+        int numPages = NUM_PAGES + 1;
+        for (int i = 0; i < numPages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            bufferCache.unpin(page);
+        }
+        Assert.assertEquals(pins, BufferCache.getThreadPinCount());
+        Assert.assertEquals(reads, BufferCache.getThreadReadCount());
+
+        for (int i = 0; i < numPages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), false);
+            bufferCache.unpin(page);
+        }
+        Assert.assertEquals(pins + numPages, BufferCache.getThreadPinCount());
+        long misses = BufferCache.getThreadReadCount() - reads;
+        Assert.assertTrue(misses > 0 && misses <= numPages);
+
+        // the page just pinned is still cached
+        ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, numPages - 1), false);
+        bufferCache.unpin(page);
+        Assert.assertEquals(pins + numPages + 1, BufferCache.getThreadPinCount());
+        Assert.assertEquals(reads + misses, BufferCache.getThreadReadCount());
+
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+    }
+
     @AfterClass
     public static void cleanup() throws Exception {
         for (String s : openedFiles) {